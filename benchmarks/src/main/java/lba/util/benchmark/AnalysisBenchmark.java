@@ -0,0 +1,62 @@
+package lba.util.benchmark;
+
+import lba.util.AbstractAnalyzer;
+import lba.util.CompositeAnalyzer;
+import lba.util.dependency.DependencyAnalyzer;
+import lba.util.lines.LineCounterAnalyzer;
+import lba.util.service.RestletEndpointAnalyzer;
+import lba.util.service.RestletServiceAnalyzer;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-file analysis cost of each analyzer, and of all the analyzers fed in a single pass. The files are analyzed
+ * from a list, so the walk is not measured.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configuration=log4j-benchmark.properties")
+@State(Scope.Benchmark)
+public class AnalysisBenchmark {
+
+    /**
+     * Analyzer : dependencies, restletServices, restletEndpoints, linesCounter, or all of them through a composite analyzer
+     */
+    @Param({"dependencies", "restletServices", "restletEndpoints", "linesCounter", "all"})
+    public String analyzer;
+
+    @Benchmark
+    public AbstractAnalyzer<?> analyze(Corpus corpus, Throughput throughput) {
+        AbstractAnalyzer<?> result = createAnalyzer();
+        for (Path file : corpus.files) {
+            result.analyseFile(file);
+        }
+        throughput.add(corpus);
+        return result;
+    }
+
+    private AbstractAnalyzer<?> createAnalyzer() {
+        switch (analyzer) {
+            case "dependencies":
+                return new DependencyAnalyzer();
+            case "restletServices":
+                return new RestletServiceAnalyzer();
+            case "restletEndpoints":
+                return new RestletEndpointAnalyzer();
+            case "linesCounter":
+                return new LineCounterAnalyzer();
+            default:
+                List<AbstractAnalyzer<?>> analyzers = new ArrayList<>();
+                analyzers.add(new DependencyAnalyzer());
+                analyzers.add(new RestletServiceAnalyzer());
+                analyzers.add(new LineCounterAnalyzer());
+                return new CompositeAnalyzer(analyzers);
+        }
+    }
+}
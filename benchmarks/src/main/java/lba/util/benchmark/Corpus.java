@@ -0,0 +1,89 @@
+package lba.util.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Synthetic corpus shared by the benchmarks, generated once per trial in a temporary directory. The corpus shape is
+ * given by the JMH parameters, e.g. -p fileCount=10000 -p restletShare=0.5
+ */
+@State(Scope.Benchmark)
+public class Corpus {
+
+    @Param("1000")
+    public int fileCount;
+
+    @Param("3")
+    public int packageDepth;
+
+    @Param("10")
+    public int importsPerFile;
+
+    @Param("200")
+    public int linesPerFile;
+
+    @Param("0.1")
+    public double restletShare;
+
+    /**
+     * Root source directory of the corpus
+     */
+    public Path rootDir;
+
+    /**
+     * Root package of the corpus
+     */
+    public String rootPackage;
+
+    /**
+     * Files of the corpus, in walk order
+     */
+    public List<Path> files;
+
+    /**
+     * Total size of the files
+     */
+    public long bytes;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        CorpusGenerator generator = new CorpusGenerator();
+        generator.setFileCount(fileCount);
+        generator.setPackageDepth(packageDepth);
+        generator.setImportsPerFile(importsPerFile);
+        generator.setLinesPerFile(linesPerFile);
+        generator.setRestletShare(restletShare);
+
+        rootDir = Files.createTempDirectory("source-analyzer-corpus");
+        rootPackage = generator.getRootPackage();
+        bytes = generator.generate(rootDir);
+
+        final List<Path> walked = new ArrayList<Path>();
+        Files.walkFileTree(rootDir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                walked.add(file);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        files = walked;
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        CorpusGenerator.delete(rootDir);
+    }
+}
@@ -0,0 +1,251 @@
+package lba.util.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Deterministic generator of synthetic Java source trees : the same settings and seed always give the same files,
+ * byte for byte, so that benchmark runs on different machines or revisions analyze the same corpus.
+ * <p>
+ * Each file declares one class in a package of the root package, imports other generated classes and JDK classes,
+ * and is filled with methods up to the requested number of lines. A share of the classes are Restlet resources,
+ * importing and using the Restlet verb annotations.
+ */
+public class CorpusGenerator {
+
+    /**
+     * JDK classes imported by the generated files
+     */
+    private static final String[] JDK_IMPORTS = {
+            "java.io.IOException", "java.io.Serializable", "java.util.ArrayList", "java.util.HashMap",
+            "java.util.List", "java.util.Map", "java.util.Set", "java.util.concurrent.ConcurrentHashMap",
+            "java.nio.file.Path", "java.nio.file.Files", "java.util.logging.Logger", "java.time.Instant"
+    };
+
+    /**
+     * Restlet verb annotations
+     */
+    private static final String[] VERBS = {"Get", "Post", "Put", "Delete"};
+
+    private String rootPackage = "org.example.app";
+
+    private int fileCount = 1000;
+
+    private int packageDepth = 3;
+
+    private int packagesPerLevel = 4;
+
+    private int importsPerFile = 10;
+
+    private int linesPerFile = 200;
+
+    private double restletShare = 0.1;
+
+    private long seed = 42L;
+
+    /**
+     * Generate the corpus
+     *
+     * @param rootDir root source directory, created if needed
+     * @return number of bytes written
+     */
+    public long generate(Path rootDir) throws IOException {
+        Random random = new Random(seed);
+
+        // All the classes are named first, so that a file may import a class generated after it
+        List<String> packages = new ArrayList<String>(fileCount);
+        List<String> classNames = new ArrayList<String>(fileCount);
+        for (int i = 0; i < fileCount; i++) {
+            StringBuilder pkg = new StringBuilder(rootPackage);
+            int depth = 1 + random.nextInt(packageDepth);
+            for (int level = 0; level < depth; level++) {
+                pkg.append(".p").append(level).append('_').append(random.nextInt(packagesPerLevel));
+            }
+            packages.add(pkg.toString());
+            classNames.add("Type" + i);
+        }
+
+        long bytes = 0;
+        for (int i = 0; i < fileCount; i++) {
+            boolean restlet = random.nextDouble() < restletShare;
+            String content = generateFile(random, packages, classNames, i, restlet);
+            Path dir = rootDir.resolve(packages.get(i).replace('.', '/'));
+            Files.createDirectories(dir);
+            byte[] encoded = content.getBytes(StandardCharsets.UTF_8);
+            Files.write(dir.resolve(classNames.get(i) + ".java"), encoded);
+            bytes += encoded.length;
+        }
+        return bytes;
+    }
+
+    private String generateFile(Random random, List<String> packages, List<String> classNames, int index, boolean restlet) {
+        StringBuilder out = new StringBuilder(linesPerFile * 40);
+        int lines = 0;
+
+        out.append("/*\n * Synthetic source file generated for the benchmarks\n */\n");
+        lines += 3;
+        out.append("package ").append(packages.get(index)).append(";\n\n");
+        lines += 2;
+
+        Set<String> imports = new LinkedHashSet<String>();
+        List<String> verbs = new ArrayList<String>();
+        if (restlet) {
+            imports.add("org.restlet.resource.ServerResource");
+            for (String verb : VERBS) {
+                if (verbs.isEmpty() || random.nextBoolean()) {
+                    verbs.add(verb);
+                    imports.add("org.restlet.resource." + verb);
+                }
+            }
+        }
+        int attempts = 0;
+        while (imports.size() < importsPerFile + (restlet ? verbs.size() + 1 : 0) && attempts++ < importsPerFile * 4) {
+            if (random.nextInt(10) < 7) {
+                int target = random.nextInt(fileCount);
+                if (target != index) {
+                    imports.add(packages.get(target) + "." + classNames.get(target));
+                }
+            } else {
+                imports.add(JDK_IMPORTS[random.nextInt(JDK_IMPORTS.length)]);
+            }
+        }
+        for (String imported : imports) {
+            out.append("import ").append(imported).append(";\n");
+            lines++;
+        }
+        out.append('\n');
+        lines++;
+
+        out.append("/**\n * Generated class ").append(classNames.get(index)).append("\n */\n");
+        lines += 3;
+        out.append("public class ").append(classNames.get(index)).append(restlet ? " extends ServerResource {\n\n" : " {\n\n");
+        lines += 2;
+
+        for (String verb : verbs) {
+            out.append("    @").append(verb).append("(\"json\")\n");
+            out.append("    public String ").append(verb.toLowerCase()).append("Representation() {\n");
+            out.append("        return \"{\\\"verb\\\":\\\"").append(verb).append("\\\"}\";\n");
+            out.append("    }\n\n");
+            lines += 5;
+        }
+
+        int method = 0;
+        while (lines + 7 < linesPerFile) {
+            out.append("    // Method ").append(method).append('\n');
+            out.append("    public int method").append(method).append("(int value) {\n");
+            out.append("        int result = value * ").append(random.nextInt(1000)).append(";\n");
+            out.append("        /* keep the compiler busy */\n");
+            out.append("        return result + ").append(method).append(";\n");
+            out.append("    }\n\n");
+            lines += 7;
+            method++;
+        }
+
+        out.append("}\n");
+        return out.toString();
+    }
+
+    /**
+     * Delete a generated corpus
+     *
+     * @param rootDir root source directory
+     */
+    public static void delete(Path rootDir) throws IOException {
+        if (!Files.exists(rootDir)) {
+            return;
+        }
+        Files.walkFileTree(rootDir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    public void setRootPackage(String rootPackage) {
+        this.rootPackage = rootPackage;
+    }
+
+    public String getRootPackage() {
+        return rootPackage;
+    }
+
+    public void setFileCount(int fileCount) {
+        this.fileCount = fileCount;
+    }
+
+    public void setPackageDepth(int packageDepth) {
+        this.packageDepth = packageDepth;
+    }
+
+    public void setPackagesPerLevel(int packagesPerLevel) {
+        this.packagesPerLevel = packagesPerLevel;
+    }
+
+    public void setImportsPerFile(int importsPerFile) {
+        this.importsPerFile = importsPerFile;
+    }
+
+    public void setLinesPerFile(int linesPerFile) {
+        this.linesPerFile = linesPerFile;
+    }
+
+    public void setRestletShare(double restletShare) {
+        this.restletShare = restletShare;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Generate a corpus from the command line :
+     * rootDir [fileCount [packageDepth [importsPerFile [linesPerFile [restletShare [seed]]]]]]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage : CorpusGenerator rootDir [fileCount [packageDepth [importsPerFile [linesPerFile [restletShare [seed]]]]]]");
+            return;
+        }
+        CorpusGenerator generator = new CorpusGenerator();
+        if (args.length > 1) {
+            generator.setFileCount(Integer.parseInt(args[1]));
+        }
+        if (args.length > 2) {
+            generator.setPackageDepth(Integer.parseInt(args[2]));
+        }
+        if (args.length > 3) {
+            generator.setImportsPerFile(Integer.parseInt(args[3]));
+        }
+        if (args.length > 4) {
+            generator.setLinesPerFile(Integer.parseInt(args[4]));
+        }
+        if (args.length > 5) {
+            generator.setRestletShare(Double.parseDouble(args[5]));
+        }
+        if (args.length > 6) {
+            generator.setSeed(Long.parseLong(args[6]));
+        }
+        long bytes = generator.generate(Paths.get(args[0]));
+        System.out.println(generator.fileCount + " files, " + bytes + " bytes generated in " + args[0]
+                + " (root package " + generator.rootPackage + ")");
+    }
+}
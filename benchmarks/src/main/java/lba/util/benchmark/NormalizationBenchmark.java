@@ -0,0 +1,68 @@
+package lba.util.benchmark;
+
+import lba.util.dependency.DependencyAnalyzer;
+import lba.util.dependency.DependencyManager;
+import lba.util.dependency.DependencyGraph;
+import lba.util.dependency.DepthProjection;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building the compact dependency graph and of its normalized views. The views are cached by the manager
+ * until the graph changes, so each invocation works on a fresh copy of the dependencies.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configuration=log4j-benchmark.properties")
+@State(Scope.Benchmark)
+public class NormalizationBenchmark {
+
+    /**
+     * Dependencies of the whole corpus
+     */
+    private DependencyManager dependencies;
+
+    /**
+     * Fresh copy of the dependencies, with its graph already built
+     */
+    private DependencyManager copy;
+
+    @Setup(Level.Trial)
+    public void analyze(Corpus corpus) {
+        DependencyAnalyzer analyzer = new DependencyAnalyzer();
+        for (Path file : corpus.files) {
+            analyzer.analyseFile(file);
+        }
+        dependencies = analyzer.getManager();
+    }
+
+    @Setup(Level.Invocation)
+    public void copy() {
+        copy = new DependencyManager();
+        copy.merge(dependencies);
+        copy.getGraph();
+    }
+
+    @Benchmark
+    public DependencyGraph buildGraph() {
+        DependencyManager manager = new DependencyManager();
+        manager.merge(dependencies);
+        return manager.getGraph();
+    }
+
+    @Benchmark
+    public Map<String, SortedSet<String>> normalizeDepth1(Corpus corpus) {
+        return copy.getNormalizedDependencies(corpus.rootPackage);
+    }
+
+    @Benchmark
+    public Map<String, SortedSet<String>> normalizeDepth2(Corpus corpus) {
+        return copy.getView(new DepthProjection(corpus.rootPackage, 2));
+    }
+}
@@ -0,0 +1,125 @@
+package lba.util.benchmark;
+
+import lba.util.dependency.DependencyAnalyzer;
+import lba.util.report.ReportFormat;
+import lba.util.service.RestletServiceAnalyzer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the report generation, the reports being written to a writer discarding the characters
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configuration=log4j-benchmark.properties")
+@State(Scope.Benchmark)
+public class ReportBenchmark {
+
+    private DependencyAnalyzer dependencyAnalyzer;
+
+    private Map<String, SortedSet<String>> dependencies;
+
+    private SortedMap<String, SortedSet<String>> services;
+
+    @Setup(Level.Trial)
+    public void analyze(Corpus corpus) {
+        dependencyAnalyzer = new DependencyAnalyzer();
+        RestletServiceAnalyzer restletServiceAnalyzer = new RestletServiceAnalyzer();
+        for (Path file : corpus.files) {
+            dependencyAnalyzer.analyseFile(file);
+            restletServiceAnalyzer.analyseFile(file);
+        }
+        dependencies = dependencyAnalyzer.getManager().getNormalizedDependencies(corpus.rootPackage);
+        services = restletServiceAnalyzer.getServicesRepository();
+    }
+
+    @Benchmark
+    public long dependenciesDot() throws IOException {
+        return writeDependencies(ReportFormat.DOT);
+    }
+
+    @Benchmark
+    public long dependenciesText() throws IOException {
+        return writeDependencies(ReportFormat.TEXT);
+    }
+
+    @Benchmark
+    public long dependenciesJson() throws IOException {
+        return writeDependencies(ReportFormat.JSON);
+    }
+
+    @Benchmark
+    public long dependenciesGraphML() throws IOException {
+        return writeDependencies(ReportFormat.GRAPHML);
+    }
+
+    @Benchmark
+    public long servicesText() throws IOException {
+        return writeServices(ReportFormat.TEXT);
+    }
+
+    @Benchmark
+    public long servicesJson() throws IOException {
+        return writeServices(ReportFormat.JSON);
+    }
+
+    /**
+     * Legacy in-memory dot generation
+     */
+    @Benchmark
+    public String toDot(Corpus corpus) {
+        return dependencyAnalyzer.toDot(corpus.rootPackage);
+    }
+
+    private long writeDependencies(ReportFormat format) throws IOException {
+        CountingWriter out = new CountingWriter();
+        format.createWriter().writeDependencies(dependencies, out);
+        return out.count;
+    }
+
+    private long writeServices(ReportFormat format) throws IOException {
+        CountingWriter out = new CountingWriter();
+        format.createWriter().writeServices(services, out);
+        return out.count;
+    }
+
+    /**
+     * Writer discarding the characters, only counting them
+     */
+    static class CountingWriter extends Writer {
+
+        long count;
+
+        @Override
+        public void write(int c) {
+            count++;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
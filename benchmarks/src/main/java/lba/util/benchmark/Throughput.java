@@ -0,0 +1,39 @@
+package lba.util.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Secondary results of the benchmarks : in throughput mode, JMH reports the counters as files/sec and bytes/sec
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class Throughput {
+
+    /**
+     * Number of files processed
+     */
+    public long files;
+
+    /**
+     * Number of bytes processed
+     */
+    public long bytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        files = 0;
+        bytes = 0;
+    }
+
+    /**
+     * Count a whole pass over the corpus
+     */
+    public void add(Corpus corpus) {
+        files += corpus.files.size();
+        bytes += corpus.bytes;
+    }
+}
@@ -0,0 +1,67 @@
+package lba.util.benchmark;
+
+import lba.util.AbstractAnalyzer;
+import lba.util.AnalysisSettings;
+import lba.util.JavaSourceFileVisitor;
+import lba.util.ParallelSourceWalker;
+import lba.util.SourceFile;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the tree walk alone : the files are visited but not read
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configuration=log4j-benchmark.properties")
+@State(Scope.Benchmark)
+public class WalkBenchmark {
+
+    /**
+     * Number of worker threads, the tree is walked sequentially below 2
+     */
+    @Param({"1", "4"})
+    public int threads;
+
+    @Benchmark
+    public long walk(Corpus corpus, Throughput throughput) throws IOException {
+        VisitCounter counter = new VisitCounter();
+        AnalysisSettings settings = new AnalysisSettings();
+        if (threads < 2) {
+            Files.walkFileTree(corpus.rootDir, new JavaSourceFileVisitor<>(counter, settings));
+        } else {
+            new ParallelSourceWalker(threads, settings).walk(corpus.rootDir, counter);
+        }
+        // The files are not read, only the visited files are counted
+        throughput.files += counter.visited;
+        return counter.visited;
+    }
+
+    /**
+     * Analyzer counting the visited files without reading them
+     */
+    static class VisitCounter extends AbstractAnalyzer<VisitCounter> {
+
+        long visited;
+
+        @Override
+        public void analyseSource(SourceFile source) {
+            visited++;
+        }
+
+        @Override
+        public VisitCounter split() {
+            return new VisitCounter();
+        }
+
+        @Override
+        public void merge(VisitCounter other) {
+            visited += other.visited;
+        }
+    }
+}
@@ -1,8 +1,88 @@
 package lba.util;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
 import java.nio.file.Path;
 
-public abstract class AbstractAnalyzer {
+/**
+ * Base class of all the Java source file analyzers.
+ * <p>
+ * An analyzer is not thread safe : when the source tree is walked by several workers, each worker gets its own
+ * analyzer created with {@link #split()}, and the results are then combined with {@link #merge(AbstractAnalyzer)}.
+ *
+ * @param <A> concrete analyzer type
+ */
+public abstract class AbstractAnalyzer<A extends AbstractAnalyzer<A>> {
+
+    /**
+     * Logger
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(AbstractAnalyzer.class);
+
+    /**
+     * Number of bytes read from the files by this analyzer, the bytes already read by another analyzer fed with the
+     * same source file are not counted
+     */
+    protected long bytesRead = 0L;
+
+    /**
+     * Analyze a single file
+     *
+     * @param file Java source file path
+     */
+    public void analyseFile(Path file) {
+        try (SourceFile source = new SourceFile(file)) {
+            analyseSource(source);
+        } catch (IOException e) {
+            LOG.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Analyze a single source file, whose content may be shared with other analyzers
+     *
+     * @param source Java source file
+     */
+    public abstract void analyseSource(SourceFile source);
+
+    /**
+     * Create a new empty analyzer sharing the configuration of this one, intended to be fed by another worker
+     *
+     * @return a new analyzer without any result
+     */
+    public abstract A split();
+
+    /**
+     * Create a new empty analyzer for the sources of a module, when several source roots are analyzed together.
+     * By default the module is ignored and the analyzer is created with {@link #split()}.
+     *
+     * @param module name of the module
+     * @return a new analyzer without any result
+     */
+    public A forModule(String module) {
+        return split();
+    }
+
+    /**
+     * Merge into this analyzer the results gathered by another analyzer (usually created with {@link #split()})
+     *
+     * @param other analyzer whose results are added to this one
+     */
+    public abstract void merge(A other);
+
+    /**
+     * @return true if the analyzer reads the whole content of the files, false if it only reads their header
+     */
+    public boolean needsWholeContent() {
+        return false;
+    }
 
-    public abstract void analyseFile(Path file);
+    /**
+     * @return number of bytes read from the files by this analyzer
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
 }
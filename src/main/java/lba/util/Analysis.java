@@ -0,0 +1,745 @@
+package lba.util;
+
+import lba.util.cache.AnalysisCache;
+import lba.util.dependency.DependencyAnalyzer;
+import lba.util.dependency.DependencyGraphBuilder;
+import lba.util.dependency.DependencyManager;
+import lba.util.dependency.DependencyProjection;
+import lba.util.dependency.DepthProjection;
+import lba.util.dependency.GraphAnalysis;
+import lba.util.dependency.ModuleDependencies;
+import lba.util.dependency.PackageGraph;
+import lba.util.dependency.PrefixProjection;
+import lba.util.git.GitRepository;
+import lba.util.git.GitSourceWalker;
+import lba.util.imports.ImportIndex;
+import lba.util.lines.LineCounterAnalyzer;
+import lba.util.metrics.AnalysisMetrics;
+import lba.util.metrics.ProgressReporter;
+import lba.util.report.ReportFormat;
+import lba.util.report.ReportWriter;
+import lba.util.report.ReportWriter.ReportType;
+import lba.util.server.QueryIndex;
+import lba.util.service.RestletEndpointAnalyzer;
+import lba.util.service.RestletServiceAnalyzer;
+import lba.util.snapshot.AnalysisSnapshot;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.ParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SortedSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Analysis configured by a command line : the sources roots and the settings of the walk, the analyzers fed by the
+ * walk and the settings of their reports
+ */
+public class Analysis {
+
+    /**
+     * Logger
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(Analysis.class);
+
+    /**
+     * Average size of a compressed source file, used to estimate the number of files of an archive
+     */
+    private static final long ARCHIVED_SOURCE_BYTES = 2048;
+
+    /**
+     * Number of directories listed to estimate the number of files of a root, unless the files are counted
+     */
+    private static final int SAMPLED_DIRECTORIES = 64;
+
+    /**
+     * Default time between two progress reports
+     */
+    static final int DEFAULT_PROGRESS_SECONDS = 10;
+
+    /**
+     * Options of an analysis changing the files its walk reads, the analyses of a batch are only fed by the same walk
+     * when they agree on all of them
+     */
+    private static final List<String> WALK_OPTIONS = Arrays.asList("rev", "maxHeaderBytes", "ignore", "ignoreFile",
+            "noDefaultIgnores", "prunePackages", "deadline", "maxFileBytes", "maxFileMillis");
+
+    // Command line of the analysis
+    private final CommandLine line;
+
+    // Analyzers selected on the command line, and the settings of their reports
+    private List<AbstractAnalyzer<?>> analyzers;
+    private DependencyAnalyzer dependencyAnalyzer;
+    private RestletServiceAnalyzer restletServiceAnalyzer;
+    private RestletEndpointAnalyzer restletEndpointAnalyzer;
+    private LineCounterAnalyzer lineCounterAnalyzer;
+    private List<DependencyProjection> projections;
+    private ReportFormat dependenciesFormat;
+    private ReportFormat servicesFormat;
+    private ReportFormat endpointsFormat;
+    private ReportFormat linesFormat;
+    private ReportFormat graphFormat;
+    private AnalysisMetrics metrics;
+    private List<SourceRoot> roots;
+    private AnalysisSettings settings;
+    private int threads;
+    private boolean multiModule;
+
+    // Time allowed to the walk (0 for no deadline), time between two progress reports (0 for none), in seconds, and
+    // number of files the walk is expected to analyze (0 if unknown)
+    private int deadlineSeconds;
+    private int progressSeconds;
+    private long expectedFiles;
+
+    /**
+     * Read the sources roots, the settings and the analyzers selected on the command line, and the settings of their
+     * reports
+     *
+     * @param line parsed command line of the analysis
+     */
+    public Analysis(CommandLine line) throws IOException, ParseException {
+        this.line = line;
+        roots = getSourceRoots();
+        multiModule = roots.size() > 1 || roots.get(0).getModule() != null;
+        String rootPackage = line.getOptionValue("pkg");
+        threads = Main.getThreads(line);
+
+        settings = new AnalysisSettings();
+        if (line.hasOption("maxHeaderBytes")) {
+            settings.setMaxHeaderBytes(Main.getInt(line, "maxHeaderBytes"));
+        }
+        // The deadline is only set once the walk starts
+        deadlineSeconds = line.hasOption("deadline") ? Main.getPositiveInt(line, "deadline") : 0;
+        if (line.hasOption("maxFileBytes")) {
+            settings.setMaxFileBytes(Main.getPositiveInt(line, "maxFileBytes"));
+        }
+        if (line.hasOption("maxFileMillis")) {
+            settings.setMaxFileMillis(Main.getPositiveInt(line, "maxFileMillis"));
+        }
+        progressSeconds = 0;
+        if (line.hasOption("progress")) {
+            progressSeconds = line.getOptionValue("progress") != null
+                    ? Main.getPositiveInt(line, "progress") : DEFAULT_PROGRESS_SECONDS;
+        }
+        metrics = new AnalysisMetrics(line.hasOption("slowest")
+                ? Main.getInt(line, "slowest") : AnalysisMetrics.DEFAULT_SLOWEST_FILES);
+        settings.setMetrics(metrics);
+        settings.setFilter(getFilter(rootPackage));
+
+        // Select the analyzers, all of them are fed during the same walk
+        analyzers = new ArrayList<>();
+        dependencyAnalyzer = null;
+        restletServiceAnalyzer = null;
+        restletEndpointAnalyzer = null;
+        lineCounterAnalyzer = null;
+
+        if (line.hasOption("dependencies")) {
+            // With a memory bound, the edges are spilled to disk rather than kept in memory
+            int maxBufferedEdges = 0;
+            if (line.hasOption("maxMemory")) {
+                long maxMemory = Main.getInt(line, "maxMemory");
+                if (maxMemory <= 0) {
+                    throw new ParseException("Invalid value for --maxMemory : " + line.getOptionValue("maxMemory"));
+                }
+                maxBufferedEdges = (int) Math.min(Integer.MAX_VALUE,
+                        maxMemory * 1024 * 1024 / DependencyGraphBuilder.BUFFERED_EDGE_BYTES);
+            }
+            dependencyAnalyzer = new DependencyAnalyzer(new DependencyManager(maxBufferedEdges), null,
+                    line.hasOption("importIndex") ? new ImportIndex() : null);
+            analyzers.add(dependencyAnalyzer);
+        }
+        if (line.hasOption("restletServices")) {
+            restletServiceAnalyzer = new RestletServiceAnalyzer();
+            analyzers.add(restletServiceAnalyzer);
+        }
+        if (line.hasOption("restletEndpoints")) {
+            restletEndpointAnalyzer = new RestletEndpointAnalyzer();
+            analyzers.add(restletEndpointAnalyzer);
+        }
+        if (line.hasOption("linesCounter")) {
+            lineCounterAnalyzer = new LineCounterAnalyzer();
+            analyzers.add(lineCounterAnalyzer);
+        }
+
+        if (analyzers.isEmpty()) {
+            throw new ParseException("At least one of --dependencies, --restletServices, --restletEndpoints or --linesCounter is required");
+        }
+
+        dependenciesFormat = Main.getFormat(line, ReportFormat.DOT, ReportType.DEPENDENCIES, dependencyAnalyzer != null);
+        servicesFormat = Main.getFormat(line, ReportFormat.TEXT, ReportType.SERVICES, restletServiceAnalyzer != null);
+        endpointsFormat = Main.getFormat(line, ReportFormat.TEXT, ReportType.ENDPOINTS, restletEndpointAnalyzer != null);
+        linesFormat = Main.getFormat(line, ReportFormat.TEXT, ReportType.LINES, lineCounterAnalyzer != null);
+
+        if (line.hasOption("importIndex") && dependencyAnalyzer == null) {
+            throw new ParseException("--importIndex requires --dependencies");
+        }
+        if (line.hasOption("snapshot") && dependencyAnalyzer == null && restletServiceAnalyzer == null) {
+            throw new ParseException("--snapshot requires --dependencies or --restletServices");
+        }
+        if (line.hasOption("graphReport") && dependencyAnalyzer == null) {
+            throw new ParseException("--graphReport requires --dependencies");
+        }
+        // Normalized views of the dependencies, all built from the same walk
+        projections = new ArrayList<>();
+        if (line.hasOption("depth")) {
+            for (String depth : line.getOptionValue("depth").split(",")) {
+                try {
+                    projections.add(new DepthProjection(rootPackage, Integer.parseInt(depth.trim())));
+                } catch (IllegalArgumentException e) {
+                    throw new ParseException("Invalid value for --depth : " + line.getOptionValue("depth"));
+                }
+            }
+        } else {
+            projections.add(new DepthProjection(rootPackage, 1));
+        }
+        if (line.hasOption("prefixMap")) {
+            projections.add(new PrefixProjection(loadPrefixMap(Paths.get(line.getOptionValue("prefixMap")))));
+        }
+
+        graphFormat = ReportFormat.TEXT;
+        if (line.hasOption("format") && Main.getFormat(line, ReportFormat.TEXT, ReportType.GRAPH_ANALYSIS, false) == ReportFormat.JSON) {
+            graphFormat = ReportFormat.JSON;
+        }
+
+        if (line.hasOption("serve") && dependencyAnalyzer == null && restletServiceAnalyzer == null
+                && restletEndpointAnalyzer == null) {
+            throw new ParseException("--serve requires --dependencies, --restletServices or --restletEndpoints");
+        }
+
+        if (line.hasOption("rev") && (roots.size() > 1 || roots.get(0).getModule() != null)) {
+            throw new ParseException("--rev requires a single git repository as --src");
+        }
+        if (line.hasOption("rev") && line.hasOption("watch")) {
+            throw new ParseException("--rev cannot be combined with --watch");
+        }
+        if (line.hasOption("watch") && roots.size() > 1) {
+            throw new ParseException("--watch requires a single source root");
+        }
+        if (line.hasOption("deadline") && line.hasOption("watch")) {
+            throw new ParseException("--deadline cannot be combined with --watch");
+        }
+    }
+
+    /**
+     * Walk the sources, and write the reports of the selected analyzers
+     *
+     * @param cache per-file results cache, saved once the walk is done, may be null
+     * @return the analyzer holding the results
+     */
+    public CompositeAnalyzer run(AnalysisCache cache) throws IOException {
+        if (cache != null) {
+            // The progress is reported against the files of the previous run, or else estimated during the walk
+            for (SourceRoot root : roots) {
+                expectedFiles += cache.countLoadedRecords(root.getPath());
+            }
+        }
+
+        CompositeAnalyzer compositeAnalyzer = walk(new CompositeAnalyzer(analyzers, cache), null);
+
+        if (cache != null) {
+            if (metrics.isPartial()) {
+                cache.retainUnvisited();
+            }
+            cache.save();
+        }
+
+        writeReports();
+        return compositeAnalyzer;
+    }
+
+    /**
+     * Walk the sources roots, or the git revision, selected on the command line
+     *
+     * @param analyzer composite of the analyzers fed by the walk
+     * @param pool     pool shared with other walks, null to walk with a pool of the requested number of threads
+     * @return the analyzer holding the results
+     */
+    public CompositeAnalyzer walk(CompositeAnalyzer analyzer, ForkJoinPool pool) throws IOException {
+        long walkStart = System.nanoTime();
+        if (deadlineSeconds > 0) {
+            settings.setDeadline(walkStart + TimeUnit.SECONDS.toNanos(deadlineSeconds));
+        }
+        ProgressReporter progress = null;
+        if (progressSeconds > 0) {
+            if (expectedFiles == 0 && pool == null && threads < 2 && !line.hasOption("rev")) {
+                // Unlike the parallel walks, the sequential walk gives no running estimate, the sources are counted first
+                expectedFiles = estimateFiles(null, true);
+            }
+            progress = new ProgressReporter(metrics, expectedFiles, settings.getDeadline());
+            progress.start(progressSeconds);
+        }
+        CompositeAnalyzer result;
+        try {
+            if (line.hasOption("rev")) {
+                try (GitRepository repository = GitRepository.open(roots.get(0).getPath())) {
+                    GitSourceWalker walker = pool == null
+                            ? new GitSourceWalker(repository, threads, settings)
+                            : new GitSourceWalker(repository, pool, settings);
+                    result = walker.walk(line.getOptionValue("rev"), analyzer);
+                }
+            } else if (pool == null) {
+                result = analyze(roots, analyzer, threads, settings);
+            } else {
+                result = new ParallelSourceWalker(pool, settings).walk(roots, analyzer);
+            }
+        } finally {
+            if (progress != null) {
+                progress.close();
+            }
+        }
+        metrics.addTime(AnalysisMetrics.Phase.WALK, System.nanoTime() - walkStart);
+        if (metrics.isPartial()) {
+            LOG.warn("Partial results, {}", metrics.getSkippedFiles().getSummary());
+        }
+        for (AbstractAnalyzer<?> walked : analyzer.getAnalyzers()) {
+            LOG.info("{} read {} bytes", walked.getClass().getSimpleName(), walked.getBytesRead());
+            if (walked instanceof DependencyAnalyzer && ((DependencyAnalyzer) walked).getManager().getSpilledEdges() > 0) {
+                LOG.info("{} dependency edges spilled to disk", ((DependencyAnalyzer) walked).getManager().getSpilledEdges());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the key of the walk of an analysis, the analyses of a batch having the same key being fed by the same
+     * walk
+     */
+    public String getWalkKey() {
+        StringBuilder key = new StringBuilder();
+        for (SourceRoot root : roots) {
+            key.append(root.getPath().toAbsolutePath().normalize()).append('=').append(root.getModule()).append(';');
+        }
+        for (String option : WALK_OPTIONS) {
+            key.append(option).append('=').append(line.hasOption(option))
+                    .append(Arrays.toString(line.getOptionValues(option))).append(';');
+        }
+        if (line.hasOption("prunePackages")) {
+            key.append(line.getOptionValue("pkg"));
+        }
+        return key.toString();
+    }
+
+    /**
+     * @param cache      per-file results cache, may be null
+     * @param countFiles whether the files of the roots without cache records are counted rather than estimated
+     * @return the estimated number of files of the walk : the number of records of the previous run found in the cache
+     * for each root, or else the number of Java files counted or estimated under the root (under the work tree for a
+     * git revision)
+     */
+    public long estimateFiles(AnalysisCache cache, boolean countFiles) {
+        long files = 0L;
+        for (SourceRoot root : roots) {
+            int records = cache == null ? 0 : cache.countLoadedRecords(root.getPath());
+            if (records > 0) {
+                files += records;
+            } else {
+                files += countFiles ? countSources(root.getPath()) : sampleSources(root.getPath());
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Estimate the number of Java files under a root from its first directories only : the directories are listed
+     * breadth first up to {@link #SAMPLED_DIRECTORIES}, the directories left are assumed to hold as many files as the
+     * average listed directory
+     *
+     * @return the estimated number of Java files under a root
+     */
+    private long sampleSources(Path root) {
+        if (Files.isRegularFile(root)) {
+            return root.toFile().length() / ARCHIVED_SOURCE_BYTES + 1;
+        }
+        SourceFilter filter = settings.getFilter();
+        Deque<Path> directories = new ArrayDeque<>();
+        directories.add(root);
+        long files = 0L;
+        int listed = 0;
+        while (!directories.isEmpty() && listed < SAMPLED_DIRECTORIES) {
+            Path dir = directories.poll();
+            listed++;
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+                for (Path entry : entries) {
+                    BasicFileAttributes attrs = Files.readAttributes(entry, BasicFileAttributes.class);
+                    if (filter != null && filter.isIgnored(entry, root, attrs.isDirectory())) {
+                        continue;
+                    }
+                    if (attrs.isDirectory()) {
+                        directories.add(entry);
+                    } else if (entry.getFileName().toString().endsWith(".java")) {
+                        files++;
+                    } else if (SourceArchives.isSourceArchive(entry)) {
+                        files += attrs.size() / ARCHIVED_SOURCE_BYTES + 1;
+                    }
+                }
+            } catch (IOException e) {
+                LOG.debug("Unable to list " + dir + " : " + e.getMessage());
+            }
+        }
+        return files + (listed > 0 ? directories.size() * files / listed : 0L);
+    }
+
+    /**
+     * @return the number of Java files under a root, the files of the archives being estimated from their size
+     */
+    private long countSources(final Path root) {
+        if (Files.isRegularFile(root)) {
+            return root.toFile().length() / ARCHIVED_SOURCE_BYTES + 1;
+        }
+        final SourceFilter filter = settings.getFilter();
+        final long[] count = new long[1];
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    return !dir.equals(root) && filter != null && filter.isIgnored(dir, root, true)
+                            ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (filter != null && filter.isIgnored(file, root, false)) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    if (file.getFileName().toString().endsWith(".java")) {
+                        count[0]++;
+                    } else if (SourceArchives.isSourceArchive(file)) {
+                        count[0] += attrs.size() / ARCHIVED_SOURCE_BYTES + 1;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            LOG.warn("Unable to count the files of " + root + " : " + e.getMessage());
+        }
+        return count[0];
+    }
+
+    /**
+     * @return the indexes of the query server, built from the results of the selected analyzers
+     */
+    public QueryIndex buildQueryIndex() {
+        return new QueryIndex(dependencyAnalyzer == null ? null : dependencyAnalyzer.getManager(),
+                restletServiceAnalyzer == null ? null : restletServiceAnalyzer.getServicesRepository(),
+                restletEndpointAnalyzer == null ? null : restletEndpointAnalyzer.getInventory());
+    }
+
+    /**
+     * Write the reports of the selected analyzers, and the metrics of the run
+     */
+    public void writeReports() throws IOException {
+        // Save each result into its output file
+        long reportStart = System.nanoTime();
+        if (line.hasOption("importIndex")) {
+            ImportIndex importIndex = dependencyAnalyzer.getImportIndex();
+            importIndex.write(Paths.get(line.getOptionValue("importIndex")));
+            LOG.info("{} imported types written into import index {}", importIndex.getTypeCount(),
+                    line.getOptionValue("importIndex"));
+        }
+        if (line.hasOption("snapshot")) {
+            int names = AnalysisSnapshot.write(Paths.get(line.getOptionValue("snapshot")),
+                    dependencyAnalyzer == null ? null : dependencyAnalyzer.getManager(),
+                    restletServiceAnalyzer == null ? null : restletServiceAnalyzer.getServicesRepository());
+            LOG.info("{} names written into snapshot {}", names, line.getOptionValue("snapshot"));
+        }
+        Path output = Paths.get(line.getOptionValue("output"));
+        if (analyzers.size() > 1) {
+            Files.createDirectories(output);
+        }
+
+        if (dependencyAnalyzer != null) {
+            Map<String, SortedSet<String>> dependencies = dependencyAnalyzer.getManager().getView(projections.get(0));
+
+            GraphAnalysis graphAnalysis = null;
+            if (line.hasOption("graphReport")) {
+                graphAnalysis = new GraphAnalysis(line.hasOption("fullGraph")
+                        ? PackageGraph.fromManager(dependencyAnalyzer.getManager())
+                        : PackageGraph.fromDependencies(dependencies));
+                LOG.info("{} packages, {} cycles, {} layers", new Object[]{graphAnalysis.getGraph().getNodeCount(),
+                        graphAnalysis.getCycles().size(), graphAnalysis.getLayers().size()});
+                try (Writer out = Files.newBufferedWriter(Paths.get(line.getOptionValue("graphReport")), StandardCharsets.UTF_8)) {
+                    createWriter(graphFormat).writeGraphAnalysis(graphAnalysis, out);
+                }
+            }
+
+            try (Writer out = openOutput(output, analyzers.size(), "dependencies", dependenciesFormat)) {
+                // The cycles can only be outlined when the analysis ran on the reported graph
+                createWriter(dependenciesFormat).writeDependencies(dependencies,
+                        line.hasOption("fullGraph") ? null : graphAnalysis, out);
+            }
+
+            for (DependencyProjection projection : projections.subList(1, projections.size())) {
+                try (Writer out = openOutput(output, analyzers.size(), "dependencies", "-" + projection.getName(), dependenciesFormat)) {
+                    createWriter(dependenciesFormat).writeDependencies(dependencyAnalyzer.getManager().getView(projection), out);
+                }
+            }
+
+            if (multiModule) {
+                // Module level graph, and the package dependencies crossing modules
+                ModuleDependencies moduleDependencies = new ModuleDependencies(dependencyAnalyzer.getManager());
+                LOG.info("{} modules, {} cross-module package dependencies",
+                        moduleDependencies.getModuleDependencies().size(), moduleDependencies.getCrossModuleCount());
+                try (Writer out = openOutput(output, analyzers.size(), "dependencies", "-modules", dependenciesFormat)) {
+                    createWriter(dependenciesFormat).writeDependencies(moduleDependencies.getModuleDependencies(), out);
+                }
+                try (Writer out = openOutput(output, analyzers.size(), "dependencies", "-cross-modules", dependenciesFormat)) {
+                    createWriter(dependenciesFormat).writeDependencies(moduleDependencies.getCrossModuleDependencies(), out);
+                }
+            }
+        }
+        if (restletServiceAnalyzer != null) {
+            try (Writer out = openOutput(output, analyzers.size(), "restlet-services", servicesFormat)) {
+                createWriter(servicesFormat).writeServices(restletServiceAnalyzer.getServicesRepository(), out);
+            }
+        }
+        if (restletEndpointAnalyzer != null) {
+            try (Writer out = openOutput(output, analyzers.size(), "restlet-endpoints", endpointsFormat)) {
+                createWriter(endpointsFormat).writeEndpoints(restletEndpointAnalyzer.getInventory(), out);
+            }
+        }
+        if (lineCounterAnalyzer != null) {
+            // Print the total lines of code
+            System.out.println("Total lines of code :" + lineCounterAnalyzer.getLinesNumber());
+            try (Writer out = openOutput(output, analyzers.size(), "lines", linesFormat)) {
+                createWriter(linesFormat).writeLines(lineCounterAnalyzer.getTotal(), lineCounterAnalyzer.getPackages(),
+                        lineCounterAnalyzer.getDirectories(), out);
+            }
+        }
+        if (metrics.isPartial()) {
+            // The skipped entries are listed in json with --format json, in txt otherwise, as the graph report
+            Path file = getSkippedOutput(output, analyzers.size(), graphFormat);
+            try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                if (graphFormat == ReportFormat.JSON) {
+                    metrics.getSkippedFiles().writeJson(out);
+                } else {
+                    metrics.getSkippedFiles().writeText(out);
+                }
+            }
+            LOG.warn("Skipped entries listed in {}", file);
+        }
+        metrics.addTime(AnalysisMetrics.Phase.REPORT, System.nanoTime() - reportStart);
+
+        LOG.info(metrics.getSummary());
+        if (line.hasOption("metrics")) {
+            try (Writer out = Files.newBufferedWriter(Paths.get(line.getOptionValue("metrics")), StandardCharsets.UTF_8)) {
+                metrics.writeJson(out);
+            }
+        }
+    }
+
+    /**
+     * @return a writer of the reports in a format, marked as partial when entries have been skipped by the walk
+     */
+    private ReportWriter createWriter(ReportFormat format) {
+        ReportWriter writer = format.createWriter();
+        if (metrics.isPartial()) {
+            writer.setPartialNotice(metrics.getSkippedFiles().getSummary());
+        }
+        return writer;
+    }
+
+    /**
+     * @return the file listing the entries skipped by a partial run : "skipped" in the output directory, or the
+     * output file name with a "-skipped" suffix
+     */
+    private static Path getSkippedOutput(Path output, int analyses, ReportFormat format) {
+        if (analyses > 1) {
+            return output.resolve("skipped." + format.getExtension());
+        }
+        String fileName = output.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        return output.resolveSibling((dot > 0 ? fileName.substring(0, dot) : fileName) + "-skipped." + format.getExtension());
+    }
+
+    /**
+     * Open a buffered writer on the output file of a report
+     *
+     * @param output   output file, or output directory when several analyses are performed
+     * @param analyses number of analyses performed
+     * @param baseName file name of the report in the output directory, without extension
+     * @param format   report format
+     */
+    private Writer openOutput(Path output, int analyses, String baseName, ReportFormat format) throws IOException {
+        return openOutput(output, analyses, baseName, "", format);
+    }
+
+    /**
+     * Open a buffered writer on the output file of a secondary report, whose name is the name of the main report
+     * with a suffix inserted before the extension
+     *
+     * @param output   output file, or output directory when several analyses are performed
+     * @param analyses number of analyses performed
+     * @param baseName file name of the main report in the output directory, without extension
+     * @param suffix   suffix of the secondary report, empty for the main report
+     * @param format   report format
+     */
+    private Writer openOutput(Path output, int analyses, String baseName, String suffix, ReportFormat format)
+            throws IOException {
+        Path file;
+        if (analyses > 1) {
+            file = output.resolve(baseName + suffix + "." + format.getExtension());
+        } else {
+            String fileName = output.getFileName().toString();
+            int dot = fileName.lastIndexOf('.');
+            file = dot > 0
+                    ? output.resolveSibling(fileName.substring(0, dot) + suffix + fileName.substring(dot))
+                    : output.resolveSibling(fileName + suffix);
+        }
+        return Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the node name of each package prefix, read from a properties file
+     */
+    private Map<String, String> loadPrefixMap(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(in);
+        }
+        Map<String, String> prefixes = new HashMap<>();
+        for (String prefix : properties.stringPropertyNames()) {
+            prefixes.put(prefix, properties.getProperty(prefix).trim());
+        }
+        return prefixes;
+    }
+
+    /**
+     * @return the filter of the entries skipped by the walk, compiled from the default and the given ignore patterns
+     */
+    private SourceFilter getFilter(String rootPackage) throws IOException {
+        boolean defaults = !line.hasOption("noDefaultIgnores");
+        List<String> patterns = new ArrayList<>();
+        if (defaults) {
+            patterns.addAll(SourceFilter.DEFAULT_IGNORES);
+        }
+        if (line.hasOption("ignoreFile")) {
+            patterns.addAll(SourceFilter.readIgnoreFile(Paths.get(line.getOptionValue("ignoreFile"))));
+        }
+        if (line.hasOption("ignore")) {
+            for (String value : line.getOptionValues("ignore")) {
+                patterns.addAll(Arrays.asList(value.split(",")));
+            }
+        }
+        return new SourceFilter(patterns, defaults, line.hasOption("prunePackages") ? rootPackage : null);
+    }
+
+    /**
+     * @return the source roots given on the command line, the modules of a Maven reactor being read from its pom.xml
+     */
+    private List<SourceRoot> getSourceRoots() throws IOException, ParseException {
+        List<Path> paths = new ArrayList<>();
+        for (String value : line.getOptionValues("src")) {
+            for (String path : value.split(",")) {
+                if (!path.trim().isEmpty()) {
+                    paths.add(Paths.get(path.trim()));
+                }
+            }
+        }
+        if (paths.size() == 1 && !MavenReactor.isPom(paths.get(0))) {
+            return Collections.singletonList(new SourceRoot(paths.get(0), null));
+        }
+
+        List<SourceRoot> roots = new ArrayList<>();
+        for (Path path : paths) {
+            if (MavenReactor.isPom(path)) {
+                roots.addAll(MavenReactor.getSourceRoots(path));
+            } else {
+                roots.add(SourceRoot.of(path));
+            }
+        }
+        if (roots.isEmpty()) {
+            throw new ParseException("No source root found in --src " + line.getOptionValue("src"));
+        }
+        return roots;
+    }
+
+    /**
+     * Walk the source trees and feed the analyzer with every Java source file found
+     *
+     * @param roots    root source directories or archives, walked concurrently
+     * @param analyzer specialized analyzer
+     * @param threads  number of worker threads, the trees are walked sequentially when lower than 2
+     * @param settings settings used to read the source files
+     * @return the analyzer holding the results
+     */
+    protected <A extends AbstractAnalyzer<A>> A analyze(List<SourceRoot> roots, A analyzer, int threads,
+                                                        AnalysisSettings settings) throws IOException {
+        if (threads < 2) {
+            for (SourceRoot root : roots) {
+                A rootAnalyzer = root.getModule() == null ? analyzer : analyzer.forModule(root.getModule());
+                JavaSourceFileVisitor<A> javaSourceFileVisitor = new JavaSourceFileVisitor<>(rootAnalyzer, settings);
+                Path rootPath = root.getPath();
+                if (Files.isRegularFile(rootPath) && SourceArchives.isArchive(rootPath)) {
+                    javaSourceFileVisitor.visitArchive(rootPath);
+                } else {
+                    Files.walkFileTree(rootPath, javaSourceFileVisitor);
+                }
+                if (rootAnalyzer != analyzer) {
+                    analyzer.merge(rootAnalyzer);
+                }
+            }
+            return analyzer;
+        }
+        return new ParallelSourceWalker(threads, settings).walk(roots, analyzer);
+    }
+
+    /**
+     * @return the analyzers selected on the command line
+     */
+    public List<AbstractAnalyzer<?>> getAnalyzers() {
+        return analyzers;
+    }
+
+    public List<SourceRoot> getRoots() {
+        return roots;
+    }
+
+    public AnalysisSettings getSettings() {
+        return settings;
+    }
+
+    public AnalysisMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Set the metrics the walk is accounted in, shared by the analyses fed by the same walk
+     */
+    public void setMetrics(AnalysisMetrics metrics) {
+        this.metrics = metrics;
+        settings.setMetrics(metrics);
+    }
+
+    /**
+     * Set the number of files the walk is expected to analyze, against which the progress is reported
+     */
+    public void setExpectedFiles(long expectedFiles) {
+        this.expectedFiles = expectedFiles;
+    }
+}
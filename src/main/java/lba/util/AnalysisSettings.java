@@ -0,0 +1,175 @@
+package lba.util;
+
+import lba.util.metrics.AnalysisMetrics;
+import lba.util.metrics.SkippedFiles;
+
+import java.nio.charset.Charset;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Settings shared by the walkers and the source files they create
+ */
+public class AnalysisSettings {
+
+    /**
+     * Default maximum number of bytes read to find the header of a source file
+     */
+    public static final int DEFAULT_MAX_HEADER_BYTES = 256 * 1024;
+
+    /**
+     * Charset used to decode the source files
+     */
+    private Charset charset = Charset.defaultCharset();
+
+    /**
+     * Maximum number of bytes read to find the header (package, imports and type declaration) of a source file
+     */
+    private int maxHeaderBytes = DEFAULT_MAX_HEADER_BYTES;
+
+    /**
+     * Deadline of the run, as a {@link System#nanoTime()} value, 0 for none
+     */
+    private long deadline;
+
+    /**
+     * Maximum size of an analyzed file, 0 for no limit
+     */
+    private long maxFileBytes;
+
+    /**
+     * Maximum time spent analyzing a single file, 0 for no limit
+     */
+    private long maxFileMillis;
+
+    /**
+     * Metrics of the run, may be null
+     */
+    private AnalysisMetrics metrics;
+
+    /**
+     * Rules of the entries skipped by the walk, may be null
+     */
+    private SourceFilter filter;
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public void setCharset(Charset charset) {
+        this.charset = charset;
+    }
+
+    public int getMaxHeaderBytes() {
+        return maxHeaderBytes;
+    }
+
+    public void setMaxHeaderBytes(int maxHeaderBytes) {
+        this.maxHeaderBytes = maxHeaderBytes;
+    }
+
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * @param deadline deadline of the run, as a {@link System#nanoTime()} value, 0 for none
+     */
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+    }
+
+    public long getMaxFileBytes() {
+        return maxFileBytes;
+    }
+
+    public void setMaxFileBytes(long maxFileBytes) {
+        this.maxFileBytes = maxFileBytes;
+    }
+
+    public long getMaxFileMillis() {
+        return maxFileMillis;
+    }
+
+    public void setMaxFileMillis(long maxFileMillis) {
+        this.maxFileMillis = maxFileMillis;
+    }
+
+    /**
+     * @return true if the deadline of the run is reached
+     */
+    public boolean isExpired() {
+        return deadline != 0 && System.nanoTime() - deadline >= 0;
+    }
+
+    /**
+     * @param start time the analysis of a file started at, as a {@link System#nanoTime()} value
+     * @return time the analysis of the file must be over by, the earliest of the per-file time budget and the deadline
+     * of the run, 0 for none
+     */
+    public long getFileDeadline(long start) {
+        long end = maxFileMillis > 0 ? start + TimeUnit.MILLISECONDS.toNanos(maxFileMillis) : 0L;
+        if (deadline != 0 && (end == 0 || deadline - end < 0)) {
+            end = deadline;
+        }
+        return end;
+    }
+
+    /**
+     * Check whether an entry may still be analyzed : once the deadline is reached the walk goes on, skipping all the
+     * remaining entries, so that it stops cleanly with the results gathered so far
+     *
+     * @param path entry of the tree
+     * @param size size of the file in bytes, negative for a directory or an unknown size
+     * @return true if the entry is skipped because of the deadline or of the byte budget, in which case it is recorded
+     * by the metrics
+     */
+    public boolean isOverBudget(Path path, long size) {
+        SkippedFiles.Reason reason;
+        if (isExpired()) {
+            reason = SkippedFiles.Reason.DEADLINE;
+        } else if (maxFileBytes > 0 && size > maxFileBytes) {
+            reason = SkippedFiles.Reason.SIZE;
+        } else {
+            return false;
+        }
+        if (metrics != null) {
+            metrics.fileSkipped(path.getFileSystem() != FileSystems.getDefault() ? path.toUri().toString() : path.toString(),
+                    reason);
+        }
+        return true;
+    }
+
+    public AnalysisMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(AnalysisMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public SourceFilter getFilter() {
+        return filter;
+    }
+
+    public void setFilter(SourceFilter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * @param path      entry of the tree
+     * @param root      walked root
+     * @param directory whether the entry is a directory
+     * @return true if the entry is skipped by the filter, in which case it is counted by the metrics
+     */
+    public boolean isSkipped(Path path, Path root, boolean directory) {
+        if (filter == null || root == null || !filter.isIgnored(path, root, directory)) {
+            return false;
+        }
+        if (metrics != null) {
+            metrics.entrySkipped();
+        }
+        return true;
+    }
+}
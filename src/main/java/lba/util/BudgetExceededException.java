@@ -0,0 +1,21 @@
+package lba.util;
+
+import java.io.IOException;
+
+/**
+ * Thrown by a {@link SourceFile} read once the file is over its byte or time budget, or the deadline of the run is
+ * reached. The file is then reported as skipped, see {@link SourceFile#getSkipReason()}.
+ */
+public class BudgetExceededException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructor
+     *
+     * @param message detail message
+     */
+    public BudgetExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,188 @@
+package lba.util;
+
+import lba.util.cache.AnalysisCache;
+import lba.util.cache.CacheableAnalyzer;
+import lba.util.cache.FileRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Analyzer feeding several analyzers with the same source files, so that every file is read and decoded only once
+ * whatever the number of reports requested.
+ * <p>
+ * When a cache is given, the results of the {@link CacheableAnalyzer}s are taken from the cache for the files
+ * unchanged since the previous run, and those files are not read at all.
+ */
+public class CompositeAnalyzer extends AbstractAnalyzer<CompositeAnalyzer> {
+
+    /**
+     * Logger
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(CompositeAnalyzer.class);
+
+    /**
+     * Analyzers fed with every source file
+     */
+    private final List<AbstractAnalyzer<?>> analyzers;
+
+    /**
+     * Per-file results cache, may be null
+     */
+    private final AnalysisCache cache;
+
+    /**
+     * Analyzers in feeding order : the analyzers reading the whole content come first, so that the header readers
+     * decode the content already loaded instead of reading the file again
+     */
+    private final List<AbstractAnalyzer<?>> feedOrder = new ArrayList<>();
+
+    /**
+     * Constructor
+     *
+     * @param analyzers analyzers fed with every source file
+     */
+    public CompositeAnalyzer(List<AbstractAnalyzer<?>> analyzers) {
+        this(analyzers, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param analyzers analyzers fed with every source file
+     * @param cache     per-file results cache, may be null
+     */
+    public CompositeAnalyzer(List<AbstractAnalyzer<?>> analyzers, AnalysisCache cache) {
+        this.analyzers = new ArrayList<>(analyzers);
+        this.cache = cache;
+
+        for (AbstractAnalyzer<?> analyzer : analyzers) {
+            if (analyzer.needsWholeContent()) {
+                feedOrder.add(analyzer);
+            }
+        }
+        for (AbstractAnalyzer<?> analyzer : analyzers) {
+            if (!analyzer.needsWholeContent()) {
+                feedOrder.add(analyzer);
+            }
+        }
+    }
+
+    @Override
+    public void analyseSource(SourceFile source) {
+        if (cache == null) {
+            for (AbstractAnalyzer<?> analyzer : feedOrder) {
+                if (source.isOverBudget()) {
+                    return;
+                }
+                analyzer.analyseSource(source);
+            }
+            return;
+        }
+
+        FileRecord record;
+        try {
+            record = cache.lookup(source);
+        } catch (BudgetExceededException e) {
+            LOG.warn(e.getMessage());
+            return;
+        } catch (IOException e) {
+            source.setFailed(true);
+            LOG.error(e.getMessage(), e);
+            return;
+        }
+
+        // The cached record is shared, the missing sections are extracted into a copy. Once the file is over its
+        // budget the remaining analyzers are not fed, the sections extracted so far are kept
+        FileRecord updated = null;
+        for (AbstractAnalyzer<?> analyzer : feedOrder) {
+            if (source.isOverBudget()) {
+                break;
+            }
+            if (!(analyzer instanceof CacheableAnalyzer)) {
+                analyzer.analyseSource(source);
+                continue;
+            }
+
+            CacheableAnalyzer cacheable = (CacheableAnalyzer) analyzer;
+            if (!cacheable.isExtracted(updated != null ? updated : record)) {
+                if (updated == null) {
+                    updated = record.copy();
+                }
+                try {
+                    cacheable.extract(source, updated);
+                } catch (BudgetExceededException e) {
+                    LOG.warn(e.getMessage());
+                    continue;
+                } catch (IOException e) {
+                    source.setFailed(true);
+                    LOG.error(e.getMessage(), e);
+                    continue;
+                }
+            }
+            cacheable.apply(updated != null ? updated : record);
+        }
+
+        if (updated != null) {
+            cache.store(source, updated);
+        }
+    }
+
+    @Override
+    public boolean needsWholeContent() {
+        return !feedOrder.isEmpty() && feedOrder.get(0).needsWholeContent();
+    }
+
+    @Override
+    public long getBytesRead() {
+        long total = 0L;
+        for (AbstractAnalyzer<?> analyzer : analyzers) {
+            total += analyzer.getBytesRead();
+        }
+        return total;
+    }
+
+    @Override
+    public CompositeAnalyzer split() {
+        List<AbstractAnalyzer<?>> splits = new ArrayList<>(analyzers.size());
+        for (AbstractAnalyzer<?> analyzer : analyzers) {
+            splits.add(analyzer.split());
+        }
+        return new CompositeAnalyzer(splits, cache);
+    }
+
+    @Override
+    public CompositeAnalyzer forModule(String module) {
+        List<AbstractAnalyzer<?>> splits = new ArrayList<>(analyzers.size());
+        for (AbstractAnalyzer<?> analyzer : analyzers) {
+            splits.add(analyzer.forModule(module));
+        }
+        return new CompositeAnalyzer(splits, cache);
+    }
+
+    @Override
+    public void merge(CompositeAnalyzer other) {
+        for (int i = 0; i < analyzers.size(); i++) {
+            mergeInto(analyzers.get(i), other.analyzers.get(i));
+        }
+    }
+
+    /**
+     * @return analyzers fed with every source file
+     */
+    public List<AbstractAnalyzer<?>> getAnalyzers() {
+        return Collections.unmodifiableList(analyzers);
+    }
+
+    /**
+     * Merge two analyzers of the same type, the composite only knows them as wildcards
+     */
+    @SuppressWarnings("unchecked")
+    private static <A extends AbstractAnalyzer<A>> void mergeInto(AbstractAnalyzer<?> target, AbstractAnalyzer<?> other) {
+        ((A) target).merge((A) other);
+    }
+}
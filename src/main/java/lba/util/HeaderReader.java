@@ -0,0 +1,143 @@
+package lba.util;
+
+import lba.util.lexer.JavaHeaderLexer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+
+/**
+ * Reader decoding lazily a bounded prefix of a channel : bytes are read and decoded chunk by chunk, only when the
+ * lexer asks for characters not decoded yet, and never past the configured maximum number of bytes.
+ */
+public class HeaderReader implements JavaHeaderLexer.CharSource, Closeable {
+
+    /**
+     * Size of the chunks read from the channel
+     */
+    private static final int CHUNK_SIZE = 4 * 1024;
+
+    private final ReadableByteChannel channel;
+
+    private final CharsetDecoder decoder;
+
+    private final ByteBuffer bytes;
+
+    private final CharBuffer chars;
+
+    /**
+     * Maximum number of bytes read from the channel
+     */
+    private final long maxBytes;
+
+    /**
+     * Number of bytes read from the channel so far
+     */
+    private long bytesRead;
+
+    /**
+     * Time spent reading the channel so far, in nanoseconds
+     */
+    private long readNanos;
+
+    /**
+     * Whether the whole content has been read
+     */
+    private boolean endOfInput;
+
+    /**
+     * Whether the reading stopped because of the maximum number of bytes
+     */
+    private boolean truncated;
+
+    /**
+     * Constructor
+     *
+     * @param channel  channel to read
+     * @param charset  charset used to decode the bytes
+     * @param maxBytes maximum number of bytes read from the channel
+     */
+    public HeaderReader(ReadableByteChannel channel, Charset charset, long maxBytes) {
+        this.channel = channel;
+        this.decoder = charset.newDecoder();
+        this.maxBytes = maxBytes;
+        this.bytes = ByteBuffer.allocate(CHUNK_SIZE);
+        this.chars = CharBuffer.allocate(CHUNK_SIZE);
+    }
+
+    /**
+     * Read and decode the next chunk
+     *
+     * @return the decoded characters, or null when the end of the content or the maximum number of bytes is reached
+     * @throws java.nio.charset.CharacterCodingException if the content is not valid for the charset
+     */
+    @Override
+    public CharBuffer read() throws IOException {
+        while (!endOfInput) {
+            long remaining = maxBytes - bytesRead;
+            if (remaining <= 0) {
+                truncated = true;
+                endOfInput = true;
+            } else {
+                if (bytes.remaining() > remaining) {
+                    bytes.limit((int) (bytes.position() + remaining));
+                }
+                long start = System.nanoTime();
+                int read = channel.read(bytes);
+                readNanos += System.nanoTime() - start;
+                if (read < 0) {
+                    endOfInput = true;
+                } else {
+                    bytesRead += read;
+                }
+            }
+
+            bytes.flip();
+            chars.clear();
+            CoderResult result = decoder.decode(bytes, chars, endOfInput);
+            if (result.isError()) {
+                result.throwException();
+            }
+            if (endOfInput) {
+                decoder.flush(chars);
+            }
+            bytes.compact();
+            chars.flip();
+            if (chars.hasRemaining()) {
+                return chars;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return number of bytes read from the channel so far
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * @return time spent reading the channel so far, in nanoseconds
+     */
+    public long getReadNanos() {
+        return readNanos;
+    }
+
+    /**
+     * @return true if the reading stopped because of the maximum number of bytes
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -1,11 +1,14 @@
 package lba.util;
 
 
+import lba.util.metrics.AnalysisMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.file.FileSystem;
 import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
@@ -13,7 +16,7 @@ import java.nio.file.attribute.BasicFileAttributes;
 /**
  * Class which extends SimpleFileVisitor<Path> intended to be used with Files.walkFileTree
  */
-public class JavaSourceFileVisitor<T extends AbstractAnalyzer>  extends SimpleFileVisitor<Path> {
+public class JavaSourceFileVisitor<T extends AbstractAnalyzer<T>>  extends SimpleFileVisitor<Path> {
 
     /**
      * Logger
@@ -25,13 +28,54 @@ public class JavaSourceFileVisitor<T extends AbstractAnalyzer>  extends SimpleFi
      */
     private T analyser;
 
+    /**
+     * Settings used to read the source files
+     */
+    private AnalysisSettings settings;
+
+    /**
+     * Walked root, the first directory visited unless set, the filter of the settings is applied below it
+     */
+    private Path root;
+
     /**
      * Constructor
      *
      * @param analyser Specialized java file analyzer
      */
     public JavaSourceFileVisitor(T analyser) {
+        this(analyser, new AnalysisSettings());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param analyser Specialized java file analyzer
+     * @param settings Settings used to read the source files
+     */
+    public JavaSourceFileVisitor(T analyser, AnalysisSettings settings) {
         this.analyser = analyser;
+        this.settings = settings;
+    }
+
+    /**
+     * Invoked for a directory before entries in the directory are visited : the first directory is taken as the
+     * walked root, the directories skipped by the filter of the settings are not entered, nor any directory once the
+     * deadline of the run is reached.
+     */
+    @Override
+    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+        if (root == null) {
+            root = dir;
+        } else if (settings.isSkipped(dir, root, true)) {
+            LOG.debug("Skipped directory: {}", dir);
+            return FileVisitResult.SKIP_SUBTREE;
+        }
+        if (settings.isOverBudget(dir, -1L)) {
+            LOG.debug("Directory skipped over budget: {}", dir);
+            return FileVisitResult.SKIP_SUBTREE;
+        }
+        return FileVisitResult.CONTINUE;
     }
 
     /**
@@ -41,16 +85,72 @@ public class JavaSourceFileVisitor<T extends AbstractAnalyzer>  extends SimpleFi
      * CONTINUE}.
      */
     @Override
-    public FileVisitResult visitFile(Path file, BasicFileAttributes attr) throws IOException {
-        logFileInfo(file, attr);
+    public FileVisitResult visitFile(Path file, BasicFileAttributes attr) {
+        if (LOG.isDebugEnabled()) {
+            logFileInfo(file, attr);
+        }
+        if (settings.isSkipped(file, root, attr.isDirectory())) {
+            LOG.debug("Skipped file: {}", file);
+            return FileVisitResult.CONTINUE;
+        }
+        AnalysisMetrics metrics = settings.getMetrics();
+        if (metrics != null) {
+            metrics.fileSeen();
+        }
+
+        if (attr.isRegularFile() && SourceArchives.isSourceArchive(file)) {
+            visitArchive(file);
+            return FileVisitResult.CONTINUE;
+        }
+
         String filename = file.getFileName().toString();
         if (filename.endsWith(".java") && !"package-info.java".equals(filename)) {
-            analyser.analyseFile(file);
+            if (settings.isOverBudget(file, attr.size())) {
+                LOG.debug("File skipped over budget: {}", file);
+                return FileVisitResult.CONTINUE;
+            }
+            long start = System.nanoTime();
+            SourceFile source = new SourceFile(file, attr, settings);
+            try {
+                analyser.analyseSource(source);
+            } finally {
+                try {
+                    source.close();
+                } catch (IOException e) {
+                    LOG.error(e.getMessage(), e);
+                }
+            }
+            if (metrics != null) {
+                metrics.fileAnalyzed(file, System.nanoTime() - start, source.getReadNanos(), source.getBytesRead(),
+                        source.isFailed());
+                if (source.getSkipReason() != null) {
+                    metrics.fileSkipped(source.toString(), source.getSkipReason());
+                }
+            }
         }
 
         return FileVisitResult.CONTINUE;
     }
 
+    /**
+     * Visit all the entries of a source archive, read in place without being extracted
+     *
+     * @param archive jar or zip archive
+     */
+    public void visitArchive(Path archive) {
+        LOG.debug("Archive: {}", archive);
+        Path walkedRoot = root;
+        try (FileSystem fileSystem = SourceArchives.open(archive)) {
+            // The entries of the archive are filtered relatively to its own root
+            root = null;
+            Files.walkFileTree(SourceArchives.getRoot(fileSystem), this);
+        } catch (IOException e) {
+            visitFileFailed(archive, e);
+        } finally {
+            root = walkedRoot;
+        }
+    }
+
     /**
      * Invoked for a directory after entries in the directory, and all of their
      * descendants, have been visited.
@@ -62,7 +162,7 @@ public class JavaSourceFileVisitor<T extends AbstractAnalyzer>  extends SimpleFi
      */
     @Override
     public FileVisitResult postVisitDirectory(Path dir, IOException e) {
-        LOG.info("Directory: {}", dir);
+        LOG.debug("Directory: {}", dir);
         return FileVisitResult.CONTINUE;
     }
 
@@ -75,6 +175,10 @@ public class JavaSourceFileVisitor<T extends AbstractAnalyzer>  extends SimpleFi
     @Override
     public FileVisitResult visitFileFailed(Path file, IOException exc) {
         LOG.error(exc.getMessage(), exc);
+        if (settings.getMetrics() != null) {
+            settings.getMetrics().fileSeen();
+            settings.getMetrics().fileFailed();
+        }
         return FileVisitResult.CONTINUE;
     }
 
@@ -83,14 +187,23 @@ public class JavaSourceFileVisitor<T extends AbstractAnalyzer>  extends SimpleFi
      */
     private void logFileInfo(Path file, BasicFileAttributes attr) {
         if (attr.isSymbolicLink()) {
-            LOG.info("Symbolic link: {} ({} bytes)", file, attr.size());
+            LOG.debug("Symbolic link: {} ({} bytes)", file, attr.size());
         } else if (attr.isRegularFile()) {
-            LOG.info("Regular file: {} ({} bytes)", file, attr.size());
+            LOG.debug("Regular file: {} ({} bytes)", file, attr.size());
         } else {
-            LOG.info("Other: {} ({} bytes)", file, attr.size());
+            LOG.debug("Other: {} ({} bytes)", file, attr.size());
         }
     }
 
+    /**
+     * Set the walked root, when the visitor is fed with single files instead of walking the tree
+     *
+     * @param root walked root
+     */
+    public void setRoot(Path root) {
+        this.root = root;
+    }
+
     /**
      * @return Specialized Java source file analyzer
      */
@@ -1,25 +1,53 @@
 package lba.util;
 
-import lba.util.dependency.DependencyAnalyzer;
-import lba.util.lines.LineCounterAnalyzer;
-import lba.util.service.RestletServiceAnalyzer;
+import lba.util.batch.BatchJob;
+import lba.util.batch.BatchRunner;
+import lba.util.batch.JobFile;
+import lba.util.cache.AnalysisCache;
+import lba.util.imports.WhoImportsCommand;
+import lba.util.metrics.AnalysisMetrics;
+import lba.util.report.ReportFormat;
+import lba.util.report.ReportWriter.ReportType;
+import lba.util.server.AnalysisServer;
+import lba.util.server.ServerCommand;
+import lba.util.snapshot.SnapshotDiffCommand;
 import org.apache.commons.cli.*;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.SortedMap;
-import java.util.SortedSet;
+import java.util.Arrays;
+import java.util.List;
 
+/**
+ * Command line of the sources analyzer : the options of each mode are parsed here, and the mode is run by its driver
+ */
 public class Main {
 
+    /**
+     * Default quiet period closing a batch of changes in watch mode
+     */
+    private static final int DEFAULT_DEBOUNCE_MILLIS = 300;
+
+    /**
+     * Options set for the whole batch, or keeping an analysis running after its reports are written, which are not
+     * available in a job
+     */
+    private static final List<String> BATCH_OPTIONS = Arrays.asList("threads", "cache", "cacheHash", "jobs", "watch",
+            "serve", "jmx", "whoImports", "diff");
+
     // Helpformatter used to present the CLI usage help message
     protected HelpFormatter formatter = new HelpFormatter();
 
     // Command line parser
     protected CommandLineParser parser = new DefaultParser();
 
+    private int exitStatus;
+
     // Initialisation block
     {
         formatter.setWidth(200);
@@ -28,37 +56,103 @@ public class Main {
 
     public void run(String args[]) throws IOException {
 
-        Options options = new Options();
+        if (isImportQuery(args)) {
+            runImportQuery(args);
+            return;
+        }
+        if (isSnapshotDiff(args)) {
+            runSnapshotDiff(args);
+            return;
+        }
+        if (isJobBatch(args)) {
+            runJobs(args);
+            return;
+        }
+
+        Options options = createOptions();
+        try {
+            // parse the command line arguments
+            CommandLine line = parser.parse(options, args);
+
+            Analysis analysis = new Analysis(line);
+            int port = -1;
+            if (line.hasOption("serve")) {
+                port = line.getOptionValue("serve") != null ? getInt(line, "serve") : AnalysisServer.DEFAULT_PORT;
+            }
+            long debounce = -1;
+            if (line.hasOption("watch")) {
+                debounce = line.hasOption("debounce") ? getInt(line, "debounce") : DEFAULT_DEBOUNCE_MILLIS;
+            }
+
+            AnalysisCache cache = null;
+            if (line.hasOption("cache")) {
+                cache = new AnalysisCache(Paths.get(line.getOptionValue("cache")), line.hasOption("cacheHash"));
+                cache.load();
+            } else if (line.hasOption("watch")) {
+                // The watch mode needs the record of every file to retract the changed files
+                cache = new AnalysisCache(null, false);
+            }
 
-        // Build specific options for the top level options
-        OptionGroup group = new OptionGroup();
+            if (line.hasOption("jmx")) {
+                analysis.getMetrics().registerMBean();
+            }
+
+            // Perform the walk file tree, and write the reports
+            CompositeAnalyzer compositeAnalyzer = analysis.run(cache);
+
+            if (port >= 0 || debounce >= 0) {
+                new ServerCommand(analysis, compositeAnalyzer, cache, port, debounce).run();
+            }
+            analysis.getMetrics().unregisterMBean();
+
+        } catch (ParseException e) {
+            // automatically generate the help statement
+            System.err.println(e.getMessage());
+            formatter.printHelp("Sources Analyzer", options);
+        }
+    }
 
-        group.addOption(
+    /**
+     * @return the options of an analysis run
+     */
+    private Options createOptions() {
+        Options options = new Options();
+
+        // Build specific options for the top level options, several of them may be combined in a single pass
+        options.addOption(
                 Option.builder("d")
                         .longOpt("dependencies")
                         .desc("Analyze packages dependencies")
                         .build()
         );
 
-        group.addOption(
+        options.addOption(
                 Option.builder("r")
                         .longOpt("restletServices")
                         .desc("Analyze Restlet services")
                         .build()
         );
 
-        group.addOption(
+        options.addOption(
+                Option.builder("e")
+                        .longOpt("restletEndpoints")
+                        .desc("Inventory the Restlet endpoints (annotated methods of each resource class, and router routes)")
+                        .build()
+        );
+
+        options.addOption(
                 Option.builder("l")
                         .longOpt("linesCounter")
                         .desc("Count the number of lines of code")
                         .build()
         );
-        options.addOptionGroup(group);
 
         options.addOption(
                 Option.builder("s")
                         .longOpt("src")
-                        .desc("Root source directory to analyze")
+                        .desc("Root source directory to analyze, or source archive (jar, zip), the -sources.jar and zip archives found in a directory are analyzed in place. "
+                                + "Several roots (repeated option or comma separated) or the parent pom.xml of a Maven reactor are analyzed together, "
+                                + "the packages being tagged with their module")
                         .hasArg()
                         .argName("rootDir")
                         .required()
@@ -78,91 +172,587 @@ public class Main {
         options.addOption(
                 Option.builder("o")
                         .longOpt("output")
-                        .desc("Output file path where the result will be stored")
+                        .desc("Output file path where the result will be stored (output directory when several analyses are combined)")
                         .hasArg()
                         .argName("filePath")
                         .required()
                         .build()
         );
 
-        try {
-            // parse the command line arguments
-            CommandLine line = parser.parse(options, args);
+        options.addOption(
+                Option.builder("t")
+                        .longOpt("threads")
+                        .desc("Number of worker threads used to walk and analyze the sources (default: number of available cores)")
+                        .hasArg()
+                        .argName("count")
+                        .build()
+        );
+
+        options.addOption(
+                Option.builder()
+                        .longOpt("cache")
+                        .desc("Per-file results cache, only the files changed since the previous run are analyzed")
+                        .hasArg()
+                        .argName("filePath")
+                        .build()
+        );
+
+        options.addOption(
+                Option.builder()
+                        .longOpt("cacheHash")
+                        .desc("Compare the content hash of the files whose modification time changed before analyzing them again")
+                        .build()
+        );
+
+        options.addOption(
+                Option.builder()
+                        .longOpt("maxHeaderBytes")
+                        .desc("Maximum number of bytes read to find the package, the imports and the type declaration of a file (default: "
+                                + AnalysisSettings.DEFAULT_MAX_HEADER_BYTES + ")")
+                        .hasArg()
+                        .argName("bytes")
+                        .build()
+        );
+
+        options.addOption(
+                Option.builder()
+                        .longOpt("deadline")
+                        .desc("Time allowed to the walk in seconds : once reached, the remaining files are skipped and the reports of the files "
+                                + "analyzed so far are written, marked as partial, with the list of the skipped entries")
+                        .hasArg()
+                        .argName("seconds")
+                        .build()
+        );
+
+        options.addOption(
+                Option.builder()
+                        .longOpt("maxFileBytes")
+                        .desc("Skip the files larger than this size, they are listed with the skipped entries of the partial results")
+                        .hasArg()
+                        .argName("bytes")
+                        .build()
+        );
+
+        options.addOption(
+                Option.builder()
+                        .longOpt("maxFileMillis")
+                        .desc("Abandon the analysis of a file after this time, checked between two reads and between two analyzers, "
+                                + "the file is listed with the skipped entries of the partial results")
+                        .hasArg()
+                        .argName("millis")
+                        .build()
+        );
+
+        options.addOption(
+                Option.builder()
+                        .longOpt("progress")
+                        .desc("Log the progress of the walk periodically (default: every " + Analysis.DEFAULT_PROGRESS_SECONDS
+                                + " seconds) : files analyzed, throughput and estimated time left")
+                        .hasArg()
+                        .optionalArg(true)
+                        .argName("seconds")
+                        .build()
+        );
+
+        options.addOption(
+                Option.builder("f")
+                        .longOpt("format")
+                        .desc("Report format : dot, txt, json or graphml (default: dot for the dependencies, txt for the other reports)")
+                        .hasArg()
+                        .argName("format")
+                        .build()
+        );
+
+        options.addOption(
+                Option.builder()
+                        .longOpt("graphReport")
+                        .desc("Cycles, layers, fan-in, fan-out and reachability report of the packages dependencies graph (txt, or json with --format json), "
+                                + "the cycles are also outlined as clusters in the dot graph")
+                        .hasArg()
+                        .argName("filePath")
+                        .build()
+        );
+
+        options.addOption(
+                Option.builder()
+                        .longOpt("fullGraph")
+                        .desc("Run the graph report on the full packages graph instead of the graph normalized under the root package")
+                        .build()
+        );
+
+        options.addOption(
+                Option.builder()
+                        .longOpt("depth")
+                        .desc("Comma separated number of package name parts kept after the root package in the dependencies graphs (default: 1), "
+                                + "the first depth gives the main report, the others are written with a \"-depthN\" suffix")
+                        .hasArg()
+                        .argName("depths")
+                        .build()
+        );
+
+        options.addOption(
+                Option.builder()
+                        .longOpt("prefixMap")
+                        .desc("Properties file mapping package prefixes to node names, an extra dependencies graph is written with a \"-custom\" suffix")
+                        .hasArg()
+                        .argName("filePath")
+                        .build()
+        );
+
+        options.addOption(
+                Option.builder()
+                        .longOpt("metrics")
+                        .desc("JSON summary of the run : files seen, analyzed and failed, bytes read, phase times, per-file latency histogram and slowest files")
+                        .hasArg()
+                        .argName("filePath")
+                        .build()
+        );
+
+        options.addOption(
+                Option.builder()
+                        .longOpt("slowest")
+                        .desc("Number of slowest files listed in the metrics (default: " + AnalysisMetrics.DEFAULT_SLOWEST_FILES + ")")
+                        .hasArg()
+                        .argName("count")
+                        .build()
+        );
+
+        options.addOption(
+                Option.builder()
+                        .longOpt("jmx")
+                        .desc("Publish the metrics of the run as the lba.util:type=AnalysisMetrics MBean")
+                        .build()
+        );
+
+        options.addOption(
+                Option.builder()
+                        .longOpt("watch")
+                        .desc("Keep watching the source tree after the first run, the changed files are analyzed again and the reports rewritten")
+                        .build()
+        );
+
+        options.addOption(
+                Option.builder()
+                        .longOpt("debounce")
+                        .desc("Quiet period in milliseconds closing a batch of changes in watch mode (default: " + DEFAULT_DEBOUNCE_MILLIS + ")")
+                        .hasArg()
+                        .argName("millis")
+                        .build()
+        );
+
+        options.addOption(
+                Option.builder()
+                        .longOpt("ignore")
+                        .desc("Comma separated ignore patterns in .gitignore syntax, the matching files and directories are skipped by the walk")
+                        .hasArg()
+                        .argName("patterns")
+                        .build()
+        );
+
+        options.addOption(
+                Option.builder()
+                        .longOpt("ignoreFile")
+                        .desc("File of ignore patterns in .gitignore syntax, one pattern per line")
+                        .hasArg()
+                        .argName("filePath")
+                        .build()
+        );
+
+        options.addOption(
+                Option.builder()
+                        .longOpt("noDefaultIgnores")
+                        .desc("Enter the directories skipped by default : " + SourceFilter.DEFAULT_IGNORES
+                                + ", target/ next to a pom.xml and build/ next to a build.gradle")
+                        .build()
+        );
+
+        options.addOption(
+                Option.builder()
+                        .longOpt("prunePackages")
+                        .desc("Skip the directories leaving the package directories of the root package, only the sources of the root package are analyzed")
+                        .build()
+        );
+
+        options.addOption(
+                Option.builder()
+                        .longOpt("maxMemory")
+                        .desc("Memory in MB of the buffers holding the dependency edges during the walk, the full buffers are sorted and spilled "
+                                + "to temporary files, merged once the walk is over")
+                        .hasArg()
+                        .argName("megabytes")
+                        .build()
+        );
+
+        options.addOption(
+                Option.builder()
+                        .longOpt("importIndex")
+                        .desc("Inverted index of the imports (imported type to importing files), written after the run with --dependencies, "
+                                + "and read in place by --whoImports")
+                        .hasArg()
+                        .argName("filePath")
+                        .build()
+        );
+
+        options.addOption(
+                Option.builder()
+                        .longOpt("whoImports")
+                        .desc("Query mode, without walking the sources : list the files importing the comma separated types, "
+                                + "from the index given by --importIndex")
+                        .hasArg()
+                        .argName("types")
+                        .build()
+        );
+
+        options.addOption(
+                Option.builder()
+                        .longOpt("rev")
+                        .desc("Analyze a git revision read from the object store instead of the files, --src being the work tree or the git directory. "
+                                + "The revision (branch, tag, commit, HEAD~n...) may be followed by :path to walk a sub directory, e.g. main:src/main/java")
+                        .hasArg()
+                        .argName("revision")
+                        .build()
+        );
+
+        options.addOption(
+                Option.builder()
+                        .longOpt("snapshot")
+                        .desc("Binary snapshot of the dependencies and Restlet services, written after the run and compared by --diff")
+                        .hasArg()
+                        .argName("filePath")
+                        .build()
+        );
 
-            Path rootPath = Paths.get(line.getOptionValue("src"));
-            String rootPackage = line.getOptionValue("pkg");
+        options.addOption(
+                Option.builder()
+                        .longOpt("diff")
+                        .desc("Diff mode, without walking the sources : packages, dependencies and Restlet services added and removed "
+                                + "between two snapshots, the exit status is 1 when they differ")
+                        .numberOfArgs(2)
+                        .argName("old new")
+                        .build()
+        );
 
-            if (line.hasOption("dependencies")) {
-                // Create the specialized visitor
-                JavaSourceFileVisitor<DependencyAnalyzer> javaSourceFileVisitor =
-                        new JavaSourceFileVisitor<>(new DependencyAnalyzer());
+        options.addOption(
+                Option.builder()
+                        .longOpt("jobs")
+                        .desc("Batch mode : run the jobs of a YAML or JSON file, each described by its name, its mode and the long options "
+                                + "it would be run with, in a single pool sharing the per-file results, the largest jobs first")
+                        .hasArg()
+                        .argName("filePath")
+                        .build()
+        );
 
-                // Perform the walk file tree...
-                Files.walkFileTree(rootPath, javaSourceFileVisitor);
+        options.addOption(
+                Option.builder()
+                        .longOpt("serve")
+                        .desc("Keep the results in memory after the run and answer the dependencies, dependents, path and endpoints queries "
+                                + "on a localhost HTTP port (default: " + AnalysisServer.DEFAULT_PORT + "), see lba.util.server.QueryClient")
+                        .hasArg()
+                        .optionalArg(true)
+                        .argName("port")
+                        .build()
+        );
+        return options;
+    }
 
-                // Save the result into the output file
-                DependencyAnalyzer analyzer = javaSourceFileVisitor.getAnalyser();
-                Files.write(Paths.get(line.getOptionValue("output")), analyzer.toDot(rootPackage).getBytes());
+    /**
+     * @return true if the command line is an import query, answered without walking the sources
+     */
+    private static boolean isImportQuery(String args[]) {
+        for (String arg : args) {
+            if ("--whoImports".equals(arg) || arg.startsWith("--whoImports=")) {
+                return true;
             }
+        }
+        return false;
+    }
 
-            if (line.hasOption("restletServices")) {
-                // Create the specialized visitor
-                JavaSourceFileVisitor<RestletServiceAnalyzer> javaSourceFileVisitor =
-                        new JavaSourceFileVisitor<>(new RestletServiceAnalyzer());
+    /**
+     * Answer a --whoImports query from an import index, without walking the sources
+     */
+    private void runImportQuery(String args[]) throws IOException {
+        Options options = new Options();
+        options.addOption(
+                Option.builder()
+                        .longOpt("whoImports")
+                        .desc("Comma separated fully qualified type names")
+                        .hasArg()
+                        .argName("types")
+                        .required()
+                        .build()
+        );
+        options.addOption(
+                Option.builder()
+                        .longOpt("importIndex")
+                        .desc("Import index written by a previous run with --dependencies --importIndex")
+                        .hasArg()
+                        .argName("filePath")
+                        .required()
+                        .build()
+        );
+        options.addOption(
+                Option.builder("f")
+                        .longOpt("format")
+                        .desc("Answer format : txt or json (default: txt)")
+                        .hasArg()
+                        .argName("format")
+                        .build()
+        );
 
-                // Perform the walk file tree...
-                Files.walkFileTree(rootPath, javaSourceFileVisitor);
+        try {
+            CommandLine line = parser.parse(options, args);
+            boolean json = line.hasOption("format") && getFormat(line, ReportFormat.TEXT, null, false) == ReportFormat.JSON;
+            new WhoImportsCommand(Paths.get(line.getOptionValue("importIndex")),
+                    Arrays.asList(line.getOptionValue("whoImports").split(",")), json)
+                    .run(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+        } catch (ParseException e) {
+            System.err.println(e.getMessage());
+            formatter.printHelp("Sources Analyzer --whoImports", options);
+        }
+    }
 
-                // Save the result into the output file
-                RestletServiceAnalyzer analyzer = javaSourceFileVisitor.getAnalyser();
+    /**
+     * @return true if the command line compares two snapshots, without walking the sources
+     */
+    private static boolean isSnapshotDiff(String args[]) {
+        for (String arg : args) {
+            if ("--diff".equals(arg)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-                SortedMap<String, SortedSet<String>> repo = analyzer.getServicesRepository();
-                String report = "";
-                int entityNumber = repo.keySet().size();
-                int serviceNumber = 0;
+    /**
+     * Compare two snapshots written by --snapshot, the exit status is 1 when they differ so that a build can be gated
+     * on the new dependencies
+     */
+    private void runSnapshotDiff(String args[]) throws IOException {
+        Options options = new Options();
+        options.addOption(
+                Option.builder()
+                        .longOpt("diff")
+                        .desc("Snapshots of the previous and of the current run")
+                        .numberOfArgs(2)
+                        .argName("old new")
+                        .required()
+                        .build()
+        );
+        options.addOption(
+                Option.builder("f")
+                        .longOpt("format")
+                        .desc("Report format : txt or json (default: txt)")
+                        .hasArg()
+                        .argName("format")
+                        .build()
+        );
+        options.addOption(
+                Option.builder("o")
+                        .longOpt("output")
+                        .desc("Report file (default: standard output)")
+                        .hasArg()
+                        .argName("filePath")
+                        .build()
+        );
+
+        try {
+            CommandLine line = parser.parse(options, args);
+            ReportFormat format = getFormat(line, ReportFormat.TEXT, ReportType.SNAPSHOT_DIFF, true);
+            String[] snapshots = line.getOptionValues("diff");
+            boolean differ = new SnapshotDiffCommand(Paths.get(snapshots[0]), Paths.get(snapshots[1]), format,
+                    line.hasOption("output") ? Paths.get(line.getOptionValue("output")) : null).run();
+            exitStatus = differ ? 1 : 0;
+        } catch (ParseException e) {
+            System.err.println(e.getMessage());
+            formatter.printHelp("Sources Analyzer --diff", options);
+            exitStatus = 2;
+        }
+    }
+
+    /**
+     * @return true if the command line runs the jobs of a job file
+     */
+    private static boolean isJobBatch(String args[]) {
+        for (String arg : args) {
+            if ("--jobs".equals(arg) || arg.startsWith("--jobs=")) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-                for (String entity : repo.keySet()) {
-                    SortedSet<String> services = repo.get(entity);
-                    serviceNumber += services.size();
-                    report += entity + "=";
-                    for (String verb : services) {
-                        report += verb + " ";
+    /**
+     * Run the jobs of a job file in a single JVM, the jobs walking the same sources with the same settings being fed
+     * by a single walk
+     */
+    private void runJobs(String args[]) throws IOException {
+        Options options = new Options();
+        options.addOption(
+                Option.builder()
+                        .longOpt("jobs")
+                        .desc("YAML or JSON job file, each job being described by its name, its mode (dependencies, restletServices, "
+                                + "restletEndpoints, linesCounter or a list of them) and the long options it would be run with")
+                        .hasArg()
+                        .argName("filePath")
+                        .required()
+                        .build()
+        );
+        options.addOption(
+                Option.builder("t")
+                        .longOpt("threads")
+                        .desc("Number of worker threads shared by all the jobs (default: number of available cores)")
+                        .hasArg()
+                        .argName("count")
+                        .build()
+        );
+        options.addOption(
+                Option.builder()
+                        .longOpt("cache")
+                        .desc("Per-file results cache shared by all the jobs, only the files changed since the previous batch are analyzed")
+                        .hasArg()
+                        .argName("filePath")
+                        .build()
+        );
+        options.addOption(
+                Option.builder()
+                        .longOpt("cacheHash")
+                        .desc("Compare the content hash of the files whose modification time changed before analyzing them again")
+                        .build()
+        );
+        options.addOption(
+                Option.builder()
+                        .longOpt("countFiles")
+                        .desc("Count the source files of every walk without cache records before the batch, for an exact largest first "
+                                + "order at the cost of a full listing of their trees (default: estimated from the first directories)")
+                        .build()
+        );
+        options.addOption(
+                Option.builder()
+                        .longOpt("metrics")
+                        .desc("JSON summary of the batch : estimated and analyzed files, walk and report times of each job")
+                        .hasArg()
+                        .argName("filePath")
+                        .build()
+        );
+
+        try {
+            CommandLine line = parser.parse(options, args);
+            int threads = Math.max(1, getThreads(line));
+            Path jobFile = Paths.get(line.getOptionValue("jobs"));
+            if (!Files.isRegularFile(jobFile)) {
+                throw new ParseException("Job file not found : " + jobFile);
+            }
+            List<BatchJob> jobs;
+            try {
+                jobs = JobFile.read(jobFile);
+            } catch (IOException e) {
+                throw new ParseException(e.getMessage());
+            }
+            if (jobs.isEmpty()) {
+                throw new ParseException("No job found in " + jobFile);
+            }
+
+            // Every job is configured before any of them is run, the jobs walking the same sources share their walk
+            BatchRunner runner = new BatchRunner(threads, line.hasOption("countFiles"));
+            for (BatchJob job : jobs) {
+                Analysis analysis;
+                try {
+                    CommandLine jobLine = parser.parse(createOptions(), job.getArgs());
+                    for (String option : BATCH_OPTIONS) {
+                        if (jobLine.hasOption(option)) {
+                            throw new ParseException("--" + option + " is not available in a job");
+                        }
                     }
-                    report += "\n";
+                    analysis = new Analysis(jobLine);
+                } catch (ParseException e) {
+                    throw new ParseException("Job " + job.getName() + " : " + e.getMessage());
                 }
+                runner.add(job, analysis);
+            }
 
-                report += "\n Total number of entities :" + entityNumber + "\n";
-                report += "\n Total number of services :" + serviceNumber + "\n";
+            AnalysisCache cache = null;
+            if (line.hasOption("cache")) {
+                cache = new AnalysisCache(Paths.get(line.getOptionValue("cache")), line.hasOption("cacheHash"));
+                cache.load();
+            } else if (runner.isOverlapping()) {
+                // The files walked by several groups are only read by the first of them
+                cache = new AnalysisCache(null, false);
+            }
 
-                Files.write(Paths.get(line.getOptionValue("output")), report.getBytes());
+            runner.run(cache);
+            runner.writeSummary(line.hasOption("metrics") ? Paths.get(line.getOptionValue("metrics")) : null);
+            if (runner.hasFailed()) {
+                exitStatus = 1;
             }
+        } catch (ParseException e) {
+            System.err.println(e.getMessage());
+            formatter.printHelp("Sources Analyzer --jobs", options);
+            exitStatus = 2;
+        }
+    }
 
-            if (line.hasOption("linesCounter")) {
-                // Create the specialized visitor
-                JavaSourceFileVisitor<LineCounterAnalyzer> javaSourceFileVisitor =
-                        new JavaSourceFileVisitor<>(new LineCounterAnalyzer());
 
-                // Perform the walk file tree...
-                Files.walkFileTree(rootPath, javaSourceFileVisitor);
+    /**
+     * @return the report format requested on the command line, or the default format of the report
+     */
+    static ReportFormat getFormat(CommandLine line, ReportFormat defaultFormat, ReportType type, boolean requested)
+            throws ParseException {
+        if (!line.hasOption("format")) {
+            return defaultFormat;
+        }
+        ReportFormat format;
+        try {
+            format = ReportFormat.fromName(line.getOptionValue("format"));
+        } catch (IllegalArgumentException e) {
+            throw new ParseException("Unknown report format : " + line.getOptionValue("format"));
+        }
+        if (requested && !format.createWriter().supports(type)) {
+            throw new ParseException("Format " + line.getOptionValue("format") + " is not available for the " + type + " report");
+        }
+        return format;
+    }
 
-                // Print the total lines of code
-                String report = "Total lines of code :" + javaSourceFileVisitor.getAnalyser().getLinesNumber();
-                System.out.println(report);
 
-                Files.write(Paths.get(line.getOptionValue("output")), report.getBytes());
-            }
+    /**
+     * @return the number of worker threads requested on the command line, or the number of available cores
+     */
+    static int getThreads(CommandLine line) throws ParseException {
+        if (!line.hasOption("threads")) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        return getInt(line, "threads");
+    }
 
-        } catch (ParseException e) {
-            // automatically generate the help statement
-            formatter.printHelp("Sources Analyzer", options);
+    /**
+     * @return the integer value of an option
+     */
+    static int getInt(CommandLine line, String option) throws ParseException {
+        try {
+            return Integer.parseInt(line.getOptionValue(option));
+        } catch (NumberFormatException e) {
+            throw new ParseException("Invalid value for --" + option + " : " + line.getOptionValue(option));
         }
     }
 
+    /**
+     * @return the value of an option which must be strictly positive
+     */
+    static int getPositiveInt(CommandLine line, String option) throws ParseException {
+        int value = getInt(line, option);
+        if (value <= 0) {
+            throw new ParseException("Invalid value for --" + option + " : " + line.getOptionValue(option));
+        }
+        return value;
+    }
 
     /**
      * Main method
      */
     public static void main(String args[]) throws IOException {
-        new Main().run(args);
+        Main main = new Main();
+        main.run(args);
+        if (main.exitStatus != 0) {
+            System.exit(main.exitStatus);
+        }
     }
 }
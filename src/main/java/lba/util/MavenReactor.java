@@ -0,0 +1,132 @@
+package lba.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Source roots of the modules of a Maven reactor, found from the parent pom.xml : the modules are read recursively,
+ * and each module having a source directory (build/sourceDirectory, src/main/java by default) gives a root named
+ * after its artifactId.
+ * <p>
+ * Only the modules declared in the project itself are read, the modules of the profiles are ignored.
+ */
+public final class MavenReactor {
+
+    /**
+     * Logger
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(MavenReactor.class);
+
+    private MavenReactor() {
+    }
+
+    /**
+     * @param file file
+     * @return true if the file is a Maven project file
+     */
+    public static boolean isPom(Path file) {
+        Path name = file.getFileName();
+        return name != null && "pom.xml".equals(name.toString()) && Files.isRegularFile(file);
+    }
+
+    /**
+     * Read the source roots of all the modules of a reactor
+     *
+     * @param pom parent pom.xml
+     * @return the source root of each module, in declaration order
+     */
+    public static List<SourceRoot> getSourceRoots(Path pom) throws IOException {
+        DocumentBuilder documentBuilder;
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            factory.setExpandEntityReferences(false);
+            documentBuilder = factory.newDocumentBuilder();
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException(e);
+        }
+
+        List<SourceRoot> roots = new ArrayList<>();
+        addModule(documentBuilder, pom.toAbsolutePath().normalize(), roots, new HashSet<Path>());
+        LOG.info("{} modules with sources found in {}", roots.size(), pom);
+        return roots;
+    }
+
+    private static void addModule(DocumentBuilder documentBuilder, Path pom, List<SourceRoot> roots, Set<Path> visited)
+            throws IOException {
+        if (!visited.add(pom)) {
+            return;
+        }
+        Document document;
+        try {
+            document = documentBuilder.parse(pom.toFile());
+        } catch (SAXException e) {
+            throw new IOException("Invalid project file " + pom + " : " + e.getMessage(), e);
+        }
+        Element project = document.getDocumentElement();
+        Path projectDir = pom.getParent();
+
+        String artifactId = getChildText(project, "artifactId");
+        String sourceDirectory = getChildText(getChild(project, "build"), "sourceDirectory");
+        Path sourceDir = projectDir.resolve(sourceDirectory != null
+                ? sourceDirectory.replace("${basedir}/", "").replace("${project.basedir}/", "")
+                : "src/main/java");
+        if (Files.isDirectory(sourceDir)) {
+            roots.add(new SourceRoot(sourceDir, artifactId != null ? artifactId : projectDir.getFileName().toString()));
+        }
+
+        Element modules = getChild(project, "modules");
+        if (modules == null) {
+            return;
+        }
+        NodeList children = modules.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            Node child = children.item(i);
+            if (child instanceof Element && "module".equals(child.getNodeName())) {
+                // A module is a directory holding a pom.xml, or a project file
+                Path module = projectDir.resolve(child.getTextContent().trim()).normalize();
+                Path modulePom = Files.isDirectory(module) ? module.resolve("pom.xml") : module;
+                if (Files.isRegularFile(modulePom)) {
+                    addModule(documentBuilder, modulePom, roots, visited);
+                } else {
+                    LOG.warn("Module {} of {} not found", child.getTextContent().trim(), pom);
+                }
+            }
+        }
+    }
+
+    private static Element getChild(Element parent, String name) {
+        if (parent == null) {
+            return null;
+        }
+        NodeList children = parent.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            Node child = children.item(i);
+            if (child instanceof Element && name.equals(child.getNodeName())) {
+                return (Element) child;
+            }
+        }
+        return null;
+    }
+
+    private static String getChildText(Element parent, String name) {
+        Element child = getChild(parent, name);
+        return child == null ? null : child.getTextContent().trim();
+    }
+}
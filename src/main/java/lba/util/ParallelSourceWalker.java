@@ -0,0 +1,297 @@
+package lba.util;
+
+import lba.util.metrics.AnalysisMetrics;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Walk a source tree with a work-stealing pool : every directory subtree (and every batch of files of a large
+ * directory) is a task analyzed by its own analyzer, created with {@link AbstractAnalyzer#split()}.
+ * The results of the sub tasks are merged back into their parent task, so the analyzer returned by
+ * {@link #walk(Path, AbstractAnalyzer)} holds the same results as a sequential {@link java.nio.file.Files#walkFileTree}.
+ */
+public class ParallelSourceWalker {
+
+    /**
+     * Maximum number of files analyzed by a single task
+     */
+    private static final int FILES_PER_TASK = 64;
+
+    /**
+     * Number of worker threads
+     */
+    private final int threads;
+
+    /**
+     * Pool shared with other walks, null when each walk creates its own pool
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Settings used to read the source files
+     */
+    private final AnalysisSettings settings;
+
+    /**
+     * Constructor
+     *
+     * @param threads  number of worker threads
+     * @param settings settings used to read the source files
+     */
+    public ParallelSourceWalker(int threads, AnalysisSettings settings) {
+        this.threads = threads;
+        this.pool = null;
+        this.settings = settings;
+    }
+
+    /**
+     * Constructor of a walker running its tasks in a pool shared with other walks, so that several walks run
+     * concurrently use no more workers than the pool has
+     *
+     * @param pool     pool running the tasks, left open once the walks are over
+     * @param settings settings used to read the source files
+     */
+    public ParallelSourceWalker(ForkJoinPool pool, AnalysisSettings settings) {
+        this.threads = pool.getParallelism();
+        this.pool = pool;
+        this.settings = settings;
+    }
+
+    /**
+     * Walk the whole tree starting from rootPath
+     *
+     * @param rootPath  root directory to walk
+     * @param prototype analyzer used to create the worker analyzers, its own results are kept
+     * @param <A>       analyzer type
+     * @return the prototype analyzer, holding the results of the whole walk
+     */
+    public <A extends AbstractAnalyzer<A>> A walk(Path rootPath, A prototype) {
+        return walk(Collections.singletonList(new SourceRoot(rootPath, null)), prototype);
+    }
+
+    /**
+     * Walk several trees concurrently, in the same pool : the tasks of all the roots are stolen by the same workers,
+     * so a small module does not leave workers idle while a large one is walked
+     *
+     * @param roots     roots to walk, the analyzers of a root tagged with a module are created with
+     *                  {@link AbstractAnalyzer#forModule(String)}
+     * @param prototype analyzer used to create the worker analyzers, its own results are kept
+     * @param <A>       analyzer type
+     * @return the prototype analyzer, holding the results of all the walks
+     */
+    public <A extends AbstractAnalyzer<A>> A walk(List<SourceRoot> roots, A prototype) {
+        ForkJoinPool pool = this.pool != null ? this.pool : new ForkJoinPool(threads);
+        try {
+            List<RecursiveTask<A>> rootTasks = new ArrayList<>(roots.size());
+            for (SourceRoot root : roots) {
+                rootTasks.add(createRootTask(root.getPath(),
+                        root.getModule() == null ? prototype : prototype.forModule(root.getModule()), settings));
+            }
+            for (RecursiveTask<A> rootTask : rootTasks) {
+                pool.execute(rootTask);
+            }
+            for (RecursiveTask<A> rootTask : rootTasks) {
+                A result = rootTask.join();
+                long start = System.nanoTime();
+                prototype.merge(result);
+                addMergeTime(settings, System.nanoTime() - start);
+            }
+        } finally {
+            if (pool != this.pool) {
+                pool.shutdown();
+            }
+        }
+        return prototype;
+    }
+
+    /**
+     * @return the task walking a root, which may be a source archive
+     */
+    private static <A extends AbstractAnalyzer<A>> RecursiveTask<A> createRootTask(Path rootPath, A prototype,
+                                                                                 AnalysisSettings settings) {
+        return Files.isRegularFile(rootPath) && SourceArchives.isArchive(rootPath)
+                ? new ArchiveTask<>(rootPath, prototype, settings)
+                : new DirectoryTask<>(rootPath, rootPath, prototype, settings);
+    }
+
+    /**
+     * Task analyzing all the files of a directory, and forking a new task for each of its sub directories
+     */
+    private static class DirectoryTask<A extends AbstractAnalyzer<A>> extends RecursiveTask<A> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Path dir;
+
+        /**
+         * Walked root, the entries are filtered relatively to it
+         */
+        private final Path root;
+
+        private final A prototype;
+
+        private final AnalysisSettings settings;
+
+        DirectoryTask(Path dir, Path root, A prototype, AnalysisSettings settings) {
+            this.dir = dir;
+            this.root = root;
+            this.prototype = prototype;
+            this.settings = settings;
+            if (settings.getMetrics() != null) {
+                settings.getMetrics().directoryQueued();
+            }
+        }
+
+        @Override
+        protected A compute() {
+            // Once the deadline is reached the remaining directories are not even listed
+            if (settings.isOverBudget(dir, -1L)) {
+                return prototype.split();
+            }
+            JavaSourceFileVisitor<A> visitor = new JavaSourceFileVisitor<>(prototype.split(), settings);
+            List<RecursiveTask<A>> subTasks = new ArrayList<>();
+            List<Path> files = new ArrayList<>();
+            List<BasicFileAttributes> attributes = new ArrayList<>();
+            int fileCount = 0;
+
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                for (Path entry : stream) {
+                    BasicFileAttributes attr;
+                    try {
+                        attr = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    } catch (IOException e) {
+                        visitor.visitFileFailed(entry, e);
+                        continue;
+                    }
+
+                    // Skipped directories are not even listed
+                    if (settings.isSkipped(entry, root, attr.isDirectory())) {
+                        continue;
+                    }
+                    if (attr.isDirectory()) {
+                        subTasks.add(new DirectoryTask<>(entry, root, prototype, settings));
+                    } else if (attr.isRegularFile() && SourceArchives.isSourceArchive(entry)) {
+                        // Each archive is walked by its own task, in parallel with the other archives
+                        subTasks.add(new ArchiveTask<>(entry, prototype, settings));
+                    } else {
+                        fileCount++;
+                        files.add(entry);
+                        attributes.add(attr);
+                        if (files.size() == FILES_PER_TASK) {
+                            subTasks.add(new FilesTask<>(files, attributes, prototype, settings));
+                            files = new ArrayList<>();
+                            attributes = new ArrayList<>();
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                visitor.visitFileFailed(dir, e);
+            }
+            if (settings.getMetrics() != null) {
+                settings.getMetrics().directoryListed(fileCount);
+            }
+
+            for (RecursiveTask<A> task : subTasks) {
+                task.fork();
+            }
+
+            // The remaining files are analyzed by the current worker
+            for (int i = 0; i < files.size(); i++) {
+                visitor.visitFile(files.get(i), attributes.get(i));
+            }
+            visitor.postVisitDirectory(dir, null);
+
+            A analyzer = visitor.getAnalyser();
+            for (RecursiveTask<A> task : subTasks) {
+                A other = task.join();
+                long start = System.nanoTime();
+                analyzer.merge(other);
+                addMergeTime(settings, System.nanoTime() - start);
+            }
+            return analyzer;
+        }
+    }
+
+    private static void addMergeTime(AnalysisSettings settings, long nanos) {
+        AnalysisMetrics metrics = settings.getMetrics();
+        if (metrics != null) {
+            metrics.addTime(AnalysisMetrics.Phase.MERGE, nanos);
+        }
+    }
+
+    /**
+     * Task analyzing all the entries of a source archive, opened through the zip file system provider
+     */
+    private static class ArchiveTask<A extends AbstractAnalyzer<A>> extends RecursiveTask<A> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Path archive;
+
+        private final A prototype;
+
+        private final AnalysisSettings settings;
+
+        ArchiveTask(Path archive, A prototype, AnalysisSettings settings) {
+            this.archive = archive;
+            this.prototype = prototype;
+            this.settings = settings;
+        }
+
+        @Override
+        protected A compute() {
+            // The archive stays open until all the sub tasks of its root directory are joined
+            try (FileSystem fileSystem = SourceArchives.open(archive)) {
+                Path archiveRoot = SourceArchives.getRoot(fileSystem);
+                return new DirectoryTask<>(archiveRoot, archiveRoot, prototype, settings).compute();
+            } catch (IOException e) {
+                JavaSourceFileVisitor<A> visitor = new JavaSourceFileVisitor<>(prototype.split(), settings);
+                visitor.visitFileFailed(archive, e);
+                return visitor.getAnalyser();
+            }
+        }
+    }
+
+    /**
+     * Task analyzing a batch of files of a large directory
+     */
+    private static class FilesTask<A extends AbstractAnalyzer<A>> extends RecursiveTask<A> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<Path> files;
+
+        private final List<BasicFileAttributes> attributes;
+
+        private final A prototype;
+
+        private final AnalysisSettings settings;
+
+        FilesTask(List<Path> files, List<BasicFileAttributes> attributes, A prototype, AnalysisSettings settings) {
+            this.files = files;
+            this.attributes = attributes;
+            this.prototype = prototype;
+            this.settings = settings;
+        }
+
+        @Override
+        protected A compute() {
+            JavaSourceFileVisitor<A> visitor = new JavaSourceFileVisitor<>(prototype.split(), settings);
+            for (int i = 0; i < files.size(); i++) {
+                visitor.visitFile(files.get(i), attributes.get(i));
+            }
+            return visitor.getAnalyser();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package lba.util;
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+
+/**
+ * Source archives (-sources.jar, zip) analyzed in place through the zip {@link FileSystem} provider, without being
+ * extracted to disk
+ */
+public final class SourceArchives {
+
+    private SourceArchives() {
+    }
+
+    /**
+     * Archives given explicitly as source root may be any jar or zip file
+     *
+     * @param file file
+     * @return true if the file name is the one of a jar or zip archive
+     */
+    public static boolean isArchive(Path file) {
+        String filename = getFileName(file);
+        return filename.endsWith(".jar") || filename.endsWith(".zip") || filename.endsWith(".srcjar");
+    }
+
+    /**
+     * Archives found while walking a directory are analyzed only when they hold sources, so that the binary jars of a
+     * local Maven repository are not opened
+     *
+     * @param file file
+     * @return true if the file name is the one of a source archive : *-sources.jar, *.srcjar or *.zip
+     */
+    public static boolean isSourceArchive(Path file) {
+        String filename = getFileName(file);
+        return filename.endsWith("-sources.jar") || filename.endsWith(".srcjar") || filename.endsWith(".zip");
+    }
+
+    /**
+     * Open an archive as a read only file system, to be closed by the caller
+     *
+     * @param archive archive file
+     * @return the file system of the archive
+     */
+    public static FileSystem open(Path archive) throws IOException {
+        return FileSystems.newFileSystem(archive, (ClassLoader) null);
+    }
+
+    /**
+     * @param fileSystem file system of an archive
+     * @return the root directory of the archive
+     */
+    public static Path getRoot(FileSystem fileSystem) {
+        return fileSystem.getRootDirectories().iterator().next();
+    }
+
+    private static String getFileName(Path file) {
+        Path name = file.getFileName();
+        return name == null ? "" : name.toString().toLowerCase();
+    }
+}
@@ -0,0 +1,545 @@
+package lba.util;
+
+import lba.util.lexer.JavaHeader;
+import lba.util.lexer.JavaHeaderLexer;
+import lba.util.metrics.SkippedFiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Java source file handed to the analyzers.
+ * <p>
+ * The content is read and decoded lazily, at most once, whatever the number of analyzers fed with the same instance.
+ * The analyzers only interested by the header of the file (package, imports and type declaration) should use
+ * {@link #getHeader()} : the file is then read only up to the type declaration, and at most up to the configured
+ * maximum number of header bytes.
+ * <p>
+ * The per-file byte and time budgets, and the deadline of the run, are checked before each read : a file over its
+ * budget throws a {@link BudgetExceededException} and is reported as skipped rather than failed. A read already
+ * started is not interrupted, the analyzers stopping at their next access to the file.
+ */
+public class SourceFile implements Closeable {
+
+    /**
+     * Header lexer of each thread
+     */
+    private static final ThreadLocal<JavaHeaderLexer> LEXER = new ThreadLocal<JavaHeaderLexer>() {
+        @Override
+        protected JavaHeaderLexer initialValue() {
+            return new JavaHeaderLexer();
+        }
+    };
+
+    /**
+     * Files from this size are memory mapped by {@link #getContent()} instead of being read
+     */
+    private static final long MAP_THRESHOLD = 1024 * 1024;
+
+    /**
+     * Direct read buffer of each thread, reused by the successive files and grown as needed
+     */
+    private static final ThreadLocal<ByteBuffer> READ_BUFFER = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocateDirect(64 * 1024);
+        }
+    };
+
+    /**
+     * File path
+     */
+    private final Path path;
+
+    /**
+     * File attributes given by the walker, may be null
+     */
+    private final BasicFileAttributes attributes;
+
+    /**
+     * Settings used to read the content
+     */
+    private final AnalysisSettings settings;
+
+    /**
+     * Name of a file not read from its path, null for a file of a file system
+     */
+    private final String name;
+
+    /**
+     * Object name of a git blob, null otherwise
+     */
+    private final String objectId;
+
+    /**
+     * Loader of a content not read from the path, null for a file of a file system
+     */
+    private final ContentLoader loader;
+
+    /**
+     * Raw content, loaded on first access
+     */
+    private byte[] bytes;
+
+    /**
+     * Raw content out of the heap, mapped or read on first access
+     */
+    private ByteBuffer content;
+
+    /**
+     * Decoded lines, loaded on first access
+     */
+    private List<String> lines;
+
+    /**
+     * Decoded content, loaded with the lines
+     */
+    private CharBuffer chars;
+
+    /**
+     * Header of the file, lexed on first access
+     */
+    private JavaHeader header;
+
+    /**
+     * Reader of the header, null once closed
+     */
+    private HeaderReader headerReader;
+
+    /**
+     * Whether the header reading stopped because of the maximum number of header bytes
+     */
+    private boolean headerTruncated;
+
+    /**
+     * Number of bytes read from the file so far
+     */
+    private long bytesRead;
+
+    /**
+     * Time spent reading the file so far, in nanoseconds
+     */
+    private long readNanos;
+
+    /**
+     * Whether an analyzer failed to analyze the file
+     */
+    private boolean failed;
+
+    /**
+     * Time the analysis of the file must be over by, as a {@link System#nanoTime()} value, 0 for none
+     */
+    private final long budgetEnd;
+
+    /**
+     * Why the analysis of the file has been abandoned, null while within its budget
+     */
+    private SkippedFiles.Reason skipReason;
+
+    /**
+     * Constructor
+     *
+     * @param path file path
+     */
+    public SourceFile(Path path) {
+        this(path, null, new AnalysisSettings());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param path       file path
+     * @param attributes file attributes given by the walker, may be null
+     * @param settings   settings used to read the content
+     */
+    public SourceFile(Path path, BasicFileAttributes attributes, AnalysisSettings settings) {
+        this.path = path;
+        this.attributes = attributes;
+        this.settings = settings;
+        this.name = null;
+        this.objectId = null;
+        this.loader = null;
+        this.budgetEnd = settings.getFileDeadline(System.nanoTime());
+    }
+
+    /**
+     * Constructor of a git blob : the content is loaded on first access, from the object store instead of the path
+     *
+     * @param path     path the file would have in the work tree, used by the filters
+     * @param name     name of the file, its path in the repository
+     * @param objectId object name of the blob
+     * @param loader   loader of the content
+     * @param settings settings used to read the content
+     */
+    public SourceFile(Path path, String name, String objectId, ContentLoader loader, AnalysisSettings settings) {
+        this.path = path;
+        this.attributes = null;
+        this.settings = settings;
+        this.name = name;
+        this.objectId = objectId;
+        this.loader = loader;
+        this.budgetEnd = settings.getFileDeadline(System.nanoTime());
+    }
+
+    /**
+     * @return the raw content of the file
+     */
+    public byte[] getBytes() throws IOException {
+        if (bytes == null && content != null) {
+            ByteBuffer loaded = content.duplicate();
+            bytes = new byte[loaded.remaining()];
+            loaded.get(bytes);
+        } else if (bytes == null) {
+            checkBudget();
+            long start = System.nanoTime();
+            bytes = loader != null ? loader.load() : Files.readAllBytes(path);
+            readNanos += System.nanoTime() - start;
+            bytesRead += bytes.length;
+            checkSize(bytes.length);
+        }
+        return bytes;
+    }
+
+    /**
+     * Raw content, without copy to the heap : large files of the default file system are memory mapped, the others
+     * are read into a direct buffer of the current thread. Unless the content was already loaded by
+     * {@link #getBytes()}, the returned buffer is only valid until the current thread reads another source file.
+     *
+     * @return a read only buffer of the raw content of the file
+     */
+    public ByteBuffer getContent() throws IOException {
+        if (bytes != null || loader != null) {
+            return ByteBuffer.wrap(getBytes()).asReadOnlyBuffer();
+        }
+        if (content == null) {
+            checkBudget();
+            long start = System.nanoTime();
+            long size = attributes != null ? attributes.size() : -1L;
+            if (size >= MAP_THRESHOLD && path.getFileSystem() == FileSystems.getDefault()) {
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                    content = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+            } else {
+                content = readDirect(size);
+            }
+            readNanos += System.nanoTime() - start;
+            bytesRead += content.remaining();
+            checkSize(content.remaining());
+        }
+        return content.asReadOnlyBuffer();
+    }
+
+    /**
+     * @return the content read into the direct buffer of the current thread
+     */
+    private ByteBuffer readDirect(long size) throws IOException {
+        ByteBuffer buffer = READ_BUFFER.get();
+        if (size >= buffer.capacity()) {
+            buffer = ByteBuffer.allocateDirect((int) size + 1);
+            READ_BUFFER.set(buffer);
+        }
+        buffer.clear();
+        try (SeekableByteChannel channel = Files.newByteChannel(path)) {
+            while (true) {
+                if (!buffer.hasRemaining()) {
+                    // The size was unknown or the file grew
+                    ByteBuffer larger = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+                    buffer.flip();
+                    larger.put(buffer);
+                    buffer = larger;
+                    READ_BUFFER.set(buffer);
+                }
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+                checkBudget();
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * The header is lexed once and shared by all the analyzers. The file is read only up to the type declaration,
+     * unless its whole content has already been loaded.
+     *
+     * @return the header of the file, without type declaration if none was found before the end of the file or the
+     * maximum number of header bytes (see {@link #isHeaderTruncated()})
+     * @throws java.nio.charset.CharacterCodingException if the header is not valid for the charset
+     */
+    public JavaHeader getHeader() throws IOException {
+        if (header == null) {
+            JavaHeaderLexer lexer = LEXER.get();
+            if (chars != null) {
+                lexer.reset(new JavaHeaderLexer.CharSource() {
+                    private boolean read;
+
+                    @Override
+                    public CharBuffer read() {
+                        if (read) {
+                            return null;
+                        }
+                        read = true;
+                        return chars.duplicate();
+                    }
+                });
+                header = JavaHeader.parse(lexer);
+            } else {
+                checkBudget();
+                if (loader != null) {
+                    getBytes();
+                }
+                boolean loaded = bytes != null || content != null;
+                ReadableByteChannel channel = bytes != null
+                        ? Channels.newChannel(new ByteArrayInputStream(bytes))
+                        : content != null ? new BufferChannel(content.duplicate()) : Files.newByteChannel(path);
+                headerReader = new HeaderReader(channel, settings.getCharset(), settings.getMaxHeaderBytes());
+                try {
+                    lexer.reset(headerReader);
+                    header = JavaHeader.parse(lexer);
+                    headerTruncated = !header.hasType() && headerReader.isTruncated();
+                } finally {
+                    if (!loaded) {
+                        bytesRead += headerReader.getBytesRead();
+                        readNanos += headerReader.getReadNanos();
+                    }
+                    close();
+                }
+            }
+        }
+        return header;
+    }
+
+    /**
+     * Release the resources used to read the header, should be called once all the analyzers are done with the file
+     */
+    @Override
+    public void close() throws IOException {
+        if (headerReader != null) {
+            headerReader.close();
+            headerReader = null;
+        }
+    }
+
+    /**
+     * @return true if the header reading stopped because of the maximum number of header bytes
+     */
+    public boolean isHeaderTruncated() {
+        return headerTruncated;
+    }
+
+    /**
+     * @return number of bytes read from the file so far
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * @return time spent reading the file so far, in nanoseconds
+     */
+    public long getReadNanos() {
+        return readNanos;
+    }
+
+    /**
+     * @return true if an analyzer failed to analyze the file, a file over its budget being skipped rather than failed
+     */
+    public boolean isFailed() {
+        return failed && skipReason == null;
+    }
+
+    /**
+     * Check whether the file is over its time budget or the deadline of the run is reached, called between two
+     * analyzers so that the remaining ones are not fed with the file
+     *
+     * @return true if the analysis of the file must be abandoned
+     */
+    public boolean isOverBudget() {
+        if (skipReason == null && budgetEnd != 0 && System.nanoTime() - budgetEnd >= 0) {
+            skipReason = settings.isExpired() ? SkippedFiles.Reason.DEADLINE : SkippedFiles.Reason.TIME;
+        }
+        return skipReason != null;
+    }
+
+    /**
+     * @return why the analysis of the file has been abandoned, null if it is within its budget
+     */
+    public SkippedFiles.Reason getSkipReason() {
+        return skipReason;
+    }
+
+    private void checkBudget() throws BudgetExceededException {
+        if (isOverBudget()) {
+            throw new BudgetExceededException(this + " skipped " + skipReason.getDescription());
+        }
+    }
+
+    /**
+     * Check the size of a content whose size was not known before it was read, such as a git blob
+     */
+    private void checkSize(long size) throws BudgetExceededException {
+        if (skipReason == null && settings.getMaxFileBytes() > 0 && size > settings.getMaxFileBytes()) {
+            skipReason = SkippedFiles.Reason.SIZE;
+        }
+        checkBudget();
+    }
+
+    /**
+     * Flag the file as failed, called by the analyzers which could not analyze it
+     */
+    public void setFailed(boolean failed) {
+        this.failed = failed;
+    }
+
+    /**
+     * Lines are split the same way as {@link java.io.BufferedReader#readLine()} does : on '\n', '\r' or "\r\n",
+     * a trailing line terminator does not start a new line.
+     *
+     * @return the decoded lines of the file
+     * @throws java.nio.charset.CharacterCodingException if the content is not valid for the charset
+     */
+    public List<String> getLines() throws IOException {
+        if (lines == null) {
+            byte[] raw = getBytes();
+            checkBudget();
+            chars = settings.getCharset().newDecoder().decode(ByteBuffer.wrap(raw));
+            List<String> result = new ArrayList<>();
+            int start = 0;
+            int length = chars.length();
+            for (int i = 0; i < length; i++) {
+                char c = chars.get(i);
+                if (c == '\n' || c == '\r') {
+                    result.add(chars.subSequence(start, i).toString());
+                    if (c == '\r' && i + 1 < length && chars.get(i + 1) == '\n') {
+                        i++;
+                    }
+                    start = i + 1;
+                }
+            }
+            if (start < length) {
+                result.add(chars.subSequence(start, length).toString());
+            }
+            lines = result;
+        }
+        return lines;
+    }
+
+    /**
+     * @return file path
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return charset of the content
+     */
+    public Charset getCharset() {
+        return settings.getCharset();
+    }
+
+    /**
+     * @return name of the directory of the file, the URI of the directory for a file of an archive, the path in the
+     * repository for a git blob
+     */
+    public String getDirectory() {
+        if (name != null) {
+            return name.lastIndexOf('/') < 0 ? "" : name.substring(0, name.lastIndexOf('/'));
+        }
+        Path parent = path.getParent();
+        if (parent == null) {
+            return "";
+        }
+        return parent.getFileSystem() != FileSystems.getDefault() ? parent.toUri().toString() : parent.toString();
+    }
+
+    /**
+     * @return file attributes given by the walker, may be null
+     */
+    public BasicFileAttributes getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * @return object name of a git blob, null for a file of a file system
+     */
+    public String getObjectId() {
+        return objectId;
+    }
+
+    /**
+     * The entries of an archive are named by their URI, so that the archive they come from is known, the git blobs
+     * by their path in the repository
+     */
+    @Override
+    public String toString() {
+        if (name != null) {
+            return name;
+        }
+        if (path.getFileSystem() != FileSystems.getDefault()) {
+            return path.toUri().toString();
+        }
+        return path.toString();
+    }
+
+    /**
+     * Loader of a content not read from the path of the file
+     */
+    public interface ContentLoader {
+
+        /**
+         * @return the raw content of the file
+         */
+        byte[] load() throws IOException;
+    }
+
+    /**
+     * Channel reading a content already loaded
+     */
+    private static class BufferChannel implements ReadableByteChannel {
+
+        private final ByteBuffer buffer;
+
+        BufferChannel(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(dst.remaining(), buffer.remaining());
+            ByteBuffer slice = buffer.duplicate();
+            slice.limit(slice.position() + count);
+            dst.put(slice);
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
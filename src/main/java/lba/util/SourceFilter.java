@@ -0,0 +1,254 @@
+package lba.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Rules deciding which entries of a source tree are skipped by the walkers, compiled once and evaluated for every
+ * directory before it is entered, so that a skipped subtree is never listed.
+ * <p>
+ * The ignore patterns follow the .gitignore syntax : a pattern without slash matches a name at any level, a pattern
+ * with a slash matches the path relative to the walked root, a trailing slash restricts the pattern to directories,
+ * "*" and "?" do not match slashes while "**" does, and a pattern starting with "!" includes again the entries
+ * ignored by a previous pattern (the last matching pattern wins). The build output directories are skipped too :
+ * target/ next to a pom.xml, build/ next to a build.gradle or build.gradle.kts file.
+ * <p>
+ * With a root package, the directories leaving the package directories are skipped as well : below "fr/cnes", only
+ * "sitools" is entered for the root package "fr.cnes.sitools". The package directories are only looked for below the
+ * walked root, and a directory inside the root package directory is always entered.
+ */
+public class SourceFilter {
+
+    /**
+     * Patterns ignored unless disabled : version control, IDE and node directories, and generated sources
+     */
+    public static final List<String> DEFAULT_IGNORES = Collections.unmodifiableList(Arrays.asList(
+            ".git/", ".svn/", ".hg/", ".idea/", "node_modules/", "generated-sources/", "generated-test-sources/"));
+
+    /**
+     * Compiled ignore patterns, in declaration order
+     */
+    private final List<Rule> rules = new ArrayList<>();
+
+    /**
+     * Whether the build output directories are skipped
+     */
+    private final boolean skipBuildOutputs;
+
+    /**
+     * Directory names of the root package, null when the package directories are not checked
+     */
+    private final String[] packagePath;
+
+    /**
+     * Constructor
+     *
+     * @param patterns         ignore patterns, in .gitignore syntax
+     * @param skipBuildOutputs whether the build output directories are skipped
+     * @param rootPackage      root package whose directories only are entered, null to enter all the directories
+     */
+    public SourceFilter(List<String> patterns, boolean skipBuildOutputs, String rootPackage) {
+        for (String pattern : patterns) {
+            Rule rule = Rule.compile(pattern);
+            if (rule != null) {
+                rules.add(rule);
+            }
+        }
+        this.skipBuildOutputs = skipBuildOutputs;
+        this.packagePath = rootPackage == null || rootPackage.isEmpty() ? null : rootPackage.split("\\.");
+    }
+
+    /**
+     * Read the patterns of an ignore file, one pattern per line
+     *
+     * @param file ignore file, in .gitignore syntax
+     * @return the lines of the file, blank lines and comments being compiled as no rule
+     */
+    public static List<String> readIgnoreFile(Path file) throws IOException {
+        return Files.readAllLines(file, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param path      entry of the tree
+     * @param root      walked root, the entry being below it
+     * @param directory whether the entry is a directory
+     * @return true if the entry must be skipped, with all its subtree for a directory
+     */
+    public boolean isIgnored(Path path, Path root, boolean directory) {
+        Path relative = root.relativize(path);
+        int count = relative.getNameCount();
+        if (count == 0 || relative.toString().isEmpty()) {
+            return false;
+        }
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = relative.getName(i).toString();
+        }
+
+        if (!rules.isEmpty()) {
+            String relativePath = join(names);
+            boolean ignored = false;
+            for (Rule rule : rules) {
+                if ((directory || !rule.directoryOnly) && rule.pattern.matcher(relativePath).matches()) {
+                    ignored = !rule.negated;
+                }
+            }
+            if (ignored) {
+                return true;
+            }
+        }
+
+        if (directory && skipBuildOutputs && isBuildOutput(path, names[count - 1])) {
+            return true;
+        }
+        return directory && packagePath != null && leavesPackage(root, names);
+    }
+
+    private static boolean isBuildOutput(Path dir, String name) {
+        Path parent = dir.getParent();
+        if (parent == null) {
+            return false;
+        }
+        if ("target".equals(name)) {
+            return Files.isRegularFile(parent.resolve("pom.xml"));
+        }
+        if ("build".equals(name)) {
+            return Files.isRegularFile(parent.resolve("build.gradle")) || Files.isRegularFile(parent.resolve("build.gradle.kts"));
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the parent of the directory ends with a part of the package directories which the directory
+     * does not follow, unless it is already inside the package directory
+     */
+    private boolean leavesPackage(Path root, String[] names) {
+        int count = names.length;
+        if (isInsidePackage(root, names)) {
+            return false;
+        }
+        // Only the parents below the root are considered, the root itself may be named anyhow
+        for (int length = Math.min(packagePath.length - 1, count - 1); length >= 1; length--) {
+            boolean prefix = true;
+            for (int i = 0; i < length && prefix; i++) {
+                prefix = names[count - 1 - length + i].equals(packagePath[i]);
+            }
+            if (prefix) {
+                return !names[count - 1].equals(packagePath[length]);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the package directories appear in the path of the directory, root included
+     */
+    private boolean isInsidePackage(Path root, String[] names) {
+        List<String> path = new ArrayList<>();
+        Path absoluteRoot = root.toAbsolutePath().normalize();
+        for (int i = 0; i < absoluteRoot.getNameCount(); i++) {
+            path.add(absoluteRoot.getName(i).toString());
+        }
+        path.addAll(Arrays.asList(names));
+        return Collections.indexOfSubList(path, Arrays.asList(packagePath)) >= 0;
+    }
+
+    private static String join(String[] names) {
+        StringBuilder joined = new StringBuilder();
+        for (String name : names) {
+            if (joined.length() > 0) {
+                joined.append('/');
+            }
+            joined.append(name);
+        }
+        return joined.toString();
+    }
+
+    /**
+     * Compiled ignore pattern
+     */
+    private static class Rule {
+
+        private final Pattern pattern;
+
+        private final boolean negated;
+
+        private final boolean directoryOnly;
+
+        private Rule(Pattern pattern, boolean negated, boolean directoryOnly) {
+            this.pattern = pattern;
+            this.negated = negated;
+            this.directoryOnly = directoryOnly;
+        }
+
+        /**
+         * @return the compiled pattern, null for a blank line or a comment
+         */
+        static Rule compile(String line) {
+            String glob = line.trim();
+            if (glob.isEmpty() || glob.startsWith("#")) {
+                return null;
+            }
+            boolean negated = glob.startsWith("!");
+            if (negated) {
+                glob = glob.substring(1);
+            }
+            boolean directoryOnly = glob.endsWith("/");
+            while (glob.endsWith("/")) {
+                glob = glob.substring(0, glob.length() - 1);
+            }
+            if (glob.isEmpty()) {
+                return null;
+            }
+            // A pattern without slash matches a name at any level, the others are relative to the root
+            boolean anchored = glob.indexOf('/') >= 0;
+            if (glob.startsWith("/")) {
+                glob = glob.substring(1);
+            }
+            String regex = toRegex(glob);
+            return new Rule(Pattern.compile(anchored ? regex : "(?:.*/)?" + regex), negated, directoryOnly);
+        }
+
+        private static String toRegex(String glob) {
+            StringBuilder regex = new StringBuilder();
+            int length = glob.length();
+            for (int i = 0; i < length; i++) {
+                char c = glob.charAt(i);
+                if (c == '*' && i + 1 < length && glob.charAt(i + 1) == '*') {
+                    if (i + 2 < length && glob.charAt(i + 2) == '/') {
+                        regex.append("(?:.*/)?");
+                        i += 2;
+                    } else {
+                        regex.append(".*");
+                        i++;
+                    }
+                } else if (c == '*') {
+                    regex.append("[^/]*");
+                } else if (c == '?') {
+                    regex.append("[^/]");
+                } else if (c == '[') {
+                    int end = glob.indexOf(']', i + 1);
+                    if (end < 0) {
+                        regex.append("\\[");
+                    } else {
+                        String set = glob.substring(i + 1, end);
+                        regex.append('[').append(set.startsWith("!") ? "^" + set.substring(1) : set).append(']');
+                        i = end;
+                    }
+                } else if (c == '\\' && i + 1 < length) {
+                    regex.append(Pattern.quote(String.valueOf(glob.charAt(++i))));
+                } else {
+                    regex.append(Pattern.quote(String.valueOf(c)));
+                }
+            }
+            return regex.toString();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package lba.util;
+
+import java.nio.file.Path;
+
+/**
+ * Root of a source tree analyzed along with other roots, for instance one module of a Maven reactor : the packages
+ * found under the root are tagged with the name of its module.
+ */
+public class SourceRoot {
+
+    /**
+     * Root source directory or source archive
+     */
+    private final Path path;
+
+    /**
+     * Module the sources belong to, null when a single root is analyzed
+     */
+    private final String module;
+
+    /**
+     * Constructor
+     *
+     * @param path   root source directory or source archive
+     * @param module module the sources belong to, null when a single root is analyzed
+     */
+    public SourceRoot(Path path, String module) {
+        this.path = path;
+        this.module = module;
+    }
+
+    /**
+     * Root named after its directory, or after the project directory for a Maven layout (module/src/main/java)
+     *
+     * @param path root source directory or source archive
+     * @return the root of the sources of a module
+     */
+    public static SourceRoot of(Path path) {
+        Path absolute = path.toAbsolutePath().normalize();
+        Path name = absolute;
+        if (absolute.endsWith("src/main/java") && absolute.getNameCount() > 3) {
+            name = absolute.getParent().getParent().getParent();
+        }
+        return new SourceRoot(path, name.getFileName() == null ? absolute.toString() : name.getFileName().toString());
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public String getModule() {
+        return module;
+    }
+
+    @Override
+    public String toString() {
+        return module == null ? path.toString() : module + "=" + path;
+    }
+}
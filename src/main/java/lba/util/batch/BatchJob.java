@@ -0,0 +1,41 @@
+package lba.util.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Analysis described by a job file : its name, and the command line it would be run with on its own
+ */
+public class BatchJob {
+
+    private final String name;
+
+    private final List<String> args;
+
+    /**
+     * Constructor
+     *
+     * @param name name of the job, used by the logs and the summary of the batch
+     * @param args command line arguments of the job
+     */
+    public BatchJob(String name, List<String> args) {
+        this.name = name;
+        this.args = new ArrayList<>(args);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the command line arguments of the job
+     */
+    public String[] getArgs() {
+        return args.toArray(new String[args.size()]);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
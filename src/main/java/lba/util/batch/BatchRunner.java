@@ -0,0 +1,394 @@
+package lba.util.batch;
+
+import lba.util.AbstractAnalyzer;
+import lba.util.Analysis;
+import lba.util.CompositeAnalyzer;
+import lba.util.SourceRoot;
+import lba.util.cache.AnalysisCache;
+import lba.util.metrics.AnalysisMetrics;
+import lba.util.report.JsonWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Run the jobs of a job file in a single JVM : the jobs walking the same sources with the same settings are fed by a
+ * single walk, and the walks share one pool and one per-file results cache, the largest walks being started first, so
+ * that the batch is bound by the total work rather than by the sum of the runs
+ */
+public class BatchRunner {
+
+    /**
+     * Logger
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(BatchRunner.class);
+
+    private final int threads;
+
+    private final boolean countFiles;
+
+    private final Map<String, JobGroup> groups = new LinkedHashMap<>();
+
+    private final List<JobRun> runs = new ArrayList<>();
+
+    private final List<JobGroup> scheduled = new ArrayList<>();
+
+    /**
+     * Time spent from the start of the first walk to the last report
+     */
+    private long wallNanos;
+
+    /**
+     * Constructor
+     *
+     * @param threads    number of worker threads shared by all the jobs
+     * @param countFiles whether the files of the walks without cache records are counted rather than estimated
+     */
+    public BatchRunner(int threads, boolean countFiles) {
+        this.threads = threads;
+        this.countFiles = countFiles;
+    }
+
+    /**
+     * Add a job to the batch, fed by the walk of the jobs added before it with the same walk key, if any
+     *
+     * @param job      job of the job file
+     * @param analysis analysis configured by the command line of the job
+     */
+    public void add(BatchJob job, Analysis analysis) {
+        String key = analysis.getWalkKey();
+        JobGroup group = groups.get(key);
+        if (group == null) {
+            group = new JobGroup();
+            groups.put(key, group);
+        }
+        JobRun run = new JobRun(job, analysis, group);
+        group.add(run);
+        runs.add(run);
+    }
+
+    /**
+     * Run the walks of the jobs, and write their reports : the walks are started by decreasing estimated number of
+     * files, so that the small walks fill the pool at the end of the batch instead of leaving the largest alone
+     *
+     * @param cache per-file results cache shared by the walks, saved once they are done, may be null
+     */
+    public void run(final AnalysisCache cache) throws IOException {
+        scheduled.clear();
+        scheduled.addAll(groups.values());
+        final ForkJoinPool pool = new ForkJoinPool(threads);
+        // A walk only submits its tasks to the pool and waits for them, these threads do not compete for the cores
+        final AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService walks = Executors.newFixedThreadPool(Math.min(threads, scheduled.size()), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "analysis-job-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            List<Future<Long>> estimates = new ArrayList<>(scheduled.size());
+            for (final JobGroup group : scheduled) {
+                estimates.add(walks.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() {
+                        return group.getAnalysis().estimateFiles(cache, countFiles);
+                    }
+                }));
+            }
+            for (int i = 0; i < scheduled.size(); i++) {
+                scheduled.get(i).estimatedFiles = estimates.get(i).get();
+            }
+            Collections.sort(scheduled, new Comparator<JobGroup>() {
+                @Override
+                public int compare(JobGroup group, JobGroup other) {
+                    return Long.compare(other.estimatedFiles, group.estimatedFiles);
+                }
+            });
+
+            final long start = System.nanoTime();
+            List<Future<?>> results = new ArrayList<>(scheduled.size());
+            for (final JobGroup group : scheduled) {
+                results.add(walks.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        group.run(cache, pool, start);
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+            wallNanos = System.nanoTime() - start;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Batch interrupted");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            walks.shutdownNow();
+            pool.shutdown();
+        }
+
+        if (cache != null) {
+            if (isPartial()) {
+                cache.retainUnvisited();
+            }
+            cache.save();
+        }
+    }
+
+    /**
+     * @return true if a source root of a group of jobs is inside a source root of another group
+     */
+    public boolean isOverlapping() {
+        List<List<Path>> paths = new ArrayList<>();
+        for (JobGroup group : groups.values()) {
+            List<Path> groupPaths = new ArrayList<>();
+            for (SourceRoot root : group.getAnalysis().getRoots()) {
+                groupPaths.add(root.getPath().toAbsolutePath().normalize());
+            }
+            paths.add(groupPaths);
+        }
+        for (int i = 0; i < paths.size(); i++) {
+            for (int j = 0; j < paths.size(); j++) {
+                if (i == j) {
+                    continue;
+                }
+                for (Path path : paths.get(i)) {
+                    for (Path other : paths.get(j)) {
+                        if (path.startsWith(other)) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if a job of the batch failed
+     */
+    public boolean hasFailed() {
+        for (JobRun run : runs) {
+            if (run.error != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the walk of any group stopped before its end
+     */
+    private boolean isPartial() {
+        for (JobGroup group : scheduled) {
+            if (group.getAnalysis().getMetrics().isPartial()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Print the time spent by each job, and write it as JSON when requested
+     *
+     * @param metricsFile JSON summary of the batch, null for none
+     */
+    public void writeSummary(Path metricsFile) throws IOException {
+        long walkNanos = 0L;
+        long files = 0L;
+        for (JobGroup group : scheduled) {
+            walkNanos += group.walkNanos;
+            files += group.getAnalysis().getMetrics().getFilesAnalyzed();
+        }
+
+        StringBuilder summary = new StringBuilder("Jobs :\n");
+        for (JobRun run : runs) {
+            AnalysisMetrics jobMetrics = run.analysis.getMetrics();
+            summary.append("  ").append(run.job.getName()).append(" : ");
+            if (run.error != null) {
+                summary.append("failed, ").append(run.error);
+            } else {
+                if (run.isWalker()) {
+                    summary.append(jobMetrics.getFilesAnalyzed()).append(" files (")
+                            .append(run.group.estimatedFiles).append(" estimated), walk ")
+                            .append(toMillis(run.group.walkNanos)).append(" ms");
+                } else {
+                    summary.append("walk shared with ").append(run.group.runs.get(0).job.getName());
+                }
+                summary.append(", reports ").append(toMillis(run.reportNanos)).append(" ms");
+                if (jobMetrics.isPartial()) {
+                    summary.append(", partial (").append(jobMetrics.getSkippedFiles().getSummary()).append(')');
+                }
+            }
+            summary.append(", done after ").append(toMillis(run.doneNanos)).append(" ms\n");
+        }
+        summary.append(' ').append(runs.size()).append(" jobs, ").append(scheduled.size()).append(" walks on ")
+                .append(threads).append(" threads, ").append(files).append(" files analyzed in ")
+                .append(toMillis(walkNanos)).append(" ms of walks, done in ").append(toMillis(wallNanos)).append(" ms");
+        System.out.println(summary);
+
+        if (metricsFile != null) {
+            try (Writer out = Files.newBufferedWriter(metricsFile, StandardCharsets.UTF_8)) {
+                JsonWriter json = new JsonWriter(out);
+                json.beginObject()
+                        .member("threads", threads)
+                        .member("walks", scheduled.size())
+                        .member("filesAnalyzed", files)
+                        .member("walkMillis", toMillis(walkNanos))
+                        .member("wallMillis", toMillis(wallNanos))
+                        .name("jobs").beginArray();
+                for (JobRun run : runs) {
+                    AnalysisMetrics jobMetrics = run.analysis.getMetrics();
+                    json.beginObject()
+                            .member("name", run.job.getName())
+                            .member("walk", run.group.runs.get(0).job.getName())
+                            .member("estimatedFiles", run.group.estimatedFiles)
+                            .member("filesSeen", jobMetrics.getFilesSeen())
+                            .member("filesAnalyzed", jobMetrics.getFilesAnalyzed())
+                            .member("filesFailed", jobMetrics.getFilesFailed())
+                            .member("walkMillis", toMillis(run.group.walkNanos))
+                            .member("reportMillis", toMillis(run.reportNanos))
+                            .member("doneMillis", toMillis(run.doneNanos))
+                            .member("partial", jobMetrics.isPartial())
+                            .member("failed", run.error != null);
+                    if (run.error != null) {
+                        json.member("error", run.error);
+                    }
+                    json.endObject();
+                }
+                json.endArray().endObject();
+                out.write('\n');
+            }
+        }
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    /**
+     * Job of a batch, and the times of its run
+     */
+    private static class JobRun {
+
+        private final BatchJob job;
+
+        private final Analysis analysis;
+
+        private final JobGroup group;
+
+        private long reportNanos;
+
+        /**
+         * Time from the start of the batch to the end of the job
+         */
+        private long doneNanos;
+
+        /**
+         * Error message of a failed job, null if it succeeded
+         */
+        private String error;
+
+        JobRun(BatchJob job, Analysis analysis, JobGroup group) {
+            this.job = job;
+            this.analysis = analysis;
+            this.group = group;
+        }
+
+        /**
+         * @return true if the walk of the group is configured by this job
+         */
+        boolean isWalker() {
+            return group.runs.get(0) == this;
+        }
+    }
+
+    /**
+     * Jobs of a batch fed by the same walk, the analyzers of all of them being fed with each file read
+     */
+    private static class JobGroup {
+
+        private final List<JobRun> runs = new ArrayList<>();
+
+        private long estimatedFiles;
+
+        private long walkNanos;
+
+        void add(JobRun run) {
+            if (!runs.isEmpty()) {
+                // The reports of all the jobs give the metrics of the shared walk
+                run.analysis.setMetrics(getAnalysis().getMetrics());
+            }
+            runs.add(run);
+        }
+
+        /**
+         * @return the analysis whose roots and settings are walked
+         */
+        Analysis getAnalysis() {
+            return runs.get(0).analysis;
+        }
+
+        /**
+         * Walk the sources, and write the reports of each job
+         */
+        void run(AnalysisCache cache, ForkJoinPool pool, long batchStart) {
+            JobRun walker = runs.get(0);
+            List<AbstractAnalyzer<?>> analyzers = new ArrayList<>();
+            for (JobRun run : runs) {
+                analyzers.addAll(run.analysis.getAnalyzers());
+            }
+            LOG.info("Walking {} for {} job(s)", walker.analysis.getRoots(), runs.size());
+            walker.analysis.setExpectedFiles(estimatedFiles);
+            long walkStart = System.nanoTime();
+            try {
+                walker.analysis.walk(new CompositeAnalyzer(analyzers, cache), pool);
+            } catch (IOException | RuntimeException e) {
+                LOG.error("Walk of job " + walker.job.getName() + " failed : " + e.getMessage(), e);
+                for (JobRun run : runs) {
+                    run.error = e.toString();
+                    run.doneNanos = System.nanoTime() - batchStart;
+                }
+                return;
+            }
+            walkNanos = System.nanoTime() - walkStart;
+
+            for (JobRun run : runs) {
+                long reportStart = System.nanoTime();
+                try {
+                    run.analysis.writeReports();
+                } catch (IOException | RuntimeException e) {
+                    LOG.error("Reports of job " + run.job.getName() + " failed : " + e.getMessage(), e);
+                    run.error = e.toString();
+                }
+                run.reportNanos = System.nanoTime() - reportStart;
+                run.doneNanos = System.nanoTime() - batchStart;
+            }
+        }
+    }
+}
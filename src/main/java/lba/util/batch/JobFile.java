@@ -0,0 +1,600 @@
+package lba.util.batch;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reader of the job files of the batch mode, written in JSON or in YAML :
+ * <pre>
+ * jobs:
+ *   - name: sitools-dependencies
+ *     mode: dependencies
+ *     src: /data/sitools/workspace
+ *     pkg: fr.cnes.sitools
+ *     output: reports/sitools-dependencies.dot
+ *   - name: sitools-services
+ *     mode: [restletServices, linesCounter]
+ *     src: /data/sitools/workspace
+ *     pkg: fr.cnes.sitools
+ *     output: reports/sitools
+ * </pre>
+ * The root may also be the list of the jobs itself. The mode of a job is the long name of the option (or the list of
+ * options) selecting its analyzers, every other member but its name is the long name of a command line option : true
+ * gives a flag, false or null leaves the option out, and a list is joined with commas as for --src.
+ * <p>
+ * Only the YAML subset needed by such files is read : block mappings and sequences, flow mappings and sequences,
+ * plain and quoted scalars, and comments, a flow node of a YAML block being written on a single line. Anchors,
+ * aliases, tags, multi-line scalars and multiple documents are rejected, the values starting with one of their
+ * indicators (such as the ignore patterns starting with *) must be quoted.
+ */
+public final class JobFile {
+
+    /**
+     * Members of a job which are not command line options
+     */
+    private static final String NAME = "name";
+    private static final String MODE = "mode";
+
+    private JobFile() {
+    }
+
+    /**
+     * Read the jobs of a job file
+     *
+     * @param file JSON or YAML job file
+     * @return the jobs, in file order
+     * @throws IOException if the file cannot be read or is not a valid job file
+     */
+    public static List<BatchJob> read(Path file) throws IOException {
+        String text = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        try {
+            return toJobs(parse(text));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid job file " + file + " : " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Parse a JSON or YAML document
+     *
+     * @return the root node : a map, a list, a string or null
+     * @throws IllegalArgumentException if the document is not valid
+     */
+    static Object parse(String text) {
+        if (text.startsWith("\uFEFF")) {
+            text = text.substring(1);
+        }
+        String trimmed = text.trim();
+        if (trimmed.startsWith("{") || trimmed.startsWith("[")) {
+            // JSON, or a YAML document written in flow style
+            FlowParser parser = new FlowParser(text, 1);
+            Object root = parser.parseValue();
+            parser.expectEnd();
+            return root;
+        }
+        return new BlockParser(text).parseDocument();
+    }
+
+    /**
+     * @return the jobs described by the root node of a job file
+     */
+    @SuppressWarnings("unchecked")
+    private static List<BatchJob> toJobs(Object root) {
+        Object jobs = root;
+        if (root instanceof Map) {
+            Map<String, Object> members = (Map<String, Object>) root;
+            for (String member : members.keySet()) {
+                if (!"jobs".equals(member)) {
+                    throw new IllegalArgumentException("unknown member " + member + ", the jobs are listed by \"jobs\"");
+                }
+            }
+            jobs = members.get("jobs");
+        }
+        if (!(jobs instanceof List)) {
+            throw new IllegalArgumentException("the jobs must be a list");
+        }
+
+        List<BatchJob> result = new ArrayList<>();
+        List<Object> list = (List<Object>) jobs;
+        for (int i = 0; i < list.size(); i++) {
+            if (!(list.get(i) instanceof Map)) {
+                throw new IllegalArgumentException("job " + (i + 1) + " is not a mapping");
+            }
+            result.add(toJob((Map<String, Object>) list.get(i), "job" + (i + 1)));
+        }
+        return result;
+    }
+
+    /**
+     * @return the job described by a mapping, its members being turned into command line arguments
+     */
+    private static BatchJob toJob(Map<String, Object> members, String defaultName) {
+        String name = defaultName;
+        if (members.containsKey(NAME)) {
+            name = toScalar(members.get(NAME), NAME, defaultName);
+        }
+        List<String> args = new ArrayList<>();
+        for (Map.Entry<String, Object> member : members.entrySet()) {
+            String option = member.getKey();
+            Object value = member.getValue();
+            if (NAME.equals(option)) {
+                continue;
+            }
+            if (MODE.equals(option)) {
+                List<?> modes = value instanceof List ? (List<?>) value : Collections.singletonList(value);
+                for (Object mode : modes) {
+                    args.add("--" + toScalar(mode, MODE, name));
+                }
+            } else if (value == null || "false".equals(value)) {
+                continue;
+            } else if ("true".equals(value)) {
+                args.add("--" + option);
+            } else if (value instanceof List) {
+                StringBuilder values = new StringBuilder();
+                for (Object element : (List<?>) value) {
+                    values.append(values.length() == 0 ? "" : ",").append(toScalar(element, option, name));
+                }
+                args.add("--" + option);
+                args.add(values.toString());
+            } else {
+                args.add("--" + option);
+                args.add(toScalar(value, option, name));
+            }
+        }
+        return new BatchJob(name, args);
+    }
+
+    private static String toScalar(Object value, String member, String job) {
+        if (!(value instanceof String) || ((String) value).isEmpty()) {
+            throw new IllegalArgumentException("invalid value for " + member + " in job " + job);
+        }
+        return (String) value;
+    }
+
+    /**
+     * @return the value of a plain scalar, null for the YAML null values
+     */
+    private static String plainValue(String text) {
+        return "null".equals(text) || "~".equals(text) ? null : text;
+    }
+
+    /**
+     * @return the unsupported YAML construct a plain scalar starts with, null if it is a plain value
+     */
+    private static String getUnsupported(String plain) {
+        switch (plain.charAt(0)) {
+            case '&':
+                return "anchors are not supported";
+            case '*':
+                return "aliases are not supported, quote the values starting with *";
+            case '!':
+                return "tags are not supported";
+            case '|':
+            case '>':
+                return "multi-line scalars are not supported";
+            case '%':
+            case '@':
+            case '`':
+                return "reserved indicator " + plain.charAt(0) + ", quote the value";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Parser of the JSON values and of the YAML flow nodes
+     */
+    private static class FlowParser {
+
+        private final String text;
+
+        private int position;
+
+        private int line;
+
+        FlowParser(String text, int line) {
+            this.text = text;
+            this.line = line;
+        }
+
+        Object parseValue() {
+            skipSpaces();
+            if (position == text.length()) {
+                throw error("unexpected end of value");
+            }
+            char c = text.charAt(position);
+            if (c == '{') {
+                return parseMapping();
+            }
+            if (c == '[') {
+                return parseSequence();
+            }
+            if (c == '"' || c == '\'') {
+                return parseQuoted();
+            }
+            String value = readPlain(",]}").trim();
+            if (value.isEmpty()) {
+                throw error("missing value");
+            }
+            if (getUnsupported(value) != null) {
+                throw error(getUnsupported(value));
+            }
+            return plainValue(value);
+        }
+
+        void expectEnd() {
+            skipSpaces();
+            if (position < text.length()) {
+                throw error("unexpected " + text.charAt(position));
+            }
+        }
+
+        private Map<String, Object> parseMapping() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            position++;
+            skipSpaces();
+            if (peek() == '}') {
+                position++;
+                return map;
+            }
+            while (true) {
+                skipSpaces();
+                String key = peek() == '"' || peek() == '\'' ? parseQuoted() : readPlain(":,]}").trim();
+                skipSpaces();
+                if (key.isEmpty() || peek() != ':') {
+                    throw error("expected a key followed by :");
+                }
+                if (getUnsupported(key) != null) {
+                    throw error(getUnsupported(key));
+                }
+                position++;
+                if (map.containsKey(key)) {
+                    throw error("duplicate key " + key);
+                }
+                map.put(key, parseValue());
+                skipSpaces();
+                char c = next();
+                if (c == '}') {
+                    return map;
+                }
+                if (c != ',') {
+                    throw error("expected , or }");
+                }
+            }
+        }
+
+        private List<Object> parseSequence() {
+            List<Object> list = new ArrayList<>();
+            position++;
+            skipSpaces();
+            if (peek() == ']') {
+                position++;
+                return list;
+            }
+            while (true) {
+                list.add(parseValue());
+                skipSpaces();
+                char c = next();
+                if (c == ']') {
+                    return list;
+                }
+                if (c != ',') {
+                    throw error("expected , or ]");
+                }
+            }
+        }
+
+        private String parseQuoted() {
+            char quote = next();
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == quote) {
+                    if (quote == '\'' && peek() == '\'') {
+                        // Single quotes are escaped by doubling them
+                        position++;
+                        value.append('\'');
+                        continue;
+                    }
+                    return value.toString();
+                }
+                if (c == '\\' && quote == '"') {
+                    c = next();
+                    switch (c) {
+                        case 'b':
+                            value.append('\b');
+                            break;
+                        case 'f':
+                            value.append('\f');
+                            break;
+                        case 'n':
+                            value.append('\n');
+                            break;
+                        case 'r':
+                            value.append('\r');
+                            break;
+                        case 't':
+                            value.append('\t');
+                            break;
+                        case 'u':
+                            if (position + 4 > text.length()) {
+                                throw error("invalid escape sequence");
+                            }
+                            try {
+                                value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                            } catch (NumberFormatException e) {
+                                throw error("invalid escape sequence");
+                            }
+                            position += 4;
+                            break;
+                        default:
+                            value.append(c);
+                    }
+                } else {
+                    value.append(c);
+                }
+            }
+        }
+
+        /**
+         * @return the characters up to the first of the delimiters, or up to the end of the text
+         */
+        private String readPlain(String delimiters) {
+            int start = position;
+            while (position < text.length() && delimiters.indexOf(text.charAt(position)) < 0) {
+                if (text.charAt(position) == '\n') {
+                    line++;
+                }
+                position++;
+            }
+            return text.substring(start, position);
+        }
+
+        private void skipSpaces() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                if (text.charAt(position) == '\n') {
+                    line++;
+                }
+                position++;
+            }
+        }
+
+        private char peek() {
+            return position < text.length() ? text.charAt(position) : 0;
+        }
+
+        private char next() {
+            if (position == text.length()) {
+                throw error("unexpected end of value");
+            }
+            char c = text.charAt(position++);
+            if (c == '\n') {
+                line++;
+            }
+            return c;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at line " + line);
+        }
+    }
+
+    /**
+     * Parser of the YAML block nodes, a mapping or a sequence being made of the following lines of the same
+     * indentation
+     */
+    private static class BlockParser {
+
+        /**
+         * Non blank lines, without comments : their indentation, their content and their number in the document
+         */
+        private final List<Integer> indents = new ArrayList<>();
+        private final List<String> contents = new ArrayList<>();
+        private final List<Integer> numbers = new ArrayList<>();
+
+        private int index;
+
+        BlockParser(String text) {
+            String[] lines = text.split("\r?\n", -1);
+            boolean ended = false;
+            for (int i = 0; i < lines.length; i++) {
+                String content = stripComment(lines[i]);
+                int indent = 0;
+                while (indent < content.length() && content.charAt(indent) == ' ') {
+                    indent++;
+                }
+                content = content.trim();
+                if (content.isEmpty()) {
+                    continue;
+                }
+                if (ended || "---".equals(content) && !contents.isEmpty()) {
+                    throw new IllegalArgumentException("multiple documents are not supported at line " + (i + 1));
+                }
+                if ("---".equals(content) || "...".equals(content)) {
+                    ended = "...".equals(content);
+                    continue;
+                }
+                if (lines[i].charAt(indent) == '\t') {
+                    throw new IllegalArgumentException("tabulations are not allowed in the indentation at line " + (i + 1));
+                }
+                indents.add(indent);
+                contents.add(content);
+                numbers.add(i + 1);
+            }
+        }
+
+        Object parseDocument() {
+            if (contents.isEmpty()) {
+                return null;
+            }
+            Object root = parseNode();
+            if (index < contents.size()) {
+                throw error("unexpected indentation");
+            }
+            return root;
+        }
+
+        /**
+         * @return the node starting at the current line
+         */
+        private Object parseNode() {
+            String content = contents.get(index);
+            if (isSequenceItem(content)) {
+                return parseSequence(indents.get(index));
+            }
+            if (findKeySeparator(content) >= 0) {
+                return parseMapping(indents.get(index));
+            }
+            index++;
+            Object value = parseScalar(content, numbers.get(index - 1));
+            // A scalar node is continued by the following lines indented as much as it
+            checkSingleLine(indents.get(index - 1) - 1);
+            return value;
+        }
+
+        private List<Object> parseSequence(int indent) {
+            List<Object> list = new ArrayList<>();
+            while (index < contents.size() && indents.get(index) == indent && isSequenceItem(contents.get(index))) {
+                String content = contents.get(index);
+                String item = content.substring(1).trim();
+                if (item.isEmpty()) {
+                    index++;
+                    list.add(index < contents.size() && indents.get(index) > indent ? parseNode() : null);
+                } else {
+                    // The node starting on the line of the dash is indented as its content
+                    indents.set(index, indent + content.indexOf(item, 1));
+                    contents.set(index, item);
+                    list.add(parseNode());
+                }
+            }
+            return list;
+        }
+
+        private Map<String, Object> parseMapping(int indent) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            while (index < contents.size() && indents.get(index) == indent && !isSequenceItem(contents.get(index))) {
+                String content = contents.get(index);
+                int separator = findKeySeparator(content);
+                if (separator < 0) {
+                    throw error("expected key: value");
+                }
+                String key = content.substring(0, separator).trim();
+                if (key.startsWith("\"") || key.startsWith("'")) {
+                    key = (String) parseScalar(key, numbers.get(index));
+                } else if (getUnsupported(key) != null) {
+                    throw error(getUnsupported(key));
+                }
+                if (map.containsKey(key)) {
+                    throw error("duplicate key " + key);
+                }
+                String value = content.substring(separator + 1).trim();
+                int number = numbers.get(index);
+                index++;
+                if (!value.isEmpty()) {
+                    map.put(key, parseScalar(value, number));
+                    checkSingleLine(indent);
+                } else if (index < contents.size() && (indents.get(index) > indent
+                        || indents.get(index) == indent && isSequenceItem(contents.get(index)))) {
+                    // The value is the block below the key, a sequence may be indented as the key
+                    map.put(key, parseNode());
+                } else {
+                    map.put(key, null);
+                }
+            }
+            return map;
+        }
+
+        private Object parseScalar(String content, int number) {
+            char first = content.charAt(0);
+            if (first == '[' || first == '{' || first == '"' || first == '\'') {
+                FlowParser parser = new FlowParser(content, number);
+                Object value = parser.parseValue();
+                parser.expectEnd();
+                return value;
+            }
+            if (getUnsupported(content) != null) {
+                throw new IllegalArgumentException(getUnsupported(content) + " at line " + number);
+            }
+            return plainValue(content);
+        }
+
+        /**
+         * Check that the scalar just read is not continued on the following lines
+         *
+         * @param indent indentation the continuation lines would be deeper than
+         */
+        private void checkSingleLine(int indent) {
+            if (index < contents.size() && indents.get(index) > indent) {
+                throw error("multi-line scalars are not supported");
+            }
+        }
+
+        private static boolean isSequenceItem(String content) {
+            return "-".equals(content) || content.startsWith("- ");
+        }
+
+        /**
+         * @return the position of the colon ending the key of a mapping entry, -1 if the content is not a mapping entry
+         */
+        private static int findKeySeparator(String content) {
+            char quote = 0;
+            for (int i = 0; i < content.length(); i++) {
+                char c = content.charAt(i);
+                if (quote != 0) {
+                    if (c == quote) {
+                        quote = 0;
+                    } else if (c == '\\' && quote == '"') {
+                        i++;
+                    }
+                } else if ((c == '"' || c == '\'') && i == 0) {
+                    quote = c;
+                } else if (c == '[' || c == '{') {
+                    // A flow node is a value, not a key
+                    return -1;
+                } else if (c == ':' && (i + 1 == content.length() || content.charAt(i + 1) == ' ')) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * @return the line without its comment, a comment starting with a # at the beginning of the line or after a
+         * space, out of the quoted scalars
+         */
+        private static String stripComment(String line) {
+            char quote = 0;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quote != 0) {
+                    if (c == '\'' && quote == '\'' && i + 1 < line.length() && line.charAt(i + 1) == '\'') {
+                        i++;
+                    } else if (c == quote) {
+                        quote = 0;
+                    } else if (c == '\\' && quote == '"') {
+                        i++;
+                    }
+                } else if (c == '"' || c == '\'') {
+                    // A quote only opens a quoted scalar at the beginning of a node
+                    if (i == 0 || " \t[{,:-".indexOf(line.charAt(i - 1)) >= 0) {
+                        quote = c;
+                    }
+                } else if (c == '#' && (i == 0 || line.charAt(i - 1) == ' ' || line.charAt(i - 1) == '\t')) {
+                    return line.substring(0, i);
+                }
+            }
+            return line;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at line " + numbers.get(Math.min(index, numbers.size() - 1)));
+        }
+    }
+}
@@ -0,0 +1,455 @@
+package lba.util.cache;
+
+import lba.util.SourceFile;
+import lba.util.service.Endpoint;
+import lba.util.service.ResourceClass;
+import lba.util.service.Route;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent per-file results cache, used to re-read only the files changed since the previous run.
+ * <p>
+ * A record is reused when the size and the last modification time of the file are unchanged. When content hashes are
+ * enabled, a record is also reused when only the modification time changed but the content is the same.
+ * Only the records of the files seen during the current run are saved, so deleted files are evicted, unless the run
+ * stopped before the end of the walk (see {@link #retainUnvisited()}).
+ * <p>
+ * The records of the git blobs are keyed by object name and path, so a file is analyzed once whatever the number of
+ * revisions it appears unchanged in.
+ * <p>
+ * The cache is thread safe, it may be shared by all the workers of a parallel walk.
+ */
+public class AnalysisCache {
+
+    /**
+     * Logger
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(AnalysisCache.class);
+
+    /**
+     * Cache file magic number
+     */
+    private static final int MAGIC = 0x53414331;
+
+    /**
+     * Cache file format version
+     */
+    private static final int VERSION = 4;
+
+    /**
+     * Section flags of the cache file format
+     */
+    private static final int DEPENDENCIES = 1;
+    private static final int SERVICES = 2;
+    private static final int LINES = 4;
+    private static final int ENDPOINTS = 8;
+
+    /**
+     * Cache file
+     */
+    private final Path cacheFile;
+
+    /**
+     * Whether content hashes are computed
+     */
+    private final boolean useHash;
+
+    /**
+     * Records loaded from the cache file
+     */
+    private final Map<String, FileRecord> previous = new ConcurrentHashMap<String, FileRecord>();
+
+    /**
+     * Records of the files seen during the current run
+     */
+    private final Map<String, FileRecord> current = new ConcurrentHashMap<String, FileRecord>();
+
+    /**
+     * Constructor
+     *
+     * @param cacheFile cache file, loaded by {@link #load()} and written by {@link #save()}, null for a cache kept in
+     *                  memory only
+     * @param useHash   whether content hashes are used to detect unchanged files
+     */
+    public AnalysisCache(Path cacheFile, boolean useHash) {
+        this.cacheFile = cacheFile;
+        this.useHash = useHash;
+    }
+
+    /**
+     * Find the record of a file, or create a new empty record when the file changed since the previous run
+     *
+     * @param source source file
+     * @return the record of the file, already registered as seen during the current run
+     */
+    public FileRecord lookup(SourceFile source) throws IOException {
+        String key = getKey(source);
+        if (source.getObjectId() != null) {
+            // The key of a blob holds its object name, the record is up to date whatever the revision
+            FileRecord record = current.get(key);
+            if (record == null) {
+                record = previous.get(key);
+            }
+            if (record != null) {
+                LOG.debug("Cache hit :" + key);
+            } else {
+                record = new FileRecord();
+                record.setHash(source.getObjectId());
+            }
+            current.put(key, record);
+            return record;
+        }
+        BasicFileAttributes attr = source.getAttributes();
+        if (attr == null) {
+            attr = Files.readAttributes(source.getPath(), BasicFileAttributes.class);
+        }
+        long size = attr.size();
+        long lastModified = attr.lastModifiedTime().toMillis();
+
+        FileRecord record = current.get(key);
+        if (record == null) {
+            record = previous.get(key);
+        }
+
+        if (record != null && record.getSize() == size) {
+            if (record.getLastModified() == lastModified) {
+                LOG.debug("Cache hit :" + key);
+                current.put(key, record);
+                return record;
+            }
+            if (useHash && record.getHash() != null && record.getHash().equals(hash(source.getBytes()))) {
+                LOG.debug("Cache hit (same content) :" + key);
+                record = record.copy();
+                record.setLastModified(lastModified);
+                current.put(key, record);
+                return record;
+            }
+        }
+
+        record = new FileRecord();
+        record.setSize(size);
+        record.setLastModified(lastModified);
+        if (useHash) {
+            record.setHash(hash(source.getBytes()));
+        }
+        current.put(key, record);
+        return record;
+    }
+
+    /**
+     * Replace the record of a file, once new sections have been extracted
+     *
+     * @param source source file
+     * @param record new record of the file
+     */
+    public void store(SourceFile source, FileRecord record) {
+        current.put(getKey(source), record);
+    }
+
+    /**
+     * @param file source file
+     * @return the record of the file seen during the current run, null if none
+     */
+    public FileRecord getRecord(Path file) {
+        return current.get(getKey(file));
+    }
+
+    /**
+     * Forget a file seen during the current run, typically because it has been deleted
+     *
+     * @param file source file
+     * @return the record of the file, null if none
+     */
+    public FileRecord remove(Path file) {
+        String key = getKey(file);
+        previous.remove(key);
+        return current.remove(key);
+    }
+
+    /**
+     * @return the keys (absolute normalized paths) of the files seen during the current run
+     */
+    public Set<String> getKeys() {
+        return Collections.unmodifiableSet(current.keySet());
+    }
+
+    /**
+     * @param dir directory
+     * @return number of records loaded from the cache file for the files under the directory
+     */
+    public int countLoadedRecords(Path dir) {
+        String prefix = getKey(dir) + File.separator;
+        int count = 0;
+        for (String key : previous.keySet()) {
+            if (key.startsWith(prefix)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Load the cache file, a missing or unreadable cache file leads to an empty cache
+     */
+    public void load() {
+        previous.clear();
+        if (cacheFile == null || !Files.isRegularFile(cacheFile)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                LOG.warn("Ignoring incompatible cache file :" + cacheFile);
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                FileRecord record = new FileRecord();
+                record.setSize(in.readLong());
+                record.setLastModified(in.readLong());
+                record.setHash(readString(in));
+                int sections = in.readByte();
+                if ((sections & DEPENDENCIES) != 0) {
+                    record.setPackageName(readString(in));
+                    record.setImports(readSet(in));
+                    record.setTypeName(readString(in));
+                    record.setSourceName(readString(in));
+                }
+                if ((sections & SERVICES) != 0) {
+                    record.setServiceEntity(readString(in));
+                    record.setVerbs(readSet(in));
+                }
+                if ((sections & LINES) != 0) {
+                    record.setLinesNumber(in.readLong());
+                    record.setCodeLines(in.readLong());
+                    record.setCommentLines(in.readLong());
+                    record.setBlankLines(in.readLong());
+                    record.setDirectory(readString(in));
+                    String packageName = readString(in);
+                    if (packageName != null) {
+                        record.setPackageName(packageName);
+                    }
+                }
+                if ((sections & ENDPOINTS) != 0) {
+                    record.setResources(readResources(in));
+                    record.setRoutes(readRoutes(in));
+                }
+                previous.put(key, record);
+            }
+            LOG.info("{} records loaded from cache file {}", count, cacheFile);
+        } catch (IOException e) {
+            LOG.warn("Ignoring unreadable cache file :" + cacheFile, e);
+            previous.clear();
+        }
+    }
+
+    /**
+     * Save the records of the files seen during the current run into the cache file
+     */
+    public void save() throws IOException {
+        if (cacheFile == null) {
+            return;
+        }
+        Path parent = cacheFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(cacheFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(current.size());
+            for (Map.Entry<String, FileRecord> entry : current.entrySet()) {
+                FileRecord record = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeLong(record.getSize());
+                out.writeLong(record.getLastModified());
+                writeString(out, record.getHash());
+
+                int sections = (record.getImports() != null ? DEPENDENCIES : 0)
+                        | (record.getVerbs() != null ? SERVICES : 0)
+                        | (record.getLinesNumber() >= 0 ? LINES : 0)
+                        | (record.getResources() != null ? ENDPOINTS : 0);
+                out.writeByte(sections);
+                if (record.getImports() != null) {
+                    writeString(out, record.getPackageName());
+                    writeSet(out, record.getImports());
+                    writeString(out, record.getTypeName());
+                    writeString(out, record.getSourceName());
+                }
+                if (record.getVerbs() != null) {
+                    writeString(out, record.getServiceEntity());
+                    writeSet(out, record.getVerbs());
+                }
+                if (record.getLinesNumber() >= 0) {
+                    out.writeLong(record.getLinesNumber());
+                    out.writeLong(record.getCodeLines());
+                    out.writeLong(record.getCommentLines());
+                    out.writeLong(record.getBlankLines());
+                    writeString(out, record.getDirectory());
+                    writeString(out, record.getPackageName());
+                }
+                if (record.getResources() != null) {
+                    writeResources(out, record.getResources());
+                    writeRoutes(out, record.getRoutes());
+                }
+            }
+        }
+        LOG.info("{} records saved into cache file {} ({} evicted)", new Object[]{current.size(), cacheFile, getEvictedCount()});
+    }
+
+    /**
+     * Keep the records of the previous run whose file has not been seen during the current run, so that they are saved
+     * again. Used when the walk stopped before its end : the files it did not reach are not deleted.
+     *
+     * @return number of records kept
+     */
+    public int retainUnvisited() {
+        int retained = 0;
+        for (Map.Entry<String, FileRecord> entry : previous.entrySet()) {
+            if (current.putIfAbsent(entry.getKey(), entry.getValue()) == null) {
+                retained++;
+            }
+        }
+        LOG.info("{} records of the files not reached by the walk kept in the cache", retained);
+        return retained;
+    }
+
+    /**
+     * @return number of records of the previous run whose file has not been seen during the current run
+     */
+    public int getEvictedCount() {
+        int evicted = 0;
+        for (String key : previous.keySet()) {
+            if (!current.containsKey(key)) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * @return cache key of a source file, "git:" followed by the object name and the path for a git blob
+     */
+    private static String getKey(SourceFile source) {
+        if (source.getObjectId() != null) {
+            return "git:" + source.getObjectId() + ":" + source;
+        }
+        return getKey(source.getPath());
+    }
+
+    /**
+     * @return cache key of a file, the URI of the entry for a file of an archive
+     */
+    private static String getKey(Path file) {
+        if (file.getFileSystem() != FileSystems.getDefault()) {
+            return file.toUri().toString();
+        }
+        return file.toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * @return SHA-1 hash of the content, as an hexadecimal string
+     */
+    private static String hash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(content);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeSet(DataOutputStream out, SortedSet<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static SortedSet<String> readSet(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        SortedSet<String> values = new TreeSet<String>();
+        for (int i = 0; i < size; i++) {
+            values.add(in.readUTF());
+        }
+        return values;
+    }
+
+    private static void writeResources(DataOutputStream out, List<ResourceClass> resources) throws IOException {
+        out.writeInt(resources.size());
+        for (ResourceClass resource : resources) {
+            out.writeUTF(resource.getName());
+            writeString(out, resource.getSuperclass());
+            out.writeInt(resource.getEndpoints().size());
+            for (Endpoint endpoint : resource.getEndpoints()) {
+                out.writeUTF(endpoint.getVerb());
+                out.writeUTF(endpoint.getValue());
+                out.writeUTF(endpoint.getMethod());
+            }
+        }
+    }
+
+    private static List<ResourceClass> readResources(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        List<ResourceClass> resources = new ArrayList<ResourceClass>(size);
+        for (int i = 0; i < size; i++) {
+            ResourceClass resource = new ResourceClass(in.readUTF(), readString(in));
+            int endpoints = in.readInt();
+            for (int j = 0; j < endpoints; j++) {
+                resource.getEndpoints().add(new Endpoint(in.readUTF(), in.readUTF(), in.readUTF()));
+            }
+            resources.add(resource);
+        }
+        return resources;
+    }
+
+    private static void writeRoutes(DataOutputStream out, List<Route> routes) throws IOException {
+        out.writeInt(routes.size());
+        for (Route route : routes) {
+            out.writeUTF(route.getTemplate());
+            out.writeUTF(route.getTarget());
+            out.writeUTF(route.getDeclaringClass());
+        }
+    }
+
+    private static List<Route> readRoutes(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        List<Route> routes = new ArrayList<Route>(size);
+        for (int i = 0; i < size; i++) {
+            routes.add(new Route(in.readUTF(), in.readUTF(), in.readUTF()));
+        }
+        return routes;
+    }
+}
@@ -0,0 +1,43 @@
+package lba.util.cache;
+
+import lba.util.SourceFile;
+
+import java.io.IOException;
+
+/**
+ * Analyzer whose work is split between the extraction of a {@link FileRecord} section, which requires reading the
+ * file, and its application to the analyzer results, which does not. The extracted sections can then be kept by an
+ * {@link AnalysisCache} and applied again on the next run without reading unchanged files.
+ */
+public interface CacheableAnalyzer {
+
+    /**
+     * @param record record of a file
+     * @return true if the record already holds the section extracted by this analyzer
+     */
+    boolean isExtracted(FileRecord record);
+
+    /**
+     * Extract the section of this analyzer from the source file into the record
+     *
+     * @param source source file
+     * @param record record receiving the extracted section
+     * @throws IOException if the file can't be read or is not a valid Java source file
+     */
+    void extract(SourceFile source, FileRecord record) throws IOException;
+
+    /**
+     * Add to the analyzer results the section of this analyzer held by the record
+     *
+     * @param record record holding an extracted section
+     */
+    void apply(FileRecord record);
+
+    /**
+     * Remove from the analyzer results the section of this analyzer held by a record previously applied, used when
+     * the file of the record changed or was deleted
+     *
+     * @param record record holding an extracted and applied section
+     */
+    void retract(FileRecord record);
+}
@@ -0,0 +1,242 @@
+package lba.util.cache;
+
+import lba.util.service.ResourceClass;
+import lba.util.service.Route;
+
+import java.util.List;
+import java.util.SortedSet;
+
+/**
+ * Results extracted from a single source file, kept by the {@link AnalysisCache} along with the file metadata
+ * used to detect changes.
+ * <p>
+ * Each section is filled by its own analyzer, a null section means the matching analyzer did not process the file.
+ */
+public class FileRecord {
+
+    /**
+     * File size in bytes
+     */
+    private long size;
+
+    /**
+     * Last modification time in milliseconds
+     */
+    private long lastModified;
+
+    /**
+     * Content hash, null when the cache does not use content hashes
+     */
+    private String hash;
+
+    /**
+     * Package of the file (dependencies and lines sections)
+     */
+    private String packageName;
+
+    /**
+     * Imports of the file (dependencies section)
+     */
+    private SortedSet<String> imports;
+
+    /**
+     * Fully qualified name of the declared type (dependencies section)
+     */
+    private String typeName;
+
+    /**
+     * Name of the file, its path or the URI of an archive entry (dependencies section)
+     */
+    private String sourceName;
+
+    /**
+     * Fully qualified name of the public entity (services section)
+     */
+    private String serviceEntity;
+
+    /**
+     * Restlet verbs of the public entity (services section)
+     */
+    private SortedSet<String> verbs;
+
+    /**
+     * Restlet resource classes of the file, with their annotated methods (endpoints section)
+     */
+    private List<ResourceClass> resources;
+
+    /**
+     * Routes attached to the routers of the file (endpoints section)
+     */
+    private List<Route> routes;
+
+    /**
+     * Number of lines, negative when not counted (lines section)
+     */
+    private long linesNumber = -1L;
+
+    /**
+     * Number of code, comment and blank lines (lines section)
+     */
+    private long codeLines;
+    private long commentLines;
+    private long blankLines;
+
+    /**
+     * Directory of the file (lines section)
+     */
+    private String directory;
+
+    /**
+     * Create a record for the same file version, holding a copy of all the sections of this one
+     *
+     * @return a new record
+     */
+    public FileRecord copy() {
+        FileRecord copy = new FileRecord();
+        copy.size = size;
+        copy.lastModified = lastModified;
+        copy.hash = hash;
+        copy.packageName = packageName;
+        copy.imports = imports;
+        copy.typeName = typeName;
+        copy.sourceName = sourceName;
+        copy.serviceEntity = serviceEntity;
+        copy.verbs = verbs;
+        copy.resources = resources;
+        copy.routes = routes;
+        copy.linesNumber = linesNumber;
+        copy.codeLines = codeLines;
+        copy.commentLines = commentLines;
+        copy.blankLines = blankLines;
+        copy.directory = directory;
+        return copy;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(long lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    public String getPackageName() {
+        return packageName;
+    }
+
+    public void setPackageName(String packageName) {
+        this.packageName = packageName;
+    }
+
+    public SortedSet<String> getImports() {
+        return imports;
+    }
+
+    public void setImports(SortedSet<String> imports) {
+        this.imports = imports;
+    }
+
+    public String getTypeName() {
+        return typeName;
+    }
+
+    public void setTypeName(String typeName) {
+        this.typeName = typeName;
+    }
+
+    public String getSourceName() {
+        return sourceName;
+    }
+
+    public void setSourceName(String sourceName) {
+        this.sourceName = sourceName;
+    }
+
+    public String getServiceEntity() {
+        return serviceEntity;
+    }
+
+    public void setServiceEntity(String serviceEntity) {
+        this.serviceEntity = serviceEntity;
+    }
+
+    public SortedSet<String> getVerbs() {
+        return verbs;
+    }
+
+    public void setVerbs(SortedSet<String> verbs) {
+        this.verbs = verbs;
+    }
+
+    public List<ResourceClass> getResources() {
+        return resources;
+    }
+
+    public void setResources(List<ResourceClass> resources) {
+        this.resources = resources;
+    }
+
+    public List<Route> getRoutes() {
+        return routes;
+    }
+
+    public void setRoutes(List<Route> routes) {
+        this.routes = routes;
+    }
+
+    public long getLinesNumber() {
+        return linesNumber;
+    }
+
+    public void setLinesNumber(long linesNumber) {
+        this.linesNumber = linesNumber;
+    }
+
+    public long getCodeLines() {
+        return codeLines;
+    }
+
+    public void setCodeLines(long codeLines) {
+        this.codeLines = codeLines;
+    }
+
+    public long getCommentLines() {
+        return commentLines;
+    }
+
+    public void setCommentLines(long commentLines) {
+        this.commentLines = commentLines;
+    }
+
+    public long getBlankLines() {
+        return blankLines;
+    }
+
+    public void setBlankLines(long blankLines) {
+        this.blankLines = blankLines;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+}
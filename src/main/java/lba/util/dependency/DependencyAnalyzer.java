@@ -1,18 +1,21 @@
 package lba.util.dependency;
 
 import lba.util.AbstractAnalyzer;
+import lba.util.BudgetExceededException;
+import lba.util.SourceFile;
+import lba.util.cache.CacheableAnalyzer;
+import lba.util.cache.FileRecord;
+import lba.util.imports.ImportIndex;
+import lba.util.lexer.JavaHeader;
+import lba.util.report.DotReportWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.nio.charset.Charset;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.StringWriter;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
-public class DependencyAnalyzer extends AbstractAnalyzer {
+public class DependencyAnalyzer extends AbstractAnalyzer<DependencyAnalyzer> implements CacheableAnalyzer {
 
     /**
      * Logger
@@ -20,71 +23,162 @@ public class DependencyAnalyzer extends AbstractAnalyzer {
     private static final Logger LOG = LoggerFactory.getLogger(DependencyAnalyzer.class);
 
     /**
-     * Dependency manager used to keep track of packages dependencies
+     * Dependency manager used to keep track of packages dependencies, shared by the analyzers created with split()
      */
-    private DependencyManager manager = new DependencyManager();
+    private final DependencyManager manager;
+
+    /**
+     * Module the packages found by the analyzer are tagged with, null when a single source root is analyzed
+     */
+    private final String module;
+
+    /**
+     * Inverted index of the imports fed by the analyzer, shared by the analyzers created with split(), may be null
+     */
+    private final ImportIndex importIndex;
+
+    /**
+     * Constructor
+     */
+    public DependencyAnalyzer() {
+        this(new DependencyManager());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param manager dependency manager fed by the analyzer
+     */
+    public DependencyAnalyzer(DependencyManager manager) {
+        this(manager, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param manager dependency manager fed by the analyzer
+     * @param module  module the packages found are tagged with, may be null
+     */
+    public DependencyAnalyzer(DependencyManager manager, String module) {
+        this(manager, module, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param manager     dependency manager fed by the analyzer
+     * @param module      module the packages found are tagged with, may be null
+     * @param importIndex inverted index of the imports fed by the analyzer, may be null
+     */
+    public DependencyAnalyzer(DependencyManager manager, String module, ImportIndex importIndex) {
+        this.manager = manager;
+        this.module = module;
+        this.importIndex = importIndex;
+    }
 
 
     /**
      * Extract from each class / interface or enum the package name and all the import statements
      *
-     * @param file
+     * @param source
      */
     @Override
-    public void analyseFile(Path file) {
+    public void analyseSource(SourceFile source) {
         try {
-            // First we will read the file
-            List<String> lines = Files.readAllLines(file, Charset.defaultCharset());
-
-            SortedSet<String> dependencies = new TreeSet<String>();
-            String packageName = null;
-
-            boolean foundEntity = false;
-
-            Pattern patternPackage = Pattern.compile("package [\\s]*((?:[a-z][a-z_0-9]*\\.)*(?:$[a-z_]|[\\w_])*)");
-            Pattern patternImport = Pattern.compile("import [\\s]*((?:[a-z][a-z_0-9]*\\.)*)((?:$[A-Z_]|[\\w_])*)");
-            Pattern patternEntity = Pattern.compile("class|enum|interface");
-            Matcher matcher;
-
-            // Then we have to find the class package
-            for (String line : lines) {
-                if (packageName == null) {
-                    matcher = patternPackage.matcher(line);
-                    if (matcher.find()) {
-                        packageName = matcher.group(1);
-                        LOG.debug("Package found :" + packageName);
-                    }
-                } else {
-                    // Try to find import statements
-                    matcher = patternImport.matcher(line);
-                    if (matcher.find()) {
-                        String importStmt = matcher.group(1) + matcher.group(2);
-                        LOG.debug("Import found :" + importStmt);
-                        dependencies.add(importStmt);
-                    } else {
-                        // Try to find class, interface or enum keyword
-                        matcher = patternEntity.matcher(line);
-                        if (matcher.find()) {
-                            foundEntity = true;
-                            if (dependencies.size() > 0) {
-                                manager.addDependencies(packageName, dependencies);
-                            }
-                            break;
-                        }
-                    }
-                }
+            FileRecord record = new FileRecord();
+            extract(source, record);
+            apply(record);
+        } catch (BudgetExceededException e) {
+            LOG.warn(e.getMessage());
+        } catch (IOException e) {
+            source.setFailed(true);
+            LOG.error(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean isExtracted(FileRecord record) {
+        return record.getImports() != null;
+    }
+
+    @Override
+    public void extract(SourceFile source, FileRecord record) throws IOException {
+        long bytesBefore = source.getBytesRead();
+        JavaHeader header;
+        try {
+            // The file is read up to the type declaration only
+            header = source.getHeader();
+        } finally {
+            bytesRead += source.getBytesRead() - bytesBefore;
+        }
+
+        if (!header.hasType()) {
+            // Something went wrong...
+            if (source.isHeaderTruncated()) {
+                throw new IOException("No class, interface or enum found in the header of file :" + source);
+            }
+            throw new IOException("No class, interface or enum found in file :" + source);
+        }
+        if (header.getPackageName() == null) {
+            throw new IOException("No package found in file :" + source);
+        }
+
+        SortedSet<String> dependencies = new TreeSet<String>(header.getImports());
+        for (String staticImport : header.getStaticImports()) {
+            // A static import is a dependency to the type declaring the member
+            int index = staticImport.lastIndexOf('.');
+            if (index > 0) {
+                dependencies.add(staticImport.substring(0, index));
             }
+        }
+        LOG.debug("Package found :" + header.getPackageName() + ", imports found :" + dependencies);
+
+        record.setPackageName(header.getPackageName());
+        record.setImports(dependencies);
+        record.setTypeName(header.getPackageName() + "." + header.getTypeName());
+        record.setSourceName(source.toString());
+    }
 
-            if (!foundEntity) {
-                // Something went wrong...
-                throw new IOException("No class, interface or enum found in file :" + file);
+    @Override
+    public void apply(FileRecord record) {
+        if (module != null) {
+            manager.addModule(record.getPackageName(), module);
+        }
+        if (record.getImports().size() > 0) {
+            manager.addDependencies(record.getPackageName(), record.getImports());
+            if (importIndex != null && record.getSourceName() != null) {
+                importIndex.addFile(record.getSourceName(), record.getTypeName(), record.getImports());
             }
+        }
+    }
 
-        } catch (IOException e) {
-            LOG.error(e.getMessage(), e);
+    @Override
+    public void retract(FileRecord record) {
+        if (record.getImports().size() > 0) {
+            manager.removeDependencies(record.getPackageName(), record.getImports());
+            if (importIndex != null && record.getSourceName() != null) {
+                importIndex.removeFile(record.getSourceName(), record.getImports());
+            }
         }
     }
 
+    @Override
+    public DependencyAnalyzer split() {
+        // The dependency manager accepts concurrent updates, the workers feed it directly
+        return new DependencyAnalyzer(manager, module, importIndex);
+    }
+
+    @Override
+    public DependencyAnalyzer forModule(String module) {
+        return new DependencyAnalyzer(manager, module, importIndex);
+    }
+
+    @Override
+    public void merge(DependencyAnalyzer other) {
+        bytesRead += other.bytesRead;
+        manager.merge(other.manager);
+    }
+
     /**
      * Generate the Dot graph source of the project
      *
@@ -92,23 +186,27 @@ public class DependencyAnalyzer extends AbstractAnalyzer {
      * @return
      */
     public String toDot(String rootPackage) {
-
-        Map<String, SortedSet<String>> depsNormalized = manager.getNormalizedDependencies(rootPackage);
-
-        String dot = "digraph DepGraph { \n";
-
-        for (String pkg : depsNormalized.keySet()) {
-            for (String dep : depsNormalized.get(pkg)) {
-                dot += "\t" + pkg + "->" + dep + "\n";
-            }
-            dot += "\n";
+        StringWriter dot = new StringWriter();
+        try {
+            new DotReportWriter().writeDependencies(manager.getNormalizedDependencies(rootPackage), dot);
+        } catch (IOException e) {
+            // Can't happen with a StringWriter
+            throw new IllegalStateException(e);
         }
-
-        dot += "}";
-
-        return dot;
+        return dot.toString();
     }
 
+    /**
+     * @return dependency manager holding the packages dependencies
+     */
+    public DependencyManager getManager() {
+        return manager;
+    }
 
-
+    /**
+     * @return inverted index of the imports, null if not built
+     */
+    public ImportIndex getImportIndex() {
+        return importIndex;
+    }
 }
@@ -0,0 +1,97 @@
+package lba.util.dependency;
+
+/**
+ * Immutable compact dependency graph : nodes are the identifiers of a {@link SymbolTable}, edges are stored in
+ * compressed sparse row arrays. The edges of node n are the indexes from {@link #getFirstEdge(int)} (inclusive) to
+ * {@link #getLastEdge(int)} (exclusive), sorted by target identifier, each one carrying the number of import
+ * statements backing it.
+ */
+public class DependencyGraph {
+
+    private final SymbolTable symbols;
+
+    /**
+     * First edge index of each node, plus the total number of edges
+     */
+    private final int[] offsets;
+
+    /**
+     * Target node of each edge
+     */
+    private final int[] targets;
+
+    /**
+     * Number of occurrences of each edge
+     */
+    private final int[] counts;
+
+    DependencyGraph(SymbolTable symbols, int[] offsets, int[] targets, int[] counts) {
+        this.symbols = symbols;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.counts = counts;
+    }
+
+    /**
+     * @return number of nodes, node identifiers range from 0 to nodeCount - 1
+     */
+    public int getNodeCount() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * @return number of distinct edges
+     */
+    public int getEdgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * @return index of the first edge of a node
+     */
+    public int getFirstEdge(int node) {
+        return offsets[node];
+    }
+
+    /**
+     * @return index following the last edge of a node
+     */
+    public int getLastEdge(int node) {
+        return offsets[node + 1];
+    }
+
+    /**
+     * @return number of outgoing edges of a node
+     */
+    public int getOutDegree(int node) {
+        return offsets[node + 1] - offsets[node];
+    }
+
+    /**
+     * @return target node of an edge
+     */
+    public int getTarget(int edge) {
+        return targets[edge];
+    }
+
+    /**
+     * @return number of import statements backing an edge
+     */
+    public int getCount(int edge) {
+        return counts[edge];
+    }
+
+    /**
+     * @return name of a node
+     */
+    public String getName(int node) {
+        return symbols.getName(node);
+    }
+
+    /**
+     * @return symbol table of the node names
+     */
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+}
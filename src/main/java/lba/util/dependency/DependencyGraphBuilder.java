@@ -0,0 +1,165 @@
+package lba.util.dependency;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Builder of a {@link DependencyGraph}, accepting edges from several threads at once.
+ * <p>
+ * Edges are counted in striped counters, each thread usually hitting its own stripe, so that the edges are
+ * deduplicated as they come and the memory used grows with the number of distinct edges only.
+ * <p>
+ * When the number of buffered edges is bounded, a full stripe is sorted and spilled to a temporary run file then
+ * cleared, and {@link #build()} merges the runs with the stripes, see {@link EdgeSpill}. The memory used while
+ * walking the sources is then bounded whatever the number of distinct edges, only the built graph holds them all.
+ */
+public class DependencyGraphBuilder {
+
+    /**
+     * Upper bound of the memory used by an edge in a stripe : a long key and an int count per slot, the hash table
+     * being at most half full and doubled when growing
+     */
+    public static final int BUFFERED_EDGE_BYTES = 48;
+
+    /**
+     * Edge counters, each one guarded by its own lock
+     */
+    private final EdgeCounter[] stripes;
+
+    /**
+     * Symbol table of the node names
+     */
+    private final SymbolTable symbols;
+
+    /**
+     * Maximum number of edges of a stripe, 0 when the stripes are not bounded
+     */
+    private final int maxStripeEdges;
+
+    /**
+     * Runs spilled by the full stripes, null when the stripes are not bounded
+     */
+    private final EdgeSpill spill;
+
+    /**
+     * Constructor
+     *
+     * @param symbols symbol table of the node names
+     */
+    public DependencyGraphBuilder(SymbolTable symbols) {
+        this(symbols, 0);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param symbols          symbol table of the node names
+     * @param maxBufferedEdges maximum number of edges kept in memory before being spilled, 0 for no limit
+     */
+    public DependencyGraphBuilder(SymbolTable symbols, int maxBufferedEdges) {
+        this.symbols = symbols;
+        int count = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1) * 2;
+        this.stripes = new EdgeCounter[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new EdgeCounter();
+        }
+        this.maxStripeEdges = maxBufferedEdges > 0 ? Math.max(1, maxBufferedEdges / count) : 0;
+        this.spill = maxBufferedEdges > 0 ? new EdgeSpill() : null;
+    }
+
+    /**
+     * Add an occurrence of an edge
+     *
+     * @param from source node identifier
+     * @param to   target node identifier
+     */
+    public void addEdge(int from, int to) {
+        addEdge(from, to, 1);
+    }
+
+    /**
+     * Add (or remove when negative) occurrences of an edge, an edge whose count falls to zero is not part of the
+     * built graph any more
+     *
+     * @param from  source node identifier
+     * @param to    target node identifier
+     * @param count number of occurrences
+     */
+    public void addEdge(int from, int to, int count) {
+        EdgeCounter stripe = stripes[(int) Thread.currentThread().getId() & (stripes.length - 1)];
+        synchronized (stripe) {
+            stripe.add(EdgeCounter.key(from, to), count);
+            if (spill != null && stripe.size() >= maxStripeEdges) {
+                try {
+                    spill.spill(stripe);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Unable to spill the dependency edges", e);
+                }
+                stripe.clear();
+            }
+        }
+    }
+
+    /**
+     * Build an immutable snapshot of the edges added so far
+     *
+     * @return the graph
+     */
+    public DependencyGraph build() {
+        EdgeCounter all = new EdgeCounter();
+        for (EdgeCounter stripe : stripes) {
+            synchronized (stripe) {
+                stripe.addTo(all);
+            }
+        }
+
+        int nodes = symbols.size();
+        int[] offsets = new int[nodes + 1];
+        int[] targets;
+        int[] counts;
+        if (spill == null) {
+            long[] keys = all.keys();
+            Arrays.sort(keys);
+            targets = new int[keys.length];
+            counts = new int[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                offsets[EdgeCounter.from(keys[i]) + 1]++;
+                targets[i] = EdgeCounter.to(keys[i]);
+                counts[i] = all.get(keys[i]);
+            }
+        } else {
+            EdgeSpill.MergedEdges merged;
+            try {
+                merged = spill.merge(all);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to merge the spilled dependency edges", e);
+            }
+            targets = new int[merged.size()];
+            counts = new int[merged.size()];
+            for (int i = 0; i < merged.size(); i++) {
+                offsets[EdgeCounter.from(merged.getKey(i)) + 1]++;
+                targets[i] = EdgeCounter.to(merged.getKey(i));
+                counts[i] = merged.getCount(i);
+            }
+        }
+        for (int i = 0; i < nodes; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        return new DependencyGraph(symbols, offsets, targets, counts);
+    }
+
+    /**
+     * @return number of edges spilled to the run files, an edge spilled several times being counted each time
+     */
+    public long getSpilledEdges() {
+        return spill == null ? 0L : spill.getSpilledEdges();
+    }
+
+    /**
+     * @return symbol table of the node names
+     */
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+}
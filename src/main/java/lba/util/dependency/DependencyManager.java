@@ -1,16 +1,73 @@
 package lba.util.dependency;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 
 /**
  * Class used to store package dependencies (detailed)
+ * <p>
+ * Package and type names are interned in a {@link SymbolTable} and the edges are counted by a concurrent
+ * {@link DependencyGraphBuilder}, so a manager may be fed by several threads at once. The compact
+ * {@link DependencyGraph} is built on demand and kept until the next modification.
  */
 public class DependencyManager {
 
+    /**
+     * Projected name identifiers of the nodes excluded from a view, and of the nodes not projected yet
+     */
+    private static final int EXCLUDED = -1;
+    private static final int NOT_PROJECTED = -2;
+
+    /**
+     * Interned package and type names
+     */
+    private final SymbolTable symbols;
+
     /**
      * Dependencies holder
      */
-    private Map<String, SortedSet<String>> dependencies = new HashMap<String, SortedSet<String>>();
+    private final DependencyGraphBuilder builder;
+
+    /**
+     * Graph built from the dependencies, null when it must be built again
+     */
+    private volatile DependencyGraph graph;
+
+    /**
+     * Cached normalized views of {@link #viewsGraph}
+     */
+    private final Map<DependencyProjection, Map<String, SortedSet<String>>> views =
+            new HashMap<DependencyProjection, Map<String, SortedSet<String>>>();
+
+    /**
+     * Graph the cached views were built from
+     */
+    private DependencyGraph viewsGraph;
+
+    /**
+     * Modules each package was found in, empty when a single source root is analyzed
+     */
+    private final ConcurrentMap<String, SortedSet<String>> packageModules =
+            new ConcurrentHashMap<String, SortedSet<String>>();
+
+    /**
+     * Constructor
+     */
+    public DependencyManager() {
+        this(0);
+    }
+
+    /**
+     * Constructor of a memory bounded manager, see {@link DependencyGraphBuilder}
+     *
+     * @param maxBufferedEdges maximum number of edges kept in memory before being spilled to disk, 0 for no limit
+     */
+    public DependencyManager(int maxBufferedEdges) {
+        this.symbols = new SymbolTable();
+        this.builder = new DependencyGraphBuilder(symbols, maxBufferedEdges);
+    }
 
     /**
      * Add a dependency to a given package pkg
@@ -19,15 +76,20 @@ public class DependencyManager {
      * @param dependency new dependency to the pkg package
      */
     public void addDependency(String pkg, String dependency) {
+        builder.addEdge(symbols.intern(pkg), symbols.intern(dependency));
+        graph = null;
+    }
 
-        SortedSet<String> deps;
-        if (!dependencies.keySet().contains(pkg)) {
-            deps = new TreeSet<String>();
-            dependencies.put(pkg, deps);
-        } else {
-            deps = dependencies.get(pkg);
-        }
-        deps.add(dependency);
+    /**
+     * Add several occurrences of a dependency to a given package pkg, for instance when a graph is loaded back
+     *
+     * @param pkg         initial package
+     * @param dependency  new dependency to the pkg package
+     * @param occurrences number of import statements backing the dependency
+     */
+    public void addDependency(String pkg, String dependency, int occurrences) {
+        builder.addEdge(symbols.intern(pkg), symbols.intern(dependency), occurrences);
+        graph = null;
     }
 
     /**
@@ -37,73 +99,235 @@ public class DependencyManager {
      * @param dependencies new dependencies to the pkg package
      */
     public void addDependencies(String pkg, SortedSet<String> dependencies) {
-
-        SortedSet<String> deps;
-        if (!this.dependencies.keySet().contains(pkg)) {
-            deps = new TreeSet<String>();
-            this.dependencies.put(pkg, deps);
-        } else {
-            deps = this.dependencies.get(pkg);
+        int from = symbols.intern(pkg);
+        for (String dependency : dependencies) {
+            builder.addEdge(from, symbols.intern(dependency));
         }
-        deps.addAll(dependencies);
+        graph = null;
     }
 
     /**
-     * @param rootPackage
-      * @return
+     * Remove one occurrence of each dependency of a package, a dependency disappears from the graph once all its
+     * occurrences are removed
+     *
+     * @param pkg          initial package
+     * @param dependencies dependencies previously added to the pkg package
      */
-    public Map<String, SortedSet<String>> getNormalizedDependencies(String rootPackage) {
+    public void removeDependencies(String pkg, SortedSet<String> dependencies) {
+        int from = symbols.intern(pkg);
+        for (String dependency : dependencies) {
+            builder.addEdge(from, symbols.intern(dependency), -1);
+        }
+        graph = null;
+    }
 
-        // Normalized the dependencies with representative package name (only one depth after the rootPackage)
-        Map<String, SortedSet<String>> depsNormalized = new HashMap<String, SortedSet<String>>();
+    /**
+     * Tag a package with a module it was found in. A package may be split over several modules.
+     *
+     * @param pkg    package
+     * @param module module holding sources of the package
+     */
+    public void addModule(String pkg, String module) {
+        SortedSet<String> modules = packageModules.get(pkg);
+        if (modules == null) {
+            SortedSet<String> created = new ConcurrentSkipListSet<String>();
+            modules = packageModules.putIfAbsent(pkg, created);
+            if (modules == null) {
+                modules = created;
+            }
+        }
+        modules.add(module);
+    }
 
-        for (String pkg : dependencies.keySet()) {
-            if (!pkg.equals(rootPackage)) {
-                String pkgNormalized = getRepresentativePkgName(rootPackage, pkg);
-                if (!depsNormalized.keySet().contains(pkgNormalized)) {
-                    depsNormalized.put(pkgNormalized, new TreeSet<String>());
-                }
+    /**
+     * @return the modules each tagged package was found in
+     */
+    public Map<String, SortedSet<String>> getPackageModules() {
+        return Collections.unmodifiableMap(packageModules);
+    }
 
-                for (String dep : dependencies.get(pkg)) {
-                    if (dep.startsWith(rootPackage)) {
-                        Set<String> dependencies = depsNormalized.get(pkgNormalized);
-                        String newDep = getRepresentativePkgName(rootPackage, dep);
-                        // We don't want self-dependency
-                        if (!newDep.equals(pkgNormalized)) {
-                            dependencies.add(newDep);
-                        }
-                    }
+    /**
+     * Add all the dependencies held by another manager, along with their number of occurrences
+     *
+     * @param other manager whose dependencies are added to this one
+     */
+    public void merge(DependencyManager other) {
+        if (other == this) {
+            return;
+        }
+        for (Map.Entry<String, SortedSet<String>> entry : other.packageModules.entrySet()) {
+            for (String module : entry.getValue()) {
+                addModule(entry.getKey(), module);
+            }
+        }
+        DependencyGraph otherGraph = other.getGraph();
+        for (int node = 0; node < otherGraph.getNodeCount(); node++) {
+            if (otherGraph.getOutDegree(node) > 0) {
+                int from = symbols.intern(otherGraph.getName(node));
+                for (int edge = otherGraph.getFirstEdge(node); edge < otherGraph.getLastEdge(node); edge++) {
+                    builder.addEdge(from, symbols.intern(otherGraph.getName(otherGraph.getTarget(edge))), otherGraph.getCount(edge));
                 }
             }
         }
-        return depsNormalized;
+        graph = null;
     }
 
     /**
-     * This method will return the representative package name for Dot file generation
-     * If rootPackage="fr.cnes.sitools" and dependency="fr.cnes.sitools.common.model.Resource" the method will return "common"
-     * If the dependency does not share the same rootPackage, the method will return null
+     * @return the compact graph of the dependencies, built again only when the dependencies changed
+     */
+    public DependencyGraph getGraph() {
+        DependencyGraph result = graph;
+        if (result == null) {
+            result = builder.build();
+            graph = result;
+        }
+        return result;
+    }
+
+    /**
+     * Legacy normalized view : the dependencies are projected on the first name part after the root package
      *
-     * @param rootPackage
-     * @param dependency
-     * @return
+     * @param rootPackage root package
+     * @return the dependencies of each representative package name, see {@link #getView(DependencyProjection)}
      */
-    private String getRepresentativePkgName(String rootPackage, String dependency) {
+    public Map<String, SortedSet<String>> getNormalizedDependencies(String rootPackage) {
+        return getView(new DepthProjection(rootPackage, 1));
+    }
 
-        if (dependency == null || rootPackage == null || !dependency.startsWith(rootPackage)) {
-            return null;
+    /**
+     * Normalized view of the dependencies. Views are cached by projection until the dependencies change, so several
+     * views (for instance a coarse and a detailed one) may be requested without walking the sources again.
+     * <p>
+     * The projection is evaluated once per node : each node gets the identifier of its projected name, and the edges
+     * are then projected by identifier. Self dependencies are dropped, the sources projected on null are gathered
+     * under the null key.
+     *
+     * @param projection projection of the package and type names
+     * @return the dependencies of each projected name, shared with the cache and thus read only
+     */
+    public Map<String, SortedSet<String>> getView(DependencyProjection projection) {
+        DependencyGraph graph = getGraph();
+        synchronized (views) {
+            if (viewsGraph != graph) {
+                views.clear();
+                viewsGraph = graph;
+            }
+            Map<String, SortedSet<String>> view = views.get(projection);
+            if (view == null) {
+                view = Collections.unmodifiableMap(buildView(graph, projection));
+                views.put(projection, view);
+            }
+            return view;
+        }
+    }
+
+    private Map<String, SortedSet<String>> buildView(DependencyGraph graph, DependencyProjection projection) {
+
+        // Projected name identifier of each node, computed once per node instead of once per edge
+        int[] projected = new int[graph.getNodeCount()];
+        Arrays.fill(projected, NOT_PROJECTED);
+        List<String> projectedNames = new ArrayList<String>();
+        Map<String, Integer> projectedIds = new HashMap<String, Integer>();
+
+        Map<String, SortedSet<String>> view = new HashMap<String, SortedSet<String>>();
+
+        for (int node : getSortedSources(graph)) {
+            if (!projection.accepts(graph.getName(node))) {
+                continue;
+            }
+            int from = project(graph, node, projection, projected, projectedNames, projectedIds);
+            String pkgNormalized = from == EXCLUDED ? null : projectedNames.get(from);
+            SortedSet<String> dependencies = view.get(pkgNormalized);
+            if (dependencies == null) {
+                dependencies = new TreeSet<String>();
+                view.put(pkgNormalized, dependencies);
+            }
+
+            for (int edge = graph.getFirstEdge(node); edge < graph.getLastEdge(node); edge++) {
+                int to = project(graph, graph.getTarget(edge), projection, projected, projectedNames, projectedIds);
+                // We don't want self-dependency
+                if (to != EXCLUDED && to != from) {
+                    dependencies.add(projectedNames.get(to));
+                }
+            }
         }
+        return view;
+    }
 
-        String value = dependency.substring(rootPackage.length() + 1);
+    /**
+     * @return the projected name identifier of a node, EXCLUDED if the node is left out of the view
+     */
+    private static int project(DependencyGraph graph, int node, DependencyProjection projection, int[] projected,
+                               List<String> projectedNames, Map<String, Integer> projectedIds) {
+        int id = projected[node];
+        if (id == NOT_PROJECTED) {
+            String name = projection.project(graph.getName(node));
+            if (name == null) {
+                id = EXCLUDED;
+            } else {
+                Integer existing = projectedIds.get(name);
+                if (existing == null) {
+                    existing = projectedNames.size();
+                    projectedNames.add(name);
+                    projectedIds.put(name, existing);
+                }
+                id = existing;
+            }
+            projected[node] = id;
+        }
+        return id;
+    }
 
-        if (value.indexOf(".") > 0) {
-            return value.substring(0, value.indexOf("."));
-        } else {
-            return value;
+    /**
+     * Node identifiers depend on the order the files were analyzed in, the nodes are sorted by name so that the
+     * derived maps are filled in the same order whatever the walk order
+     *
+     * @return the identifiers of the nodes having dependencies, sorted by name
+     */
+    private Integer[] getSortedSources(final DependencyGraph graph) {
+        List<Integer> sources = new ArrayList<Integer>();
+        for (int node = 0; node < graph.getNodeCount(); node++) {
+            if (graph.getOutDegree(node) > 0) {
+                sources.add(node);
+            }
         }
+        Integer[] sorted = sources.toArray(new Integer[sources.size()]);
+        Arrays.sort(sorted, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return graph.getName(a).compareTo(graph.getName(b));
+            }
+        });
+        return sorted;
     }
 
+    /**
+     * @return the dependencies of each package, built from the compact graph
+     */
     public Map<String, SortedSet<String>> getDependencies() {
+        DependencyGraph graph = getGraph();
+        Map<String, SortedSet<String>> dependencies = new HashMap<String, SortedSet<String>>();
+        for (int node : getSortedSources(graph)) {
+            SortedSet<String> deps = new TreeSet<String>();
+            for (int edge = graph.getFirstEdge(node); edge < graph.getLastEdge(node); edge++) {
+                deps.add(graph.getName(graph.getTarget(edge)));
+            }
+            dependencies.put(graph.getName(node), deps);
+        }
         return dependencies;
     }
+
+    /**
+     * @return number of edges spilled to disk by a memory bounded manager
+     */
+    public long getSpilledEdges() {
+        return builder.getSpilledEdges();
+    }
+
+    /**
+     * @return interned package and type names
+     */
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
 }
@@ -0,0 +1,30 @@
+package lba.util.dependency;
+
+/**
+ * Projection of the detailed dependencies on coarser names, used to build normalized views of a
+ * {@link DependencyManager} with {@link DependencyManager#getView(DependencyProjection)}.
+ * <p>
+ * A projection is evaluated once per package or type name of the graph, never once per edge. Views are cached by
+ * projection, so implementations must define {@link #equals(Object)} and {@link #hashCode()}.
+ */
+public abstract class DependencyProjection {
+
+    /**
+     * @param source package having dependencies
+     * @return false if the dependencies of the package must be left out of the view
+     */
+    public boolean accepts(String source) {
+        return true;
+    }
+
+    /**
+     * @param name package or type name
+     * @return the name of the node standing for it in the view, null if it is left out of the view
+     */
+    public abstract String project(String name);
+
+    /**
+     * @return short name of the projection, used to name the report of the view
+     */
+    public abstract String getName();
+}
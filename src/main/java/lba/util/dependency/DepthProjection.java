@@ -0,0 +1,106 @@
+package lba.util.dependency;
+
+/**
+ * Projection keeping a given number of name parts after a root package : with the root package "fr.cnes.sitools",
+ * "fr.cnes.sitools.common.model.Resource" is projected on "common" at depth 1 and on "common.model" at depth 2, and
+ * "fr.cnes.sitools.common.Resource" on "common" at both depths.
+ * Names outside of the root package, including the names of the packages only sharing its first characters such as
+ * "fr.cnes.sitoolsX", are left out of the view.
+ */
+public class DepthProjection extends DependencyProjection {
+
+    /**
+     * Root package
+     */
+    private final String rootPackage;
+
+    /**
+     * Root package followed by a dot, prefixing the names inside the root package
+     */
+    private final String prefix;
+
+    /**
+     * Number of name parts kept after the root package
+     */
+    private final int depth;
+
+    /**
+     * Constructor
+     *
+     * @param rootPackage root package
+     * @param depth       number of name parts kept after the root package, at least 1
+     */
+    public DepthProjection(String rootPackage, int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Invalid depth : " + depth);
+        }
+        this.rootPackage = rootPackage;
+        this.prefix = rootPackage == null ? null : rootPackage + ".";
+        this.depth = depth;
+    }
+
+    /**
+     * The root package itself has no representative name, its dependencies are left out of the view
+     */
+    @Override
+    public boolean accepts(String source) {
+        return !source.equals(rootPackage);
+    }
+
+    /**
+     * Evaluated once per node of the graph by {@link DependencyManager#getView(DependencyProjection)}, which then
+     * projects the edges by node identifier
+     */
+    @Override
+    public String project(String name) {
+        // The root package must be followed by a dot, "fr.cnes.sitoolsX" is not inside "fr.cnes.sitools"
+        if (name == null || prefix == null || !name.startsWith(prefix)) {
+            return null;
+        }
+        // An imported type is projected as its package, so that it joins the node of the package sources
+        String pkg = PackageGraph.getPackageOf(name);
+        if (pkg.length() > prefix.length()) {
+            name = pkg;
+        }
+
+        int start = prefix.length();
+        int end = start - 1;
+        for (int part = 0; part < depth; part++) {
+            end = name.indexOf('.', end + 1);
+            if (end <= start) {
+                return name.substring(start);
+            }
+        }
+        return name.substring(start, end);
+    }
+
+    @Override
+    public String getName() {
+        return "depth" + depth;
+    }
+
+    public String getRootPackage() {
+        return rootPackage;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof DepthProjection)) {
+            return false;
+        }
+        DepthProjection other = (DepthProjection) o;
+        return depth == other.depth && (rootPackage == null ? other.rootPackage == null : rootPackage.equals(other.rootPackage));
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (rootPackage == null ? 0 : rootPackage.hashCode()) + depth;
+    }
+}
@@ -0,0 +1,182 @@
+package lba.util.dependency;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map counting the occurrences of each edge, an edge being the pair of its node identifiers
+ * packed in a long. An edge whose count falls back to zero is removed, so the table only holds the edges which still
+ * have occurrences (or, for removed occurrences, a negative count). Not thread safe.
+ */
+class EdgeCounter {
+
+    private static final long EMPTY = -1L;
+
+    private long[] keys;
+
+    private int[] counts;
+
+    private int size;
+
+    EdgeCounter() {
+        keys = new long[64];
+        Arrays.fill(keys, EMPTY);
+        counts = new int[64];
+    }
+
+    /**
+     * @return the edge key of the pair of nodes
+     */
+    static long key(int from, int to) {
+        return ((long) from << 32) | (to & 0xFFFFFFFFL);
+    }
+
+    static int from(long key) {
+        return (int) (key >>> 32);
+    }
+
+    static int to(long key) {
+        return (int) key;
+    }
+
+    /**
+     * Add delta to the count of an edge
+     */
+    void add(long key, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        int slot = find(key);
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            counts[slot] = delta;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+            return;
+        }
+        counts[slot] += delta;
+        if (counts[slot] == 0) {
+            remove(slot);
+        }
+    }
+
+    /**
+     * @return the count of an edge, 0 if unknown
+     */
+    int get(long key) {
+        int slot = find(key);
+        return keys[slot] == EMPTY ? 0 : counts[slot];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Forget all the edges, keeping the current capacity
+     */
+    void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(counts, 0);
+        size = 0;
+    }
+
+    /**
+     * @return the keys of the edges whose count is not zero, negative counts included, sorted
+     */
+    long[] sortedChangedKeys() {
+        long[] result = new long[size];
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY && counts[i] != 0) {
+                result[n++] = keys[i];
+            }
+        }
+        result = n == size ? result : Arrays.copyOf(result, n);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Add all the counts of this counter to another one
+     */
+    void addTo(EdgeCounter other) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY && counts[i] != 0) {
+                other.add(keys[i], counts[i]);
+            }
+        }
+    }
+
+    /**
+     * @return the keys of the edges whose count is positive, not sorted
+     */
+    long[] keys() {
+        long[] result = new long[size];
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY && counts[i] > 0) {
+                result[n++] = keys[i];
+            }
+        }
+        return n == size ? result : Arrays.copyOf(result, n);
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = home(key);
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * @return the first slot probed for a key
+     */
+    private int home(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (keys.length - 1);
+    }
+
+    /**
+     * Empty a slot, shifting back the following entries of its probe sequence so that they can still be found
+     */
+    private void remove(int slot) {
+        int mask = keys.length - 1;
+        int hole = slot;
+        int i = slot;
+        while (true) {
+            i = (i + 1) & mask;
+            if (keys[i] == EMPTY) {
+                break;
+            }
+            int home = home(keys[i]);
+            // The entry is moved to the hole unless its home slot lies after the hole, up to the entry itself
+            boolean reachable = hole < i ? home > hole && home <= i : home > hole || home <= i;
+            if (!reachable) {
+                keys[hole] = keys[i];
+                counts[hole] = counts[i];
+                hole = i;
+            }
+        }
+        keys[hole] = EMPTY;
+        counts[hole] = 0;
+        size--;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new long[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        counts = new int[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package lba.util.dependency;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorted runs of edge counts spilled to temporary files by a memory bounded {@link DependencyGraphBuilder}.
+ * <p>
+ * Each run holds the edges of a full buffer sorted by key, with their count, negative for removed occurrences. The
+ * runs are combined by a k-way merge summing the counts of each edge, so an edge spilled several times ends up once in
+ * the graph. When too many runs are written, they are merged into a single run, which bounds the number of files
+ * open during a merge.
+ */
+class EdgeSpill {
+
+    /**
+     * Logger
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(EdgeSpill.class);
+
+    /**
+     * Maximum number of runs, merged into one run beyond
+     */
+    private static final int MAX_RUNS = 64;
+
+    /**
+     * Read buffer size of each run during a merge
+     */
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final List<Path> runs = new ArrayList<Path>();
+
+    private Path directory;
+
+    private long spilledEdges;
+
+    /**
+     * Write the edges of a buffer as a new sorted run
+     *
+     * @param buffer edges to spill, left unchanged
+     */
+    synchronized void spill(EdgeCounter buffer) throws IOException {
+        long[] keys = buffer.sortedChangedKeys();
+        Path run = newRun();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), BUFFER_SIZE))) {
+            for (long key : keys) {
+                out.writeLong(key);
+                out.writeInt(buffer.get(key));
+            }
+        }
+        runs.add(run);
+        spilledEdges += keys.length;
+        LOG.debug("{} edges spilled into {}", keys.length, run);
+
+        if (runs.size() >= MAX_RUNS) {
+            // Compaction : the runs are replaced by their merge
+            Path merged = newRun();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(merged), BUFFER_SIZE))) {
+                merge(new long[0], new EdgeCounter(), out, null);
+            }
+            for (Path each : runs) {
+                Files.deleteIfExists(each);
+            }
+            runs.clear();
+            runs.add(merged);
+        }
+    }
+
+    /**
+     * Merge the runs with the edges still in memory
+     *
+     * @param memory edges not spilled
+     * @return the edges whose total count is positive, sorted by key, and their count
+     */
+    synchronized MergedEdges merge(EdgeCounter memory) throws IOException {
+        MergedEdges result = new MergedEdges();
+        merge(memory.sortedChangedKeys(), memory, null, result);
+        return result;
+    }
+
+    /**
+     * @return number of edges written in the runs since the creation, an edge spilled several times being counted
+     * each time
+     */
+    synchronized long getSpilledEdges() {
+        return spilledEdges;
+    }
+
+    /**
+     * k-way merge of the runs and of the sorted edges in memory, the summed counts are written to a run (all of them,
+     * zero counts excepted) or added to the result (positive counts only)
+     */
+    private void merge(long[] memoryKeys, EdgeCounter memory, DataOutputStream out, MergedEdges result)
+            throws IOException {
+        PriorityQueue<RunReader> queue = new PriorityQueue<RunReader>();
+        List<RunReader> readers = new ArrayList<RunReader>();
+        try {
+            for (Path run : runs) {
+                RunReader reader = new RunReader(run);
+                readers.add(reader);
+                if (reader.next()) {
+                    queue.add(reader);
+                }
+            }
+            int memoryIndex = 0;
+            while (!queue.isEmpty() || memoryIndex < memoryKeys.length) {
+                long key;
+                if (queue.isEmpty() || (memoryIndex < memoryKeys.length && memoryKeys[memoryIndex] <= queue.peek().key)) {
+                    key = memoryKeys[memoryIndex];
+                } else {
+                    key = queue.peek().key;
+                }
+                long count = 0;
+                while (memoryIndex < memoryKeys.length && memoryKeys[memoryIndex] == key) {
+                    count += memory.get(key);
+                    memoryIndex++;
+                }
+                while (!queue.isEmpty() && queue.peek().key == key) {
+                    RunReader reader = queue.poll();
+                    count += reader.count;
+                    if (reader.next()) {
+                        queue.add(reader);
+                    }
+                }
+                if (out != null && count != 0) {
+                    out.writeLong(key);
+                    out.writeInt((int) count);
+                } else if (result != null && count > 0) {
+                    result.add(key, (int) count);
+                }
+            }
+        } finally {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    private Path newRun() throws IOException {
+        if (directory == null) {
+            directory = Files.createTempDirectory("source-analyzer-edges");
+            directory.toFile().deleteOnExit();
+        }
+        Path run = Files.createTempFile(directory, "run", ".bin");
+        run.toFile().deleteOnExit();
+        return run;
+    }
+
+    /**
+     * Sequential reader of a run, ordered by its current key
+     */
+    private static class RunReader implements Comparable<RunReader>, Closeable {
+
+        private final DataInputStream in;
+
+        private long key;
+
+        private int count;
+
+        RunReader(Path run) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), BUFFER_SIZE));
+        }
+
+        /**
+         * @return false at the end of the run
+         */
+        boolean next() throws IOException {
+            try {
+                key = in.readLong();
+            } catch (EOFException e) {
+                return false;
+            }
+            count = in.readInt();
+            return true;
+        }
+
+        @Override
+        public int compareTo(RunReader other) {
+            return Long.compare(key, other.key);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Result of a merge : sorted edge keys and their count
+     */
+    static class MergedEdges {
+
+        private long[] keys = new long[1024];
+
+        private int[] counts = new int[1024];
+
+        private int size;
+
+        private void add(long key, int count) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+            }
+            keys[size] = key;
+            counts[size++] = count;
+        }
+
+        int size() {
+            return size;
+        }
+
+        long getKey(int index) {
+            return keys[index];
+        }
+
+        int getCount(int index) {
+            return counts[index];
+        }
+    }
+}
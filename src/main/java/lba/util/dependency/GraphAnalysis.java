@@ -0,0 +1,257 @@
+package lba.util.dependency;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Structural analysis of a {@link PackageGraph} :
+ * <ul>
+ * <li>strongly connected components (iterative Tarjan algorithm, linear time), the components made of several
+ * packages being the package cycles</li>
+ * <li>topological layering of the components : layer 0 holds the packages without dependencies, every other package
+ * sits one layer above its highest dependency</li>
+ * <li>fan-in, fan-out and number of packages transitively reachable from each package</li>
+ * </ul>
+ * The components, layers, fan-in and fan-out are computed in linear time. The reachability is not : it needs the
+ * transitive closure, computed on the condensation DAG of the components with one bit set per component, that is
+ * O(C * E / 64) for C components and E edges between components. It stays cheap for package graphs, whose
+ * components are counted in thousands.
+ */
+public class GraphAnalysis {
+
+    private final PackageGraph graph;
+
+    /**
+     * Component of each node, components are numbered in reverse topological order (dependencies first)
+     */
+    private final int[] component;
+
+    /**
+     * Number of nodes of each component
+     */
+    private final int[] componentSize;
+
+    /**
+     * Layer of each component
+     */
+    private final int[] componentLayer;
+
+    /**
+     * Number of nodes reachable from each component, the component itself excluded
+     */
+    private final int[] componentReachable;
+
+    private final int[] fanIn;
+
+    private final int[] fanOut;
+
+    private final int componentCount;
+
+    /**
+     * Analyze a graph
+     *
+     * @param graph package graph
+     */
+    public GraphAnalysis(PackageGraph graph) {
+        this.graph = graph;
+        int n = graph.getNodeCount();
+        this.component = new int[n];
+        this.fanIn = new int[n];
+        this.fanOut = new int[n];
+
+        for (int node = 0; node < n; node++) {
+            fanOut[node] = graph.getLastEdge(node) - graph.getFirstEdge(node);
+            for (int edge = graph.getFirstEdge(node); edge < graph.getLastEdge(node); edge++) {
+                fanIn[graph.getTarget(edge)]++;
+            }
+        }
+
+        this.componentCount = computeComponents();
+
+        this.componentSize = new int[componentCount];
+        for (int node = 0; node < n; node++) {
+            componentSize[component[node]]++;
+        }
+
+        // Members of each component
+        int[] memberOffsets = new int[componentCount + 1];
+        for (int c = 0; c < componentCount; c++) {
+            memberOffsets[c + 1] = memberOffsets[c] + componentSize[c];
+        }
+        int[] members = new int[n];
+        int[] fill = Arrays.copyOf(memberOffsets, componentCount);
+        for (int node = 0; node < n; node++) {
+            members[fill[component[node]]++] = node;
+        }
+
+        // Components are numbered dependencies first, so every successor of a component is already computed
+        this.componentLayer = new int[componentCount];
+        this.componentReachable = new int[componentCount];
+        BitSet[] reachable = new BitSet[componentCount];
+        for (int c = 0; c < componentCount; c++) {
+            BitSet reach = new BitSet(componentCount);
+            int layer = 0;
+            for (int m = memberOffsets[c]; m < memberOffsets[c + 1]; m++) {
+                int node = members[m];
+                for (int edge = graph.getFirstEdge(node); edge < graph.getLastEdge(node); edge++) {
+                    int successor = component[graph.getTarget(edge)];
+                    if (successor != c && !reach.get(successor)) {
+                        reach.set(successor);
+                        reach.or(reachable[successor]);
+                        layer = Math.max(layer, componentLayer[successor] + 1);
+                    }
+                }
+            }
+            reachable[c] = reach;
+            componentLayer[c] = layer;
+
+            int count = componentSize[c] - 1;
+            for (int s = reach.nextSetBit(0); s >= 0; s = reach.nextSetBit(s + 1)) {
+                count += componentSize[s];
+            }
+            componentReachable[c] = count;
+        }
+    }
+
+    /**
+     * Iterative Tarjan algorithm
+     *
+     * @return the number of components
+     */
+    private int computeComponents() {
+        int n = graph.getNodeCount();
+        int[] index = new int[n];
+        int[] low = new int[n];
+        boolean[] onStack = new boolean[n];
+        int[] stack = new int[n];
+        int stackSize = 0;
+        int[] callStack = new int[n];
+        int[] edgeCursor = new int[n];
+        int nextIndex = 1;
+        int count = 0;
+
+        for (int root = 0; root < n; root++) {
+            if (index[root] != 0) {
+                continue;
+            }
+            int depth = 0;
+            callStack[0] = root;
+            edgeCursor[0] = graph.getFirstEdge(root);
+            index[root] = low[root] = nextIndex++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+
+            while (depth >= 0) {
+                int node = callStack[depth];
+                if (edgeCursor[depth] < graph.getLastEdge(node)) {
+                    int target = graph.getTarget(edgeCursor[depth]++);
+                    if (index[target] == 0) {
+                        index[target] = low[target] = nextIndex++;
+                        stack[stackSize++] = target;
+                        onStack[target] = true;
+                        depth++;
+                        callStack[depth] = target;
+                        edgeCursor[depth] = graph.getFirstEdge(target);
+                    } else if (onStack[target]) {
+                        low[node] = Math.min(low[node], index[target]);
+                    }
+                } else {
+                    if (low[node] == index[node]) {
+                        int member;
+                        do {
+                            member = stack[--stackSize];
+                            onStack[member] = false;
+                            component[member] = count;
+                        } while (member != node);
+                        count++;
+                    }
+                    depth--;
+                    if (depth >= 0) {
+                        int parent = callStack[depth];
+                        low[parent] = Math.min(low[parent], low[node]);
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the package cycles, each cycle being the sorted list of the packages of a strongly connected component
+     */
+    public List<List<String>> getCycles() {
+        List<List<String>> cycles = new ArrayList<List<String>>();
+        int[] cycleOf = new int[componentCount];
+        Arrays.fill(cycleOf, -1);
+        for (int node = 0; node < graph.getNodeCount(); node++) {
+            int c = component[node];
+            if (componentSize[c] > 1) {
+                if (cycleOf[c] < 0) {
+                    cycleOf[c] = cycles.size();
+                    cycles.add(new ArrayList<String>());
+                }
+                // Nodes are sorted by name, so are the cycle members
+                cycles.get(cycleOf[c]).add(graph.getName(node));
+            }
+        }
+        return cycles;
+    }
+
+    /**
+     * @return the packages of each layer, layer 0 holding the packages without dependencies
+     */
+    public List<List<String>> getLayers() {
+        List<List<String>> layers = new ArrayList<List<String>>();
+        for (int node = 0; node < graph.getNodeCount(); node++) {
+            int layer = componentLayer[component[node]];
+            while (layers.size() <= layer) {
+                layers.add(new ArrayList<String>());
+            }
+            layers.get(layer).add(graph.getName(node));
+        }
+        return layers;
+    }
+
+    public PackageGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return strongly connected component of a node
+     */
+    public int getComponent(int node) {
+        return component[node];
+    }
+
+    /**
+     * @return true if the node belongs to a package cycle
+     */
+    public boolean isInCycle(int node) {
+        return componentSize[component[node]] > 1;
+    }
+
+    public int getLayer(int node) {
+        return componentLayer[component[node]];
+    }
+
+    public int getFanIn(int node) {
+        return fanIn[node];
+    }
+
+    public int getFanOut(int node) {
+        return fanOut[node];
+    }
+
+    /**
+     * @return number of packages transitively reachable from a node, the node itself excluded
+     */
+    public int getReachable(int node) {
+        return componentReachable[component[node]];
+    }
+
+    public int getComponentCount() {
+        return componentCount;
+    }
+}
@@ -0,0 +1,128 @@
+package lba.util.dependency;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Dependencies between the modules of a multi-module analysis, derived from the package dependencies and the module
+ * tags of the packages held by a {@link DependencyManager}.
+ * <p>
+ * An imported type belongs to the longest tagged package prefixing its name, so nested types are resolved too.
+ * A dependency crosses modules only when the imported package is found in none of the modules of the importing
+ * package; the importing modules then depend on every module the imported package is split over.
+ */
+public class ModuleDependencies {
+
+    /**
+     * Marker of the nodes matching no tagged package
+     */
+    private static final String UNRESOLVED = "";
+
+    /**
+     * Modules each module depends on
+     */
+    private final Map<String, SortedSet<String>> moduleDependencies = new TreeMap<String, SortedSet<String>>();
+
+    /**
+     * Packages of other modules each package depends on
+     */
+    private final Map<String, SortedSet<String>> crossModuleDependencies = new TreeMap<String, SortedSet<String>>();
+
+    /**
+     * Number of package dependencies crossing modules
+     */
+    private int crossModuleCount;
+
+    /**
+     * Constructor
+     *
+     * @param manager dependency manager fed with module tagged packages
+     */
+    public ModuleDependencies(DependencyManager manager) {
+        Map<String, SortedSet<String>> packageModules = manager.getPackageModules();
+        for (SortedSet<String> modules : packageModules.values()) {
+            for (String module : modules) {
+                if (!moduleDependencies.containsKey(module)) {
+                    moduleDependencies.put(module, new TreeSet<String>());
+                }
+            }
+        }
+
+        DependencyGraph graph = manager.getGraph();
+        // Package of each node, resolved once per node instead of once per edge
+        String[] packages = new String[graph.getNodeCount()];
+        for (int node = 0; node < graph.getNodeCount(); node++) {
+            String source = graph.getName(node);
+            SortedSet<String> sourceModules = packageModules.get(source);
+            if (sourceModules == null || graph.getOutDegree(node) == 0) {
+                continue;
+            }
+            for (int edge = graph.getFirstEdge(node); edge < graph.getLastEdge(node); edge++) {
+                int target = graph.getTarget(edge);
+                if (packages[target] == null) {
+                    packages[target] = resolvePackage(graph.getName(target), packageModules);
+                }
+                String targetPackage = packages[target];
+                if (targetPackage == UNRESOLVED || targetPackage.equals(source)) {
+                    continue;
+                }
+                SortedSet<String> targetModules = packageModules.get(targetPackage);
+                if (!Collections.disjoint(sourceModules, targetModules)) {
+                    // The imported package is found next to the importing one
+                    continue;
+                }
+                for (String sourceModule : sourceModules) {
+                    moduleDependencies.get(sourceModule).addAll(targetModules);
+                }
+                SortedSet<String> crossing = crossModuleDependencies.get(source);
+                if (crossing == null) {
+                    crossing = new TreeSet<String>();
+                    crossModuleDependencies.put(source, crossing);
+                }
+                if (crossing.add(targetPackage)) {
+                    crossModuleCount++;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the longest tagged package prefixing a type name, UNRESOLVED if none
+     */
+    private static String resolvePackage(String typeName, Map<String, SortedSet<String>> packageModules) {
+        String candidate = typeName;
+        int dot;
+        while ((dot = candidate.lastIndexOf('.')) > 0) {
+            candidate = candidate.substring(0, dot);
+            if (packageModules.containsKey(candidate)) {
+                return candidate;
+            }
+        }
+        return UNRESOLVED;
+    }
+
+    /**
+     * @return the modules each module depends on, every module being a key
+     */
+    public Map<String, SortedSet<String>> getModuleDependencies() {
+        return moduleDependencies;
+    }
+
+    /**
+     * @return the packages of other modules each package depends on, only the packages having such dependencies
+     * being keys
+     */
+    public Map<String, SortedSet<String>> getCrossModuleDependencies() {
+        return crossModuleDependencies;
+    }
+
+    /**
+     * @return number of package dependencies crossing modules
+     */
+    public int getCrossModuleCount() {
+        return crossModuleCount;
+    }
+}
@@ -0,0 +1,172 @@
+package lba.util.dependency;
+
+import java.util.*;
+
+/**
+ * Package level dependency graph, nodes being identified by their index in the sorted list of package names and
+ * edges being stored in compressed sparse row arrays. Self dependencies are dropped.
+ */
+public class PackageGraph {
+
+    /**
+     * Package names, sorted
+     */
+    private final String[] names;
+
+    /**
+     * First edge index of each node, plus the total number of edges
+     */
+    private final int[] offsets;
+
+    /**
+     * Target node of each edge
+     */
+    private final int[] targets;
+
+    private PackageGraph(String[] names, int[] offsets, int[] targets) {
+        this.names = names;
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    /**
+     * Build the graph of already normalized dependencies, such as the result of
+     * {@link DependencyManager#getNormalizedDependencies(String)}
+     *
+     * @param dependencies dependencies of each package
+     * @return the package graph
+     */
+    public static PackageGraph fromDependencies(Map<String, ? extends Set<String>> dependencies) {
+        SortedMap<String, SortedSet<String>> edges = new TreeMap<String, SortedSet<String>>();
+        for (Map.Entry<String, ? extends Set<String>> entry : dependencies.entrySet()) {
+            if (entry.getKey() != null) {
+                for (String dep : entry.getValue()) {
+                    addEdge(edges, entry.getKey(), dep);
+                }
+            }
+        }
+        return build(edges);
+    }
+
+    /**
+     * Build the full package graph of a manager : each imported type is replaced by its package
+     *
+     * @param manager dependency manager
+     * @return the package graph
+     */
+    public static PackageGraph fromManager(DependencyManager manager) {
+        DependencyGraph graph = manager.getGraph();
+        String[] packages = new String[graph.getNodeCount()];
+        SortedMap<String, SortedSet<String>> edges = new TreeMap<String, SortedSet<String>>();
+        for (int node = 0; node < graph.getNodeCount(); node++) {
+            if (graph.getOutDegree(node) > 0) {
+                String pkg = graph.getName(node);
+                for (int edge = graph.getFirstEdge(node); edge < graph.getLastEdge(node); edge++) {
+                    int target = graph.getTarget(edge);
+                    if (packages[target] == null) {
+                        packages[target] = getPackageOf(graph.getName(target));
+                    }
+                    addEdge(edges, pkg, packages[target]);
+                }
+            }
+        }
+        return build(edges);
+    }
+
+    /**
+     * Package of an imported type, following the Java naming conventions : the package is made of the leading name
+     * parts starting with a lower case letter. "a.b.Outer.Inner" and "a.b.*" both belong to "a.b".
+     *
+     * @param type imported type
+     * @return the package of the type
+     */
+    public static String getPackageOf(String type) {
+        int end = 0;
+        int start = 0;
+        while (start < type.length()) {
+            int dot = type.indexOf('.', start);
+            int partEnd = dot < 0 ? type.length() : dot;
+            char first = type.charAt(start);
+            if (first == '*' || Character.isUpperCase(first)) {
+                break;
+            }
+            end = partEnd;
+            if (dot < 0) {
+                break;
+            }
+            start = dot + 1;
+        }
+        return end > 0 ? type.substring(0, end) : type;
+    }
+
+    private static void addEdge(SortedMap<String, SortedSet<String>> edges, String from, String to) {
+        SortedSet<String> deps = edges.get(from);
+        if (deps == null) {
+            deps = new TreeSet<String>();
+            edges.put(from, deps);
+        }
+        if (!from.equals(to)) {
+            deps.add(to);
+        }
+    }
+
+    private static PackageGraph build(SortedMap<String, SortedSet<String>> edges) {
+        SortedSet<String> nodes = new TreeSet<String>(edges.keySet());
+        for (SortedSet<String> deps : edges.values()) {
+            nodes.addAll(deps);
+        }
+        String[] names = nodes.toArray(new String[nodes.size()]);
+
+        int edgeCount = 0;
+        for (SortedSet<String> deps : edges.values()) {
+            edgeCount += deps.size();
+        }
+
+        int[] offsets = new int[names.length + 1];
+        int[] targets = new int[edgeCount];
+        int edge = 0;
+        for (int node = 0; node < names.length; node++) {
+            offsets[node] = edge;
+            SortedSet<String> deps = edges.get(names[node]);
+            if (deps != null) {
+                for (String dep : deps) {
+                    targets[edge++] = Arrays.binarySearch(names, dep);
+                }
+            }
+        }
+        offsets[names.length] = edge;
+        return new PackageGraph(names, offsets, targets);
+    }
+
+    public int getNodeCount() {
+        return names.length;
+    }
+
+    public int getEdgeCount() {
+        return targets.length;
+    }
+
+    public String getName(int node) {
+        return names[node];
+    }
+
+    /**
+     * @param name package name
+     * @return the node of the package, a negative value if the package is not in the graph
+     */
+    public int getNode(String name) {
+        return Arrays.binarySearch(names, name);
+    }
+
+    public int getFirstEdge(int node) {
+        return offsets[node];
+    }
+
+    public int getLastEdge(int node) {
+        return offsets[node + 1];
+    }
+
+    public int getTarget(int edge) {
+        return targets[edge];
+    }
+}
@@ -0,0 +1,66 @@
+package lba.util.dependency;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Projection given by a custom mapping of package prefixes to names : a package or type name is projected on the name
+ * of its longest matching prefix, a prefix matching whole name parts only ("a.b" matches "a.b.C" but not "a.bc.D").
+ * Names matching no prefix are left out of the view.
+ */
+public class PrefixProjection extends DependencyProjection {
+
+    /**
+     * Name of each prefix
+     */
+    private final TreeMap<String, String> prefixes;
+
+    /**
+     * Constructor
+     *
+     * @param prefixes name of each package prefix
+     */
+    public PrefixProjection(Map<String, String> prefixes) {
+        this.prefixes = new TreeMap<String, String>(prefixes);
+    }
+
+    /**
+     * The dependencies of the packages matching no prefix are left out of the view
+     */
+    @Override
+    public boolean accepts(String source) {
+        return project(source) != null;
+    }
+
+    @Override
+    public String project(String name) {
+        // Candidate prefixes are the name itself and the name cut at each dot, longest first
+        String candidate = name;
+        while (true) {
+            String result = prefixes.get(candidate);
+            if (result != null) {
+                return result;
+            }
+            int dot = candidate.lastIndexOf('.');
+            if (dot < 0) {
+                return null;
+            }
+            candidate = candidate.substring(0, dot);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "custom";
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof PrefixProjection && prefixes.equals(((PrefixProjection) o).prefixes));
+    }
+
+    @Override
+    public int hashCode() {
+        return prefixes.hashCode();
+    }
+}
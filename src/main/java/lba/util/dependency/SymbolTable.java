@@ -0,0 +1,78 @@
+package lba.util.dependency;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Symbol table interning package and type names to dense int identifiers, so that each name is stored only once
+ * whatever the number of edges referring to it.
+ * <p>
+ * Interning is thread safe, and lock free when the name is already known.
+ */
+public class SymbolTable {
+
+    /**
+     * Identifier of each known name
+     */
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+
+    /**
+     * Name of each identifier
+     */
+    private volatile String[] names = new String[1024];
+
+    /**
+     * Number of interned names
+     */
+    private volatile int size;
+
+    /**
+     * @param name name to intern
+     * @return the identifier of the name, a new identifier is allocated if the name is unknown
+     */
+    public int intern(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+            String[] current = names;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size * 2);
+            }
+            current[size] = name;
+            names = current;
+            id = size++;
+            ids.put(name, id);
+            return id;
+        }
+    }
+
+    /**
+     * @param name name to look for
+     * @return the identifier of the name, or -1 if the name is unknown
+     */
+    public int getId(String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * @param id identifier
+     * @return the interned name
+     */
+    public String getName(int id) {
+        return names[id];
+    }
+
+    /**
+     * @return number of interned names, identifiers range from 0 to size - 1
+     */
+    public int size() {
+        return size;
+    }
+}
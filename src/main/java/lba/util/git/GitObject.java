@@ -0,0 +1,69 @@
+package lba.util.git;
+
+/**
+ * Inflated git object : its type and its content, without the loose object header
+ */
+class GitObject {
+
+    /**
+     * Object types, numbered as in the pack files
+     */
+    static final int COMMIT = 1;
+    static final int TREE = 2;
+    static final int BLOB = 3;
+    static final int TAG = 4;
+
+    private final int type;
+
+    private final byte[] data;
+
+    GitObject(int type, byte[] data) {
+        this.type = type;
+        this.data = data;
+    }
+
+    /**
+     * @param name type name of a loose object header
+     * @return the type, -1 if unknown
+     */
+    static int getType(String name) {
+        switch (name) {
+            case "commit":
+                return COMMIT;
+            case "tree":
+                return TREE;
+            case "blob":
+                return BLOB;
+            case "tag":
+                return TAG;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * @return the name of a type, as written in the loose object headers
+     */
+    static String getTypeName(int type) {
+        switch (type) {
+            case COMMIT:
+                return "commit";
+            case TREE:
+                return "tree";
+            case BLOB:
+                return "blob";
+            case TAG:
+                return "tag";
+            default:
+                return String.valueOf(type);
+        }
+    }
+
+    int getType() {
+        return type;
+    }
+
+    byte[] getData() {
+        return data;
+    }
+}
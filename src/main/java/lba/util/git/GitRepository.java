@@ -0,0 +1,550 @@
+package lba.util.git;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Read only access to the object store of a local git repository, without the git binary : loose objects, pack files
+ * with their version 2 index, references and packed references.
+ * <p>
+ * The repository may be given as its git directory (".git", or a bare repository), or as the work tree holding it,
+ * linked work trees and alternate object directories included. Reading objects is thread safe.
+ */
+public class GitRepository implements Closeable {
+
+    /**
+     * Logger
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(GitRepository.class);
+
+    /**
+     * Maximum depth of symbolic references and tags
+     */
+    private static final int MAX_INDIRECTIONS = 16;
+
+    /**
+     * Prefixes a short reference name is looked for with, in the order of git rev-parse
+     */
+    private static final String[] REF_PREFIXES = {"", "refs/", "refs/tags/", "refs/heads/", "refs/remotes/"};
+
+    /**
+     * Git directory, holding HEAD
+     */
+    private final Path gitDir;
+
+    /**
+     * Common directory of the linked work trees, holding the references and the objects
+     */
+    private final Path commonDir;
+
+    /**
+     * Directory the paths of the trees are resolved against : the work tree, or the git directory of a bare repository
+     */
+    private final Path workTree;
+
+    /**
+     * Object directories, the own one first then the alternates
+     */
+    private final List<Path> objectDirs = new ArrayList<Path>();
+
+    private final List<PackFile> packs = new ArrayList<PackFile>();
+
+    /**
+     * Packed references, loaded on first use
+     */
+    private Map<String, ObjectId> packedRefs;
+
+    private GitRepository(Path gitDir, Path workTree) throws IOException {
+        this.gitDir = gitDir;
+        this.workTree = workTree;
+        Path commonDirFile = gitDir.resolve("commondir");
+        this.commonDir = Files.isRegularFile(commonDirFile)
+                ? gitDir.resolve(readFirstLine(commonDirFile)).normalize() : gitDir;
+
+        addObjectDir(commonDir.resolve("objects"), 0);
+        if (objectDirs.isEmpty()) {
+            throw new IOException("Not a git directory :" + gitDir);
+        }
+        for (Path objectDir : objectDirs) {
+            Path packDir = objectDir.resolve("pack");
+            if (!Files.isDirectory(packDir)) {
+                continue;
+            }
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(packDir, "*.idx")) {
+                for (Path indexFile : stream) {
+                    try {
+                        packs.add(PackFile.open(indexFile));
+                    } catch (IOException e) {
+                        LOG.warn("Ignoring pack {} : {}", indexFile, e.getMessage());
+                    }
+                }
+            }
+        }
+        LOG.debug("{} object directories, {} packs", objectDirs.size(), packs.size());
+    }
+
+    /**
+     * Open a repository
+     *
+     * @param path git directory, bare repository, or work tree holding a .git directory or file
+     * @return the repository, to be closed by the caller
+     * @throws IOException if the path is not a git repository
+     */
+    public static GitRepository open(Path path) throws IOException {
+        Path dotGit = path.resolve(".git");
+        if (Files.isDirectory(dotGit)) {
+            return new GitRepository(dotGit, path);
+        }
+        if (Files.isRegularFile(dotGit)) {
+            // Linked work tree or submodule : "gitdir: <path>"
+            String line = readFirstLine(dotGit);
+            if (!line.startsWith("gitdir:")) {
+                throw new IOException("Invalid .git file :" + dotGit);
+            }
+            return new GitRepository(path.resolve(line.substring("gitdir:".length()).trim()).normalize(), path);
+        }
+        if (Files.isRegularFile(path.resolve("HEAD")) && Files.isDirectory(path.resolve("objects"))) {
+            Path parent = path.toAbsolutePath().getParent();
+            boolean nested = path.getFileName() != null && ".git".equals(path.getFileName().toString()) && parent != null;
+            return new GitRepository(path, nested ? parent : path);
+        }
+        throw new IOException("Not a git repository :" + path);
+    }
+
+    /**
+     * Add an object directory and its alternates
+     */
+    private void addObjectDir(Path objectDir, int depth) throws IOException {
+        if (!Files.isDirectory(objectDir) || objectDirs.contains(objectDir) || depth > MAX_INDIRECTIONS) {
+            return;
+        }
+        objectDirs.add(objectDir);
+        Path alternates = objectDir.resolve("info").resolve("alternates");
+        if (Files.isRegularFile(alternates)) {
+            for (String line : Files.readAllLines(alternates, StandardCharsets.UTF_8)) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    addObjectDir(objectDir.resolve(line).normalize(), depth + 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Resolve a revision to a commit : a full or abbreviated object name, HEAD, or a branch, tag or remote branch
+     * name, followed by any number of "~n" (n-th first parent ancestor) and "^n" (n-th parent) suffixes
+     *
+     * @param revision revision, for instance "main", "v1.2^", "HEAD~3" or "3f2a9c1"
+     * @return the name of the commit
+     * @throws IOException if the revision is unknown or does not name a commit
+     */
+    public ObjectId resolve(String revision) throws IOException {
+        int suffix = 0;
+        while (suffix < revision.length() && revision.charAt(suffix) != '~' && revision.charAt(suffix) != '^') {
+            suffix++;
+        }
+        ObjectId commit = peel(resolveName(revision.substring(0, suffix)), revision);
+
+        int position = suffix;
+        while (position < revision.length()) {
+            char operator = revision.charAt(position++);
+            int start = position;
+            while (position < revision.length() && Character.isDigit(revision.charAt(position))) {
+                position++;
+            }
+            if (operator != '~' && operator != '^') {
+                throw new IOException("Invalid revision :" + revision);
+            }
+            int n = start == position ? 1 : Integer.parseInt(revision.substring(start, position));
+            if (operator == '~') {
+                for (int i = 0; i < n; i++) {
+                    commit = getParent(commit, 1, revision);
+                }
+            } else if (n > 0) {
+                commit = getParent(commit, n, revision);
+            }
+        }
+        return commit;
+    }
+
+    /**
+     * Resolve a tree : a revision, optionally followed by ":" and the path of a sub directory, as in "main:src/main/java"
+     *
+     * @param treeish revision and optional path
+     * @return the name of the tree
+     */
+    public ObjectId resolveTree(String treeish) throws IOException {
+        int colon = treeish.indexOf(':');
+        String revision = colon < 0 ? treeish : treeish.substring(0, colon);
+        ObjectId tree = getTree(resolve(revision));
+        if (colon >= 0) {
+            for (String name : treeish.substring(colon + 1).split("/")) {
+                if (name.isEmpty()) {
+                    continue;
+                }
+                ObjectId subTree = null;
+                for (TreeEntry entry : readTree(tree)) {
+                    if (entry.isTree() && entry.getName().equals(name)) {
+                        subTree = entry.getId();
+                    }
+                }
+                if (subTree == null) {
+                    throw new IOException("No directory " + treeish.substring(colon + 1) + " in " + revision);
+                }
+                tree = subTree;
+            }
+        }
+        return tree;
+    }
+
+    /**
+     * @param commit commit name
+     * @return the name of the root tree of the commit
+     */
+    public ObjectId getTree(ObjectId commit) throws IOException {
+        for (String line : getHeaders(read(commit, GitObject.COMMIT))) {
+            if (line.startsWith("tree ")) {
+                return ObjectId.fromHex(line.substring(5));
+            }
+        }
+        throw new IOException("Commit without tree :" + commit);
+    }
+
+    /**
+     * @param tree tree name
+     * @return the entries of the tree, in the order of the tree
+     */
+    public List<TreeEntry> readTree(ObjectId tree) throws IOException {
+        byte[] data = read(tree, GitObject.TREE).getData();
+        List<TreeEntry> entries = new ArrayList<TreeEntry>();
+        int position = 0;
+        while (position < data.length) {
+            // "<octal mode> <name>\0<20 bytes name>"
+            int space = position;
+            while (data[space] != ' ') {
+                space++;
+            }
+            int end = space + 1;
+            while (data[end] != 0) {
+                end++;
+            }
+            int mode = Integer.parseInt(new String(data, position, space - position, StandardCharsets.US_ASCII), 8);
+            String name = new String(data, space + 1, end - space - 1, StandardCharsets.UTF_8);
+            entries.add(new TreeEntry(mode, name, ObjectId.fromBytes(data, end + 1)));
+            position = end + 1 + ObjectId.LENGTH;
+        }
+        return entries;
+    }
+
+    /**
+     * @param blob blob name
+     * @return the content of the blob
+     */
+    public byte[] readBlob(ObjectId blob) throws IOException {
+        return read(blob, GitObject.BLOB).getData();
+    }
+
+    /**
+     * @return the directory the paths of the trees are resolved against : the work tree, or the git directory of a
+     * bare repository
+     */
+    public Path getWorkTree() {
+        return workTree;
+    }
+
+    /**
+     * Read an object from the packs or the loose objects
+     *
+     * @param id object name
+     * @return the object
+     * @throws NoSuchFileException if the repository does not hold the object
+     */
+    GitObject read(ObjectId id) throws IOException {
+        for (PackFile pack : packs) {
+            int position = pack.find(id);
+            if (position >= 0) {
+                return pack.read(position, this);
+            }
+        }
+        String hex = id.toHex();
+        for (Path objectDir : objectDirs) {
+            Path loose = objectDir.resolve(hex.substring(0, 2)).resolve(hex.substring(2));
+            if (Files.isRegularFile(loose)) {
+                return readLoose(loose);
+            }
+        }
+        throw new NoSuchFileException("Missing object " + hex + " in " + gitDir);
+    }
+
+    private GitObject read(ObjectId id, int type) throws IOException {
+        GitObject object = read(id);
+        if (object.getType() != type) {
+            throw new IOException("Object " + id + " is not a " + GitObject.getTypeName(type));
+        }
+        return object;
+    }
+
+    /**
+     * Loose object : zlib deflated "<type> <size>\0<content>"
+     */
+    private static GitObject readLoose(Path file) throws IOException {
+        byte[] compressed = Files.readAllBytes(file);
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] header = new byte[64];
+            int headerLength = inflater.inflate(header);
+            int nul = 0;
+            while (nul < headerLength && header[nul] != 0) {
+                nul++;
+            }
+            String[] fields = new String(header, 0, nul, StandardCharsets.US_ASCII).split(" ");
+            int type = fields.length == 2 ? GitObject.getType(fields[0]) : -1;
+            if (nul == headerLength || type < 0) {
+                throw new IOException("Invalid loose object :" + file);
+            }
+            byte[] data = new byte[Integer.parseInt(fields[1])];
+            int produced = Math.min(headerLength - nul - 1, data.length);
+            System.arraycopy(header, nul + 1, data, 0, produced);
+            while (produced < data.length) {
+                int inflated = inflater.inflate(data, produced, data.length - produced);
+                if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IOException("Truncated loose object :" + file);
+                }
+                produced += inflated;
+            }
+            return new GitObject(type, data);
+        } catch (DataFormatException | NumberFormatException e) {
+            throw new IOException("Corrupt loose object :" + file, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * @return the object named by a full or abbreviated name, or by a reference
+     */
+    private ObjectId resolveName(String name) throws IOException {
+        if (ObjectId.isHex(name, ObjectId.LENGTH * 2)) {
+            return ObjectId.fromHex(name);
+        }
+        if (!name.isEmpty()) {
+            for (String prefix : REF_PREFIXES) {
+                ObjectId id = readRef(prefix + name, 0);
+                if (id != null) {
+                    return id;
+                }
+            }
+            ObjectId id = readRef("refs/remotes/" + name + "/HEAD", 0);
+            if (id != null) {
+                return id;
+            }
+            if (name.length() >= 4 && name.length() < ObjectId.LENGTH * 2 && ObjectId.isHex(name, name.length())) {
+                return findAbbreviated(name);
+            }
+        }
+        throw new IOException("Unknown revision :" + name);
+    }
+
+    /**
+     * @return the object a reference points to, following the symbolic references, null if there is no such reference
+     */
+    private ObjectId readRef(String name, int depth) throws IOException {
+        if (depth > MAX_INDIRECTIONS) {
+            throw new IOException("Too many symbolic references :" + name);
+        }
+        for (Path dir : new Path[]{gitDir, commonDir}) {
+            Path file;
+            try {
+                file = dir.resolve(name).normalize();
+            } catch (InvalidPathException e) {
+                return null;
+            }
+            if (file.startsWith(dir) && Files.isRegularFile(file)) {
+                String value = readFirstLine(file);
+                if (value.startsWith("ref:")) {
+                    return readRef(value.substring(4).trim(), depth + 1);
+                }
+                if (ObjectId.isHex(value, ObjectId.LENGTH * 2)) {
+                    return ObjectId.fromHex(value);
+                }
+            }
+        }
+        return getPackedRefs().get(name);
+    }
+
+    private synchronized Map<String, ObjectId> getPackedRefs() throws IOException {
+        if (packedRefs == null) {
+            packedRefs = new HashMap<String, ObjectId>();
+            Path file = commonDir.resolve("packed-refs");
+            if (Files.isRegularFile(file)) {
+                // "<name> <ref>" lines, the "^<name>" lines giving the commit of the previous annotated tag
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    int space = line.indexOf(' ');
+                    if (space == ObjectId.LENGTH * 2 && ObjectId.isHex(line.substring(0, space), space)) {
+                        packedRefs.put(line.substring(space + 1).trim(), ObjectId.fromHex(line.substring(0, space)));
+                    }
+                }
+            }
+        }
+        return packedRefs;
+    }
+
+    /**
+     * @return the only object whose name starts with the abbreviated name
+     */
+    private ObjectId findAbbreviated(String prefix) throws IOException {
+        Set<ObjectId> matches = new TreeSet<ObjectId>();
+        for (PackFile pack : packs) {
+            pack.findByPrefix(prefix, matches);
+        }
+        for (Path objectDir : objectDirs) {
+            Path dir = objectDir.resolve(prefix.substring(0, 2));
+            if (Files.isDirectory(dir)) {
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, prefix.substring(2) + "*")) {
+                    for (Path loose : stream) {
+                        String hex = prefix.substring(0, 2) + loose.getFileName();
+                        if (ObjectId.isHex(hex, ObjectId.LENGTH * 2)) {
+                            matches.add(ObjectId.fromHex(hex));
+                        }
+                    }
+                }
+            }
+        }
+        if (matches.size() != 1) {
+            throw new IOException((matches.isEmpty() ? "Unknown revision :" : "Ambiguous abbreviated name :") + prefix);
+        }
+        return matches.iterator().next();
+    }
+
+    /**
+     * @return the commit an object leads to, the annotated tags being followed
+     */
+    private ObjectId peel(ObjectId id, String revision) throws IOException {
+        ObjectId current = id;
+        for (int depth = 0; depth <= MAX_INDIRECTIONS; depth++) {
+            GitObject object = read(current);
+            if (object.getType() == GitObject.COMMIT) {
+                return current;
+            }
+            if (object.getType() != GitObject.TAG) {
+                throw new IOException("Revision " + revision + " is not a commit");
+            }
+            ObjectId target = null;
+            for (String line : getHeaders(object)) {
+                if (line.startsWith("object ")) {
+                    target = ObjectId.fromHex(line.substring(7));
+                }
+            }
+            if (target == null) {
+                throw new IOException("Tag without object :" + current);
+            }
+            current = target;
+        }
+        throw new IOException("Too many nested tags :" + revision);
+    }
+
+    /**
+     * @return the n-th parent of a commit
+     */
+    private ObjectId getParent(ObjectId commit, int n, String revision) throws IOException {
+        int parent = 0;
+        for (String line : getHeaders(read(commit, GitObject.COMMIT))) {
+            if (line.startsWith("parent ") && ++parent == n) {
+                return ObjectId.fromHex(line.substring(7));
+            }
+        }
+        throw new IOException("Revision " + revision + " goes beyond the history, " + commit + " has " + parent + " parents");
+    }
+
+    /**
+     * @return the header lines of a commit or a tag, up to the first blank line
+     */
+    private static List<String> getHeaders(GitObject object) {
+        byte[] data = object.getData();
+        List<String> headers = new ArrayList<String>();
+        int start = 0;
+        for (int i = 0; i < data.length; i++) {
+            if (data[i] == '\n') {
+                if (i == start) {
+                    break;
+                }
+                headers.add(new String(data, start, i - start, StandardCharsets.UTF_8));
+                start = i + 1;
+            }
+        }
+        return headers;
+    }
+
+    private static String readFirstLine(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        return lines.isEmpty() ? "" : lines.get(0).trim();
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (PackFile pack : packs) {
+            pack.close();
+        }
+    }
+
+    /**
+     * Entry of a tree
+     */
+    public static class TreeEntry {
+
+        /**
+         * Modes of the directories, of the symbolic links and of the submodules, the other entries being files
+         */
+        private static final int TREE_MODE = 040000;
+        private static final int SYMLINK_MODE = 0120000;
+        private static final int GITLINK_MODE = 0160000;
+
+        private final int mode;
+
+        private final String name;
+
+        private final ObjectId id;
+
+        TreeEntry(int mode, String name, ObjectId id) {
+            this.mode = mode;
+            this.name = name;
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public ObjectId getId() {
+            return id;
+        }
+
+        /**
+         * @return true for a sub directory
+         */
+        public boolean isTree() {
+            return mode == TREE_MODE;
+        }
+
+        /**
+         * @return true for a regular or executable file, false for a directory, a symbolic link or a submodule
+         */
+        public boolean isFile() {
+            int type = mode & 0170000;
+            return type != TREE_MODE && type != SYMLINK_MODE && type != GITLINK_MODE;
+        }
+    }
+}
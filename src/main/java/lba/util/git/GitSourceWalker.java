@@ -0,0 +1,292 @@
+package lba.util.git;
+
+import lba.util.AbstractAnalyzer;
+import lba.util.AnalysisSettings;
+import lba.util.SourceFile;
+import lba.util.metrics.AnalysisMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Walk the tree of a git revision straight from the object store, as {@link lba.util.ParallelSourceWalker} walks a
+ * directory : every sub tree (and every batch of files of a large tree) is a task analyzed by its own analyzer, the
+ * results being merged back into the parent task.
+ * <p>
+ * The blobs are handed to the analyzers as {@link SourceFile}s whose content is inflated on first access, so the
+ * blobs found in the cache are not even read. Their paths are the ones they would have in the work tree, so that the
+ * filters apply as on a checkout, and they are named after their path in the repository.
+ */
+public class GitSourceWalker {
+
+    /**
+     * Logger
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(GitSourceWalker.class);
+
+    /**
+     * Maximum number of files analyzed by a single task
+     */
+    private static final int FILES_PER_TASK = 64;
+
+    private final GitRepository repository;
+
+    private final int threads;
+
+    /**
+     * Pool shared with other walks, null when each walk creates its own pool
+     */
+    private final ForkJoinPool pool;
+
+    private final AnalysisSettings settings;
+
+    /**
+     * Constructor
+     *
+     * @param repository repository the trees and blobs are read from
+     * @param threads    number of worker threads
+     * @param settings   settings used to read the source files
+     */
+    public GitSourceWalker(GitRepository repository, int threads, AnalysisSettings settings) {
+        this.repository = repository;
+        this.threads = threads;
+        this.pool = null;
+        this.settings = settings;
+    }
+
+    /**
+     * Constructor of a walker running its tasks in a pool shared with other walks
+     *
+     * @param repository repository the trees and blobs are read from
+     * @param pool       pool running the tasks, left open once the walks are over
+     * @param settings   settings used to read the source files
+     */
+    public GitSourceWalker(GitRepository repository, ForkJoinPool pool, AnalysisSettings settings) {
+        this.repository = repository;
+        this.threads = pool.getParallelism();
+        this.pool = pool;
+        this.settings = settings;
+    }
+
+    /**
+     * Walk the tree of a revision
+     *
+     * @param treeish   revision, optionally followed by ":" and the path of the sub directory to walk
+     * @param prototype analyzer used to create the worker analyzers, its own results are kept
+     * @param <A>       analyzer type
+     * @return the prototype analyzer, holding the results of the whole walk
+     */
+    public <A extends AbstractAnalyzer<A>> A walk(String treeish, A prototype) throws IOException {
+        ObjectId tree = repository.resolveTree(treeish);
+        int colon = treeish.indexOf(':');
+        String prefix = colon < 0 ? "" : treeish.substring(colon + 1).replaceAll("^/+|/+$", "");
+        Path root = prefix.isEmpty() ? repository.getWorkTree() : repository.getWorkTree().resolve(prefix);
+        LOG.info("Walking tree {} of {}", tree, treeish);
+
+        ForkJoinPool pool = this.pool != null ? this.pool : new ForkJoinPool(Math.max(1, threads));
+        try {
+            A result = pool.invoke(new TreeTask<>(tree, root, prefix, root, prototype, this));
+            long start = System.nanoTime();
+            prototype.merge(result);
+            addMergeTime(System.nanoTime() - start);
+        } finally {
+            if (pool != this.pool) {
+                pool.shutdown();
+            }
+        }
+        return prototype;
+    }
+
+    /**
+     * Analyze a blob, as {@link lba.util.JavaSourceFileVisitor#visitFile} analyzes a file
+     */
+    private <A extends AbstractAnalyzer<A>> void analyzeBlob(A analyzer, final ObjectId blob, Path path, String name) {
+        // The size of a blob is only known once inflated, its byte budget is checked by the source file
+        if (settings.isOverBudget(path, -1L)) {
+            return;
+        }
+        AnalysisMetrics metrics = settings.getMetrics();
+        long start = System.nanoTime();
+        SourceFile source = new SourceFile(path, name, blob.toHex(), new SourceFile.ContentLoader() {
+            @Override
+            public byte[] load() throws IOException {
+                return repository.readBlob(blob);
+            }
+        }, settings);
+        try {
+            analyzer.analyseSource(source);
+        } finally {
+            try {
+                source.close();
+            } catch (IOException e) {
+                LOG.error(e.getMessage(), e);
+            }
+        }
+        if (metrics != null) {
+            metrics.fileAnalyzed(path, System.nanoTime() - start, source.getReadNanos(), source.getBytesRead(),
+                    source.isFailed());
+            if (source.getSkipReason() != null) {
+                metrics.fileSkipped(path.toString(), source.getSkipReason());
+            }
+        }
+    }
+
+    private void treeFailed(String name, IOException e) {
+        LOG.error("Unreadable tree " + name + " : " + e.getMessage(), e);
+        if (settings.getMetrics() != null) {
+            settings.getMetrics().fileSeen();
+            settings.getMetrics().fileFailed();
+        }
+    }
+
+    private void addMergeTime(long nanos) {
+        if (settings.getMetrics() != null) {
+            settings.getMetrics().addTime(AnalysisMetrics.Phase.MERGE, nanos);
+        }
+    }
+
+    /**
+     * @return the name of an entry of a tree, its path in the repository
+     */
+    private static String getName(String treeName, String entryName) {
+        return treeName.isEmpty() ? entryName : treeName + "/" + entryName;
+    }
+
+    /**
+     * Task analyzing the files of a tree, and forking a new task for each of its sub trees
+     */
+    private static class TreeTask<A extends AbstractAnalyzer<A>> extends RecursiveTask<A> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ObjectId tree;
+
+        private final Path dir;
+
+        private final String name;
+
+        /**
+         * Walked root, the entries are filtered relatively to it
+         */
+        private final Path root;
+
+        private final A prototype;
+
+        private final GitSourceWalker walker;
+
+        TreeTask(ObjectId tree, Path dir, String name, Path root, A prototype, GitSourceWalker walker) {
+            this.tree = tree;
+            this.dir = dir;
+            this.name = name;
+            this.root = root;
+            this.prototype = prototype;
+            this.walker = walker;
+            if (walker.settings.getMetrics() != null) {
+                walker.settings.getMetrics().directoryQueued();
+            }
+        }
+
+        @Override
+        protected A compute() {
+            A analyzer = prototype.split();
+            AnalysisSettings settings = walker.settings;
+            // Once the deadline is reached the remaining trees are not even read
+            if (settings.isOverBudget(dir, -1L)) {
+                return analyzer;
+            }
+            List<RecursiveTask<A>> subTasks = new ArrayList<>();
+            List<GitRepository.TreeEntry> files = new ArrayList<>();
+            int fileCount = 0;
+
+            List<GitRepository.TreeEntry> entries;
+            try {
+                entries = walker.repository.readTree(tree);
+            } catch (IOException e) {
+                walker.treeFailed(name, e);
+                return analyzer;
+            }
+            for (GitRepository.TreeEntry entry : entries) {
+                Path path = dir.resolve(entry.getName());
+                if (settings.isSkipped(path, root, entry.isTree())) {
+                    continue;
+                }
+                if (entry.isTree()) {
+                    subTasks.add(new TreeTask<>(entry.getId(), path, getName(name, entry.getName()), root, prototype, walker));
+                } else if (entry.isFile()) {
+                    fileCount++;
+                    if (settings.getMetrics() != null) {
+                        settings.getMetrics().fileSeen();
+                    }
+                    if (entry.getName().endsWith(".java") && !"package-info.java".equals(entry.getName())) {
+                        files.add(entry);
+                        if (files.size() == FILES_PER_TASK) {
+                            subTasks.add(new BlobsTask<>(files, dir, name, prototype, walker));
+                            files = new ArrayList<>();
+                        }
+                    }
+                }
+            }
+            if (settings.getMetrics() != null) {
+                settings.getMetrics().directoryListed(fileCount);
+            }
+
+            for (RecursiveTask<A> task : subTasks) {
+                task.fork();
+            }
+
+            // The remaining files are analyzed by the current worker
+            for (GitRepository.TreeEntry file : files) {
+                walker.analyzeBlob(analyzer, file.getId(), dir.resolve(file.getName()), getName(name, file.getName()));
+            }
+
+            for (RecursiveTask<A> task : subTasks) {
+                A other = task.join();
+                long start = System.nanoTime();
+                analyzer.merge(other);
+                walker.addMergeTime(System.nanoTime() - start);
+            }
+            return analyzer;
+        }
+    }
+
+    /**
+     * Task analyzing a batch of files of a large tree
+     */
+    private static class BlobsTask<A extends AbstractAnalyzer<A>> extends RecursiveTask<A> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<GitRepository.TreeEntry> files;
+
+        private final Path dir;
+
+        private final String name;
+
+        private final A prototype;
+
+        private final GitSourceWalker walker;
+
+        BlobsTask(List<GitRepository.TreeEntry> files, Path dir, String name, A prototype, GitSourceWalker walker) {
+            this.files = files;
+            this.dir = dir;
+            this.name = name;
+            this.prototype = prototype;
+            this.walker = walker;
+        }
+
+        @Override
+        protected A compute() {
+            A analyzer = prototype.split();
+            for (GitRepository.TreeEntry file : files) {
+                walker.analyzeBlob(analyzer, file.getId(), dir.resolve(file.getName()), getName(name, file.getName()));
+            }
+            return analyzer;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package lba.util.git;
+
+import java.util.Arrays;
+
+/**
+ * SHA-1 name of a git object
+ */
+public final class ObjectId implements Comparable<ObjectId> {
+
+    /**
+     * Length of an object name, in bytes
+     */
+    public static final int LENGTH = 20;
+
+    private final byte[] bytes;
+
+    private ObjectId(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * @param bytes  buffer holding a raw object name
+     * @param offset start of the name in the buffer
+     * @return the object name
+     */
+    public static ObjectId fromBytes(byte[] bytes, int offset) {
+        return new ObjectId(Arrays.copyOfRange(bytes, offset, offset + LENGTH));
+    }
+
+    /**
+     * @param hex object name written as 40 hexadecimal digits
+     * @return the object name
+     * @throws IllegalArgumentException if the name is not valid
+     */
+    public static ObjectId fromHex(String hex) {
+        if (!isHex(hex, LENGTH * 2)) {
+            throw new IllegalArgumentException("Invalid object name :" + hex);
+        }
+        byte[] bytes = new byte[LENGTH];
+        for (int i = 0; i < LENGTH; i++) {
+            bytes[i] = (byte) (Character.digit(hex.charAt(2 * i), 16) << 4 | Character.digit(hex.charAt(2 * i + 1), 16));
+        }
+        return new ObjectId(bytes);
+    }
+
+    /**
+     * @return true if the value is made of the given number of lower case hexadecimal digits
+     */
+    static boolean isHex(String value, int length) {
+        if (value.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the first byte of the name, indexing the fan-out tables of the pack indexes
+     */
+    int getFirstByte() {
+        return bytes[0] & 0xFF;
+    }
+
+    /**
+     * @return the byte at a position of the name
+     */
+    byte getByte(int index) {
+        return bytes[index];
+    }
+
+    /**
+     * @return true if the hexadecimal form of the name starts with the prefix
+     */
+    boolean startsWith(String hexPrefix) {
+        return toHex().startsWith(hexPrefix);
+    }
+
+    /**
+     * @return the 40 hexadecimal digits of the name
+     */
+    public String toHex() {
+        StringBuilder hex = new StringBuilder(LENGTH * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    @Override
+    public int compareTo(ObjectId other) {
+        for (int i = 0; i < LENGTH; i++) {
+            int comparison = (bytes[i] & 0xFF) - (other.bytes[i] & 0xFF);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof ObjectId && Arrays.equals(bytes, ((ObjectId) other).bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        // The name is already a hash
+        return (bytes[0] & 0xFF) << 24 | (bytes[1] & 0xFF) << 16 | (bytes[2] & 0xFF) << 8 | (bytes[3] & 0xFF);
+    }
+
+    @Override
+    public String toString() {
+        return toHex();
+    }
+}
@@ -0,0 +1,391 @@
+package lba.util.git;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Pack file of a git repository with its version 2 index.
+ * <p>
+ * The index is memory mapped and searched in place, through its fan-out table. The pack itself is read with
+ * positional reads, which are thread safe and not limited to 2 GB. Deltas are resolved against their base, found
+ * by offset in the same pack or by name in the repository, and the bases of the delta chains are kept in a small
+ * cache since most of the objects of a chain share them.
+ */
+class PackFile implements Closeable {
+
+    /**
+     * Magic number of the version 2 pack indexes, "\377tOc"
+     */
+    private static final int INDEX_MAGIC = 0xFF744F63;
+
+    /**
+     * Pack object types, the non delta ones being the {@link GitObject} types
+     */
+    private static final int OFS_DELTA = 6;
+    private static final int REF_DELTA = 7;
+
+    /**
+     * Start of the object names in the index, after the magic, the version and the fan-out table
+     */
+    private static final int NAMES = 8 + 256 * 4;
+
+    /**
+     * Maximum size of the cached delta bases, in bytes
+     */
+    private static final int BASE_CACHE_BYTES = 16 * 1024 * 1024;
+
+    /**
+     * Compressed bytes read at once
+     */
+    private static final int CHUNK_SIZE = 8192;
+
+    private static final ThreadLocal<Inflater> INFLATER = new ThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater();
+        }
+    };
+
+    private static final ThreadLocal<byte[]> CHUNK = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[CHUNK_SIZE];
+        }
+    };
+
+    private final Path packPath;
+
+    private final ByteBuffer index;
+
+    private final FileChannel pack;
+
+    private final int objectCount;
+
+    private final int offsets;
+
+    private final int largeOffsets;
+
+    /**
+     * Delta bases by pack offset, least recently used first
+     */
+    private final Map<Long, GitObject> bases = new LinkedHashMap<Long, GitObject>(64, 0.75f, true);
+
+    private long cachedBytes;
+
+    private PackFile(Path packPath, ByteBuffer index, FileChannel pack) throws IOException {
+        this.packPath = packPath;
+        this.index = index;
+        this.pack = pack;
+        if (index.limit() < NAMES || index.getInt(0) != INDEX_MAGIC || index.getInt(4) != 2) {
+            throw new IOException("Unsupported pack index, only the version 2 is read :" + packPath);
+        }
+        objectCount = index.getInt(NAMES - 4);
+        offsets = NAMES + objectCount * (ObjectId.LENGTH + 4);
+        largeOffsets = offsets + objectCount * 4;
+    }
+
+    /**
+     * Open a pack through its index
+     *
+     * @param indexPath .idx file, the .pack file being next to it
+     * @return the pack, to be closed by the caller
+     */
+    static PackFile open(Path indexPath) throws IOException {
+        String name = indexPath.getFileName().toString();
+        Path packPath = indexPath.resolveSibling(name.substring(0, name.length() - ".idx".length()) + ".pack");
+        ByteBuffer index;
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+            // The mapping stays valid once the channel is closed
+            index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        FileChannel pack = FileChannel.open(packPath, StandardOpenOption.READ);
+        try {
+            return new PackFile(packPath, index, pack);
+        } catch (IOException e) {
+            pack.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the position of the object in the index, a negative value if the pack does not hold it
+     */
+    int find(ObjectId id) {
+        int first = id.getFirstByte();
+        int low = first == 0 ? 0 : index.getInt(8 + (first - 1) * 4);
+        int high = index.getInt(8 + first * 4) - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compareName(middle, id);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Add the names of the objects starting with an abbreviated name
+     *
+     * @param hexPrefix at least two hexadecimal digits
+     * @param matches   names found
+     */
+    void findByPrefix(String hexPrefix, Set<ObjectId> matches) {
+        int first = Integer.parseInt(hexPrefix.substring(0, 2), 16);
+        int start = first == 0 ? 0 : index.getInt(8 + (first - 1) * 4);
+        int end = index.getInt(8 + first * 4);
+        byte[] name = new byte[ObjectId.LENGTH];
+        for (int position = start; position < end; position++) {
+            for (int i = 0; i < name.length; i++) {
+                name[i] = index.get(NAMES + position * ObjectId.LENGTH + i);
+            }
+            ObjectId id = ObjectId.fromBytes(name, 0);
+            if (id.startsWith(hexPrefix)) {
+                matches.add(id);
+            }
+        }
+    }
+
+    /**
+     * Read an object of the pack
+     *
+     * @param position   position of the object in the index, see {@link #find(ObjectId)}
+     * @param repository repository the bases of the REF_DELTA objects are read from
+     * @return the object, deltas applied
+     */
+    GitObject read(int position, GitRepository repository) throws IOException {
+        long offset = index.getInt(offsets + position * 4) & 0xFFFFFFFFL;
+        if ((offset & 0x80000000L) != 0) {
+            offset = index.getLong(largeOffsets + (int) (offset & 0x7FFFFFFFL) * 8);
+        }
+        return read(offset, repository);
+    }
+
+    private GitObject read(long offset, GitRepository repository) throws IOException {
+        // Walk down the delta chain up to a whole object, then apply the deltas back up
+        Deque<byte[]> deltas = new ArrayDeque<byte[]>();
+        Deque<Long> deltaOffsets = new ArrayDeque<Long>();
+        GitObject base;
+        long position = offset;
+        while (true) {
+            base = getBase(position);
+            if (base != null) {
+                break;
+            }
+            byte[] header = new byte[32];
+            readFully(header, position);
+            int c = header[0] & 0xFF;
+            int type = (c >> 4) & 7;
+            long size = c & 0xF;
+            int shift = 4;
+            int length = 1;
+            while ((c & 0x80) != 0) {
+                c = header[length++] & 0xFF;
+                size |= (long) (c & 0x7F) << shift;
+                shift += 7;
+            }
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new IOException("Object too large at offset " + position + " of " + packPath);
+            }
+            if (type == OFS_DELTA) {
+                c = header[length++] & 0xFF;
+                long distance = c & 0x7F;
+                while ((c & 0x80) != 0) {
+                    c = header[length++] & 0xFF;
+                    distance = ((distance + 1) << 7) | (c & 0x7F);
+                }
+                deltas.push(inflate(position + length, (int) size));
+                deltaOffsets.push(position);
+                position -= distance;
+            } else if (type == REF_DELTA) {
+                ObjectId baseId = ObjectId.fromBytes(header, length);
+                deltas.push(inflate(position + length + ObjectId.LENGTH, (int) size));
+                deltaOffsets.push(position);
+                base = repository.read(baseId);
+                break;
+            } else if (type >= GitObject.COMMIT && type <= GitObject.TAG) {
+                base = new GitObject(type, inflate(position + length, (int) size));
+                if (!deltas.isEmpty()) {
+                    putBase(position, base);
+                }
+                break;
+            } else {
+                throw new IOException("Unknown object type " + type + " at offset " + position + " of " + packPath);
+            }
+        }
+
+        while (!deltas.isEmpty()) {
+            base = new GitObject(base.getType(), applyDelta(base.getData(), deltas.pop()));
+            long deltaOffset = deltaOffsets.pop();
+            if (!deltas.isEmpty()) {
+                putBase(deltaOffset, base);
+            }
+        }
+        return base;
+    }
+
+    private synchronized GitObject getBase(long offset) {
+        return bases.get(offset);
+    }
+
+    private synchronized void putBase(long offset, GitObject base) {
+        if (base.getData().length > BASE_CACHE_BYTES / 4 || bases.containsKey(offset)) {
+            return;
+        }
+        bases.put(offset, base);
+        cachedBytes += base.getData().length;
+        Iterator<GitObject> eldest = bases.values().iterator();
+        while (cachedBytes > BASE_CACHE_BYTES) {
+            cachedBytes -= eldest.next().getData().length;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Apply a delta : the target size then copy instructions from the base and insertions of literal bytes
+     */
+    private byte[] applyDelta(byte[] base, byte[] delta) throws IOException {
+        int[] position = {0};
+        long baseSize = readDeltaSize(delta, position);
+        long resultSize = readDeltaSize(delta, position);
+        if (baseSize != base.length || resultSize > Integer.MAX_VALUE - 8) {
+            throw new IOException("Delta not matching its base in " + packPath);
+        }
+        byte[] result = new byte[(int) resultSize];
+        int p = position[0];
+        int written = 0;
+        try {
+            while (p < delta.length) {
+                int op = delta[p++] & 0xFF;
+                if ((op & 0x80) != 0) {
+                    // Copy : the bits 0 to 3 flag the offset bytes, the bits 4 to 6 the size bytes
+                    long copyOffset = 0;
+                    int copySize = 0;
+                    for (int i = 0; i < 4; i++) {
+                        if ((op & (1 << i)) != 0) {
+                            copyOffset |= (long) (delta[p++] & 0xFF) << (8 * i);
+                        }
+                    }
+                    for (int i = 0; i < 3; i++) {
+                        if ((op & (0x10 << i)) != 0) {
+                            copySize |= (delta[p++] & 0xFF) << (8 * i);
+                        }
+                    }
+                    if (copySize == 0) {
+                        copySize = 0x10000;
+                    }
+                    System.arraycopy(base, (int) copyOffset, result, written, copySize);
+                    written += copySize;
+                } else if (op != 0) {
+                    // Insert : the op is the number of literal bytes
+                    System.arraycopy(delta, p, result, written, op);
+                    p += op;
+                    written += op;
+                } else {
+                    throw new IOException("Invalid delta instruction in " + packPath);
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Corrupt delta in " + packPath, e);
+        }
+        if (written != result.length) {
+            throw new IOException("Delta result size mismatch in " + packPath);
+        }
+        return result;
+    }
+
+    private static long readDeltaSize(byte[] delta, int[] position) {
+        long size = 0;
+        int shift = 0;
+        int c;
+        do {
+            c = delta[position[0]++] & 0xFF;
+            size |= (long) (c & 0x7F) << shift;
+            shift += 7;
+        } while ((c & 0x80) != 0);
+        return size;
+    }
+
+    /**
+     * Inflate the zlib stream starting at an offset of the pack
+     *
+     * @param offset start of the stream
+     * @param size   size of the inflated data
+     */
+    private byte[] inflate(long offset, int size) throws IOException {
+        byte[] result = new byte[size];
+        Inflater inflater = INFLATER.get();
+        byte[] chunk = CHUNK.get();
+        inflater.reset();
+        long position = offset;
+        int produced = 0;
+        try {
+            while (produced < size) {
+                if (inflater.needsInput()) {
+                    int read = pack.read(ByteBuffer.wrap(chunk), position);
+                    if (read <= 0) {
+                        throw new EOFException("Truncated pack :" + packPath);
+                    }
+                    position += read;
+                    inflater.setInput(chunk, 0, read);
+                }
+                int inflated = inflater.inflate(result, produced, size - produced);
+                produced += inflated;
+                if (inflated == 0 && (inflater.finished() || inflater.needsDictionary())) {
+                    throw new IOException("Object size mismatch at offset " + offset + " of " + packPath);
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt object at offset " + offset + " of " + packPath, e);
+        }
+        return result;
+    }
+
+    private void readFully(byte[] bytes, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            // The header of the last object may be shorter than the buffer, the pack ends with a checksum anyway
+            if (pack.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+    }
+
+    private int compareName(int position, ObjectId id) {
+        int start = NAMES + position * ObjectId.LENGTH;
+        for (int i = 0; i < ObjectId.LENGTH; i++) {
+            int comparison = (index.get(start + i) & 0xFF) - (id.getByte(i) & 0xFF);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        pack.close();
+    }
+
+    @Override
+    public String toString() {
+        return packPath.toString();
+    }
+}
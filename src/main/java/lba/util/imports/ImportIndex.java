@@ -0,0 +1,249 @@
+package lba.util.imports;
+
+import lba.util.dependency.SymbolTable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Inverted index of the imports at type level : for each imported type (or on demand import), the files importing
+ * it, as written in the import statements, the static imports counting as imports of the type declaring the member.
+ * <p>
+ * Type and file names are interned once in {@link SymbolTable}s, and each type keeps a posting list of file
+ * identifiers in a plain int array, instead of a set of names per type. The index is fed by the
+ * {@link lba.util.dependency.DependencyAnalyzer}s of all the workers, its updates are synchronized.
+ * <p>
+ * The index is persisted by {@link #write(Path)} in the format read in place by {@link ImportIndexFile}.
+ */
+public class ImportIndex {
+
+    private final SymbolTable types = new SymbolTable();
+
+    private final SymbolTable files = new SymbolTable();
+
+    /**
+     * Class declared by each file
+     */
+    private String[] fileClasses = new String[1024];
+
+    /**
+     * File identifiers of each type, in insertion order, the first {@link #postingSizes} entries only being used
+     */
+    private int[][] postings = new int[1024][];
+
+    private int[] postingSizes = new int[1024];
+
+    /**
+     * Add the imports of a file
+     *
+     * @param sourceName name of the file
+     * @param className  fully qualified name of the type declared by the file
+     * @param imports    imported types of the file
+     */
+    public synchronized void addFile(String sourceName, String className, Collection<String> imports) {
+        int file = files.intern(sourceName);
+        if (file >= fileClasses.length) {
+            fileClasses = Arrays.copyOf(fileClasses, Math.max(file + 1, fileClasses.length * 2));
+        }
+        fileClasses[file] = className;
+        for (String type : imports) {
+            int id = types.intern(type);
+            if (id >= postings.length) {
+                int length = Math.max(id + 1, postings.length * 2);
+                postings = Arrays.copyOf(postings, length);
+                postingSizes = Arrays.copyOf(postingSizes, length);
+            }
+            int[] posting = postings[id];
+            if (posting == null) {
+                posting = new int[2];
+            } else if (postingSizes[id] == posting.length) {
+                posting = Arrays.copyOf(posting, posting.length * 2);
+            }
+            posting[postingSizes[id]++] = file;
+            postings[id] = posting;
+        }
+    }
+
+    /**
+     * Remove the imports of a file previously added
+     *
+     * @param sourceName name of the file
+     * @param imports    imported types given when the file was added
+     */
+    public synchronized void removeFile(String sourceName, Collection<String> imports) {
+        int file = files.getId(sourceName);
+        if (file < 0) {
+            return;
+        }
+        for (String type : imports) {
+            int id = types.getId(type);
+            if (id < 0) {
+                continue;
+            }
+            int[] posting = postings[id];
+            for (int i = 0; i < postingSizes[id]; i++) {
+                if (posting[i] == file) {
+                    posting[i] = posting[--postingSizes[id]];
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param type fully qualified type name, or on demand import ("a.b.*")
+     * @return the files importing the type, sorted by class name
+     */
+    public synchronized List<Importer> getImporters(String type) {
+        SortedSet<Importer> importers = new TreeSet<Importer>();
+        int id = types.getId(type);
+        if (id >= 0) {
+            for (int i = 0; i < postingSizes[id]; i++) {
+                int file = postings[id][i];
+                importers.add(new Importer(fileClasses[file], files.getName(file)));
+            }
+        }
+        return new ArrayList<Importer>(importers);
+    }
+
+    /**
+     * Write the index, see {@link ImportIndexFile} for the layout. The file is written next to the target then moved,
+     * so that a reader never maps a partial index.
+     *
+     * @param file index file
+     */
+    public synchronized void write(Path file) throws IOException {
+        // Imported types sorted by name, and importing files numbered in class name order
+        SortedMap<String, Integer> sortedTypes = new TreeMap<String, Integer>();
+        for (int id = 0; id < types.size(); id++) {
+            if (postingSizes[id] > 0) {
+                sortedTypes.put(types.getName(id), id);
+            }
+        }
+        boolean[] used = new boolean[files.size()];
+        for (int id : sortedTypes.values()) {
+            for (int i = 0; i < postingSizes[id]; i++) {
+                used[postings[id][i]] = true;
+            }
+        }
+        List<Integer> sortedFiles = new ArrayList<Integer>();
+        for (int id = 0; id < used.length; id++) {
+            if (used[id]) {
+                sortedFiles.add(id);
+            }
+        }
+        Collections.sort(sortedFiles, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                int result = fileClasses[a].compareTo(fileClasses[b]);
+                return result != 0 ? result : files.getName(a).compareTo(files.getName(b));
+            }
+        });
+        int[] numbers = new int[files.size()];
+        for (int number = 0; number < sortedFiles.size(); number++) {
+            numbers[sortedFiles.get(number)] = number;
+        }
+
+        ByteArrayOutputStream postingBytes = new ByteArrayOutputStream();
+        ByteArrayOutputStream typeNames = new ByteArrayOutputStream();
+        int[] postingOffsets = new int[sortedTypes.size() + 1];
+        int[] typeNameOffsets = new int[sortedTypes.size() + 1];
+        int index = 0;
+        for (Map.Entry<String, Integer> entry : sortedTypes.entrySet()) {
+            postingOffsets[index] = postingBytes.size();
+            typeNameOffsets[index] = typeNames.size();
+            int id = entry.getValue();
+            int[] posting = new int[postingSizes[id]];
+            for (int i = 0; i < posting.length; i++) {
+                posting[i] = numbers[postings[id][i]];
+            }
+            Arrays.sort(posting);
+            int previous = 0;
+            for (int i = 0; i < posting.length; i++) {
+                if (i == 0 || posting[i] != previous) {
+                    writeVarInt(postingBytes, posting[i] - previous);
+                    previous = posting[i];
+                }
+            }
+            byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            typeNames.write(name, 0, name.length);
+            index++;
+        }
+        postingOffsets[index] = postingBytes.size();
+        typeNameOffsets[index] = typeNames.size();
+
+        ByteArrayOutputStream fileNames = new ByteArrayOutputStream();
+        int[] classNameOffsets = new int[sortedFiles.size() + 1];
+        int[] sourceNameOffsets = new int[sortedFiles.size() + 1];
+        // Class names first, then source names, so that each kind of name has contiguous offsets
+        for (int number = 0; number < sortedFiles.size(); number++) {
+            classNameOffsets[number] = fileNames.size();
+            byte[] name = fileClasses[sortedFiles.get(number)].getBytes(StandardCharsets.UTF_8);
+            fileNames.write(name, 0, name.length);
+        }
+        classNameOffsets[sortedFiles.size()] = fileNames.size();
+        for (int number = 0; number < sortedFiles.size(); number++) {
+            sourceNameOffsets[number] = fileNames.size();
+            byte[] name = files.getName(sortedFiles.get(number)).getBytes(StandardCharsets.UTF_8);
+            fileNames.write(name, 0, name.length);
+        }
+        sourceNameOffsets[sortedFiles.size()] = fileNames.size();
+
+        ByteBuffer header = ByteBuffer.allocate(ImportIndexFile.HEADER_SIZE
+                + (postingOffsets.length + typeNameOffsets.length + classNameOffsets.length + sourceNameOffsets.length) * 4);
+        header.putInt(ImportIndexFile.MAGIC).putInt(ImportIndexFile.VERSION)
+                .putInt(sortedTypes.size()).putInt(sortedFiles.size())
+                .putInt(postingBytes.size()).putInt(typeNames.size()).putInt(fileNames.size());
+        header.asIntBuffer().put(postingOffsets).put(typeNameOffsets).put(classNameOffsets).put(sourceNameOffsets);
+        header.rewind();
+
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer[] buffers = {header, ByteBuffer.wrap(postingBytes.toByteArray()),
+                    ByteBuffer.wrap(typeNames.toByteArray()), ByteBuffer.wrap(fileNames.toByteArray())};
+            long remaining = 0;
+            for (ByteBuffer buffer : buffers) {
+                remaining += buffer.remaining();
+            }
+            while (remaining > 0) {
+                remaining -= channel.write(buffers);
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            out.write((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        out.write(remaining);
+    }
+
+    /**
+     * @return number of imported types
+     */
+    public synchronized int getTypeCount() {
+        int count = 0;
+        for (int id = 0; id < types.size(); id++) {
+            if (postingSizes[id] > 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
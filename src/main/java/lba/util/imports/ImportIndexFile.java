@@ -0,0 +1,170 @@
+package lba.util.imports;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Inverted import index written by {@link ImportIndex#write(Path)}, memory mapped and queried in place : a lookup
+ * is a binary search over the sorted type names followed by the decoding of a single posting list, nothing else is
+ * read from the file.
+ * <p>
+ * File layout, all the integers being big endian :
+ * <pre>
+ * header       : magic, version, type count, file count, postings size, type names size, file names size
+ * offsets      : posting list start of each type, plus the end of the last list (type count + 1 ints)
+ *                type name start of each type, plus the end (type count + 1 ints)
+ *                class name start of each file, plus the end (file count + 1 ints)
+ *                source name start of each file, plus the end (file count + 1 ints)
+ * postings     : file numbers of each type, ascending, delta encoded as variable length integers
+ * type names   : UTF-8 type names, sorted
+ * file names   : UTF-8 class and source names of the files, sorted by class name
+ * </pre>
+ */
+public class ImportIndexFile {
+
+    /**
+     * Index file magic number
+     */
+    static final int MAGIC = 0x53414949;
+
+    /**
+     * Index file format version
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Size of the header, in bytes
+     */
+    static final int HEADER_SIZE = 7 * 4;
+
+    private final ByteBuffer buffer;
+
+    private final int typeCount;
+
+    private final int fileCount;
+
+    private final int postingOffsets;
+
+    private final int typeNameOffsets;
+
+    private final int classNameOffsets;
+
+    private final int sourceNameOffsets;
+
+    private final int postings;
+
+    private final int typeNames;
+
+    private final int fileNames;
+
+    private ImportIndexFile(ByteBuffer buffer, Path file) throws IOException {
+        this.buffer = buffer;
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not an import index file, or incompatible version :" + file);
+        }
+        typeCount = buffer.getInt(8);
+        fileCount = buffer.getInt(12);
+        postingOffsets = HEADER_SIZE;
+        typeNameOffsets = postingOffsets + (typeCount + 1) * 4;
+        classNameOffsets = typeNameOffsets + (typeCount + 1) * 4;
+        sourceNameOffsets = classNameOffsets + (fileCount + 1) * 4;
+        postings = sourceNameOffsets + (fileCount + 1) * 4;
+        typeNames = postings + buffer.getInt(16);
+        fileNames = typeNames + buffer.getInt(20);
+        if (fileNames + buffer.getInt(24) != buffer.limit()) {
+            throw new IOException("Truncated import index file :" + file);
+        }
+    }
+
+    /**
+     * Map an index file
+     *
+     * @param file file written by {@link ImportIndex#write(Path)}
+     * @return the mapped index
+     */
+    public static ImportIndexFile open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid once the channel is closed
+            return new ImportIndexFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), file);
+        }
+    }
+
+    /**
+     * @param type fully qualified type name, or on demand import ("a.b.*") as written in the sources
+     * @return the files importing the type, sorted by class name, empty if none
+     */
+    public List<Importer> getImporters(String type) {
+        List<Importer> importers = new ArrayList<>();
+        int index = find(type);
+        if (index < 0) {
+            return importers;
+        }
+        int position = postings + buffer.getInt(postingOffsets + index * 4);
+        int end = postings + buffer.getInt(postingOffsets + (index + 1) * 4);
+        int file = 0;
+        while (position < end) {
+            // Variable length integer, 7 bits per byte, low order groups first
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get(position++);
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            file += delta;
+            importers.add(new Importer(getString(fileNames, classNameOffsets, file),
+                    getString(fileNames, sourceNameOffsets, file)));
+        }
+        return importers;
+    }
+
+    /**
+     * @return the index of the type, a negative value if the type is not imported
+     */
+    private int find(String type) {
+        int low = 0;
+        int high = typeCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = getString(typeNames, typeNameOffsets, middle).compareTo(type);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private String getString(int data, int offsets, int index) {
+        int start = buffer.getInt(offsets + index * 4);
+        byte[] bytes = new byte[buffer.getInt(offsets + (index + 1) * 4) - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(data + start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return number of imported types
+     */
+    public int getTypeCount() {
+        return typeCount;
+    }
+
+    /**
+     * @return number of importing files
+     */
+    public int getFileCount() {
+        return fileCount;
+    }
+}
@@ -0,0 +1,60 @@
+package lba.util.imports;
+
+/**
+ * File importing a type
+ */
+public class Importer implements Comparable<Importer> {
+
+    /**
+     * Fully qualified name of the type declared by the file
+     */
+    private final String className;
+
+    /**
+     * Name of the file, its path or the URI of an archive entry
+     */
+    private final String sourceName;
+
+    /**
+     * Constructor
+     *
+     * @param className  fully qualified name of the type declared by the file
+     * @param sourceName name of the file
+     */
+    public Importer(String className, String sourceName) {
+        this.className = className;
+        this.sourceName = sourceName;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public String getSourceName() {
+        return sourceName;
+    }
+
+    /**
+     * Importers are sorted by class name, then file name
+     */
+    @Override
+    public int compareTo(Importer other) {
+        int result = className.compareTo(other.className);
+        return result != 0 ? result : sourceName.compareTo(other.sourceName);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Importer && compareTo((Importer) o) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return className.hashCode() * 31 + sourceName.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return className + " (" + sourceName + ")";
+    }
+}
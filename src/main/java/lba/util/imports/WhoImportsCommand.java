@@ -0,0 +1,98 @@
+package lba.util.imports;
+
+import lba.util.dependency.PackageGraph;
+import lba.util.report.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Answer a --whoImports query from an import index : the files importing each type directly, through the on demand
+ * import of its package, or through the import of an enclosing type
+ */
+public class WhoImportsCommand {
+
+    private final Path indexFile;
+
+    private final List<String> types;
+
+    private final boolean json;
+
+    /**
+     * Constructor
+     *
+     * @param indexFile import index written by a previous run
+     * @param types     fully qualified names of the imported types
+     * @param json      whether the answer is written in JSON rather than in text
+     */
+    public WhoImportsCommand(Path indexFile, List<String> types, boolean json) {
+        this.indexFile = indexFile;
+        this.types = types;
+        this.json = json;
+    }
+
+    /**
+     * Write the files importing each type
+     *
+     * @param out writer of the answer, flushed once written
+     */
+    public void run(Writer out) throws IOException {
+        ImportIndexFile index = ImportIndexFile.open(indexFile);
+
+        JsonWriter jsonWriter = json ? new JsonWriter(out) : null;
+        if (json) {
+            jsonWriter.beginObject().name("types").beginArray();
+        }
+        for (String type : types) {
+            type = type.trim();
+            if (type.isEmpty()) {
+                continue;
+            }
+            // Import statements the type may be imported by, the type itself first
+            List<String> imports = new ArrayList<>();
+            imports.add(type);
+            if (!type.endsWith(".*")) {
+                String pkg = PackageGraph.getPackageOf(type);
+                for (int dot = type.lastIndexOf('.'); dot > pkg.length(); dot = type.lastIndexOf('.', dot - 1)) {
+                    imports.add(type.substring(0, dot));
+                    imports.add(type.substring(0, dot) + ".*");
+                }
+                imports.add(pkg + ".*");
+            }
+
+            if (json) {
+                jsonWriter.beginObject().member("type", type).name("importers").beginArray();
+            } else {
+                out.write(type + " :\n");
+            }
+            int count = 0;
+            for (String imported : imports) {
+                for (Importer importer : index.getImporters(imported)) {
+                    count++;
+                    if (json) {
+                        jsonWriter.beginObject()
+                                .member("class", importer.getClassName())
+                                .member("file", importer.getSourceName())
+                                .member("import", imported)
+                                .endObject();
+                    } else {
+                        out.write("  " + importer + (imported.equals(type) ? "" : " via " + imported) + "\n");
+                    }
+                }
+            }
+            if (json) {
+                jsonWriter.endArray().member("importerNumber", count).endObject();
+            } else {
+                out.write("\n Total number of importing files :" + count + "\n\n");
+            }
+        }
+        if (json) {
+            jsonWriter.endArray().endObject();
+            out.write('\n');
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,126 @@
+package lba.util.lexer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Header of a Java compilation unit, built from the tokens of a {@link JavaHeaderLexer}
+ */
+public class JavaHeader {
+
+    /**
+     * Declared package, null for the default package
+     */
+    private String packageName;
+
+    /**
+     * Single-type and on-demand imports, as written (on-demand imports end with ".*")
+     */
+    private final List<String> imports = new ArrayList<>();
+
+    /**
+     * Static imports, as written
+     */
+    private final List<String> staticImports = new ArrayList<>();
+
+    /**
+     * Annotations of the declared type
+     */
+    private final List<String> annotations = new ArrayList<>();
+
+    /**
+     * Kind of the declared type ("class", "interface", "enum", "record" or "@interface"), null if none was found
+     */
+    private String typeKind;
+
+    /**
+     * Simple name of the declared type
+     */
+    private String typeName;
+
+    /**
+     * Modifier flags of the declared type, see {@link JavaHeaderLexer}
+     */
+    private int typeModifiers;
+
+    /**
+     * Consume the tokens of the lexer up to the first type declaration
+     *
+     * @param lexer lexer positioned at the beginning of a compilation unit
+     * @return the header
+     */
+    public static JavaHeader parse(JavaHeaderLexer lexer) throws IOException {
+        JavaHeader header = new JavaHeader();
+        JavaHeaderLexer.TokenType token;
+        while ((token = lexer.next()) != JavaHeaderLexer.TokenType.END) {
+            switch (token) {
+                case PACKAGE:
+                    header.packageName = lexer.getName();
+                    header.annotations.clear();
+                    break;
+                case IMPORT:
+                    if (lexer.isStaticImport()) {
+                        header.staticImports.add(lexer.getName());
+                    } else {
+                        header.imports.add(lexer.getName());
+                    }
+                    header.annotations.clear();
+                    break;
+                case ANNOTATION:
+                    header.annotations.add(lexer.getName());
+                    break;
+                case TYPE_DECLARATION:
+                    header.typeKind = lexer.getTypeKind();
+                    header.typeName = lexer.getName();
+                    header.typeModifiers = lexer.getModifiers();
+                    break;
+                default:
+                    break;
+            }
+        }
+        return header;
+    }
+
+    /**
+     * @return true if a type declaration has been found
+     */
+    public boolean hasType() {
+        return typeKind != null;
+    }
+
+    /**
+     * @return true if the declared type is public
+     */
+    public boolean isPublicType() {
+        return (typeModifiers & JavaHeaderLexer.PUBLIC) != 0;
+    }
+
+    public String getPackageName() {
+        return packageName;
+    }
+
+    public List<String> getImports() {
+        return imports;
+    }
+
+    public List<String> getStaticImports() {
+        return staticImports;
+    }
+
+    public List<String> getAnnotations() {
+        return annotations;
+    }
+
+    public String getTypeKind() {
+        return typeKind;
+    }
+
+    public String getTypeName() {
+        return typeName;
+    }
+
+    public int getTypeModifiers() {
+        return typeModifiers;
+    }
+}
@@ -0,0 +1,550 @@
+package lba.util.lexer;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+
+/**
+ * Lexer of the header of a Java compilation unit : it emits the package declaration, the import declarations, the
+ * annotations and the first type declaration, then stops.
+ * <p>
+ * Comments, string, text block and character literals are skipped, so a "class" keyword inside a Javadoc comment or
+ * a literal is never taken for a type declaration. The characters are pulled chunk by chunk from a {@link CharSource},
+ * so the lexer never needs more than the header of the file to be decoded.
+ * <p>
+ * Once the header is read, {@link #nextType()} goes on with the following type declarations of the file, such as the
+ * first public type of a file whose first type is not public.
+ * <p>
+ * A lexer is not thread safe but can be reused for several files with {@link #reset(CharSource)}, it does not allocate
+ * anything except the names returned by {@link #getName()}.
+ */
+public class JavaHeaderLexer {
+
+    /**
+     * Token types
+     */
+    public enum TokenType {
+        PACKAGE, IMPORT, ANNOTATION, TYPE_DECLARATION, END
+    }
+
+    /**
+     * Source of the characters to analyze
+     */
+    public interface CharSource {
+
+        /**
+         * @return the next chunk of characters, or null at the end of the content
+         */
+        CharBuffer read() throws IOException;
+    }
+
+    /**
+     * Modifier flags of the type declaration
+     */
+    public static final int PUBLIC = 1;
+    public static final int PROTECTED = 1 << 1;
+    public static final int PRIVATE = 1 << 2;
+    public static final int ABSTRACT = 1 << 3;
+    public static final int FINAL = 1 << 4;
+    public static final int STATIC = 1 << 5;
+    public static final int STRICTFP = 1 << 6;
+    public static final int SEALED = 1 << 7;
+    public static final int NON_SEALED = 1 << 8;
+
+    private static final int NONE = -2;
+
+    private CharSource source;
+
+    private CharBuffer buffer;
+
+    /**
+     * Character pushed back, NONE if there is none
+     */
+    private int pushback = NONE;
+
+    /**
+     * Whether the type declaration has been emitted
+     */
+    private boolean done;
+
+    /**
+     * Name of the current token
+     */
+    private final StringBuilder name = new StringBuilder(128);
+
+    /**
+     * Current keyword or identifier
+     */
+    private final StringBuilder word = new StringBuilder(32);
+
+    private boolean staticImport;
+
+    private boolean wildcardImport;
+
+    private int modifiers;
+
+    private String typeKind;
+
+    /**
+     * Constructor, {@link #reset(CharSource)} must be called before reading any token
+     */
+    public JavaHeaderLexer() {
+    }
+
+    /**
+     * Constructor
+     *
+     * @param source source of the characters to analyze
+     */
+    public JavaHeaderLexer(CharSource source) {
+        reset(source);
+    }
+
+    /**
+     * Prepare the lexer for a new content
+     *
+     * @param source source of the characters to analyze
+     */
+    public void reset(CharSource source) {
+        this.source = source;
+        this.buffer = null;
+        this.pushback = NONE;
+        this.done = false;
+        this.name.setLength(0);
+        this.modifiers = 0;
+        this.typeKind = null;
+    }
+
+    /**
+     * Read the next token, the details of the token are then given by the getters
+     *
+     * @return the token type, END at the end of the content or once the type declaration has been emitted
+     */
+    public TokenType next() throws IOException {
+        if (done) {
+            return TokenType.END;
+        }
+
+        while (true) {
+            int c = nextSignificant();
+            if (c < 0) {
+                done = true;
+                return TokenType.END;
+            }
+
+            if (c == '@') {
+                c = nextSignificant();
+                if (!Character.isJavaIdentifierStart(c)) {
+                    unread(c);
+                    continue;
+                }
+                c = readQualifiedName(c);
+                if (equals(name, "interface")) {
+                    // Annotation type declaration
+                    return readTypeDeclaration("@interface", c);
+                }
+                if (c == '(') {
+                    skipParenthesized();
+                } else {
+                    unread(c);
+                }
+                return TokenType.ANNOTATION;
+            }
+
+            if (Character.isJavaIdentifierStart(c)) {
+                c = readWord(c);
+
+                if (equals(word, "package")) {
+                    c = readQualifiedName(nextSignificant(c));
+                    skipStatement(c);
+                    modifiers = 0;
+                    return TokenType.PACKAGE;
+                }
+
+                if (equals(word, "import")) {
+                    c = readQualifiedName(nextSignificant(c));
+                    staticImport = false;
+                    if (equals(name, "static") && Character.isJavaIdentifierStart(c)) {
+                        staticImport = true;
+                        c = readQualifiedName(c);
+                    }
+                    wildcardImport = name.length() > 0 && name.charAt(name.length() - 1) == '*';
+                    skipStatement(c);
+                    modifiers = 0;
+                    return TokenType.IMPORT;
+                }
+
+                String kind = getTypeKind(word);
+                if (kind != null) {
+                    return readTypeDeclaration(kind, c);
+                }
+
+                if (equals(word, "non") && c == '-') {
+                    c = nextSignificant();
+                    if (Character.isJavaIdentifierStart(c)) {
+                        c = readWord(c);
+                        if (equals(word, "sealed")) {
+                            modifiers |= NON_SEALED;
+                        }
+                    }
+                    unread(c);
+                    continue;
+                }
+
+                modifiers |= getModifier(word);
+                unread(c);
+                continue;
+            }
+
+            if (c == '"' || c == '\'') {
+                skipLiteral(c);
+            }
+            // Any other character is meaningless for the header
+        }
+    }
+
+    /**
+     * Read the next type declaration of the file, top level, nested or local, after the one emitted by
+     * {@link #next()} or by a previous call. The details of the declaration are then given by {@link #getName()},
+     * {@link #getTypeKind()} and {@link #getModifiers()}.
+     *
+     * @return TYPE_DECLARATION, or END at the end of the content
+     */
+    public TokenType nextType() throws IOException {
+        modifiers = 0;
+        boolean afterDot = false;
+        while (true) {
+            int c = nextSignificant();
+            if (c < 0) {
+                return TokenType.END;
+            }
+
+            if (c == '@') {
+                c = nextSignificant();
+                if (!Character.isJavaIdentifierStart(c)) {
+                    unread(c);
+                    continue;
+                }
+                c = readQualifiedName(c);
+                if (equals(name, "interface")) {
+                    return readTypeDeclaration("@interface", c);
+                }
+                // The annotations of a declaration are between its modifiers
+                if (c == '(') {
+                    skipParenthesized();
+                } else {
+                    unread(c);
+                }
+                continue;
+            }
+
+            if (Character.isJavaIdentifierStart(c)) {
+                c = readWord(c);
+                String kind = afterDot ? null : getTypeKind(word);
+                afterDot = false;
+                if (kind != null) {
+                    readTypeDeclaration(kind, c);
+                    if (name.length() > 0 && !equals(name, "instanceof")) {
+                        return TokenType.TYPE_DECLARATION;
+                    }
+                    // A class literal or a variable named record
+                    modifiers = 0;
+                    continue;
+                }
+                int modifier = getModifier(word);
+                modifiers = modifier != 0 ? modifiers | modifier : 0;
+                unread(c);
+                continue;
+            }
+
+            if (c == '"' || c == '\'') {
+                skipLiteral(c);
+            }
+            afterDot = c == '.';
+            modifiers = 0;
+        }
+    }
+
+    /**
+     * @return the qualified name of the current package, import or annotation, or the simple name of the declared type
+     */
+    public String getName() {
+        return name.toString();
+    }
+
+    /**
+     * @return true if the current import is a static import
+     */
+    public boolean isStaticImport() {
+        return staticImport;
+    }
+
+    /**
+     * @return true if the current import is an on-demand import (ending with ".*")
+     */
+    public boolean isWildcardImport() {
+        return wildcardImport;
+    }
+
+    /**
+     * @return modifier flags of the declared type
+     */
+    public int getModifiers() {
+        return modifiers;
+    }
+
+    /**
+     * @return kind of the declared type : "class", "interface", "enum", "record" or "@interface"
+     */
+    public String getTypeKind() {
+        return typeKind;
+    }
+
+    private TokenType readTypeDeclaration(String kind, int c) throws IOException {
+        typeKind = kind;
+        c = nextSignificant(c);
+        name.setLength(0);
+        while (c >= 0 && Character.isJavaIdentifierPart(c)) {
+            name.append((char) c);
+            c = read();
+        }
+        done = true;
+        return TokenType.TYPE_DECLARATION;
+    }
+
+    private static String getTypeKind(CharSequence word) {
+        if (equals(word, "class")) {
+            return "class";
+        } else if (equals(word, "interface")) {
+            return "interface";
+        } else if (equals(word, "enum")) {
+            return "enum";
+        } else if (equals(word, "record")) {
+            return "record";
+        }
+        return null;
+    }
+
+    private static int getModifier(CharSequence word) {
+        if (equals(word, "public")) {
+            return PUBLIC;
+        } else if (equals(word, "protected")) {
+            return PROTECTED;
+        } else if (equals(word, "private")) {
+            return PRIVATE;
+        } else if (equals(word, "abstract")) {
+            return ABSTRACT;
+        } else if (equals(word, "final")) {
+            return FINAL;
+        } else if (equals(word, "static")) {
+            return STATIC;
+        } else if (equals(word, "strictfp")) {
+            return STRICTFP;
+        } else if (equals(word, "sealed")) {
+            return SEALED;
+        }
+        return 0;
+    }
+
+    /**
+     * Read an identifier into word
+     *
+     * @return the character following the identifier
+     */
+    private int readWord(int c) throws IOException {
+        word.setLength(0);
+        while (c >= 0 && Character.isJavaIdentifierPart(c)) {
+            word.append((char) c);
+            c = read();
+        }
+        return c;
+    }
+
+    /**
+     * Read a qualified name, possibly ending with ".*", into name. Comments and whitespaces are allowed between the
+     * name parts.
+     *
+     * @param c first character of the name
+     * @return the first significant character following the name
+     */
+    private int readQualifiedName(int c) throws IOException {
+        name.setLength(0);
+        while (true) {
+            if (c == '*') {
+                name.append('*');
+                return nextSignificant();
+            }
+            if (!Character.isJavaIdentifierStart(c)) {
+                return c;
+            }
+            while (c >= 0 && Character.isJavaIdentifierPart(c)) {
+                name.append((char) c);
+                c = read();
+            }
+            c = nextSignificant(c);
+            if (c != '.') {
+                return c;
+            }
+            name.append('.');
+            c = nextSignificant();
+        }
+    }
+
+    /**
+     * Skip the end of a package or import statement
+     */
+    private void skipStatement(int c) throws IOException {
+        while (c >= 0 && c != ';') {
+            c = nextSignificant();
+        }
+    }
+
+    /**
+     * Skip the arguments of an annotation, the opening parenthesis being already read
+     */
+    private void skipParenthesized() throws IOException {
+        int depth = 1;
+        while (depth > 0) {
+            int c = nextSignificant();
+            if (c < 0) {
+                return;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '"' || c == '\'') {
+                skipLiteral(c);
+            }
+        }
+    }
+
+    /**
+     * Skip a string, text block or character literal, the opening quote being already read
+     */
+    private void skipLiteral(int quote) throws IOException {
+        if (quote == '"') {
+            int c = read();
+            if (c == '"') {
+                c = read();
+                if (c != '"') {
+                    // Empty string
+                    unread(c);
+                    return;
+                }
+                skipTextBlock();
+                return;
+            }
+            unread(c);
+        }
+
+        while (true) {
+            int c = read();
+            if (c < 0 || c == quote || c == '\n' || c == '\r') {
+                return;
+            }
+            if (c == '\\') {
+                read();
+            }
+        }
+    }
+
+    /**
+     * Skip a text block, the opening delimiter being already read
+     */
+    private void skipTextBlock() throws IOException {
+        int quotes = 0;
+        while (true) {
+            int c = read();
+            if (c < 0) {
+                return;
+            }
+            if (c == '"') {
+                if (++quotes == 3) {
+                    return;
+                }
+            } else {
+                quotes = 0;
+                if (c == '\\') {
+                    read();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the next character which is neither a whitespace nor part of a comment, -1 at the end of the content
+     */
+    private int nextSignificant() throws IOException {
+        return nextSignificant(read());
+    }
+
+    /**
+     * @param c current character
+     * @return c if it is significant, otherwise the next character which is neither a whitespace nor part of a comment
+     */
+    private int nextSignificant(int c) throws IOException {
+        while (true) {
+            if (c < 0) {
+                return c;
+            }
+            if (c == '/') {
+                int n = read();
+                if (n == '/') {
+                    do {
+                        c = read();
+                    } while (c >= 0 && c != '\n' && c != '\r');
+                    continue;
+                } else if (n == '*') {
+                    int previous = 0;
+                    c = read();
+                    while (c >= 0 && !(previous == '*' && c == '/')) {
+                        previous = c;
+                        c = read();
+                    }
+                    c = read();
+                    continue;
+                }
+                unread(n);
+                return c;
+            }
+            if (!Character.isWhitespace(c) && c != '\uFEFF') {
+                return c;
+            }
+            c = read();
+        }
+    }
+
+    private int read() throws IOException {
+        if (pushback != NONE) {
+            int c = pushback;
+            pushback = NONE;
+            return c;
+        }
+        while (buffer == null || !buffer.hasRemaining()) {
+            if (source == null) {
+                return -1;
+            }
+            buffer = source.read();
+            if (buffer == null) {
+                source = null;
+                return -1;
+            }
+        }
+        return buffer.get();
+    }
+
+    private void unread(int c) {
+        pushback = c;
+    }
+
+    private static boolean equals(CharSequence sequence, String value) {
+        if (sequence.length() != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (sequence.charAt(i) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,158 @@
+package lba.util.lexer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Aho-Corasick automaton finding several keywords at once in a byte stream : every byte is consumed by a single
+ * table lookup, whatever the number of keywords, so a whole file is scanned in one linear pass.
+ * <p>
+ * The failure links are resolved at construction into a complete transition table of 256 entries per state. The
+ * automaton is immutable and may be shared by all the threads, the caller keeps the current state :
+ * <pre>
+ * int state = 0;
+ * for (each byte b) {
+ *     state = scanner.next(state, b);
+ *     for (int match = scanner.getMatch(state); match != 0; match = scanner.getNextMatch(match)) {
+ *         keyword scanner.getKeyword(match) ends at the current byte
+ *     }
+ * }
+ * </pre>
+ */
+public class KeywordScanner {
+
+    /**
+     * Keywords, encoded as ASCII
+     */
+    private final byte[][] keywords;
+
+    /**
+     * Transitions : next state of each state and byte, at index state * 256 + byte
+     */
+    private final int[] transitions;
+
+    /**
+     * Keyword ending at each state, -1 if none
+     */
+    private final int[] outputs;
+
+    /**
+     * Nearest state on the failure chain of each state having an output, 0 if none
+     */
+    private final int[] outputLinks;
+
+    /**
+     * Constructor
+     *
+     * @param keywords keywords to find, ASCII only
+     */
+    public KeywordScanner(List<String> keywords) {
+        this.keywords = new byte[keywords.size()][];
+
+        // Trie of the keywords
+        List<int[]> trie = new ArrayList<>();
+        List<Integer> terminal = new ArrayList<>();
+        trie.add(newNode());
+        terminal.add(-1);
+        for (int k = 0; k < keywords.size(); k++) {
+            byte[] keyword = keywords.get(k).getBytes(StandardCharsets.US_ASCII);
+            this.keywords[k] = keyword;
+            int state = 0;
+            for (byte b : keyword) {
+                int c = b & 0xFF;
+                if (trie.get(state)[c] < 0) {
+                    trie.get(state)[c] = trie.size();
+                    trie.add(newNode());
+                    terminal.add(-1);
+                }
+                state = trie.get(state)[c];
+            }
+            terminal.set(state, k);
+        }
+
+        int count = trie.size();
+        transitions = new int[count * 256];
+        outputs = new int[count];
+        outputLinks = new int[count];
+        int[] failures = new int[count];
+        for (int state = 0; state < count; state++) {
+            outputs[state] = terminal.get(state);
+        }
+
+        // Breadth first resolution of the failure links, a state being resolved after all the shorter ones
+        int[] queue = new int[count];
+        int head = 0;
+        int tail = 0;
+        for (int c = 0; c < 256; c++) {
+            int child = trie.get(0)[c];
+            if (child > 0) {
+                transitions[c] = child;
+                queue[tail++] = child;
+            }
+        }
+        while (head < tail) {
+            int state = queue[head++];
+            int failure = failures[state];
+            outputLinks[state] = outputs[failure] >= 0 ? failure : outputLinks[failure];
+            for (int c = 0; c < 256; c++) {
+                int child = trie.get(state)[c];
+                if (child > 0) {
+                    failures[child] = transitions[failure * 256 + c];
+                    transitions[state * 256 + c] = child;
+                    queue[tail++] = child;
+                } else {
+                    transitions[state * 256 + c] = transitions[failure * 256 + c];
+                }
+            }
+        }
+    }
+
+    private static int[] newNode() {
+        int[] node = new int[256];
+        Arrays.fill(node, -1);
+        return node;
+    }
+
+    /**
+     * @param state current state, 0 at the beginning of the stream
+     * @param b     next byte
+     * @return the next state
+     */
+    public int next(int state, byte b) {
+        return transitions[(state << 8) | (b & 0xFF)];
+    }
+
+    /**
+     * @param state current state
+     * @return the first state whose keyword ends at the current byte, 0 if no keyword ends there
+     */
+    public int getMatch(int state) {
+        return outputs[state] >= 0 ? state : outputLinks[state];
+    }
+
+    /**
+     * @param match state returned by {@link #getMatch(int)} or by this method
+     * @return the next state whose (shorter) keyword ends at the current byte, 0 if none
+     */
+    public int getNextMatch(int match) {
+        return outputLinks[match];
+    }
+
+    /**
+     * @param match state returned by {@link #getMatch(int)} or {@link #getNextMatch(int)}
+     * @return index of the keyword matched
+     */
+    public int getKeyword(int match) {
+        return outputs[match];
+    }
+
+    /**
+     * @param keyword index of a keyword
+     * @return length of the keyword in bytes
+     */
+    public int getLength(int keyword) {
+        return keywords[keyword].length;
+    }
+}
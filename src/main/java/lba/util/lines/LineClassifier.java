@@ -0,0 +1,244 @@
+package lba.util.lines;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Byte level line counter : the lines are counted and classified as code, comment or blank lines by a small state
+ * machine running over the raw content, without decoding it.
+ * <p>
+ * Lines are split the same way as {@link java.io.BufferedReader#readLine()} does : on '\n', '\r' or "\r\n", a trailing
+ * line terminator does not start a new line. A line holding code and a comment is a code line, a line holding only
+ * white spaces is a blank line, even inside a block comment. String, character and text block literals are followed
+ * so that comment delimiters inside them are ignored.
+ * <p>
+ * The package declaration is recognized on the way, so that the lines can be summed per package without lexing the
+ * header of the file. The byte level scan requires an ASCII compatible charset (UTF-8, ISO-8859-x, windows-125x...),
+ * other charsets are decoded and encoded again as UTF-8 first.
+ */
+public class LineClassifier {
+
+    /**
+     * States of the scanner
+     */
+    private static final int CODE = 0;
+    private static final int LINE_COMMENT = 1;
+    private static final int BLOCK_COMMENT = 2;
+    private static final int STRING = 3;
+    private static final int CHARACTER = 4;
+    private static final int TEXT_BLOCK = 5;
+
+    /**
+     * States of the package declaration recognition
+     */
+    private static final int FIRST_TOKEN = 0;
+    private static final int PACKAGE_NAME = 1;
+    private static final int DONE = 2;
+
+    private static final byte[] PACKAGE = "package".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Bytes of the characters the scanner looks for
+     */
+    private static final String ASCII_SAMPLE = "\n\r\t\f /*\"'\\;.$_packgeAZaz09";
+
+    /**
+     * Package of the last classified content, null if it has no package declaration
+     */
+    private String packageName;
+
+    /**
+     * Count and classify the lines of a content
+     *
+     * @param content raw content, read from its position to its limit, the buffer position is left unchanged
+     * @param charset charset of the content
+     * @return the line counts of the content, for a single file
+     */
+    public LineCounts classify(ByteBuffer content, Charset charset) {
+        if (!isAsciiCompatible(charset)) {
+            // Malformed input is replaced rather than rejected, the lines are counted anyway
+            return classify(StandardCharsets.UTF_8.encode(charset.decode(content.duplicate())), StandardCharsets.UTF_8);
+        }
+
+        long code = 0L;
+        long comment = 0L;
+        long blank = 0L;
+        boolean lineCode = false;
+        boolean lineComment = false;
+        boolean lineOpen = false;
+        int state = CODE;
+        int packageState = FIRST_TOKEN;
+        byte[] name = new byte[64];
+        int nameLength = 0;
+
+        int i = content.position();
+        int limit = content.limit();
+        // UTF-8 byte order mark
+        if (limit - i >= 3 && content.get(i) == (byte) 0xEF && content.get(i + 1) == (byte) 0xBB
+                && content.get(i + 2) == (byte) 0xBF) {
+            i += 3;
+        }
+
+        for (; i < limit; i++) {
+            byte b = content.get(i);
+            if (b == '\n' || b == '\r') {
+                if (lineCode) {
+                    code++;
+                } else if (lineComment) {
+                    comment++;
+                } else {
+                    blank++;
+                }
+                lineCode = false;
+                lineComment = false;
+                lineOpen = false;
+                if (b == '\r' && i + 1 < limit && content.get(i + 1) == '\n') {
+                    i++;
+                }
+                // Line comments end with the line, and string and character literals can't span lines
+                if (state != BLOCK_COMMENT && state != TEXT_BLOCK) {
+                    state = CODE;
+                }
+                continue;
+            }
+            lineOpen = true;
+            if (b == ' ' || b == '\t' || b == '\f') {
+                continue;
+            }
+
+            byte next = i + 1 < limit ? content.get(i + 1) : 0;
+            switch (state) {
+                case CODE:
+                    if (b == '/' && next == '/') {
+                        lineComment = true;
+                        state = LINE_COMMENT;
+                        i++;
+                        break;
+                    }
+                    if (b == '/' && next == '*') {
+                        lineComment = true;
+                        state = BLOCK_COMMENT;
+                        i++;
+                        break;
+                    }
+                    lineCode = true;
+                    if (packageState == FIRST_TOKEN) {
+                        if (matches(content, i, limit, PACKAGE)) {
+                            packageState = PACKAGE_NAME;
+                            i += PACKAGE.length - 1;
+                            break;
+                        }
+                        packageState = DONE;
+                    } else if (packageState == PACKAGE_NAME) {
+                        if (b == ';' || !(isIdentifierPart(b) || b == '.')) {
+                            packageState = DONE;
+                        } else {
+                            if (nameLength == name.length) {
+                                name = Arrays.copyOf(name, name.length * 2);
+                            }
+                            name[nameLength++] = b;
+                        }
+                        break;
+                    }
+                    if (b == '"') {
+                        if (next == '"' && i + 2 < limit && content.get(i + 2) == '"') {
+                            state = TEXT_BLOCK;
+                            i += 2;
+                        } else {
+                            state = STRING;
+                        }
+                    } else if (b == '\'') {
+                        state = CHARACTER;
+                    }
+                    break;
+                case LINE_COMMENT:
+                    break;
+                case BLOCK_COMMENT:
+                    lineComment = true;
+                    if (b == '*' && next == '/') {
+                        state = CODE;
+                        i++;
+                    }
+                    break;
+                case STRING:
+                case CHARACTER:
+                    lineCode = true;
+                    if (b == '\\') {
+                        if (next != '\n' && next != '\r') {
+                            i++;
+                        }
+                    } else if (b == (state == STRING ? '"' : '\'')) {
+                        state = CODE;
+                    }
+                    break;
+                default:
+                    lineCode = true;
+                    if (b == '\\') {
+                        if (next != '\n' && next != '\r') {
+                            i++;
+                        }
+                    } else if (b == '"' && next == '"' && i + 2 < limit && content.get(i + 2) == '"') {
+                        state = CODE;
+                        i += 2;
+                    }
+                    break;
+            }
+        }
+        if (lineOpen) {
+            if (lineCode) {
+                code++;
+            } else if (lineComment) {
+                comment++;
+            } else {
+                blank++;
+            }
+        }
+
+        packageName = nameLength > 0 ? new String(name, 0, nameLength, charset) : null;
+        return new LineCounts(1, code, comment, blank);
+    }
+
+    /**
+     * @return the package of the last classified content, null if it has no package declaration
+     */
+    public String getPackageName() {
+        return packageName;
+    }
+
+    /**
+     * @return true if the keyword starts at the given index and is not followed by an identifier part
+     */
+    private static boolean matches(ByteBuffer content, int index, int limit, byte[] keyword) {
+        if (limit - index <= keyword.length) {
+            return false;
+        }
+        for (int k = 0; k < keyword.length; k++) {
+            if (content.get(index + k) != keyword[k]) {
+                return false;
+            }
+        }
+        return !isIdentifierPart(content.get(index + keyword.length));
+    }
+
+    /**
+     * Bytes of non ASCII characters are taken as identifier parts
+     */
+    private static boolean isIdentifierPart(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '_' || b == '$'
+                || b < 0;
+    }
+
+    /**
+     * @return true if the characters the scanner looks for are encoded as their ASCII byte in the charset
+     */
+    public static boolean isAsciiCompatible(Charset charset) {
+        if (charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.ISO_8859_1)
+                || charset.equals(StandardCharsets.US_ASCII)) {
+            return true;
+        }
+        return charset.canEncode() && Arrays.equals(ASCII_SAMPLE.getBytes(charset),
+                ASCII_SAMPLE.getBytes(StandardCharsets.US_ASCII));
+    }
+}
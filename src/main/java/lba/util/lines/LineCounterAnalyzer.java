@@ -1,34 +1,173 @@
 package lba.util.lines;
 
 import lba.util.AbstractAnalyzer;
+import lba.util.BudgetExceededException;
+import lba.util.SourceFile;
+import lba.util.cache.CacheableAnalyzer;
+import lba.util.cache.FileRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
-public class LineCounterAnalyzer extends AbstractAnalyzer {
+/**
+ * Count the lines of the source files, classified as code, comment or blank lines, in total, per package and per
+ * directory.
+ * <p>
+ * The lines are counted on the raw content by a {@link LineClassifier}, without decoding it, so malformed input does
+ * not prevent a file from being counted. The files without package declaration are counted under the empty package.
+ */
+public class LineCounterAnalyzer extends AbstractAnalyzer<LineCounterAnalyzer> implements CacheableAnalyzer {
 
     /**
      * Logger
      */
     private static final Logger LOG = LoggerFactory.getLogger(LineCounterAnalyzer.class);
 
-    private long linesNumber = 0L;
+    /**
+     * Classifier of each thread
+     */
+    private static final ThreadLocal<LineClassifier> CLASSIFIER = new ThreadLocal<LineClassifier>() {
+        @Override
+        protected LineClassifier initialValue() {
+            return new LineClassifier();
+        }
+    };
+
+    private final LineCounts total = new LineCounts();
+
+    private final Map<String, LineCounts> packages = new HashMap<String, LineCounts>();
+
+    private final Map<String, LineCounts> directories = new HashMap<String, LineCounts>();
 
     @Override
-    public void analyseFile(Path file) {
-        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
-            linesNumber += reader.lines().count();
+    public void analyseSource(SourceFile source) {
+        try {
+            FileRecord record = new FileRecord();
+            extract(source, record);
+            apply(record);
+        } catch (BudgetExceededException e) {
+            LOG.warn(e.getMessage());
         } catch (IOException e) {
+            source.setFailed(true);
             LOG.error(e.getMessage(), e);
         }
     }
 
+    @Override
+    public boolean isExtracted(FileRecord record) {
+        return record.getLinesNumber() >= 0;
+    }
+
+    @Override
+    public void extract(SourceFile source, FileRecord record) throws IOException {
+        long bytesBefore = source.getBytesRead();
+        try {
+            LineClassifier classifier = CLASSIFIER.get();
+            LineCounts counts = classifier.classify(source.getContent(), source.getCharset());
+            record.setLinesNumber(counts.getLines());
+            record.setCodeLines(counts.getCode());
+            record.setCommentLines(counts.getComment());
+            record.setBlankLines(counts.getBlank());
+            record.setDirectory(source.getDirectory());
+            if (record.getPackageName() == null) {
+                record.setPackageName(classifier.getPackageName());
+            }
+        } finally {
+            bytesRead += source.getBytesRead() - bytesBefore;
+        }
+    }
+
+    @Override
+    public boolean needsWholeContent() {
+        return true;
+    }
+
+    @Override
+    public void apply(FileRecord record) {
+        LineCounts counts = toCounts(record);
+        total.add(counts);
+        add(packages, record.getPackageName() == null ? "" : record.getPackageName(), counts);
+        add(directories, record.getDirectory() == null ? "" : record.getDirectory(), counts);
+    }
+
+    @Override
+    public void retract(FileRecord record) {
+        LineCounts counts = toCounts(record);
+        total.subtract(counts);
+        subtract(packages, record.getPackageName() == null ? "" : record.getPackageName(), counts);
+        subtract(directories, record.getDirectory() == null ? "" : record.getDirectory(), counts);
+    }
+
+    private static LineCounts toCounts(FileRecord record) {
+        return new LineCounts(1, record.getCodeLines(), record.getCommentLines(), record.getBlankLines());
+    }
+
+    private static void add(Map<String, LineCounts> sums, String key, LineCounts counts) {
+        LineCounts sum = sums.get(key);
+        if (sum == null) {
+            sum = new LineCounts();
+            sums.put(key, sum);
+        }
+        sum.add(counts);
+    }
+
+    private static void subtract(Map<String, LineCounts> sums, String key, LineCounts counts) {
+        LineCounts sum = sums.get(key);
+        if (sum != null) {
+            sum.subtract(counts);
+            if (sum.getFiles() <= 0) {
+                sums.remove(key);
+            }
+        }
+    }
+
+    @Override
+    public LineCounterAnalyzer split() {
+        return new LineCounterAnalyzer();
+    }
+
+    @Override
+    public void merge(LineCounterAnalyzer other) {
+        bytesRead += other.bytesRead;
+        total.add(other.total);
+        for (Map.Entry<String, LineCounts> entry : other.packages.entrySet()) {
+            add(packages, entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<String, LineCounts> entry : other.directories.entrySet()) {
+            add(directories, entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * @return total number of lines
+     */
     public long getLinesNumber() {
-        return linesNumber;
+        return total.getLines();
+    }
+
+    /**
+     * @return line counts of all the files
+     */
+    public LineCounts getTotal() {
+        return total;
+    }
+
+    /**
+     * @return line counts of each package, sorted by package name
+     */
+    public SortedMap<String, LineCounts> getPackages() {
+        return new TreeMap<String, LineCounts>(packages);
+    }
+
+    /**
+     * @return line counts of each directory, sorted by directory name
+     */
+    public SortedMap<String, LineCounts> getDirectories() {
+        return new TreeMap<String, LineCounts>(directories);
     }
 }
@@ -0,0 +1,84 @@
+package lba.util.lines;
+
+/**
+ * Number of files and lines of a file, a package, a directory or a whole tree : every line is either a code, a
+ * comment or a blank line.
+ */
+public class LineCounts {
+
+    private long files;
+
+    private long code;
+
+    private long comment;
+
+    private long blank;
+
+    /**
+     * Constructor of empty counts
+     */
+    public LineCounts() {
+    }
+
+    /**
+     * Constructor
+     *
+     * @param files   number of files
+     * @param code    number of lines holding code, possibly followed or preceded by a comment
+     * @param comment number of lines holding comments only
+     * @param blank   number of lines holding white spaces only
+     */
+    public LineCounts(long files, long code, long comment, long blank) {
+        this.files = files;
+        this.code = code;
+        this.comment = comment;
+        this.blank = blank;
+    }
+
+    /**
+     * Add other counts to these ones
+     *
+     * @param other counts to add
+     */
+    public void add(LineCounts other) {
+        files += other.files;
+        code += other.code;
+        comment += other.comment;
+        blank += other.blank;
+    }
+
+    /**
+     * Subtract counts previously added to these ones
+     *
+     * @param other counts to subtract
+     */
+    public void subtract(LineCounts other) {
+        files -= other.files;
+        code -= other.code;
+        comment -= other.comment;
+        blank -= other.blank;
+    }
+
+    public long getFiles() {
+        return files;
+    }
+
+    /**
+     * @return total number of lines
+     */
+    public long getLines() {
+        return code + comment + blank;
+    }
+
+    public long getCode() {
+        return code;
+    }
+
+    public long getComment() {
+        return comment;
+    }
+
+    public long getBlank() {
+        return blank;
+    }
+}
@@ -0,0 +1,395 @@
+package lba.util.metrics;
+
+import lba.util.report.JsonWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of an analysis run : files seen, analyzed and failed, bytes read, time spent in each phase, per-file
+ * latency histogram, slowest files and entries skipped over the deadline or the per-file budgets.
+ * <p>
+ * The metrics are thread safe and shared by all the workers of a walk through the {@link lba.util.AnalysisSettings}.
+ * The READ and PARSE phases are summed over all the files, so with several workers they may exceed the wall clock
+ * time of the WALK phase.
+ */
+public class AnalysisMetrics implements AnalysisMetricsMBean {
+
+    /**
+     * Logger
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(AnalysisMetrics.class);
+
+    /**
+     * Default number of slowest files kept
+     */
+    public static final int DEFAULT_SLOWEST_FILES = 10;
+
+    /**
+     * Phases of a run
+     */
+    public enum Phase {
+        /**
+         * Wall clock time of the tree walk
+         */
+        WALK,
+        /**
+         * Time spent reading the files, summed over the files
+         */
+        READ,
+        /**
+         * Time spent decoding and analyzing the files, summed over the files
+         */
+        PARSE,
+        /**
+         * Time spent merging the results of the workers
+         */
+        MERGE,
+        /**
+         * Time spent writing the reports
+         */
+        REPORT
+    }
+
+    private final LongAdder filesSeen = new LongAdder();
+
+    private final LongAdder filesAnalyzed = new LongAdder();
+
+    private final LongAdder filesFailed = new LongAdder();
+
+    private final LongAdder entriesSkipped = new LongAdder();
+
+    private final LongAdder bytesRead = new LongAdder();
+
+    /**
+     * Directories (and trees) queued by the walk, and listed so far with the number of files they hold, used to
+     * estimate the number of files of a walk still running
+     */
+    private final LongAdder directoriesQueued = new LongAdder();
+
+    private final LongAdder directoriesListed = new LongAdder();
+
+    private final LongAdder filesListed = new LongAdder();
+
+    private final LongAdder[] phaseNanos = new LongAdder[Phase.values().length];
+
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    private final SlowestFiles slowestFiles;
+
+    private final SkippedFiles skippedFiles = new SkippedFiles();
+
+    /**
+     * Name of the registered MBean, null if not registered
+     */
+    private ObjectName mbeanName;
+
+    /**
+     * Constructor
+     */
+    public AnalysisMetrics() {
+        this(DEFAULT_SLOWEST_FILES);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param slowestFiles number of slowest files kept
+     */
+    public AnalysisMetrics(int slowestFiles) {
+        this.slowestFiles = new SlowestFiles(slowestFiles);
+        for (int i = 0; i < phaseNanos.length; i++) {
+            phaseNanos[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Count a file found by the walk, whether it is analyzed or not
+     */
+    public void fileSeen() {
+        filesSeen.increment();
+    }
+
+    /**
+     * Count a file which could not be visited
+     */
+    public void fileFailed() {
+        filesFailed.increment();
+    }
+
+    /**
+     * Count a file or a directory skipped by the walk because of an ignore rule, a skipped directory counting as a
+     * single entry
+     */
+    public void entrySkipped() {
+        entriesSkipped.increment();
+    }
+
+    /**
+     * Record an entry left out of the run because of its deadline or of the per-file budgets
+     *
+     * @param file   file or directory name
+     * @param reason why it has been skipped
+     */
+    public void fileSkipped(String file, SkippedFiles.Reason reason) {
+        skippedFiles.record(file, reason);
+    }
+
+    /**
+     * Count a directory queued by the walk, not listed yet
+     */
+    public void directoryQueued() {
+        directoriesQueued.increment();
+    }
+
+    /**
+     * Count a directory listed by the walk
+     *
+     * @param files number of files found in the directory, the sub directories excluded
+     */
+    public void directoryListed(int files) {
+        directoriesListed.increment();
+        filesListed.add(files);
+    }
+
+    /**
+     * Estimate the number of files of the walk, the directories still queued being assumed to hold as many files as
+     * the directories listed so far
+     *
+     * @return estimated number of files found by the walk once over, 0 before any directory is listed
+     */
+    public long getEstimatedFiles() {
+        long listed = directoriesListed.sum();
+        if (listed == 0) {
+            return 0;
+        }
+        long files = filesListed.sum();
+        long pending = Math.max(0, directoriesQueued.sum() - listed);
+        return files + pending * files / listed;
+    }
+
+    /**
+     * Record the analysis of a file
+     *
+     * @param file      analyzed file
+     * @param nanos     total analysis time of the file
+     * @param readNanos part of the analysis time spent reading the file
+     * @param bytes     number of bytes read from the file
+     * @param failed    whether the analysis of the file failed
+     */
+    public void fileAnalyzed(Path file, long nanos, long readNanos, long bytes, boolean failed) {
+        filesAnalyzed.increment();
+        if (failed) {
+            filesFailed.increment();
+        }
+        bytesRead.add(bytes);
+        phaseNanos[Phase.READ.ordinal()].add(readNanos);
+        phaseNanos[Phase.PARSE.ordinal()].add(nanos - readNanos);
+        latencies.record(nanos);
+        slowestFiles.record(file.toString(), nanos);
+    }
+
+    /**
+     * Add time to a phase
+     *
+     * @param phase phase
+     * @param nanos time in nanoseconds
+     */
+    public void addTime(Phase phase, long nanos) {
+        phaseNanos[phase.ordinal()].add(nanos);
+    }
+
+    /**
+     * @return time spent in a phase, in milliseconds
+     */
+    public long getMillis(Phase phase) {
+        return TimeUnit.NANOSECONDS.toMillis(phaseNanos[phase.ordinal()].sum());
+    }
+
+    @Override
+    public long getFilesSeen() {
+        return filesSeen.sum();
+    }
+
+    @Override
+    public long getFilesAnalyzed() {
+        return filesAnalyzed.sum();
+    }
+
+    @Override
+    public long getFilesFailed() {
+        return filesFailed.sum();
+    }
+
+    @Override
+    public long getEntriesSkipped() {
+        return entriesSkipped.sum();
+    }
+
+    @Override
+    public long getEntriesOverBudget() {
+        return skippedFiles.getCount();
+    }
+
+    /**
+     * @return true if entries have been left out of the run, so that its results are partial
+     */
+    public boolean isPartial() {
+        return skippedFiles.getCount() > 0;
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    @Override
+    public long getWalkMillis() {
+        return getMillis(Phase.WALK);
+    }
+
+    @Override
+    public long getReadMillis() {
+        return getMillis(Phase.READ);
+    }
+
+    @Override
+    public long getParseMillis() {
+        return getMillis(Phase.PARSE);
+    }
+
+    @Override
+    public long getMergeMillis() {
+        return getMillis(Phase.MERGE);
+    }
+
+    @Override
+    public long getReportMillis() {
+        return getMillis(Phase.REPORT);
+    }
+
+    @Override
+    public long getLatencyP50Micros() {
+        return latencies.getPercentileMicros(50);
+    }
+
+    @Override
+    public long getLatencyP99Micros() {
+        return latencies.getPercentileMicros(99);
+    }
+
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    public SlowestFiles getSlowestFiles() {
+        return slowestFiles;
+    }
+
+    public SkippedFiles getSkippedFiles() {
+        return skippedFiles;
+    }
+
+    /**
+     * @return one line summary of the run
+     */
+    public String getSummary() {
+        return getFilesSeen() + " files seen, " + getFilesAnalyzed() + " analyzed, " + getFilesFailed() + " failed, "
+                + getEntriesSkipped() + " entries ignored, " + getBytesRead() + " bytes read, walk " + getWalkMillis() + " ms (read " + getReadMillis()
+                + " ms, parse " + getParseMillis() + " ms, merge " + getMergeMillis() + " ms), report "
+                + getReportMillis() + " ms" + (isPartial() ? ", partial results (" + skippedFiles.getSummary() + ")" : "");
+    }
+
+    /**
+     * Write the metrics as a JSON summary
+     *
+     * @param out output writer
+     */
+    public void writeJson(Writer out) throws IOException {
+        JsonWriter json = new JsonWriter(out);
+        json.beginObject();
+        json.member("filesSeen", getFilesSeen());
+        json.member("filesAnalyzed", getFilesAnalyzed());
+        json.member("filesFailed", getFilesFailed());
+        json.member("entriesSkipped", getEntriesSkipped());
+        json.member("entriesOverBudget", getEntriesOverBudget());
+        json.member("partial", isPartial());
+        json.member("bytesRead", getBytesRead());
+
+        json.name("phases").beginObject();
+        for (Phase phase : Phase.values()) {
+            json.member(phase.name().toLowerCase() + "Millis", getMillis(phase));
+        }
+        json.endObject();
+
+        json.name("latency").beginObject();
+        json.member("p50Micros", latencies.getPercentileMicros(50));
+        json.member("p90Micros", latencies.getPercentileMicros(90));
+        json.member("p99Micros", latencies.getPercentileMicros(99));
+        json.member("maxMicros", latencies.getPercentileMicros(100));
+        json.name("histogram").beginArray();
+        for (int bucket = 0; bucket < latencies.getBucketCount(); bucket++) {
+            long count = latencies.getCount(bucket);
+            if (count > 0) {
+                json.beginObject()
+                        .member("belowMicros", LatencyHistogram.getUpperBoundMicros(bucket))
+                        .member("count", count)
+                        .endObject();
+            }
+        }
+        json.endArray();
+        json.endObject();
+
+        json.name("slowestFiles").beginArray();
+        for (SlowestFiles.Entry entry : slowestFiles.getEntries()) {
+            json.beginObject()
+                    .member("file", entry.getFile())
+                    .member("micros", TimeUnit.NANOSECONDS.toMicros(entry.getNanos()))
+                    .endObject();
+        }
+        json.endArray();
+        json.endObject();
+        out.write('\n');
+    }
+
+    /**
+     * Register the metrics in the platform MBean server, as "lba.util:type=AnalysisMetrics"
+     */
+    public void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("lba.util:type=AnalysisMetrics");
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+            mbeanName = name;
+        } catch (JMException e) {
+            LOG.warn("Unable to register the metrics MBean", e);
+        }
+    }
+
+    /**
+     * Unregister the metrics from the platform MBean server, if registered
+     */
+    public void unregisterMBean() {
+        if (mbeanName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(mbeanName);
+        } catch (JMException e) {
+            LOG.warn("Unable to unregister the metrics MBean", e);
+        }
+        mbeanName = null;
+    }
+}
@@ -0,0 +1,33 @@
+package lba.util.metrics;
+
+/**
+ * JMX view of the {@link AnalysisMetrics} of a run
+ */
+public interface AnalysisMetricsMBean {
+
+    long getFilesSeen();
+
+    long getFilesAnalyzed();
+
+    long getFilesFailed();
+
+    long getEntriesSkipped();
+
+    long getEntriesOverBudget();
+
+    long getBytesRead();
+
+    long getWalkMillis();
+
+    long getReadMillis();
+
+    long getParseMillis();
+
+    long getMergeMillis();
+
+    long getReportMillis();
+
+    long getLatencyP50Micros();
+
+    long getLatencyP99Micros();
+}
@@ -0,0 +1,85 @@
+package lba.util.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread safe histogram of durations with power of two buckets : bucket 0 counts the durations below 1 µs, bucket i
+ * the durations from 2^(i-1) µs (included) to 2^i µs (excluded). Recording a value is a single atomic increment.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Number of buckets, the last one counts all the durations above 2^(BUCKETS-2) µs
+     */
+    private static final int BUCKETS = 40;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Record a duration
+     *
+     * @param nanos duration in nanoseconds
+     */
+    public void record(long nanos) {
+        counts.incrementAndGet(getBucket(nanos / 1000));
+    }
+
+    private static int getBucket(long micros) {
+        if (micros <= 0) {
+            return 0;
+        }
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    /**
+     * @return number of buckets
+     */
+    public int getBucketCount() {
+        return BUCKETS;
+    }
+
+    /**
+     * @return number of durations recorded in a bucket
+     */
+    public long getCount(int bucket) {
+        return counts.get(bucket);
+    }
+
+    /**
+     * @return upper bound in µs of a bucket (excluded)
+     */
+    public static long getUpperBoundMicros(int bucket) {
+        return 1L << bucket;
+    }
+
+    /**
+     * @return number of durations recorded
+     */
+    public long getTotalCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * @param percentile percentile, between 0 and 100
+     * @return upper bound in µs of the bucket holding the percentile, 0 if nothing was recorded
+     */
+    public long getPercentileMicros(double percentile) {
+        long total = getTotalCount();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank && seen > 0) {
+                return getUpperBoundMicros(i);
+            }
+        }
+        return getUpperBoundMicros(BUCKETS - 1);
+    }
+}
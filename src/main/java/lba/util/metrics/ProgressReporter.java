@@ -0,0 +1,121 @@
+package lba.util.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodic progress report of a running walk : files analyzed, throughput, and estimated time left.
+ * <p>
+ * The total number of files is either known before the walk, typically from the records of the previous run, or
+ * estimated while the walk lists the directories (see {@link AnalysisMetrics#getEstimatedFiles()}). The report is
+ * logged by a daemon thread, so a walk stalled on a file is still reported.
+ */
+public class ProgressReporter implements Closeable {
+
+    /**
+     * Logger
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(ProgressReporter.class);
+
+    private final AnalysisMetrics metrics;
+
+    /**
+     * Number of files the walk is expected to analyze, 0 if unknown
+     */
+    private final long expectedFiles;
+
+    /**
+     * Deadline of the run, as a {@link System#nanoTime()} value, 0 for none
+     */
+    private final long deadline;
+
+    private final long start = System.nanoTime();
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Constructor
+     *
+     * @param metrics       metrics of the walk
+     * @param expectedFiles number of files the walk is expected to analyze, 0 to estimate it while the walk goes on
+     * @param deadline      deadline of the run, as a {@link System#nanoTime()} value, 0 for none
+     */
+    public ProgressReporter(AnalysisMetrics metrics, long expectedFiles, long deadline) {
+        this.metrics = metrics;
+        this.expectedFiles = expectedFiles;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Start logging the progress
+     *
+     * @param periodSeconds time between two reports, in seconds
+     */
+    public void start(long periodSeconds) {
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "analysis-progress");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                LOG.info(getProgress());
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return progress of the walk, such as "Progress : 1200 of ~5000 files (24 %), 400 files/s, 2.1 MB/s, ETA 9 s,
+     * deadline in 30 s"
+     */
+    public String getProgress() {
+        double seconds = Math.max(1L, System.nanoTime() - start) / 1e9;
+        // The expected files are analyzed files, the running estimate counts all the files listed
+        long done = expectedFiles > 0 ? metrics.getFilesAnalyzed() : metrics.getFilesSeen();
+        long total = expectedFiles > 0 ? expectedFiles : metrics.getEstimatedFiles();
+        double filesPerSecond = done / seconds;
+
+        StringBuilder progress = new StringBuilder("Progress : ").append(done);
+        if (total > 0) {
+            total = Math.max(total, done);
+            progress.append(" of ").append(expectedFiles > 0 ? "" : "~").append(total).append(" files (")
+                    .append(done * 100 / total).append(" %)");
+        } else {
+            progress.append(" files");
+        }
+        progress.append(", ").append(Math.round(filesPerSecond)).append(" files/s, ")
+                .append(String.format("%.1f", metrics.getBytesRead() / seconds / (1024 * 1024))).append(" MB/s");
+        if (total > 0 && filesPerSecond > 0) {
+            progress.append(", ETA ").append(Math.round((total - done) / filesPerSecond)).append(" s");
+        }
+        if (deadline != 0) {
+            progress.append(", deadline in ")
+                    .append(Math.max(0L, Math.round((deadline - System.nanoTime()) / 1e9))).append(" s");
+        }
+        if (metrics.isPartial()) {
+            progress.append(", ").append(metrics.getSkippedFiles().getSummary());
+        }
+        return progress.toString();
+    }
+
+    /**
+     * Stop logging the progress
+     */
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package lba.util.metrics;
+
+import lba.util.report.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread safe record of the files and directories left out of a run because of its deadline or of the per-file
+ * budgets. A run which skipped any entry has partial results.
+ */
+public class SkippedFiles {
+
+    /**
+     * Why an entry has been skipped
+     */
+    public enum Reason {
+        /**
+         * The deadline of the run was reached before the entry was analyzed
+         */
+        DEADLINE("after the deadline"),
+        /**
+         * The file is larger than the per-file byte budget
+         */
+        SIZE("over the byte budget"),
+        /**
+         * The analysis of the file took longer than the per-file time budget
+         */
+        TIME("over the time budget");
+
+        private final String description;
+
+        Reason(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    /**
+     * Skipped file or directory
+     */
+    public static class Entry {
+
+        private final String file;
+
+        private final Reason reason;
+
+        Entry(String file, Reason reason) {
+            this.file = file;
+            this.reason = reason;
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        public Reason getReason() {
+            return reason;
+        }
+    }
+
+    private static final Comparator<Entry> BY_FILE = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry a, Entry b) {
+            return a.file.compareTo(b.file);
+        }
+    };
+
+    private final Queue<Entry> entries = new ConcurrentLinkedQueue<Entry>();
+
+    private final LongAdder[] counts = new LongAdder[Reason.values().length];
+
+    /**
+     * Constructor
+     */
+    public SkippedFiles() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Record a skipped entry
+     *
+     * @param file   file or directory name
+     * @param reason why it has been skipped
+     */
+    public void record(String file, Reason reason) {
+        entries.add(new Entry(file, reason));
+        counts[reason.ordinal()].increment();
+    }
+
+    /**
+     * @return number of skipped entries
+     */
+    public long getCount() {
+        long count = 0;
+        for (LongAdder adder : counts) {
+            count += adder.sum();
+        }
+        return count;
+    }
+
+    /**
+     * @return number of entries skipped for a reason
+     */
+    public long getCount(Reason reason) {
+        return counts[reason.ordinal()].sum();
+    }
+
+    /**
+     * @return the skipped entries, sorted by name
+     */
+    public List<Entry> getEntries() {
+        List<Entry> result = new ArrayList<Entry>(entries);
+        Collections.sort(result, BY_FILE);
+        return result;
+    }
+
+    /**
+     * @return summary of the skipped entries, such as "12 entries skipped : 10 after the deadline, 2 over the byte
+     * budget"
+     */
+    public String getSummary() {
+        StringBuilder summary = new StringBuilder().append(getCount()).append(" entries skipped");
+        String separator = " : ";
+        for (Reason reason : Reason.values()) {
+            long count = getCount(reason);
+            if (count > 0) {
+                summary.append(separator).append(count).append(' ').append(reason.getDescription());
+                separator = ", ";
+            }
+        }
+        return summary.toString();
+    }
+
+    /**
+     * Write the skipped entries, one "reason name" line per entry
+     *
+     * @param out output writer
+     */
+    public void writeText(Writer out) throws IOException {
+        for (Entry entry : getEntries()) {
+            out.write(entry.reason.name().toLowerCase());
+            out.write(' ');
+            out.write(entry.file);
+            out.write('\n');
+        }
+        out.write("\n Total number of skipped entries :" + getCount() + "\n");
+    }
+
+    /**
+     * Write the skipped entries as {"skipped":[{"file":"a/B.java","reason":"size"}, ...],"skippedNumber":n}
+     *
+     * @param out output writer
+     */
+    public void writeJson(Writer out) throws IOException {
+        JsonWriter json = new JsonWriter(out);
+        json.beginObject().name("skipped").beginArray();
+        for (Entry entry : getEntries()) {
+            json.beginObject()
+                    .member("file", entry.file)
+                    .member("reason", entry.reason.name().toLowerCase())
+                    .endObject();
+        }
+        json.endArray();
+        json.member("skippedNumber", getCount());
+        json.endObject();
+        out.write('\n');
+    }
+}
@@ -0,0 +1,99 @@
+package lba.util.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Thread safe record of the N slowest files. The files faster than the current N-th slowest file are rejected without
+ * locking, so the cost of a record is negligible once the slowest files are known.
+ */
+public class SlowestFiles {
+
+    /**
+     * Analysis time of a file
+     */
+    public static class Entry {
+
+        private final String file;
+
+        private final long nanos;
+
+        Entry(String file, long nanos) {
+            this.file = file;
+            this.nanos = nanos;
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+    }
+
+    private static final Comparator<Entry> FASTEST_FIRST = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry a, Entry b) {
+            return Long.compare(a.nanos, b.nanos);
+        }
+    };
+
+    private final int capacity;
+
+    /**
+     * Slowest files, the fastest of them at the head
+     */
+    private final PriorityQueue<Entry> entries;
+
+    /**
+     * Time of the fastest recorded file once the queue is full, -1 before
+     */
+    private volatile long threshold = -1;
+
+    /**
+     * Constructor
+     *
+     * @param capacity number of files kept
+     */
+    public SlowestFiles(int capacity) {
+        this.capacity = capacity;
+        this.entries = new PriorityQueue<Entry>(Math.max(1, capacity), FASTEST_FIRST);
+    }
+
+    /**
+     * Record the analysis time of a file
+     *
+     * @param file  file name
+     * @param nanos analysis time in nanoseconds
+     */
+    public void record(String file, long nanos) {
+        if (capacity <= 0 || nanos <= threshold) {
+            return;
+        }
+        synchronized (entries) {
+            entries.add(new Entry(file, nanos));
+            if (entries.size() > capacity) {
+                entries.poll();
+            }
+            if (entries.size() == capacity) {
+                threshold = entries.peek().nanos;
+            }
+        }
+    }
+
+    /**
+     * @return the slowest files, slowest first
+     */
+    public List<Entry> getEntries() {
+        List<Entry> result;
+        synchronized (entries) {
+            result = new ArrayList<Entry>(entries);
+        }
+        Collections.sort(result, Collections.reverseOrder(FASTEST_FIRST));
+        return result;
+    }
+}
@@ -0,0 +1,77 @@
+package lba.util.report;
+
+import lba.util.dependency.GraphAnalysis;
+import lba.util.lines.LineCounts;
+import lba.util.service.EndpointInventory;
+import lba.util.snapshot.SnapshotDiff;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+/**
+ * Base class of the report writers, every report is unsupported unless overridden
+ */
+public abstract class AbstractReportWriter implements ReportWriter {
+
+    /**
+     * Why the results are partial, null for complete results
+     */
+    private String partialNotice;
+
+    @Override
+    public void setPartialNotice(String notice) {
+        this.partialNotice = notice;
+    }
+
+    /**
+     * @return why the results are partial, null for complete results
+     */
+    protected String getPartialNotice() {
+        return partialNotice;
+    }
+
+    @Override
+    public void writeDependencies(Map<String, ? extends SortedSet<String>> dependencies, Writer out) throws IOException {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support " + ReportType.DEPENDENCIES);
+    }
+
+    @Override
+    public void writeDependencies(Map<String, ? extends SortedSet<String>> dependencies, GraphAnalysis analysis, Writer out)
+            throws IOException {
+        writeDependencies(dependencies, out);
+    }
+
+    @Override
+    public void writeServices(SortedMap<String, SortedSet<String>> services, Writer out) throws IOException {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support " + ReportType.SERVICES);
+    }
+
+    @Override
+    public void writeEndpoints(EndpointInventory inventory, Writer out) throws IOException {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support " + ReportType.ENDPOINTS);
+    }
+
+    @Override
+    public void writeLines(long linesNumber, Writer out) throws IOException {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support " + ReportType.LINES);
+    }
+
+    @Override
+    public void writeLines(LineCounts total, SortedMap<String, LineCounts> packages,
+                           SortedMap<String, LineCounts> directories, Writer out) throws IOException {
+        writeLines(total.getLines(), out);
+    }
+
+    @Override
+    public void writeGraphAnalysis(GraphAnalysis analysis, Writer out) throws IOException {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support " + ReportType.GRAPH_ANALYSIS);
+    }
+
+    @Override
+    public void writeSnapshotDiff(SnapshotDiff diff, Writer out) throws IOException {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support " + ReportType.SNAPSHOT_DIFF);
+    }
+}
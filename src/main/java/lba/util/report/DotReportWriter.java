@@ -0,0 +1,138 @@
+package lba.util.report;
+
+import lba.util.dependency.GraphAnalysis;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+
+/**
+ * Dot graph report writer
+ */
+public class DotReportWriter extends AbstractReportWriter {
+
+    /**
+     * Keywords of the DOT language, which must be quoted to be used as IDs
+     */
+    private static final String[] KEYWORDS = {"node", "edge", "graph", "digraph", "subgraph", "strict"};
+
+    @Override
+    public boolean supports(ReportType type) {
+        return type == ReportType.DEPENDENCIES;
+    }
+
+    @Override
+    public void writeDependencies(Map<String, ? extends SortedSet<String>> dependencies, Writer out) throws IOException {
+        writeDependencies(dependencies, null, out);
+    }
+
+    /**
+     * The node IDs which are not valid DOT IDs, such as the dotted package names, are quoted. The packages of each
+     * cycle are grouped in a "cluster_cycle_N" sub graph, so that the cycles stand out in the
+     * rendered graph and can be looked for by a CI job
+     */
+    @Override
+    public void writeDependencies(Map<String, ? extends SortedSet<String>> dependencies, GraphAnalysis analysis, Writer out)
+            throws IOException {
+        if (getPartialNotice() != null) {
+            out.write("// Partial results : " + getPartialNotice() + "\n");
+        }
+        out.write("digraph DepGraph { \n");
+
+        for (Map.Entry<String, ? extends SortedSet<String>> entry : dependencies.entrySet()) {
+            for (String dep : entry.getValue()) {
+                out.write('\t');
+                writeId(String.valueOf(entry.getKey()), out);
+                out.write("->");
+                writeId(dep, out);
+                out.write('\n');
+            }
+            out.write('\n');
+        }
+
+        if (analysis != null) {
+            int number = 0;
+            for (List<String> cycle : analysis.getCycles()) {
+                number++;
+                out.write("\tsubgraph cluster_cycle_" + number + " {\n");
+                out.write("\t\tlabel=\"cycle " + number + "\";\n");
+                out.write("\t\tcolor=red;\n");
+                for (String pkg : cycle) {
+                    out.write("\t\t");
+                    writeId(pkg, out);
+                    out.write(";\n");
+                }
+                out.write("\t}\n");
+            }
+        }
+
+        out.write('}');
+    }
+
+    /**
+     * Write a node ID as is when it is a valid DOT ID, or else as a double-quoted DOT string
+     */
+    private static void writeId(String id, Writer out) throws IOException {
+        if (isDotId(id)) {
+            out.write(id);
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.write('\\');
+            }
+            out.write(c);
+        }
+        out.write('"');
+    }
+
+    /**
+     * @return true if the ID can be written unquoted : a name made of letters, digits and underscores not starting
+     * with a digit and not being a DOT keyword, or a numeral
+     */
+    static boolean isDotId(String id) {
+        if (id.isEmpty()) {
+            return false;
+        }
+        if (isNumeral(id)) {
+            return true;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            boolean letter = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c >= '\u0080';
+            if (!letter && !(i > 0 && c >= '0' && c <= '9')) {
+                return false;
+            }
+        }
+        for (String keyword : KEYWORDS) {
+            if (keyword.equalsIgnoreCase(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the ID is a DOT numeral : an optional minus sign, then digits with at most one dot
+     */
+    private static boolean isNumeral(String id) {
+        int start = id.charAt(0) == '-' ? 1 : 0;
+        boolean digits = false;
+        boolean dot = false;
+        for (int i = start; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits = true;
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                return false;
+            }
+        }
+        return digits;
+    }
+}
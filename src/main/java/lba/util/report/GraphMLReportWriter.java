@@ -0,0 +1,81 @@
+package lba.util.report;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+
+/**
+ * GraphML report writer
+ */
+public class GraphMLReportWriter extends AbstractReportWriter {
+
+    @Override
+    public boolean supports(ReportType type) {
+        return type == ReportType.DEPENDENCIES;
+    }
+
+    @Override
+    public void writeDependencies(Map<String, ? extends SortedSet<String>> dependencies, Writer out) throws IOException {
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        if (getPartialNotice() != null) {
+            out.write("<!-- Partial results : " + getPartialNotice().replace("--", "- -") + " -->\n");
+        }
+        out.write("<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\">\n");
+        out.write("  <graph id=\"DepGraph\" edgedefault=\"directed\">\n");
+
+        // Nodes must be declared once, only the node names are kept in memory
+        Set<String> nodes = new HashSet<String>();
+        for (Map.Entry<String, ? extends SortedSet<String>> entry : dependencies.entrySet()) {
+            writeNode(String.valueOf(entry.getKey()), nodes, out);
+            for (String dep : entry.getValue()) {
+                writeNode(dep, nodes, out);
+            }
+        }
+
+        for (Map.Entry<String, ? extends SortedSet<String>> entry : dependencies.entrySet()) {
+            for (String dep : entry.getValue()) {
+                out.write("    <edge source=\"");
+                writeEscaped(String.valueOf(entry.getKey()), out);
+                out.write("\" target=\"");
+                writeEscaped(dep, out);
+                out.write("\"/>\n");
+            }
+        }
+
+        out.write("  </graph>\n");
+        out.write("</graphml>\n");
+    }
+
+    private void writeNode(String node, Set<String> nodes, Writer out) throws IOException {
+        if (nodes.add(node)) {
+            out.write("    <node id=\"");
+            writeEscaped(node, out);
+            out.write("\"/>\n");
+        }
+    }
+
+    private void writeEscaped(String value, Writer out) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '<':
+                    out.write("&lt;");
+                    break;
+                case '>':
+                    out.write("&gt;");
+                    break;
+                case '&':
+                    out.write("&amp;");
+                    break;
+                case '"':
+                    out.write("&quot;");
+                    break;
+                default:
+                    out.write(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package lba.util.report;
+
+import lba.util.dependency.GraphAnalysis;
+import lba.util.dependency.PackageGraph;
+import lba.util.lines.LineCounts;
+import lba.util.service.Endpoint;
+import lba.util.service.EndpointInventory;
+import lba.util.service.ResourceClass;
+import lba.util.service.Route;
+import lba.util.snapshot.SnapshotDiff;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+/**
+ * JSON report writer
+ */
+public class JsonReportWriter extends AbstractReportWriter {
+
+    @Override
+    public boolean supports(ReportType type) {
+        return true;
+    }
+
+    /**
+     * The graph is written as {"dependencies":[{"package":"a","dependencies":["b","c"]}, ...]}
+     */
+    @Override
+    public void writeDependencies(Map<String, ? extends SortedSet<String>> dependencies, Writer out) throws IOException {
+        JsonWriter json = beginReport(out);
+        json.name("dependencies").beginArray();
+        for (Map.Entry<String, ? extends SortedSet<String>> entry : dependencies.entrySet()) {
+            json.beginObject().member("package", String.valueOf(entry.getKey())).name("dependencies").beginArray();
+            for (String dep : entry.getValue()) {
+                json.value(dep);
+            }
+            json.endArray().endObject();
+        }
+        json.endArray().endObject();
+        out.write('\n');
+    }
+
+    @Override
+    public void writeServices(SortedMap<String, SortedSet<String>> services, Writer out) throws IOException {
+        JsonWriter json = beginReport(out);
+        int serviceNumber = 0;
+
+        json.name("entities").beginArray();
+        for (Map.Entry<String, SortedSet<String>> entry : services.entrySet()) {
+            serviceNumber += entry.getValue().size();
+            json.beginObject().member("entity", entry.getKey()).name("services").beginArray();
+            for (String verb : entry.getValue()) {
+                json.value(verb);
+            }
+            json.endArray().endObject();
+        }
+        json.endArray();
+        json.member("entityNumber", services.size());
+        json.member("serviceNumber", serviceNumber);
+        json.endObject();
+        out.write('\n');
+    }
+
+    /**
+     * The endpoints are written as {"resources":[{"resource":"a.BResource","superclass":"ServerResource",
+     * "endpoints":[{"verb":"GET","value":"json","method":"get"}, ...]}, ...],
+     * "routes":[{"template":"/b","target":"BResource","declaringClass":"a.App"}, ...],
+     * "resourceNumber":r,"endpointNumber":e,"routeNumber":n}
+     */
+    @Override
+    public void writeEndpoints(EndpointInventory inventory, Writer out) throws IOException {
+        JsonWriter json = beginReport(out);
+        json.name("resources").beginArray();
+        for (ResourceClass resource : inventory.getResources().values()) {
+            json.beginObject()
+                    .member("resource", resource.getName())
+                    .member("superclass", resource.getSuperclass())
+                    .name("endpoints").beginArray();
+            for (Endpoint endpoint : resource.getEndpoints()) {
+                json.beginObject()
+                        .member("verb", endpoint.getVerb())
+                        .member("value", endpoint.getValue())
+                        .member("method", endpoint.getMethod())
+                        .endObject();
+            }
+            json.endArray().endObject();
+        }
+        json.endArray();
+        json.name("routes").beginArray();
+        for (Route route : inventory.getRoutes()) {
+            json.beginObject()
+                    .member("template", route.getTemplate())
+                    .member("target", route.getTarget())
+                    .member("declaringClass", route.getDeclaringClass())
+                    .endObject();
+        }
+        json.endArray();
+        json.member("resourceNumber", inventory.getResources().size());
+        json.member("endpointNumber", inventory.getEndpointCount());
+        json.member("routeNumber", inventory.getRoutes().size());
+        json.endObject();
+        out.write('\n');
+    }
+
+    @Override
+    public void writeLines(long linesNumber, Writer out) throws IOException {
+        beginReport(out).member("linesNumber", linesNumber).endObject();
+        out.write('\n');
+    }
+
+    /**
+     * The counts are written as {"linesNumber":n,"codeLines":c,"commentLines":m,"blankLines":b,
+     * "packages":[{"package":"a","files":f,"lines":n,"code":c,"comment":m,"blank":b}, ...],
+     * "directories":[{"directory":"d", ...}, ...]}
+     */
+    @Override
+    public void writeLines(LineCounts total, SortedMap<String, LineCounts> packages,
+                           SortedMap<String, LineCounts> directories, Writer out) throws IOException {
+        JsonWriter json = beginReport(out);
+        json.member("linesNumber", total.getLines());
+        json.member("codeLines", total.getCode());
+        json.member("commentLines", total.getComment());
+        json.member("blankLines", total.getBlank());
+        json.name("packages").beginArray();
+        for (Map.Entry<String, LineCounts> entry : packages.entrySet()) {
+            writeLineCounts(json.beginObject().member("package", entry.getKey()), entry.getValue());
+        }
+        json.endArray();
+        json.name("directories").beginArray();
+        for (Map.Entry<String, LineCounts> entry : directories.entrySet()) {
+            writeLineCounts(json.beginObject().member("directory", entry.getKey()), entry.getValue());
+        }
+        json.endArray();
+        json.endObject();
+        out.write('\n');
+    }
+
+    private static void writeLineCounts(JsonWriter json, LineCounts counts) throws IOException {
+        json.member("files", counts.getFiles())
+                .member("lines", counts.getLines())
+                .member("code", counts.getCode())
+                .member("comment", counts.getComment())
+                .member("blank", counts.getBlank())
+                .endObject();
+    }
+
+    /**
+     * The analysis is written as {"packageNumber":n,"dependencyNumber":e,"cycles":[["a","b"]],"layers":[["c"],["a","b"]],
+     * "packages":[{"package":"a","layer":1,"fanIn":1,"fanOut":2,"reachable":2,"cycle":true}, ...]}
+     */
+    @Override
+    public void writeGraphAnalysis(GraphAnalysis analysis, Writer out) throws IOException {
+        PackageGraph graph = analysis.getGraph();
+        JsonWriter json = beginReport(out);
+        json.member("packageNumber", graph.getNodeCount());
+        json.member("dependencyNumber", graph.getEdgeCount());
+        json.name("cycles");
+        writeGroups(analysis.getCycles(), json);
+        json.name("layers");
+        writeGroups(analysis.getLayers(), json);
+        json.name("packages").beginArray();
+        for (int node = 0; node < graph.getNodeCount(); node++) {
+            json.beginObject()
+                    .member("package", graph.getName(node))
+                    .member("layer", analysis.getLayer(node))
+                    .member("fanIn", analysis.getFanIn(node))
+                    .member("fanOut", analysis.getFanOut(node))
+                    .member("reachable", analysis.getReachable(node))
+                    .member("cycle", analysis.isInCycle(node))
+                    .endObject();
+        }
+        json.endArray().endObject();
+        out.write('\n');
+    }
+
+    /**
+     * The differences are written as {"addedPackages":["a"],"removedPackages":["b"],
+     * "addedDependencies":[{"package":"a","dependencies":["c"]}, ...],"removedDependencies":[...],
+     * "addedServices":[{"entity":"a.BResource","services":["Get"]}, ...],"removedServices":[...],"changed":true}
+     */
+    @Override
+    public void writeSnapshotDiff(SnapshotDiff diff, Writer out) throws IOException {
+        JsonWriter json = new JsonWriter(out);
+        json.beginObject();
+        json.name("addedPackages").beginArray();
+        for (String pkg : diff.getAddedPackages()) {
+            json.value(pkg);
+        }
+        json.endArray();
+        json.name("removedPackages").beginArray();
+        for (String pkg : diff.getRemovedPackages()) {
+            json.value(pkg);
+        }
+        json.endArray();
+        json.name("addedDependencies");
+        writePairs(diff.getAddedDependencies(), "package", "dependencies", json);
+        json.name("removedDependencies");
+        writePairs(diff.getRemovedDependencies(), "package", "dependencies", json);
+        json.name("addedServices");
+        writePairs(diff.getAddedServices(), "entity", "services", json);
+        json.name("removedServices");
+        writePairs(diff.getRemovedServices(), "entity", "services", json);
+        json.member("changed", !diff.isEmpty());
+        json.endObject();
+        out.write('\n');
+    }
+
+    /**
+     * Open the object of a report, partial results starting with "partial":true,"partialNotice":"..."
+     */
+    private JsonWriter beginReport(Writer out) throws IOException {
+        JsonWriter json = new JsonWriter(out);
+        json.beginObject();
+        if (getPartialNotice() != null) {
+            json.member("partial", true).member("partialNotice", getPartialNotice());
+        }
+        return json;
+    }
+
+    private void writePairs(SortedMap<String, SortedSet<String>> pairs, String keyName, String valuesName,
+                            JsonWriter json) throws IOException {
+        json.beginArray();
+        for (Map.Entry<String, SortedSet<String>> entry : pairs.entrySet()) {
+            json.beginObject().member(keyName, entry.getKey()).name(valuesName).beginArray();
+            for (String value : entry.getValue()) {
+                json.value(value);
+            }
+            json.endArray().endObject();
+        }
+        json.endArray();
+    }
+
+    private void writeGroups(List<List<String>> groups, JsonWriter json) throws IOException {
+        json.beginArray();
+        for (List<String> group : groups) {
+            json.beginArray();
+            for (String name : group) {
+                json.value(name);
+            }
+            json.endArray();
+        }
+        json.endArray();
+    }
+}
@@ -0,0 +1,170 @@
+package lba.util.report;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Minimal streaming JSON writer : values are written as soon as they are given, only the nesting state is kept.
+ */
+public class JsonWriter {
+
+    private final Writer out;
+
+    /**
+     * Whether a value has already been written at each nesting level
+     */
+    private boolean[] hasValue = new boolean[16];
+
+    private int depth;
+
+    /**
+     * Whether the next value follows a member name
+     */
+    private boolean afterName;
+
+    /**
+     * Constructor
+     *
+     * @param out output writer
+     */
+    public JsonWriter(Writer out) {
+        this.out = out;
+    }
+
+    public JsonWriter beginObject() throws IOException {
+        separator();
+        out.write('{');
+        push();
+        return this;
+    }
+
+    public JsonWriter endObject() throws IOException {
+        depth--;
+        out.write('}');
+        return this;
+    }
+
+    public JsonWriter beginArray() throws IOException {
+        separator();
+        out.write('[');
+        push();
+        return this;
+    }
+
+    public JsonWriter endArray() throws IOException {
+        depth--;
+        out.write(']');
+        return this;
+    }
+
+    /**
+     * Write the name of the next object member
+     */
+    public JsonWriter name(String name) throws IOException {
+        separator();
+        writeString(name);
+        out.write(':');
+        afterName = true;
+        return this;
+    }
+
+    public JsonWriter value(String value) throws IOException {
+        separator();
+        if (value == null) {
+            out.write("null");
+        } else {
+            writeString(value);
+        }
+        return this;
+    }
+
+    public JsonWriter value(long value) throws IOException {
+        separator();
+        out.write(Long.toString(value));
+        return this;
+    }
+
+    public JsonWriter value(double value) throws IOException {
+        separator();
+        out.write(Double.isNaN(value) || Double.isInfinite(value) ? "null" : Double.toString(value));
+        return this;
+    }
+
+    public JsonWriter value(boolean value) throws IOException {
+        separator();
+        out.write(value ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * Write a member with a string value
+     */
+    public JsonWriter member(String name, String value) throws IOException {
+        return name(name).value(value);
+    }
+
+    /**
+     * Write a member with a number value
+     */
+    public JsonWriter member(String name, long value) throws IOException {
+        return name(name).value(value);
+    }
+
+    /**
+     * Write a member with a boolean value
+     */
+    public JsonWriter member(String name, boolean value) throws IOException {
+        return name(name).value(value);
+    }
+
+    private void push() {
+        if (++depth == hasValue.length) {
+            boolean[] grown = new boolean[depth * 2];
+            System.arraycopy(hasValue, 0, grown, 0, hasValue.length);
+            hasValue = grown;
+        }
+        hasValue[depth] = false;
+    }
+
+    private void separator() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (hasValue[depth]) {
+            out.write(',');
+        }
+        hasValue[depth] = true;
+    }
+
+    private void writeString(String value) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.write("\\\"");
+                    break;
+                case '\\':
+                    out.write("\\\\");
+                    break;
+                case '\n':
+                    out.write("\\n");
+                    break;
+                case '\r':
+                    out.write("\\r");
+                    break;
+                case '\t':
+                    out.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+}
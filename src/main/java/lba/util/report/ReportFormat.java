@@ -0,0 +1,58 @@
+package lba.util.report;
+
+/**
+ * Output formats of the reports
+ */
+public enum ReportFormat {
+
+    DOT("dot"),
+    TEXT("txt"),
+    JSON("json"),
+    GRAPHML("graphml");
+
+    /**
+     * Default file extension
+     */
+    private final String extension;
+
+    ReportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * @return default file extension of the format
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * @return a new writer producing reports in this format
+     */
+    public ReportWriter createWriter() {
+        switch (this) {
+            case DOT:
+                return new DotReportWriter();
+            case JSON:
+                return new JsonReportWriter();
+            case GRAPHML:
+                return new GraphMLReportWriter();
+            default:
+                return new TextReportWriter();
+        }
+    }
+
+    /**
+     * @param name format name or file extension (such as "txt" for {@link #TEXT}), case insensitive
+     * @return the matching format
+     * @throws IllegalArgumentException if there is no such format
+     */
+    public static ReportFormat fromName(String name) {
+        for (ReportFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(name) || format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("No report format " + name);
+    }
+}
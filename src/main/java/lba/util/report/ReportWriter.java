@@ -0,0 +1,112 @@
+package lba.util.report;
+
+import lba.util.dependency.GraphAnalysis;
+import lba.util.lines.LineCounts;
+import lba.util.service.EndpointInventory;
+import lba.util.snapshot.SnapshotDiff;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+/**
+ * Writer of the analysis reports. Reports are streamed to the output writer while the results are iterated, without
+ * building the whole report in memory.
+ * <p>
+ * A format does not necessarily support all the reports, see {@link #supports(ReportType)}.
+ */
+public interface ReportWriter {
+
+    /**
+     * Reports produced by the analyzers
+     */
+    enum ReportType {
+        DEPENDENCIES, SERVICES, ENDPOINTS, LINES, GRAPH_ANALYSIS, SNAPSHOT_DIFF
+    }
+
+    /**
+     * @param type report type
+     * @return true if this writer can produce the report
+     */
+    boolean supports(ReportType type);
+
+    /**
+     * Mark the reports written next as partial, the analysis having stopped before all the files were analyzed
+     *
+     * @param notice why the results are partial, null for complete results
+     */
+    void setPartialNotice(String notice);
+
+    /**
+     * Write the packages dependencies graph
+     *
+     * @param dependencies dependencies of each package
+     * @param out          output writer
+     */
+    void writeDependencies(Map<String, ? extends SortedSet<String>> dependencies, Writer out) throws IOException;
+
+    /**
+     * Write the packages dependencies graph annotated with the result of its structural analysis, formats without
+     * annotations write the plain graph
+     *
+     * @param dependencies dependencies of each package
+     * @param analysis     analysis of the same dependencies
+     * @param out          output writer
+     */
+    void writeDependencies(Map<String, ? extends SortedSet<String>> dependencies, GraphAnalysis analysis, Writer out)
+            throws IOException;
+
+    /**
+     * Write the cycles, layers, fan-in, fan-out and reachability report of a package graph
+     *
+     * @param analysis analysis of the package graph
+     * @param out      output writer
+     */
+    void writeGraphAnalysis(GraphAnalysis analysis, Writer out) throws IOException;
+
+    /**
+     * Write the Restlet services report
+     *
+     * @param services verbs of each entity
+     * @param out      output writer
+     */
+    void writeServices(SortedMap<String, SortedSet<String>> services, Writer out) throws IOException;
+
+    /**
+     * Write the Restlet endpoints report
+     *
+     * @param inventory resource classes and routes
+     * @param out       output writer
+     */
+    void writeEndpoints(EndpointInventory inventory, Writer out) throws IOException;
+
+    /**
+     * Write the lines counter report
+     *
+     * @param linesNumber total number of lines
+     * @param out         output writer
+     */
+    void writeLines(long linesNumber, Writer out) throws IOException;
+
+    /**
+     * Write the lines counter report with the code, comment and blank lines breakdown, formats without breakdown write
+     * the total number of lines
+     *
+     * @param total       line counts of all the files
+     * @param packages    line counts of each package
+     * @param directories line counts of each directory
+     * @param out         output writer
+     */
+    void writeLines(LineCounts total, SortedMap<String, LineCounts> packages, SortedMap<String, LineCounts> directories,
+                    Writer out) throws IOException;
+
+    /**
+     * Write the differences between two analysis snapshots
+     *
+     * @param diff packages, dependencies and services added and removed
+     * @param out  output writer
+     */
+    void writeSnapshotDiff(SnapshotDiff diff, Writer out) throws IOException;
+}
@@ -0,0 +1,222 @@
+package lba.util.report;
+
+import lba.util.dependency.GraphAnalysis;
+import lba.util.dependency.PackageGraph;
+import lba.util.lines.LineCounts;
+import lba.util.service.Endpoint;
+import lba.util.service.EndpointInventory;
+import lba.util.service.ResourceClass;
+import lba.util.service.Route;
+import lba.util.snapshot.SnapshotDiff;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+/**
+ * Plain text report writer
+ */
+public class TextReportWriter extends AbstractReportWriter {
+
+    @Override
+    public boolean supports(ReportType type) {
+        return true;
+    }
+
+    /**
+     * One "package -> dependency" line per edge
+     */
+    @Override
+    public void writeDependencies(Map<String, ? extends SortedSet<String>> dependencies, Writer out) throws IOException {
+        writePartialNotice(out);
+        for (Map.Entry<String, ? extends SortedSet<String>> entry : dependencies.entrySet()) {
+            for (String dep : entry.getValue()) {
+                out.write(String.valueOf(entry.getKey()));
+                out.write(" -> ");
+                out.write(dep);
+                out.write('\n');
+            }
+        }
+    }
+
+    @Override
+    public void writeServices(SortedMap<String, SortedSet<String>> services, Writer out) throws IOException {
+        writePartialNotice(out);
+        int serviceNumber = 0;
+
+        for (Map.Entry<String, SortedSet<String>> entry : services.entrySet()) {
+            serviceNumber += entry.getValue().size();
+            out.write(entry.getKey());
+            out.write('=');
+            for (String verb : entry.getValue()) {
+                out.write(verb);
+                out.write(' ');
+            }
+            out.write('\n');
+        }
+
+        out.write("\n Total number of entities :" + services.size() + "\n");
+        out.write("\n Total number of services :" + serviceNumber + "\n");
+    }
+
+    /**
+     * One block per resource class with a "VERB value -> method" line per endpoint, then one
+     * "template -> target (declaring class)" line per route
+     */
+    @Override
+    public void writeEndpoints(EndpointInventory inventory, Writer out) throws IOException {
+        writePartialNotice(out);
+        for (ResourceClass resource : inventory.getResources().values()) {
+            out.write(resource.getName());
+            if (resource.getSuperclass() != null) {
+                out.write(" extends " + resource.getSuperclass());
+            }
+            out.write('\n');
+            for (Endpoint endpoint : resource.getEndpoints()) {
+                out.write("  " + endpoint.getVerb());
+                if (!endpoint.getValue().isEmpty()) {
+                    out.write(" " + endpoint.getValue());
+                }
+                out.write(" -> " + endpoint.getMethod() + "\n");
+            }
+        }
+
+        out.write("\nRoutes :\n");
+        for (Route route : inventory.getRoutes()) {
+            out.write((route.getTemplate().isEmpty() ? "(default)" : route.getTemplate()) + " -> " + route.getTarget());
+            if (!route.getDeclaringClass().isEmpty()) {
+                out.write(" (" + route.getDeclaringClass() + ")");
+            }
+            out.write('\n');
+        }
+
+        out.write("\n Total number of resources :" + inventory.getResources().size() + "\n");
+        out.write("\n Total number of endpoints :" + inventory.getEndpointCount() + "\n");
+        out.write("\n Total number of routes :" + inventory.getRoutes().size() + "\n");
+    }
+
+    @Override
+    public void writeLines(long linesNumber, Writer out) throws IOException {
+        writePartialNotice(out);
+        out.write("Total lines of code :" + linesNumber);
+    }
+
+    /**
+     * Total, then one line per package and per directory with its number of files and lines
+     */
+    @Override
+    public void writeLines(LineCounts total, SortedMap<String, LineCounts> packages,
+                           SortedMap<String, LineCounts> directories, Writer out) throws IOException {
+        writeLines(total.getLines(), out);
+        out.write("\nCode lines :" + total.getCode() + "\n");
+        out.write("Comment lines :" + total.getComment() + "\n");
+        out.write("Blank lines :" + total.getBlank() + "\n");
+
+        out.write("\nPackages :\n");
+        for (Map.Entry<String, LineCounts> entry : packages.entrySet()) {
+            writeLineCounts(entry.getKey().isEmpty() ? "(default package)" : entry.getKey(), entry.getValue(), out);
+        }
+        out.write("\nDirectories :\n");
+        for (Map.Entry<String, LineCounts> entry : directories.entrySet()) {
+            writeLineCounts(entry.getKey(), entry.getValue(), out);
+        }
+    }
+
+    private static void writeLineCounts(String name, LineCounts counts, Writer out) throws IOException {
+        out.write(name + " files=" + counts.getFiles() + " lines=" + counts.getLines() + " code=" + counts.getCode()
+                + " comment=" + counts.getComment() + " blank=" + counts.getBlank() + "\n");
+    }
+
+    /**
+     * Summary, cycles and layers, then one line per package with its layer, fan-in, fan-out and number of reachable
+     * packages
+     */
+    @Override
+    public void writeGraphAnalysis(GraphAnalysis analysis, Writer out) throws IOException {
+        writePartialNotice(out);
+        PackageGraph graph = analysis.getGraph();
+        List<List<String>> cycles = analysis.getCycles();
+        List<List<String>> layers = analysis.getLayers();
+
+        out.write("Packages :" + graph.getNodeCount() + "\n");
+        out.write("Dependencies :" + graph.getEdgeCount() + "\n");
+        out.write("Cycles :" + cycles.size() + "\n");
+        out.write("Layers :" + layers.size() + "\n");
+
+        int number = 0;
+        for (List<String> cycle : cycles) {
+            out.write("\ncycle " + (++number) + " (" + cycle.size() + " packages) :");
+            writeNames(cycle, out);
+        }
+
+        out.write('\n');
+        for (int layer = layers.size() - 1; layer >= 0; layer--) {
+            out.write("\nlayer " + layer + " :");
+            writeNames(layers.get(layer), out);
+        }
+
+        out.write("\n\npackage layer fanIn fanOut reachable cycle\n");
+        for (int node = 0; node < graph.getNodeCount(); node++) {
+            out.write(graph.getName(node));
+            out.write(" " + analysis.getLayer(node) + " " + analysis.getFanIn(node) + " " + analysis.getFanOut(node)
+                    + " " + analysis.getReachable(node) + " " + (analysis.isInCycle(node) ? "yes" : "no") + "\n");
+        }
+    }
+
+    /**
+     * One "+ package a" or "- package a" line per package, one "+ a -> b" or "- a -> b" line per dependency and one
+     * "+ service entity verb" or "- service entity verb" line per service, then the totals
+     */
+    @Override
+    public void writeSnapshotDiff(SnapshotDiff diff, Writer out) throws IOException {
+        for (String pkg : diff.getRemovedPackages()) {
+            out.write("- package " + pkg + "\n");
+        }
+        for (String pkg : diff.getAddedPackages()) {
+            out.write("+ package " + pkg + "\n");
+        }
+        int removedDependencies = writePairs(diff.getRemovedDependencies(), "- ", " -> ", out);
+        int addedDependencies = writePairs(diff.getAddedDependencies(), "+ ", " -> ", out);
+        int removedServices = writePairs(diff.getRemovedServices(), "- service ", " ", out);
+        int addedServices = writePairs(diff.getAddedServices(), "+ service ", " ", out);
+
+        out.write("\n Added : " + diff.getAddedPackages().size() + " packages, " + addedDependencies
+                + " dependencies, " + addedServices + " services\n");
+        out.write("\n Removed : " + diff.getRemovedPackages().size() + " packages, " + removedDependencies
+                + " dependencies, " + removedServices + " services\n");
+    }
+
+    /**
+     * @return number of pairs written
+     */
+    private int writePairs(SortedMap<String, SortedSet<String>> pairs, String prefix, String separator, Writer out)
+            throws IOException {
+        int count = 0;
+        for (Map.Entry<String, SortedSet<String>> entry : pairs.entrySet()) {
+            for (String value : entry.getValue()) {
+                out.write(prefix + entry.getKey() + separator + value + "\n");
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void writeNames(List<String> names, Writer out) throws IOException {
+        for (String name : names) {
+            out.write(' ');
+            out.write(name);
+        }
+    }
+
+    /**
+     * The partial results are announced by a first "Partial results : ..." paragraph
+     */
+    private void writePartialNotice(Writer out) throws IOException {
+        if (getPartialNotice() != null) {
+            out.write("Partial results : " + getPartialNotice() + "\n\n");
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package lba.util.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import lba.util.report.JsonWriter;
+import lba.util.service.Endpoint;
+import lba.util.service.ResourceClass;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local HTTP server answering queries on the results of an analysis, so that the IDE plugins and the commit hooks get
+ * their answers without starting a JVM and walking the sources for each question.
+ * <p>
+ * The server only listens on the loopback address. Every query is a GET answered in JSON from the current
+ * {@link QueryIndex} :
+ * <ul>
+ * <li><code>/dependencies?package=a.b</code> : packages the package depends on</li>
+ * <li><code>/dependents?package=a.b</code> : packages depending on the package</li>
+ * <li><code>/path?from=a.b&amp;to=c.d</code> : shortest dependency path between two packages</li>
+ * <li><code>/endpoints?class=a.b.FooResource</code> : Restlet verbs and endpoints of a class, given by its fully
+ * qualified or simple name</li>
+ * <li><code>/status</code> : size and age of the index</li>
+ * </ul>
+ * A POST to <code>/shutdown</code> stops the server. Errors are answered as <code>{"error":"message"}</code> with a 400
+ * (missing parameter) or 404 (unknown package or class) status.
+ */
+public class AnalysisServer {
+
+    /**
+     * Logger
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(AnalysisServer.class);
+
+    /**
+     * Port used when none is given
+     */
+    public static final int DEFAULT_PORT = 8642;
+
+    /**
+     * Number of threads answering the queries
+     */
+    private static final int THREADS = 2;
+
+    private final int port;
+
+    /**
+     * Index answering the queries, replaced as a whole when the results change
+     */
+    private volatile QueryIndex index;
+
+    private final LongAdder queries = new LongAdder();
+
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    /**
+     * Constructor
+     *
+     * @param port  local port, 0 for any free port
+     * @param index index answering the queries
+     */
+    public AnalysisServer(int port, QueryIndex index) {
+        this.port = port;
+        this.index = index;
+    }
+
+    /**
+     * Start listening, the queries are answered by background threads
+     */
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/dependencies", new PackageHandler(true));
+        server.createContext("/dependents", new PackageHandler(false));
+        server.createContext("/path", new PathHandler());
+        server.createContext("/endpoints", new EndpointsHandler());
+        server.createContext("/status", new StatusHandler());
+        server.createContext("/shutdown", new ShutdownHandler());
+        final AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "analysis-server-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        server.setExecutor(executor);
+        server.start();
+        LOG.info("Analysis server listening on {}", server.getAddress());
+    }
+
+    /**
+     * Wait until the server is stopped, by a shutdown query or by {@link #stop()}
+     */
+    public void awaitStop() throws InterruptedException {
+        stopped.await();
+    }
+
+    /**
+     * Stop the server, the queries in progress are given one second to complete
+     */
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(1);
+            executor.shutdown();
+            server = null;
+            LOG.info("Analysis server stopped after {} queries", queries.sum());
+        }
+        stopped.countDown();
+    }
+
+    /**
+     * @return the local port the server listens on
+     */
+    public int getPort() {
+        return server != null ? server.getAddress().getPort() : port;
+    }
+
+    /**
+     * @param index new index, answering the next queries
+     */
+    public void setIndex(QueryIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * Error answered to a query
+     */
+    private static class QueryException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        QueryException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    /**
+     * Base handler : parses the query string, and writes the JSON answer or the error
+     */
+    private abstract class QueryHandler implements HttpHandler {
+
+        /**
+         * Write the answer of a query
+         *
+         * @param index      current index
+         * @param parameters decoded query parameters
+         * @param json       answer writer
+         */
+        protected abstract void answer(QueryIndex index, Map<String, String> parameters, JsonWriter json)
+                throws IOException, QueryException;
+
+        protected String getMethod() {
+            return "GET";
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            long start = System.nanoTime();
+            queries.increment();
+            StringWriter body = new StringWriter();
+            int status = 200;
+            try {
+                if (!getMethod().equals(exchange.getRequestMethod())) {
+                    throw new QueryException(405, getMethod() + " required");
+                }
+                answer(index, parseQuery(exchange.getRequestURI().getRawQuery()), new JsonWriter(body));
+            } catch (QueryException e) {
+                status = e.status;
+                body = new StringWriter();
+                new JsonWriter(body).beginObject().member("error", e.getMessage()).endObject();
+            }
+            body.write('\n');
+
+            byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("{} answered in {} us", exchange.getRequestURI(), (System.nanoTime() - start) / 1000);
+            }
+        }
+
+        protected String getParameter(Map<String, String> parameters, String name) throws QueryException {
+            String value = parameters.get(name);
+            if (value == null || value.isEmpty()) {
+                throw new QueryException(400, "Missing parameter : " + name);
+            }
+            return value;
+        }
+
+        protected void checkPackage(QueryIndex index, String pkg) throws QueryException {
+            if (!index.hasDependencies()) {
+                throw new QueryException(404, "The dependencies were not analyzed");
+            }
+            if (!index.containsPackage(pkg)) {
+                throw new QueryException(404, "Unknown package : " + pkg);
+            }
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query) throws UnsupportedEncodingException, QueryException {
+        Map<String, String> parameters = new HashMap<String, String>();
+        if (query == null) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int equal = pair.indexOf('=');
+            if (equal > 0) {
+                try {
+                    parameters.put(URLDecoder.decode(pair.substring(0, equal), "UTF-8"),
+                            URLDecoder.decode(pair.substring(equal + 1), "UTF-8"));
+                } catch (IllegalArgumentException e) {
+                    throw new QueryException(400, "Malformed query : " + query);
+                }
+            }
+        }
+        return parameters;
+    }
+
+    private static void writeNames(JsonWriter json, String name, List<String> names) throws IOException {
+        json.name(name).beginArray();
+        for (String each : names) {
+            json.value(each);
+        }
+        json.endArray();
+    }
+
+    /**
+     * {"package":"a.b","dependencies":["c.d", ...]}, or "dependents"
+     */
+    private class PackageHandler extends QueryHandler {
+
+        private final boolean dependencies;
+
+        PackageHandler(boolean dependencies) {
+            this.dependencies = dependencies;
+        }
+
+        @Override
+        protected void answer(QueryIndex index, Map<String, String> parameters, JsonWriter json)
+                throws IOException, QueryException {
+            String pkg = getParameter(parameters, "package");
+            checkPackage(index, pkg);
+            json.beginObject().member("package", pkg);
+            if (dependencies) {
+                writeNames(json, "dependencies", index.getDependencies(pkg));
+            } else {
+                writeNames(json, "dependents", index.getDependents(pkg));
+            }
+            json.endObject();
+        }
+    }
+
+    /**
+     * {"from":"a.b","to":"e.f","path":["a.b","c.d","e.f"]}, the path being null when there is none
+     */
+    private class PathHandler extends QueryHandler {
+
+        @Override
+        protected void answer(QueryIndex index, Map<String, String> parameters, JsonWriter json)
+                throws IOException, QueryException {
+            String from = getParameter(parameters, "from");
+            String to = getParameter(parameters, "to");
+            checkPackage(index, from);
+            checkPackage(index, to);
+            List<String> path = index.findPath(from, to);
+            json.beginObject().member("from", from).member("to", to);
+            if (path == null) {
+                json.name("path").value((String) null);
+            } else {
+                writeNames(json, "path", path);
+            }
+            json.endObject();
+        }
+    }
+
+    /**
+     * {"class":"FooResource","classes":[{"class":"a.b.FooResource","verbs":["Get"],"superclass":"ServerResource",
+     * "endpoints":[{"verb":"GET","value":"json","method":"represent"}]}]}, the verbs and endpoints members being
+     * present when the services and the endpoints were analyzed
+     */
+    private class EndpointsHandler extends QueryHandler {
+
+        @Override
+        protected void answer(QueryIndex index, Map<String, String> parameters, JsonWriter json)
+                throws IOException, QueryException {
+            String name = getParameter(parameters, "class");
+            List<String> classes = index.findClasses(name);
+            if (classes.isEmpty()) {
+                throw new QueryException(404, "Unknown service or resource class : " + name);
+            }
+            json.beginObject().member("class", name).name("classes").beginArray();
+            for (String className : classes) {
+                json.beginObject().member("class", className);
+                SortedSet<String> verbs = index.getServiceVerbs(className);
+                if (verbs != null) {
+                    json.name("verbs").beginArray();
+                    for (String verb : verbs) {
+                        json.value(verb);
+                    }
+                    json.endArray();
+                }
+                ResourceClass resource = index.getResource(className);
+                if (resource != null) {
+                    json.member("superclass", resource.getSuperclass()).name("endpoints").beginArray();
+                    for (Endpoint endpoint : resource.getEndpoints()) {
+                        json.beginObject()
+                                .member("verb", endpoint.getVerb())
+                                .member("value", endpoint.getValue())
+                                .member("method", endpoint.getMethod())
+                                .endObject();
+                    }
+                    json.endArray();
+                }
+                json.endObject();
+            }
+            json.endArray().endObject();
+        }
+    }
+
+    /**
+     * {"packages":n,"dependencies":e,"classes":c,"builtAt":millis,"queries":q}
+     */
+    private class StatusHandler extends QueryHandler {
+
+        @Override
+        protected void answer(QueryIndex index, Map<String, String> parameters, JsonWriter json) throws IOException {
+            json.beginObject()
+                    .member("packages", index.getPackageCount())
+                    .member("dependencies", index.getDependencyCount())
+                    .member("classes", index.getClassCount())
+                    .member("builtAt", index.getBuiltAt())
+                    .member("queries", queries.sum())
+                    .endObject();
+        }
+    }
+
+    /**
+     * {"stopping":true}, the server is stopped once the answer is sent
+     */
+    private class ShutdownHandler extends QueryHandler {
+
+        @Override
+        protected String getMethod() {
+            return "POST";
+        }
+
+        @Override
+        protected void answer(QueryIndex index, Map<String, String> parameters, JsonWriter json) throws IOException {
+            json.beginObject().member("stopping", true).endObject();
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            super.handle(exchange);
+            if ("POST".equals(exchange.getRequestMethod())) {
+                // The server can't wait for its own handler, it is stopped by another thread
+                Thread stopper = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        stop();
+                    }
+                }, "analysis-server-stop");
+                stopper.start();
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package lba.util.server;
+
+import org.apache.commons.cli.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Thin command line client of the {@link AnalysisServer} : the query is sent to the local server and its JSON answer
+ * is printed as is. The exit status is 0 when the query succeeded, 1 otherwise.
+ * <pre>
+ * QueryClient [--port N] dependencies a.b
+ * QueryClient [--port N] dependents a.b
+ * QueryClient [--port N] path a.b c.d
+ * QueryClient [--port N] endpoints FooResource
+ * QueryClient [--port N] status
+ * QueryClient [--port N] shutdown
+ * </pre>
+ */
+public class QueryClient {
+
+    /**
+     * Connection and read timeout, in milliseconds
+     */
+    private static final int TIMEOUT_MILLIS = 5000;
+
+    private final int port;
+
+    /**
+     * Constructor
+     *
+     * @param port local port of the server
+     */
+    public QueryClient(int port) {
+        this.port = port;
+    }
+
+    /**
+     * Send a query
+     *
+     * @param query query name
+     * @param args  query arguments
+     * @return the answer of the server
+     */
+    public Answer query(String query, List<String> args) throws IOException, ParseException {
+        String path;
+        String method = "GET";
+        if (("dependencies".equals(query) || "dependents".equals(query)) && args.size() == 1) {
+            path = "/" + query + "?package=" + encode(args.get(0));
+        } else if ("path".equals(query) && args.size() == 2) {
+            path = "/path?from=" + encode(args.get(0)) + "&to=" + encode(args.get(1));
+        } else if ("endpoints".equals(query) && args.size() == 1) {
+            path = "/endpoints?class=" + encode(args.get(0));
+        } else if ("status".equals(query) && args.isEmpty()) {
+            path = "/status";
+        } else if ("shutdown".equals(query) && args.isEmpty()) {
+            path = "/shutdown";
+            method = "POST";
+        } else {
+            throw new ParseException("Unknown query or wrong number of arguments : " + query + " " + args);
+        }
+
+        HttpURLConnection connection = (HttpURLConnection) new URL("http", "127.0.0.1", port, path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(TIMEOUT_MILLIS);
+        connection.setReadTimeout(TIMEOUT_MILLIS);
+        try {
+            int status = connection.getResponseCode();
+            InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            if (in != null) {
+                try {
+                    byte[] buffer = new byte[8192];
+                    int read;
+                    while ((read = in.read(buffer)) >= 0) {
+                        body.write(buffer, 0, read);
+                    }
+                } finally {
+                    in.close();
+                }
+            }
+            return new Answer(status, new String(body.toByteArray(), StandardCharsets.UTF_8));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static String encode(String value) throws IOException {
+        return URLEncoder.encode(value, "UTF-8");
+    }
+
+    /**
+     * Answer of the server
+     */
+    public static class Answer {
+
+        private final int status;
+
+        private final String body;
+
+        Answer(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public String getBody() {
+            return body;
+        }
+    }
+
+    /**
+     * Main method
+     */
+    public static void main(String args[]) {
+        Options options = new Options();
+        options.addOption(
+                Option.builder()
+                        .longOpt("port")
+                        .desc("Local port of the analysis server (default: " + AnalysisServer.DEFAULT_PORT + ")")
+                        .hasArg()
+                        .argName("port")
+                        .build()
+        );
+
+        int exitStatus = 1;
+        try {
+            CommandLine line = new DefaultParser().parse(options, args);
+            List<String> arguments = line.getArgList();
+            if (arguments.isEmpty()) {
+                throw new ParseException("A query is required : dependencies, dependents, path, endpoints, status or shutdown");
+            }
+            int port = AnalysisServer.DEFAULT_PORT;
+            if (line.hasOption("port")) {
+                try {
+                    port = Integer.parseInt(line.getOptionValue("port"));
+                } catch (NumberFormatException e) {
+                    throw new ParseException("Invalid value for --port : " + line.getOptionValue("port"));
+                }
+            }
+
+            Answer answer = new QueryClient(port).query(arguments.get(0), arguments.subList(1, arguments.size()));
+            if (answer.getStatus() < 400) {
+                System.out.print(answer.getBody());
+                exitStatus = 0;
+            } else {
+                System.err.print(answer.getBody());
+            }
+        } catch (ParseException e) {
+            System.err.println(e.getMessage());
+            new HelpFormatter().printHelp("QueryClient [--port N] dependencies|dependents package | path from to "
+                    + "| endpoints class | status | shutdown", options);
+        } catch (IOException e) {
+            System.err.println("Analysis server not reachable : " + e.getMessage());
+        }
+        System.exit(exitStatus);
+    }
+}
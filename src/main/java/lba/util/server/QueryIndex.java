@@ -0,0 +1,249 @@
+package lba.util.server;
+
+import lba.util.dependency.DependencyManager;
+import lba.util.dependency.PackageGraph;
+import lba.util.service.EndpointInventory;
+import lba.util.service.ResourceClass;
+
+import java.util.*;
+
+/**
+ * Read only indexes answering the queries of the {@link AnalysisServer}, built once from the results of a run : the
+ * package graph with its edges in both directions, and the Restlet services and endpoints of each class.
+ * <p>
+ * The dependencies and the dependents of a package are read from compressed sparse row arrays, a path between two
+ * packages is a breadth first search over the same arrays, so that no query walks the sources or builds a map. An
+ * index is immutable and may be queried by several threads, it is replaced as a whole when the results change.
+ */
+public class QueryIndex {
+
+    /**
+     * Full package graph, null when the dependencies were not analyzed
+     */
+    private final PackageGraph graph;
+
+    /**
+     * First reverse edge index of each node, plus the total number of edges
+     */
+    private final int[] reverseOffsets;
+
+    /**
+     * Source node of each reverse edge, the sources of a node being sorted by name
+     */
+    private final int[] reverseSources;
+
+    /**
+     * Verbs of each Restlet service class
+     */
+    private final SortedMap<String, SortedSet<String>> services;
+
+    /**
+     * Resource classes of the endpoints inventory
+     */
+    private final SortedMap<String, ResourceClass> resources;
+
+    /**
+     * Fully qualified names of the classes of each simple name
+     */
+    private final Map<String, List<String>> classesBySimpleName = new HashMap<String, List<String>>();
+
+    /**
+     * Build time, in milliseconds since the epoch
+     */
+    private final long builtAt = System.currentTimeMillis();
+
+    /**
+     * Constructor
+     *
+     * @param manager   dependencies of the packages, null if not analyzed
+     * @param services  verbs of each Restlet service class, null if not analyzed
+     * @param inventory Restlet endpoints, null if not analyzed
+     */
+    public QueryIndex(DependencyManager manager, SortedMap<String, SortedSet<String>> services,
+                      EndpointInventory inventory) {
+        this.graph = manager == null ? null : PackageGraph.fromManager(manager);
+        this.services = services == null
+                ? new TreeMap<String, SortedSet<String>>() : new TreeMap<String, SortedSet<String>>(services);
+        this.resources = inventory == null
+                ? new TreeMap<String, ResourceClass>() : new TreeMap<String, ResourceClass>(inventory.getResources());
+
+        if (graph != null) {
+            // Reverse edges, counted then placed, the sources of a node come in node (thus name) order
+            int nodes = graph.getNodeCount();
+            reverseOffsets = new int[nodes + 1];
+            reverseSources = new int[graph.getEdgeCount()];
+            for (int edge = 0; edge < graph.getEdgeCount(); edge++) {
+                reverseOffsets[graph.getTarget(edge) + 1]++;
+            }
+            for (int node = 0; node < nodes; node++) {
+                reverseOffsets[node + 1] += reverseOffsets[node];
+            }
+            int[] next = Arrays.copyOf(reverseOffsets, nodes);
+            for (int node = 0; node < nodes; node++) {
+                for (int edge = graph.getFirstEdge(node); edge < graph.getLastEdge(node); edge++) {
+                    reverseSources[next[graph.getTarget(edge)]++] = node;
+                }
+            }
+        } else {
+            reverseOffsets = null;
+            reverseSources = null;
+        }
+
+        SortedSet<String> classes = new TreeSet<String>(this.services.keySet());
+        classes.addAll(this.resources.keySet());
+        for (String name : classes) {
+            String simpleName = name.substring(name.lastIndexOf('.') + 1);
+            List<String> names = classesBySimpleName.get(simpleName);
+            if (names == null) {
+                names = new ArrayList<String>();
+                classesBySimpleName.put(simpleName, names);
+            }
+            names.add(name);
+        }
+    }
+
+    /**
+     * @return true if the dependencies were analyzed
+     */
+    public boolean hasDependencies() {
+        return graph != null;
+    }
+
+    /**
+     * @param pkg package name
+     * @return true if the package is a node of the graph
+     */
+    public boolean containsPackage(String pkg) {
+        return graph != null && graph.getNode(pkg) >= 0;
+    }
+
+    /**
+     * @param pkg package name
+     * @return the packages the package depends on, sorted, null if the package is unknown
+     */
+    public List<String> getDependencies(String pkg) {
+        int node = graph == null ? -1 : graph.getNode(pkg);
+        if (node < 0) {
+            return null;
+        }
+        List<String> result = new ArrayList<String>(graph.getLastEdge(node) - graph.getFirstEdge(node));
+        for (int edge = graph.getFirstEdge(node); edge < graph.getLastEdge(node); edge++) {
+            result.add(graph.getName(graph.getTarget(edge)));
+        }
+        return result;
+    }
+
+    /**
+     * @param pkg package name
+     * @return the packages depending on the package, sorted, null if the package is unknown
+     */
+    public List<String> getDependents(String pkg) {
+        int node = graph == null ? -1 : graph.getNode(pkg);
+        if (node < 0) {
+            return null;
+        }
+        List<String> result = new ArrayList<String>(reverseOffsets[node + 1] - reverseOffsets[node]);
+        for (int edge = reverseOffsets[node]; edge < reverseOffsets[node + 1]; edge++) {
+            result.add(graph.getName(reverseSources[edge]));
+        }
+        return result;
+    }
+
+    /**
+     * Shortest dependency path between two packages
+     *
+     * @param from first package
+     * @param to   last package
+     * @return the packages of the path, both ends included, null if the packages are unknown or not connected
+     */
+    public List<String> findPath(String from, String to) {
+        int source = graph == null ? -1 : graph.getNode(from);
+        int target = graph == null ? -1 : graph.getNode(to);
+        if (source < 0 || target < 0) {
+            return null;
+        }
+        int[] previous = new int[graph.getNodeCount()];
+        Arrays.fill(previous, -1);
+        previous[source] = source;
+        int[] queue = new int[graph.getNodeCount()];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = source;
+        while (head < tail && previous[target] < 0) {
+            int node = queue[head++];
+            for (int edge = graph.getFirstEdge(node); edge < graph.getLastEdge(node); edge++) {
+                int next = graph.getTarget(edge);
+                if (previous[next] < 0) {
+                    previous[next] = node;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        if (previous[target] < 0) {
+            return null;
+        }
+        LinkedList<String> path = new LinkedList<String>();
+        for (int node = target; node != source; node = previous[node]) {
+            path.addFirst(graph.getName(node));
+        }
+        path.addFirst(graph.getName(source));
+        return path;
+    }
+
+    /**
+     * @param name fully qualified or simple class name
+     * @return the fully qualified names of the matching service or resource classes, sorted
+     */
+    public List<String> findClasses(String name) {
+        if (services.containsKey(name) || resources.containsKey(name)) {
+            return Collections.singletonList(name);
+        }
+        List<String> names = classesBySimpleName.get(name);
+        return names == null ? Collections.<String>emptyList() : Collections.unmodifiableList(names);
+    }
+
+    /**
+     * @param className fully qualified class name
+     * @return the verbs of the Restlet service class, null if the class is not a service
+     */
+    public SortedSet<String> getServiceVerbs(String className) {
+        return services.get(className);
+    }
+
+    /**
+     * @param className fully qualified class name
+     * @return the resource class of the endpoints inventory, null if the class is not a resource
+     */
+    public ResourceClass getResource(String className) {
+        return resources.get(className);
+    }
+
+    /**
+     * @return number of packages of the graph
+     */
+    public int getPackageCount() {
+        return graph == null ? 0 : graph.getNodeCount();
+    }
+
+    /**
+     * @return number of dependencies of the graph
+     */
+    public int getDependencyCount() {
+        return graph == null ? 0 : graph.getEdgeCount();
+    }
+
+    /**
+     * @return number of service or resource classes
+     */
+    public int getClassCount() {
+        int count = 0;
+        for (List<String> names : classesBySimpleName.values()) {
+            count += names.size();
+        }
+        return count;
+    }
+
+    public long getBuiltAt() {
+        return builtAt;
+    }
+}
@@ -0,0 +1,78 @@
+package lba.util.server;
+
+import lba.util.Analysis;
+import lba.util.CompositeAnalyzer;
+import lba.util.cache.AnalysisCache;
+import lba.util.watch.SourceWatcher;
+
+import java.io.IOException;
+
+/**
+ * Keep an analysis running once its reports are written : its results are served to the query clients until the
+ * server is stopped, and, in watch mode, the changed files are analyzed again and the reports and the served indexes
+ * are refreshed after each batch of changes
+ */
+public class ServerCommand {
+
+    private final Analysis analysis;
+
+    private final CompositeAnalyzer analyzer;
+
+    private final AnalysisCache cache;
+
+    private final int port;
+
+    private final long debounceMillis;
+
+    /**
+     * Constructor
+     *
+     * @param analysis       analysis whose walk is done and whose reports are written
+     * @param analyzer       analyzer holding the results of the walk
+     * @param cache          per-file results cache of the walk, required in watch mode
+     * @param port           port the queries are served on, negative to serve none
+     * @param debounceMillis quiet period closing a batch of changes, negative not to watch the sources
+     */
+    public ServerCommand(Analysis analysis, CompositeAnalyzer analyzer, AnalysisCache cache, int port,
+                         long debounceMillis) {
+        this.analysis = analysis;
+        this.analyzer = analyzer;
+        this.cache = cache;
+        this.port = port;
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * Serve the queries and watch the sources, until the server is stopped or the thread interrupted
+     */
+    public void run() throws IOException {
+        // The indexes are built once, the queries are answered without walking the sources again
+        final AnalysisServer server = port >= 0 ? new AnalysisServer(port, analysis.buildQueryIndex()) : null;
+        if (server != null) {
+            server.start();
+        }
+        try {
+            if (debounceMillis >= 0) {
+                new SourceWatcher(analysis.getRoots().get(0).getPath(), analyzer, cache, analysis.getSettings(),
+                        debounceMillis).watch(new SourceWatcher.ChangeListener() {
+                    @Override
+                    public void changed(int changedFiles) throws IOException {
+                        cache.save();
+                        analysis.writeReports();
+                        if (server != null) {
+                            server.setIndex(analysis.buildQueryIndex());
+                        }
+                    }
+                });
+            } else if (server != null) {
+                server.awaitStop();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (server != null) {
+                server.stop();
+            }
+        }
+    }
+}
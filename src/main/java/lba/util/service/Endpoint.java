@@ -0,0 +1,47 @@
+package lba.util.service;
+
+/**
+ * Method of a Restlet resource annotated with a verb annotation, such as <code>@Get("json")</code>
+ */
+public class Endpoint {
+
+    /**
+     * Verb, in upper case
+     */
+    private final String verb;
+
+    /**
+     * Value of the annotation (media types, query constraints), empty if none
+     */
+    private final String value;
+
+    /**
+     * Name of the annotated method, "?" if it could not be found
+     */
+    private final String method;
+
+    /**
+     * Constructor
+     *
+     * @param verb   verb, in upper case
+     * @param value  value of the annotation, empty if none
+     * @param method name of the annotated method
+     */
+    public Endpoint(String verb, String value, String method) {
+        this.verb = verb;
+        this.value = value;
+        this.method = method;
+    }
+
+    public String getVerb() {
+        return verb;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+}
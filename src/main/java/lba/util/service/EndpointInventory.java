@@ -0,0 +1,86 @@
+package lba.util.service;
+
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Restlet endpoints of the analyzed sources : the resource classes with their annotated methods, and the routes
+ * attached to the routers
+ */
+public class EndpointInventory {
+
+    /**
+     * Resource classes by fully qualified name
+     */
+    private final SortedMap<String, ResourceClass> resources = new TreeMap<String, ResourceClass>();
+
+    /**
+     * Routes attached to the routers
+     */
+    private final SortedSet<Route> routes = new TreeSet<Route>();
+
+    /**
+     * Add a resource class, a class declared twice (in two source roots) being replaced
+     *
+     * @param resource resource class
+     */
+    public void addResource(ResourceClass resource) {
+        resources.put(resource.getName(), resource);
+    }
+
+    /**
+     * @param route route attached to a router
+     */
+    public void addRoute(Route route) {
+        routes.add(route);
+    }
+
+    /**
+     * Remove a resource class previously added, unless it has been replaced by a class of the same name since
+     *
+     * @param resource resource class
+     */
+    public void removeResource(ResourceClass resource) {
+        if (resources.get(resource.getName()) == resource) {
+            resources.remove(resource.getName());
+        }
+    }
+
+    /**
+     * @param route route previously added
+     */
+    public void removeRoute(Route route) {
+        routes.remove(route);
+    }
+
+    /**
+     * Add the endpoints of another inventory
+     *
+     * @param other inventory of other sources
+     */
+    public void merge(EndpointInventory other) {
+        resources.putAll(other.resources);
+        routes.addAll(other.routes);
+    }
+
+    /**
+     * @return total number of annotated methods
+     */
+    public int getEndpointCount() {
+        int count = 0;
+        for (ResourceClass resource : resources.values()) {
+            count += resource.getEndpoints().size();
+        }
+        return count;
+    }
+
+    public SortedMap<String, ResourceClass> getResources() {
+        return resources;
+    }
+
+    public SortedSet<Route> getRoutes() {
+        return routes;
+    }
+}
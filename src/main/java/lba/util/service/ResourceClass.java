@@ -0,0 +1,55 @@
+package lba.util.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class declaring Restlet endpoints, or extending a resource class (a class whose simple name ends with "Resource")
+ */
+public class ResourceClass {
+
+    /**
+     * Fully qualified name, nested classes being named after their enclosing classes
+     */
+    private final String name;
+
+    /**
+     * Super class, as written, null if none
+     */
+    private final String superclass;
+
+    /**
+     * Annotated methods, in declaration order
+     */
+    private final List<Endpoint> endpoints = new ArrayList<Endpoint>();
+
+    /**
+     * Constructor
+     *
+     * @param name       fully qualified name
+     * @param superclass super class, as written, null if none
+     */
+    public ResourceClass(String name, String superclass) {
+        this.name = name;
+        this.superclass = superclass;
+    }
+
+    /**
+     * @return true if the class declares endpoints or extends a resource class
+     */
+    public boolean isResource() {
+        return !endpoints.isEmpty() || (superclass != null && superclass.endsWith("Resource"));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getSuperclass() {
+        return superclass;
+    }
+
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+}
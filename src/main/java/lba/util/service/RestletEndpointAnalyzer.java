@@ -0,0 +1,124 @@
+package lba.util.service;
+
+import lba.util.AbstractAnalyzer;
+import lba.util.BudgetExceededException;
+import lba.util.SourceFile;
+import lba.util.cache.CacheableAnalyzer;
+import lba.util.cache.FileRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Inventory of the Restlet endpoints : unlike {@link RestletServiceAnalyzer}, which only looks at the imports, the
+ * whole content of each file is scanned by a {@link RestletEndpointScanner}, so that every annotated method and every
+ * route is attributed to its class, nested classes included.
+ * <p>
+ * The resource classes and routes of each file are kept as the endpoints section of its {@link FileRecord}, so the
+ * unchanged files of a cached run are not read, and the endpoints of a changed or deleted file are retracted in watch
+ * mode.
+ */
+public class RestletEndpointAnalyzer extends AbstractAnalyzer<RestletEndpointAnalyzer> implements CacheableAnalyzer {
+
+    /**
+     * Logger
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(RestletEndpointAnalyzer.class);
+
+    /**
+     * Scanner of each thread
+     */
+    private static final ThreadLocal<RestletEndpointScanner> SCANNER = new ThreadLocal<RestletEndpointScanner>() {
+        @Override
+        protected RestletEndpointScanner initialValue() {
+            return new RestletEndpointScanner();
+        }
+    };
+
+    private final EndpointInventory inventory = new EndpointInventory();
+
+    @Override
+    public void analyseSource(SourceFile source) {
+        try {
+            FileRecord record = new FileRecord();
+            extract(source, record);
+            apply(record);
+        } catch (BudgetExceededException e) {
+            LOG.warn(e.getMessage());
+        } catch (IOException e) {
+            source.setFailed(true);
+            LOG.error(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean isExtracted(FileRecord record) {
+        return record.getResources() != null;
+    }
+
+    @Override
+    public void extract(SourceFile source, FileRecord record) throws IOException {
+        long bytesBefore = source.getBytesRead();
+        List<ResourceClass> classes = new ArrayList<ResourceClass>();
+        List<Route> routes = new ArrayList<Route>();
+        try {
+            SCANNER.get().scan(source.getContent(), source.getCharset(), source.getHeader().getPackageName(), classes,
+                    routes);
+        } finally {
+            bytesRead += source.getBytesRead() - bytesBefore;
+        }
+
+        List<ResourceClass> resources = new ArrayList<ResourceClass>();
+        for (ResourceClass resource : classes) {
+            if (resource.isResource()) {
+                LOG.debug("Resource found :" + resource.getName());
+                resources.add(resource);
+            }
+        }
+        record.setResources(resources);
+        record.setRoutes(routes);
+    }
+
+    @Override
+    public void apply(FileRecord record) {
+        for (ResourceClass resource : record.getResources()) {
+            inventory.addResource(resource);
+        }
+        for (Route route : record.getRoutes()) {
+            inventory.addRoute(route);
+        }
+    }
+
+    @Override
+    public void retract(FileRecord record) {
+        for (ResourceClass resource : record.getResources()) {
+            inventory.removeResource(resource);
+        }
+        for (Route route : record.getRoutes()) {
+            inventory.removeRoute(route);
+        }
+    }
+
+    @Override
+    public boolean needsWholeContent() {
+        return true;
+    }
+
+    @Override
+    public RestletEndpointAnalyzer split() {
+        return new RestletEndpointAnalyzer();
+    }
+
+    @Override
+    public void merge(RestletEndpointAnalyzer other) {
+        bytesRead += other.bytesRead;
+        inventory.merge(other.inventory);
+    }
+
+    public EndpointInventory getInventory() {
+        return inventory;
+    }
+}
@@ -0,0 +1,657 @@
+package lba.util.service;
+
+import lba.util.lexer.KeywordScanner;
+import lba.util.lines.LineClassifier;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Scanner of the Restlet endpoints of a whole source file : the verb annotations (<code>@Get("json")</code>...), the
+ * <code>attach</code> and <code>attachDefault</code> calls of the routers, and the type declarations, are all found in
+ * a single linear pass over the raw bytes by a {@link KeywordScanner}.
+ * <p>
+ * An <code>attach</code> call is a route only when its receiver is a router : a name declared anywhere in the file
+ * with a router type ({@link #ROUTER_TYPES}), a <code>new Router(...)</code> expression, the
+ * <code>getDefaultHost()</code> of a component, or <code>this</code> and <code>super</code> in a router subclass.
+ * <p>
+ * The scan follows comments and literals, so that the keywords they hold are ignored, and counts the braces to
+ * attribute every annotated method and every route to its enclosing class, nested classes included. The details of a
+ * match (annotation value, method name, route template and target) are read by a short look ahead from the match.
+ * <p>
+ * A scanner is not thread safe, but may be reused for several files.
+ */
+public class RestletEndpointScanner {
+
+    /**
+     * Restlet verb annotations
+     */
+    static final String[] VERBS = {"Get", "Post", "Put", "Delete", "Options", "Patch", "Head"};
+
+    /**
+     * Restlet router types, whose attach calls are routes
+     */
+    static final String[] ROUTER_TYPES = {"Router", "VirtualHost"};
+
+    /**
+     * Package of the verb annotations, matched when an annotation is written with its qualified name
+     */
+    private static final String ANNOTATIONS_PACKAGE = "org.restlet.resource";
+
+    /**
+     * Keywords of the qualified verb annotations (".Get"...), then the keywords following them
+     */
+    private static final int QUALIFIED = VERBS.length;
+    private static final int CLASS = 2 * VERBS.length;
+    private static final int INTERFACE = CLASS + 1;
+    private static final int ENUM = CLASS + 2;
+    private static final int RECORD = CLASS + 3;
+    private static final int ATTACH = CLASS + 4;
+    private static final int ATTACH_DEFAULT = CLASS + 5;
+    private static final int ROUTER = CLASS + 6;
+
+    /**
+     * Automaton of all the keywords, shared by all the scanners
+     */
+    private static final KeywordScanner KEYWORDS;
+
+    static {
+        List<String> keywords = new ArrayList<>();
+        for (String verb : VERBS) {
+            keywords.add("@" + verb);
+        }
+        for (String verb : VERBS) {
+            keywords.add("." + verb);
+        }
+        keywords.addAll(Arrays.asList("class", "interface", "enum", "record", ".attach(", ".attachDefault("));
+        keywords.addAll(Arrays.asList(ROUTER_TYPES));
+        KEYWORDS = new KeywordScanner(keywords);
+    }
+
+    /**
+     * Maximum number of bytes read by a look ahead
+     */
+    private static final int LOOK_AHEAD = 4096;
+
+    /**
+     * States of the scanner
+     */
+    private static final int CODE = 0;
+    private static final int LINE_COMMENT = 1;
+    private static final int BLOCK_COMMENT = 2;
+    private static final int STRING = 3;
+    private static final int CHARACTER = 4;
+    private static final int TEXT_BLOCK = 5;
+
+    private ByteBuffer content;
+
+    private Charset charset;
+
+    private int limit;
+
+    /**
+     * Class declared and not opened yet
+     */
+    private Frame pending;
+
+    /**
+     * Enclosing classes of the current position, innermost first
+     */
+    private final Deque<Frame> frames = new ArrayDeque<>();
+
+    /**
+     * Names declared with a router type
+     */
+    private final Set<String> routerNames = new HashSet<>();
+
+    /**
+     * Routes whose receiver is a name, kept until the end of the file where the router names are all known
+     */
+    private final List<Route> namedRoutes = new ArrayList<>();
+
+    private final List<String> receivers = new ArrayList<>();
+
+    /**
+     * Scan a source file
+     *
+     * @param content     raw content, read from its position to its limit
+     * @param charset     charset of the content
+     * @param packageName package of the file, null for the default package
+     * @param classes     list the declared classes are added to, in declaration order
+     * @param routes      list the routes found are added to
+     */
+    public void scan(ByteBuffer content, Charset charset, String packageName, List<ResourceClass> classes,
+                     List<Route> routes) {
+        if (!LineClassifier.isAsciiCompatible(charset)) {
+            scan(StandardCharsets.UTF_8.encode(charset.decode(content.duplicate())), StandardCharsets.UTF_8,
+                    packageName, classes, routes);
+            return;
+        }
+        this.content = content;
+        this.charset = charset;
+        this.limit = content.limit();
+        this.pending = null;
+        this.frames.clear();
+        this.routerNames.clear();
+        this.namedRoutes.clear();
+        this.receivers.clear();
+        String prefix = packageName == null || packageName.isEmpty() ? "" : packageName + ".";
+
+        int state = CODE;
+        int match = 0;
+        int depth = 0;
+        for (int i = content.position(); i < limit; i++) {
+            byte b = content.get(i);
+            byte next = i + 1 < limit ? content.get(i + 1) : 0;
+            switch (state) {
+                case CODE:
+                    if (b == '/' && (next == '/' || next == '*')) {
+                        state = next == '/' ? LINE_COMMENT : BLOCK_COMMENT;
+                        match = 0;
+                        i++;
+                        continue;
+                    }
+                    if (b == '"') {
+                        if (next == '"' && i + 2 < limit && content.get(i + 2) == '"') {
+                            state = TEXT_BLOCK;
+                            i += 2;
+                        } else {
+                            state = STRING;
+                        }
+                        match = 0;
+                        continue;
+                    }
+                    if (b == '\'') {
+                        state = CHARACTER;
+                        match = 0;
+                        continue;
+                    }
+                    if (b == '{') {
+                        depth++;
+                        if (pending != null) {
+                            pending.depth = depth;
+                            frames.push(pending);
+                            pending = null;
+                        }
+                    } else if (b == '}') {
+                        if (!frames.isEmpty() && frames.peek().depth == depth) {
+                            frames.pop();
+                        }
+                        depth--;
+                    }
+
+                    match = KEYWORDS.next(match, b);
+                    for (int found = KEYWORDS.getMatch(match); found != 0; found = KEYWORDS.getNextMatch(found)) {
+                        int keyword = KEYWORDS.getKeyword(found);
+                        onKeyword(keyword, i - KEYWORDS.getLength(keyword) + 1, i + 1, prefix, classes, routes);
+                    }
+                    break;
+                case LINE_COMMENT:
+                    if (b == '\n' || b == '\r') {
+                        state = CODE;
+                    }
+                    break;
+                case BLOCK_COMMENT:
+                    if (b == '*' && next == '/') {
+                        state = CODE;
+                        i++;
+                    }
+                    break;
+                case STRING:
+                case CHARACTER:
+                    if (b == '\\') {
+                        i++;
+                    } else if (b == (state == STRING ? '"' : '\'') || b == '\n' || b == '\r') {
+                        state = CODE;
+                    }
+                    break;
+                default:
+                    if (b == '\\') {
+                        i++;
+                    } else if (b == '"' && next == '"' && i + 2 < limit && content.get(i + 2) == '"') {
+                        state = CODE;
+                        i += 2;
+                    }
+                    break;
+            }
+        }
+        for (int i = 0; i < namedRoutes.size(); i++) {
+            if (routerNames.contains(receivers.get(i))) {
+                routes.add(namedRoutes.get(i));
+            }
+        }
+        this.content = null;
+    }
+
+    /**
+     * Handle a keyword found in the code
+     *
+     * @param keyword keyword index
+     * @param start   index of the first byte of the keyword
+     * @param end     index following the last byte of the keyword
+     */
+    private void onKeyword(int keyword, int start, int end, String prefix, List<ResourceClass> classes,
+                           List<Route> routes) {
+        if (keyword < CLASS) {
+            if (end < limit && isIdentifierPart(content.get(end))) {
+                return;
+            }
+            if (keyword >= QUALIFIED && !isQualifiedAnnotation(start)) {
+                return;
+            }
+            Frame frame = frames.peek();
+            if (frame != null) {
+                int position = skipSpaces(end);
+                String value = "";
+                if (position < limit && content.get(position) == '(') {
+                    int close = skipBalanced(position, '(', ')');
+                    value = getAnnotationValue(position + 1, close - 1);
+                    position = close;
+                }
+                frame.resource.getEndpoints().add(new Endpoint(VERBS[keyword % QUALIFIED].toUpperCase(), value,
+                        findMethodName(position)));
+            }
+        } else if (keyword <= RECORD) {
+            // A keyword and not a part of a name or a class literal
+            byte before = start > content.position() ? content.get(start - 1) : (byte) ' ';
+            if (isIdentifierPart(before) || before == '.' || end >= limit || !isSpace(content.get(end))) {
+                return;
+            }
+            int nameStart = skipSpaces(end);
+            int nameEnd = skipIdentifier(nameStart);
+            if (nameEnd == nameStart) {
+                return;
+            }
+            if (keyword == RECORD) {
+                // A contextual keyword : a record name is followed by its header
+                int header = skipSpaces(nameEnd);
+                if (header >= limit || (content.get(header) != '(' && content.get(header) != '<')) {
+                    return;
+                }
+            }
+            // The name of the enclosing class is already qualified
+            String name = (frames.isEmpty() ? prefix : frames.peek().resource.getName() + ".") + getText(nameStart, nameEnd);
+            ResourceClass resource = new ResourceClass(name, keyword == CLASS ? findSuperclass(nameEnd) : null);
+            classes.add(resource);
+            pending = new Frame(resource);
+        } else if (keyword >= ROUTER) {
+            onRouterType(start, end);
+        } else {
+            List<String> arguments = getArguments(end);
+            String declaringClass = frames.isEmpty() ? "" : frames.peek().resource.getName();
+            Route route = null;
+            if (keyword == ATTACH && arguments.size() >= 2) {
+                route = new Route(unquote(arguments.get(0)), getTarget(arguments.get(1)), declaringClass);
+            } else if (keyword == ATTACH_DEFAULT && arguments.size() == 1) {
+                route = new Route("", getTarget(arguments.get(0)), declaringClass);
+            }
+            if (route == null) {
+                return;
+            }
+            String receiver = getReceiver(start);
+            if (receiver == null) {
+                return;
+            }
+            if (isRouterExpression(receiver)) {
+                routes.add(route);
+            } else if (receiver.indexOf('(') < 0) {
+                namedRoutes.add(route);
+                receivers.add(receiver);
+            }
+        }
+    }
+
+    /**
+     * Record the name declared by a router type, such as "router" in <code>Router router = new Router(context);</code>
+     * or in a <code>(Router router)</code> parameter
+     */
+    private void onRouterType(int start, int end) {
+        if ((start > content.position() && isIdentifierPart(content.get(start - 1)))
+                || (end < limit && isIdentifierPart(content.get(end)))) {
+            return;
+        }
+        int nameStart = skipSpaces(end);
+        int nameEnd = skipIdentifier(nameStart);
+        if (nameEnd == nameStart) {
+            return;
+        }
+        int after = skipSpaces(nameEnd);
+        byte b = after < limit ? content.get(after) : (byte) ';';
+        if (b == '=' || b == ';' || b == ',' || b == ')') {
+            routerNames.add(getText(nameStart, nameEnd));
+        }
+    }
+
+    /**
+     * @param dot index of the dot before the called method
+     * @return the receiver of a call : a name, or "name()" for the result of a call, "new Type()" for a new instance,
+     * null if it can not be read
+     */
+    private String getReceiver(int dot) {
+        int i = skipSpacesBackward(dot - 1);
+        if (i < content.position()) {
+            return null;
+        }
+        String call = "";
+        if (content.get(i) == ')') {
+            int depth = 0;
+            while (i >= content.position()) {
+                byte b = content.get(i);
+                if (b == ')') {
+                    depth++;
+                } else if (b == '(' && --depth == 0) {
+                    break;
+                }
+                i--;
+            }
+            i = skipSpacesBackward(i - 1);
+            call = "()";
+        }
+        int nameEnd = i + 1;
+        while (i >= content.position() && isIdentifierPart(content.get(i))) {
+            i--;
+        }
+        if (i + 1 == nameEnd) {
+            return null;
+        }
+        String name = getText(i + 1, nameEnd);
+        if (!call.isEmpty()) {
+            // Skip the qualifier of the type of a new instance
+            while (i >= content.position() && (isIdentifierPart(content.get(i)) || content.get(i) == '.')) {
+                i--;
+            }
+            int keywordEnd = skipSpacesBackward(i) + 1;
+            if (keywordEnd >= content.position() + 3 && "new".equals(getText(keywordEnd - 3, keywordEnd))
+                    && (keywordEnd == content.position() + 3 || !isIdentifierPart(content.get(keywordEnd - 4)))) {
+                return "new " + name + call;
+            }
+        }
+        return name + call;
+    }
+
+    /**
+     * @return true if the receiver of a call is a router whatever the names declared in the file
+     */
+    private boolean isRouterExpression(String receiver) {
+        if ("getDefaultHost()".equals(receiver)) {
+            return true;
+        }
+        if ("this".equals(receiver) || "super".equals(receiver)) {
+            String superclass = frames.isEmpty() ? null : frames.peek().resource.getSuperclass();
+            return superclass != null && isRouterType(superclass.substring(superclass.lastIndexOf('.') + 1));
+        }
+        return receiver.startsWith("new ") && isRouterType(receiver.substring(4, receiver.length() - 2));
+    }
+
+    private static boolean isRouterType(String simpleName) {
+        for (String type : ROUTER_TYPES) {
+            if (type.equals(simpleName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param dot index of the dot before the verb of a qualified name
+     * @return true if the qualified name is a verb annotation of the Restlet package, such as
+     * <code>@org.restlet.resource.Get</code>
+     */
+    private boolean isQualifiedAnnotation(int dot) {
+        StringBuilder name = new StringBuilder();
+        int i = dot - 1;
+        while (i >= content.position()) {
+            byte b = content.get(i);
+            if (isIdentifierPart(b) || b == '.') {
+                name.append((char) b);
+            } else if (!isSpace(b)) {
+                break;
+            }
+            i--;
+        }
+        return i >= content.position() && content.get(i) == '@'
+                && ANNOTATIONS_PACKAGE.equals(name.reverse().toString());
+    }
+
+    /**
+     * @return the content of the first string literal of an annotation, or its text if it holds none
+     */
+    private String getAnnotationValue(int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (content.get(i) == '"') {
+                int close = skipLiteral(i);
+                return getText(i + 1, close - 1);
+            }
+        }
+        return getText(start, end).trim();
+    }
+
+    /**
+     * @return the name of the method following an annotation : the last name before the parameters, skipping the
+     * other annotations, modifiers, type parameters and return type, "?" if the annotation is not followed by a method
+     */
+    private String findMethodName(int position) {
+        String last = null;
+        int i = position;
+        int max = Math.min(limit, position + LOOK_AHEAD);
+        while (i < max) {
+            byte b = content.get(i);
+            if (isSpace(b) || b == '.' || b == '[' || b == ']' || b == ',' || b == '?' || b == '&') {
+                i++;
+            } else if (b == '/' && i + 1 < limit && (content.get(i + 1) == '/' || content.get(i + 1) == '*')) {
+                i = skipComment(i);
+            } else if (b == '@') {
+                i = skipSpaces(skipQualifiedName(i + 1));
+                if (i < limit && content.get(i) == '(') {
+                    i = skipBalanced(i, '(', ')');
+                }
+            } else if (b == '<') {
+                i = skipBalanced(i, '<', '>');
+            } else if (isIdentifierPart(b)) {
+                int end = skipIdentifier(i);
+                last = getText(i, end);
+                i = end;
+            } else if (b == '(') {
+                return last != null ? last : "?";
+            } else {
+                break;
+            }
+        }
+        return "?";
+    }
+
+    /**
+     * @return the super class of a class declaration, as written, null if none
+     */
+    private String findSuperclass(int position) {
+        int i = position;
+        int max = Math.min(limit, position + LOOK_AHEAD);
+        while (i < max) {
+            byte b = content.get(i);
+            if (b == '{' || b == ';') {
+                break;
+            }
+            if (b == '/' && i + 1 < limit && (content.get(i + 1) == '/' || content.get(i + 1) == '*')) {
+                i = skipComment(i);
+            } else if (b == '<') {
+                i = skipBalanced(i, '<', '>');
+            } else if (isIdentifierPart(b)) {
+                int end = skipIdentifier(i);
+                if (end - i == 7 && "extends".equals(getText(i, end))) {
+                    int nameStart = skipSpaces(end);
+                    return getText(nameStart, skipQualifiedName(nameStart));
+                }
+                i = end;
+            } else {
+                i++;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the top level arguments of a call, as written, the position being after the opening parenthesis
+     */
+    private List<String> getArguments(int position) {
+        List<String> arguments = new ArrayList<>();
+        int start = position;
+        int depth = 0;
+        int max = Math.min(limit, position + LOOK_AHEAD);
+        for (int i = position; i < max; i++) {
+            byte b = content.get(i);
+            if (b == '"' || b == '\'') {
+                i = skipLiteral(i) - 1;
+            } else if (b == '(' || b == '[' || b == '{') {
+                depth++;
+            } else if ((b == ',' && depth == 0) || ((b == ')' || b == ']' || b == '}') && depth-- == 0)) {
+                String argument = getText(start, i).trim();
+                if (!argument.isEmpty()) {
+                    arguments.add(argument);
+                }
+                if (b != ',') {
+                    return arguments;
+                }
+                start = i + 1;
+            }
+        }
+        // Unbalanced call
+        return new ArrayList<>();
+    }
+
+    private static String unquote(String argument) {
+        if (argument.length() >= 2 && argument.startsWith("\"") && argument.endsWith("\"")) {
+            return argument.substring(1, argument.length() - 1);
+        }
+        return argument;
+    }
+
+    private static String getTarget(String argument) {
+        return argument.endsWith(".class") ? argument.substring(0, argument.length() - ".class".length()).trim() : argument;
+    }
+
+    /**
+     * @return the index following a string or character literal starting at the given index
+     */
+    private int skipLiteral(int position) {
+        byte quote = content.get(position);
+        for (int i = position + 1; i < limit; i++) {
+            byte b = content.get(i);
+            if (b == '\\') {
+                i++;
+            } else if (b == quote || b == '\n' || b == '\r') {
+                return i + 1;
+            }
+        }
+        return limit;
+    }
+
+    /**
+     * @return the index following the closing character matching the opening one at the given index
+     */
+    private int skipBalanced(int position, char open, char close) {
+        int depth = 0;
+        int max = Math.min(limit, position + LOOK_AHEAD);
+        for (int i = position; i < max; i++) {
+            byte b = content.get(i);
+            if ((b == '"' || b == '\'') && open != '<') {
+                i = skipLiteral(i) - 1;
+            } else if (b == open) {
+                depth++;
+            } else if (b == close && --depth == 0) {
+                return i + 1;
+            }
+        }
+        return max;
+    }
+
+    private int skipComment(int position) {
+        boolean line = content.get(position + 1) == '/';
+        for (int i = position + 2; i < limit; i++) {
+            byte b = content.get(i);
+            if (line && (b == '\n' || b == '\r')) {
+                return i;
+            }
+            if (!line && b == '*' && i + 1 < limit && content.get(i + 1) == '/') {
+                return i + 2;
+            }
+        }
+        return limit;
+    }
+
+    private int skipSpaces(int position) {
+        int i = position;
+        while (i < limit && isSpace(content.get(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private int skipSpacesBackward(int position) {
+        int i = position;
+        while (i >= content.position() && isSpace(content.get(i))) {
+            i--;
+        }
+        return i;
+    }
+
+    private int skipIdentifier(int position) {
+        int i = position;
+        while (i < limit && isIdentifierPart(content.get(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private int skipQualifiedName(int position) {
+        int i = position;
+        while (i < limit && (isIdentifierPart(content.get(i)) || content.get(i) == '.')) {
+            i++;
+        }
+        return i;
+    }
+
+    private String getText(int start, int end) {
+        byte[] bytes = new byte[Math.max(0, end - start)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = content.get(start + i);
+        }
+        return new String(bytes, charset);
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '\f';
+    }
+
+    /**
+     * Bytes of non ASCII characters are taken as identifier parts
+     */
+    private static boolean isIdentifierPart(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '_' || b == '$'
+                || b < 0;
+    }
+
+    /**
+     * Class whose body is being scanned
+     */
+    private static class Frame {
+
+        private final ResourceClass resource;
+
+        /**
+         * Brace depth of the class body
+         */
+        private int depth;
+
+        Frame(ResourceClass resource) {
+            this.resource = resource;
+        }
+    }
+}
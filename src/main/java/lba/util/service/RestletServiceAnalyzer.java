@@ -1,24 +1,36 @@
 package lba.util.service;
 
 import lba.util.AbstractAnalyzer;
+import lba.util.BudgetExceededException;
+import lba.util.SourceFile;
+import lba.util.cache.CacheableAnalyzer;
+import lba.util.cache.FileRecord;
+import lba.util.lexer.JavaHeader;
+import lba.util.lexer.JavaHeaderLexer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.nio.charset.Charset;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.nio.CharBuffer;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
-public class RestletServiceAnalyzer extends AbstractAnalyzer {
+public class RestletServiceAnalyzer extends AbstractAnalyzer<RestletServiceAnalyzer> implements CacheableAnalyzer {
 
     /**
      * Logger
      */
     private static final Logger LOG = LoggerFactory.getLogger(RestletServiceAnalyzer.class);
 
+    /**
+     * Package of the Restlet annotations
+     */
+    private static final String RESTLET_RESOURCE_PACKAGE = "org.restlet.resource.";
+
+    /**
+     * Restlet annotations considered as services
+     */
+    private static final Set<String> VERBS = new HashSet<String>(Arrays.asList("Get", "Post", "Put", "Delete"));
+
     /**
      * Services found by the analyzer
      */
@@ -26,59 +38,124 @@ public class RestletServiceAnalyzer extends AbstractAnalyzer {
 
 
     @Override
-    public void analyseFile(Path file) {
+    public void analyseSource(SourceFile source) {
+        try {
+            FileRecord record = new FileRecord();
+            extract(source, record);
+            apply(record);
+        } catch (BudgetExceededException e) {
+            LOG.warn(e.getMessage());
+        } catch (IOException e) {
+            source.setFailed(true);
+            LOG.error(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean isExtracted(FileRecord record) {
+        return record.getVerbs() != null;
+    }
+
+    @Override
+    public void extract(SourceFile source, FileRecord record) throws IOException {
+        long bytesBefore = source.getBytesRead();
+        JavaHeader header;
         try {
-            // First we will read the file
-            List<String> lines = Files.readAllLines(file, Charset.defaultCharset());
-
-            SortedSet<String> services = new TreeSet<String>();
-
-            boolean foundEntity = false;
-            String packageName = null;
-
-            Pattern patternPackage = Pattern.compile("package [\\s]*((?:[a-z][a-z_0-9]*\\.)*(?:$[a-z_]|[\\w_])*)");
-            Pattern patternImport = Pattern.compile("import [\\s]*org\\.restlet\\.resource\\.(Get|Post|Put|Delete)");
-            Pattern patternEntity = Pattern.compile("public(?:\\s)*(?:final)*(?:abstract)*(?:\\s)*(?:class|enum|interface) ((?:\\w)*)");
-            Matcher matcher;
-
-            // Then we have to find the class package
-            for (String line : lines) {
-                matcher = patternPackage.matcher(line);
-                if (matcher.find()) {
-                    packageName = matcher.group(1);
-                    LOG.debug("Package found :" + packageName);
-                } else {
-                    // Try to find import statements
-                    matcher = patternImport.matcher(line);
-                    if (matcher.find()) {
-                        String verb = matcher.group(1);
-                        LOG.debug("Service found :" + verb);
-                        services.add(verb);
-                    } else {
-                        // Try to find class, interface or enum keyword
-                        matcher = patternEntity.matcher(line);
-                        if (matcher.find()) {
-                            foundEntity = true;
-                            String entity = matcher.group(1);
-                            if (services.size() > 0) {
-                                servicesRepository.put(packageName + "." + entity, services);
-                            }
-                            break;
-                        }
-                    }
+            // The file is read up to the type declaration only
+            header = source.getHeader();
+        } finally {
+            bytesRead += source.getBytesRead() - bytesBefore;
+        }
+
+        if (!header.hasType()) {
+            // Something went wrong...
+            if (source.isHeaderTruncated()) {
+                throw new IOException("No class, interface or enum found in the header of file :" + source);
+            }
+            throw new IOException("No class, interface or enum found in file :" + source);
+        }
+
+        // The services are given by the imported Restlet annotations
+        SortedSet<String> services = new TreeSet<String>();
+        for (String importStmt : header.getImports()) {
+            if (importStmt.startsWith(RESTLET_RESOURCE_PACKAGE)) {
+                String verb = importStmt.substring(RESTLET_RESOURCE_PACKAGE.length());
+                if (VERBS.contains(verb)) {
+                    LOG.debug("Service found :" + verb);
+                    services.add(verb);
                 }
             }
+        }
+
+        // The entity is the first public type, usually the first type of the file
+        String entity = header.isPublicType() ? header.getTypeName() : findPublicType(source);
+        if (entity == null) {
+            throw new IOException("No public class, interface or enum found in file :" + source);
+        }
 
-            if (!foundEntity) {
-                // Something went wrong...
-                throw new IOException("No class, interface or enum found in file :" + file);
+        record.setServiceEntity(header.getPackageName() + "." + entity);
+        record.setVerbs(services);
+    }
+
+    /**
+     * Look for the first public type of a file whose first type is not public, the whole file is then read
+     *
+     * @return the simple name of the first public type, null if none
+     */
+    private String findPublicType(SourceFile source) throws IOException {
+        long bytesBefore = source.getBytesRead();
+        final CharBuffer chars;
+        try {
+            chars = source.getCharset().decode(source.getContent().duplicate());
+        } finally {
+            bytesRead += source.getBytesRead() - bytesBefore;
+        }
+        JavaHeaderLexer lexer = new JavaHeaderLexer(new JavaHeaderLexer.CharSource() {
+            private boolean read;
+
+            @Override
+            public CharBuffer read() {
+                if (read) {
+                    return null;
+                }
+                read = true;
+                return chars;
+            }
+        });
+        JavaHeader.parse(lexer);
+        while (lexer.nextType() == JavaHeaderLexer.TokenType.TYPE_DECLARATION) {
+            if ((lexer.getModifiers() & JavaHeaderLexer.PUBLIC) != 0) {
+                return lexer.getName();
             }
+        }
+        return null;
+    }
 
-        } catch (IOException e) {
-            LOG.error(e.getMessage(), e);
+    @Override
+    public void apply(FileRecord record) {
+        if (record.getVerbs().size() > 0) {
+            servicesRepository.put(record.getServiceEntity(), record.getVerbs());
+        }
+    }
+
+    @Override
+    public void retract(FileRecord record) {
+        if (record.getVerbs().size() > 0) {
+            servicesRepository.remove(record.getServiceEntity());
         }
     }
 
+    @Override
+    public RestletServiceAnalyzer split() {
+        return new RestletServiceAnalyzer();
+    }
+
+    @Override
+    public void merge(RestletServiceAnalyzer other) {
+        bytesRead += other.bytesRead;
+        servicesRepository.putAll(other.servicesRepository);
+    }
+
     public SortedMap<String, SortedSet<String>> getServicesRepository() {
         return servicesRepository;
     }
@@ -0,0 +1,73 @@
+package lba.util.service;
+
+/**
+ * Route attached to a Restlet router, with <code>router.attach("/template", Target.class)</code> or
+ * <code>router.attachDefault(Target.class)</code>
+ */
+public class Route implements Comparable<Route> {
+
+    /**
+     * URI template, the text of the argument when it is not a string literal, empty for a default route
+     */
+    private final String template;
+
+    /**
+     * Attached target : the class name for a class literal, the text of the argument otherwise
+     */
+    private final String target;
+
+    /**
+     * Class declaring the route
+     */
+    private final String declaringClass;
+
+    /**
+     * Constructor
+     *
+     * @param template       URI template, empty for a default route
+     * @param target         attached target
+     * @param declaringClass class declaring the route
+     */
+    public Route(String template, String target, String declaringClass) {
+        this.template = template;
+        this.target = target;
+        this.declaringClass = declaringClass;
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    public String getTarget() {
+        return target;
+    }
+
+    public String getDeclaringClass() {
+        return declaringClass;
+    }
+
+    /**
+     * Routes are sorted by template, then target and declaring class
+     */
+    @Override
+    public int compareTo(Route other) {
+        int result = template.compareTo(other.template);
+        if (result == 0) {
+            result = target.compareTo(other.target);
+        }
+        if (result == 0) {
+            result = declaringClass.compareTo(other.declaringClass);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Route && compareTo((Route) o) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return (template.hashCode() * 31 + target.hashCode()) * 31 + declaringClass.hashCode();
+    }
+}
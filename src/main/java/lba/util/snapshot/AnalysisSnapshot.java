@@ -0,0 +1,181 @@
+package lba.util.snapshot;
+
+import lba.util.dependency.DependencyGraph;
+import lba.util.dependency.DependencyManager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Writer of the binary snapshots of an analysis : the dependencies of the packages with their number of occurrences,
+ * the module tags of the packages and the Restlet services, in the format read in place by {@link SnapshotFile}.
+ * <p>
+ * Unlike the reports, a snapshot can be loaded back into a {@link DependencyManager}, and two snapshots are compared
+ * without decoding the names they share, so the results of two releases are diffed without analyzing them again.
+ */
+public class AnalysisSnapshot {
+
+    private AnalysisSnapshot() {
+    }
+
+    /**
+     * Write a snapshot. The file is written next to the target then moved, so that a reader never maps a partial
+     * snapshot.
+     *
+     * @param file     snapshot file
+     * @param manager  dependencies, may be null
+     * @param services verbs of each Restlet entity, may be null
+     * @return number of names written
+     */
+    public static int write(Path file, DependencyManager manager, SortedMap<String, SortedSet<String>> services)
+            throws IOException {
+        DependencyGraph graph = manager == null ? null : manager.getGraph();
+        Map<String, SortedSet<String>> modules = manager == null
+                ? Collections.<String, SortedSet<String>>emptyMap() : manager.getPackageModules();
+        if (services == null) {
+            services = Collections.emptySortedMap();
+        }
+
+        // Names referred to, sorted by their UTF-8 bytes
+        Set<String> referred = new HashSet<String>();
+        if (graph != null) {
+            for (int node = 0; node < graph.getNodeCount(); node++) {
+                if (graph.getOutDegree(node) > 0) {
+                    referred.add(graph.getName(node));
+                    for (int edge = graph.getFirstEdge(node); edge < graph.getLastEdge(node); edge++) {
+                        referred.add(graph.getName(graph.getTarget(edge)));
+                    }
+                }
+            }
+        }
+        for (Map.Entry<String, SortedSet<String>> entry : services.entrySet()) {
+            referred.add(entry.getKey());
+            referred.addAll(entry.getValue());
+        }
+        for (Map.Entry<String, SortedSet<String>> entry : modules.entrySet()) {
+            referred.add(entry.getKey());
+            referred.addAll(entry.getValue());
+        }
+        List<byte[]> sortedNames = new ArrayList<byte[]>(referred.size());
+        for (String name : referred) {
+            sortedNames.add(name.getBytes(StandardCharsets.UTF_8));
+        }
+        Collections.sort(sortedNames, new Comparator<byte[]>() {
+            @Override
+            public int compare(byte[] a, byte[] b) {
+                return SnapshotFile.compare(ByteBuffer.wrap(a), 0, a.length, ByteBuffer.wrap(b), 0, b.length);
+            }
+        });
+        Map<String, Integer> indexes = new HashMap<String, Integer>(sortedNames.size() * 2);
+        int namesSize = 0;
+        int[] nameOffsets = new int[sortedNames.size() + 1];
+        for (int index = 0; index < sortedNames.size(); index++) {
+            indexes.put(new String(sortedNames.get(index), StandardCharsets.UTF_8), index);
+            nameOffsets[index] = namesSize;
+            namesSize += sortedNames.get(index).length;
+        }
+        nameOffsets[sortedNames.size()] = namesSize;
+
+        // Edges sorted by package then dependency : the packages are visited in name order and the dependencies of
+        // each package, packed with their count, are sorted by name index
+        int edgeCount = 0;
+        int[] nodeIndexes = null;
+        int[] packageNodes = new int[sortedNames.size()];
+        Arrays.fill(packageNodes, -1);
+        if (graph != null) {
+            nodeIndexes = new int[graph.getNodeCount()];
+            for (int node = 0; node < graph.getNodeCount(); node++) {
+                Integer index = indexes.get(graph.getName(node));
+                nodeIndexes[node] = index == null ? -1 : index;
+                if (graph.getOutDegree(node) > 0) {
+                    packageNodes[index] = node;
+                    edgeCount += graph.getOutDegree(node);
+                }
+            }
+        }
+        long[] edges = new long[edgeCount];
+        int[] edgeCounts = new int[edgeCount];
+        int edge = 0;
+        for (int index = 0; index < packageNodes.length; index++) {
+            int node = packageNodes[index];
+            if (node < 0) {
+                continue;
+            }
+            long[] dependencies = new long[graph.getOutDegree(node)];
+            for (int i = 0; i < dependencies.length; i++) {
+                int graphEdge = graph.getFirstEdge(node) + i;
+                dependencies[i] = (long) nodeIndexes[graph.getTarget(graphEdge)] << 32 | graph.getCount(graphEdge);
+            }
+            Arrays.sort(dependencies);
+            for (long dependency : dependencies) {
+                edges[edge] = (long) index << 32 | dependency >>> 32;
+                edgeCounts[edge++] = (int) dependency;
+            }
+        }
+
+        long[] serviceKeys = getPairs(services, indexes);
+        long[] moduleKeys = getPairs(modules, indexes);
+
+        ByteBuffer header = ByteBuffer.allocate(SnapshotFile.HEADER_SIZE + nameOffsets.length * 4);
+        header.putInt(SnapshotFile.MAGIC).putInt(SnapshotFile.VERSION)
+                .putInt(sortedNames.size()).putInt(edgeCount).putInt(serviceKeys.length).putInt(moduleKeys.length)
+                .putInt(namesSize);
+        header.asIntBuffer().put(nameOffsets);
+        header.rewind();
+        ByteBuffer arrays = ByteBuffer.allocate(edgeCount * 12 + (serviceKeys.length + moduleKeys.length) * 8);
+        arrays.asLongBuffer().put(edges);
+        arrays.position(edgeCount * 8);
+        arrays.asIntBuffer().put(edgeCounts);
+        arrays.position(edgeCount * 12);
+        arrays.asLongBuffer().put(serviceKeys).put(moduleKeys);
+        arrays.rewind();
+        ByteBuffer nameBytes = ByteBuffer.allocate(namesSize);
+        for (byte[] name : sortedNames) {
+            nameBytes.put(name);
+        }
+        nameBytes.rewind();
+
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer[] buffers = {header, arrays, nameBytes};
+            long remaining = header.remaining() + arrays.remaining() + nameBytes.remaining();
+            while (remaining > 0) {
+                remaining -= channel.write(buffers);
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return sortedNames.size();
+    }
+
+    /**
+     * @return the pairs of name indexes of a map of sets, packed and sorted
+     */
+    private static long[] getPairs(Map<String, SortedSet<String>> map, Map<String, Integer> indexes) {
+        int size = 0;
+        for (SortedSet<String> values : map.values()) {
+            size += values.size();
+        }
+        long[] pairs = new long[size];
+        int pair = 0;
+        for (Map.Entry<String, SortedSet<String>> entry : map.entrySet()) {
+            long key = (long) indexes.get(entry.getKey()) << 32;
+            for (String value : entry.getValue()) {
+                pairs[pair++] = key | indexes.get(value);
+            }
+        }
+        Arrays.sort(pairs);
+        return pairs;
+    }
+}
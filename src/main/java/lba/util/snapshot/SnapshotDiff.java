@@ -0,0 +1,177 @@
+package lba.util.snapshot;
+
+import java.util.*;
+
+/**
+ * Differences between two analysis snapshots : the packages, dependencies and Restlet services added or removed.
+ * <p>
+ * The name tables of the snapshots are sorted, so they are merged once to give each name of both snapshots its rank
+ * in their union. Renumbering the sorted edge and service arrays with these ranks keeps them sorted, and they are
+ * then compared by a merge. Only the names of the differences are decoded.
+ */
+public class SnapshotDiff {
+
+    private final SortedSet<String> addedPackages = new TreeSet<String>();
+
+    private final SortedSet<String> removedPackages = new TreeSet<String>();
+
+    private final SortedMap<String, SortedSet<String>> addedDependencies = new TreeMap<String, SortedSet<String>>();
+
+    private final SortedMap<String, SortedSet<String>> removedDependencies = new TreeMap<String, SortedSet<String>>();
+
+    private final SortedMap<String, SortedSet<String>> addedServices = new TreeMap<String, SortedSet<String>>();
+
+    private final SortedMap<String, SortedSet<String>> removedServices = new TreeMap<String, SortedSet<String>>();
+
+    private SnapshotDiff() {
+    }
+
+    /**
+     * Compare two snapshots
+     *
+     * @param before snapshot of the previous run
+     * @param after  snapshot of the current run
+     * @return what the current run added to and removed from the previous one
+     */
+    public static SnapshotDiff compare(SnapshotFile before, SnapshotFile after) {
+        SnapshotDiff diff = new SnapshotDiff();
+
+        // Rank of the names of both snapshots in the union of their sorted name tables
+        int[] beforeRanks = new int[before.getNameCount()];
+        int[] afterRanks = new int[after.getNameCount()];
+        int i = 0;
+        int j = 0;
+        int rank = 0;
+        while (i < beforeRanks.length || j < afterRanks.length) {
+            int comparison = i == beforeRanks.length ? 1
+                    : j == afterRanks.length ? -1 : before.compareName(i, after, j);
+            if (comparison <= 0) {
+                beforeRanks[i++] = rank;
+            }
+            if (comparison >= 0) {
+                afterRanks[j++] = rank;
+            }
+            rank++;
+        }
+
+        // Dependencies, and packages : the sources of the edges, met in ascending order
+        i = 0;
+        j = 0;
+        int beforePackage = -1;
+        int afterPackage = -1;
+        while (i < before.getEdgeCount() || j < after.getEdgeCount()) {
+            long beforeEdge = i < before.getEdgeCount() ? renumber(before.getEdge(i), beforeRanks) : Long.MAX_VALUE;
+            long afterEdge = j < after.getEdgeCount() ? renumber(after.getEdge(j), afterRanks) : Long.MAX_VALUE;
+            if (beforeEdge < afterEdge) {
+                add(diff.removedDependencies, before, before.getSource(i), before.getTarget(i));
+            } else if (afterEdge < beforeEdge) {
+                add(diff.addedDependencies, after, after.getSource(j), after.getTarget(j));
+            }
+            // A package is new to one side when its first edge is met while the other side is already past it
+            int beforeSource = (int) (beforeEdge >>> 32);
+            int afterSource = (int) (afterEdge >>> 32);
+            if (beforeEdge <= afterEdge) {
+                if (beforeSource != beforePackage && beforeSource != afterPackage && beforeSource < afterSource) {
+                    diff.removedPackages.add(before.getName(before.getSource(i)));
+                }
+                beforePackage = beforeSource;
+                i++;
+            }
+            if (afterEdge <= beforeEdge) {
+                if (afterSource != afterPackage && afterSource != beforePackage && afterSource < beforeSource) {
+                    diff.addedPackages.add(after.getName(after.getSource(j)));
+                }
+                afterPackage = afterSource;
+                j++;
+            }
+        }
+
+        i = 0;
+        j = 0;
+        while (i < before.getServiceCount() || j < after.getServiceCount()) {
+            long beforeService = i < before.getServiceCount()
+                    ? renumber(before.getService(i), beforeRanks) : Long.MAX_VALUE;
+            long afterService = j < after.getServiceCount()
+                    ? renumber(after.getService(j), afterRanks) : Long.MAX_VALUE;
+            if (beforeService < afterService) {
+                add(diff.removedServices, before, before.getServiceEntity(i), before.getServiceVerb(i));
+            } else if (afterService < beforeService) {
+                add(diff.addedServices, after, after.getServiceEntity(j), after.getServiceVerb(j));
+            }
+            if (beforeService <= afterService) {
+                i++;
+            }
+            if (afterService <= beforeService) {
+                j++;
+            }
+        }
+        return diff;
+    }
+
+    /**
+     * @return a pair of name indexes with the indexes replaced by their rank
+     */
+    private static long renumber(long pair, int[] ranks) {
+        return (long) ranks[(int) (pair >>> 32)] << 32 | ranks[(int) pair];
+    }
+
+    private static void add(SortedMap<String, SortedSet<String>> map, SnapshotFile snapshot, int key, int value) {
+        String name = snapshot.getName(key);
+        SortedSet<String> values = map.get(name);
+        if (values == null) {
+            values = new TreeSet<String>();
+            map.put(name, values);
+        }
+        values.add(snapshot.getName(value));
+    }
+
+    /**
+     * @return the packages having dependencies in the current run only
+     */
+    public SortedSet<String> getAddedPackages() {
+        return addedPackages;
+    }
+
+    /**
+     * @return the packages having dependencies in the previous run only
+     */
+    public SortedSet<String> getRemovedPackages() {
+        return removedPackages;
+    }
+
+    /**
+     * @return the new dependencies of each package
+     */
+    public SortedMap<String, SortedSet<String>> getAddedDependencies() {
+        return addedDependencies;
+    }
+
+    /**
+     * @return the dependencies each package lost
+     */
+    public SortedMap<String, SortedSet<String>> getRemovedDependencies() {
+        return removedDependencies;
+    }
+
+    /**
+     * @return the new verbs of each Restlet entity
+     */
+    public SortedMap<String, SortedSet<String>> getAddedServices() {
+        return addedServices;
+    }
+
+    /**
+     * @return the verbs each Restlet entity lost
+     */
+    public SortedMap<String, SortedSet<String>> getRemovedServices() {
+        return removedServices;
+    }
+
+    /**
+     * @return true if the snapshots hold the same packages, dependencies and services
+     */
+    public boolean isEmpty() {
+        return addedDependencies.isEmpty() && removedDependencies.isEmpty()
+                && addedServices.isEmpty() && removedServices.isEmpty();
+    }
+}
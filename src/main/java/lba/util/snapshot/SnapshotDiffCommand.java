@@ -0,0 +1,63 @@
+package lba.util.snapshot;
+
+import lba.util.report.ReportFormat;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Compare two snapshots written by --snapshot, and report the dependencies, packages and services added or removed
+ */
+public class SnapshotDiffCommand {
+
+    private final Path before;
+
+    private final Path after;
+
+    private final ReportFormat format;
+
+    private final Path output;
+
+    /**
+     * Constructor
+     *
+     * @param before snapshot of the previous run
+     * @param after  snapshot of the current run
+     * @param format report format
+     * @param output report file, null for the standard output
+     */
+    public SnapshotDiffCommand(Path before, Path after, ReportFormat format, Path output) {
+        this.before = before;
+        this.after = after;
+        this.format = format;
+        this.output = output;
+    }
+
+    /**
+     * Write the differences between the snapshots
+     *
+     * @return true if the snapshots differ
+     */
+    public boolean run() throws IOException {
+        SnapshotDiff diff = SnapshotDiff.compare(SnapshotFile.open(before), SnapshotFile.open(after));
+
+        Writer out = output != null
+                ? Files.newBufferedWriter(output, StandardCharsets.UTF_8)
+                : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        try {
+            format.createWriter().writeSnapshotDiff(diff, out);
+        } finally {
+            if (output != null) {
+                out.close();
+            } else {
+                out.flush();
+            }
+        }
+        return !diff.isEmpty();
+    }
+}
@@ -0,0 +1,291 @@
+package lba.util.snapshot;
+
+import lba.util.dependency.DependencyManager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Analysis snapshot written by {@link AnalysisSnapshot#write(Path, DependencyManager, SortedMap)}, memory mapped
+ * and read in place : opening a snapshot only checks its header, the names are decoded when they are asked for.
+ * <p>
+ * All the names (packages, imported types, Restlet entities and verbs, modules) are stored once, sorted by their
+ * UTF-8 bytes, and referred to by their index. The dependencies, services and module tags are sorted arrays of
+ * packed pairs of name indexes, so two snapshots are compared by a merge, see {@link SnapshotDiff}.
+ * <p>
+ * File layout, all the integers being big endian :
+ * <pre>
+ * header       : magic, version, name count, edge count, service count, module count, names size
+ * name offsets : name start of each name, plus the end of the last name (name count + 1 ints)
+ * edges        : package index &lt;&lt; 32 | dependency index of each edge, ascending (edge count longs)
+ * edge counts  : number of import statements backing each edge (edge count ints)
+ * services     : entity index &lt;&lt; 32 | verb index of each service, ascending (service count longs)
+ * modules      : package index &lt;&lt; 32 | module index of each module tag, ascending (module count longs)
+ * names        : UTF-8 names, sorted
+ * </pre>
+ */
+public class SnapshotFile {
+
+    /**
+     * Snapshot file magic number
+     */
+    static final int MAGIC = 0x5341534E;
+
+    /**
+     * Snapshot file format version
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Size of the header, in bytes
+     */
+    static final int HEADER_SIZE = 7 * 4;
+
+    private final ByteBuffer buffer;
+
+    private final int nameCount;
+
+    private final int edgeCount;
+
+    private final int serviceCount;
+
+    private final int moduleCount;
+
+    private final int nameOffsets;
+
+    private final int edges;
+
+    private final int edgeCounts;
+
+    private final int services;
+
+    private final int modules;
+
+    private final int names;
+
+    private SnapshotFile(ByteBuffer buffer, Path file) throws IOException {
+        this.buffer = buffer;
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not an analysis snapshot, or incompatible version :" + file);
+        }
+        nameCount = buffer.getInt(8);
+        edgeCount = buffer.getInt(12);
+        serviceCount = buffer.getInt(16);
+        moduleCount = buffer.getInt(20);
+        nameOffsets = HEADER_SIZE;
+        edges = nameOffsets + (nameCount + 1) * 4;
+        edgeCounts = edges + edgeCount * 8;
+        services = edgeCounts + edgeCount * 4;
+        modules = services + serviceCount * 8;
+        names = modules + moduleCount * 8;
+        if ((long) names + buffer.getInt(24) != buffer.limit()) {
+            throw new IOException("Truncated analysis snapshot :" + file);
+        }
+    }
+
+    /**
+     * Map a snapshot
+     *
+     * @param file file written by {@link AnalysisSnapshot#write(Path, DependencyManager, SortedMap)}
+     * @return the mapped snapshot
+     */
+    public static SnapshotFile open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid once the channel is closed
+            return new SnapshotFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), file);
+        }
+    }
+
+    /**
+     * @return number of names, indexes range from 0 to nameCount - 1
+     */
+    public int getNameCount() {
+        return nameCount;
+    }
+
+    /**
+     * @return the name of an index
+     */
+    public String getName(int index) {
+        int start = getNameStart(index);
+        byte[] bytes = new byte[getNameStart(index + 1) - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(names + start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param name name to look for
+     * @return the index of the name, a negative value if the snapshot does not hold it
+     */
+    public int find(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = nameCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int start = getNameStart(middle);
+            int comparison = compare(buffer, names + start, getNameStart(middle + 1) - start,
+                    ByteBuffer.wrap(bytes), 0, bytes.length);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return number of distinct dependencies
+     */
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * @return name index of the package of an edge
+     */
+    public int getSource(int edge) {
+        return (int) (getEdge(edge) >>> 32);
+    }
+
+    /**
+     * @return name index of the dependency of an edge
+     */
+    public int getTarget(int edge) {
+        return (int) getEdge(edge);
+    }
+
+    /**
+     * @return number of import statements backing an edge
+     */
+    public int getCount(int edge) {
+        return buffer.getInt(edgeCounts + edge * 4);
+    }
+
+    /**
+     * @return number of Restlet services, a service being an entity and one of its verbs
+     */
+    public int getServiceCount() {
+        return serviceCount;
+    }
+
+    /**
+     * @return name index of the entity of a service
+     */
+    public int getServiceEntity(int service) {
+        return (int) (getService(service) >>> 32);
+    }
+
+    /**
+     * @return name index of the verb of a service
+     */
+    public int getServiceVerb(int service) {
+        return (int) getService(service);
+    }
+
+    /**
+     * @return number of module tags of the packages
+     */
+    public int getModuleCount() {
+        return moduleCount;
+    }
+
+    /**
+     * @return the dependencies of each package, as given by {@link DependencyManager#getDependencies()}
+     */
+    public Map<String, SortedSet<String>> getDependencies() {
+        Map<String, SortedSet<String>> dependencies = new HashMap<String, SortedSet<String>>();
+        SortedSet<String> deps = null;
+        int previous = -1;
+        for (int edge = 0; edge < edgeCount; edge++) {
+            if (getSource(edge) != previous) {
+                previous = getSource(edge);
+                deps = new TreeSet<String>();
+                dependencies.put(getName(previous), deps);
+            }
+            deps.add(getName(getTarget(edge)));
+        }
+        return dependencies;
+    }
+
+    /**
+     * @return the Restlet verbs of each entity, as given by the Restlet services analyzer
+     */
+    public SortedMap<String, SortedSet<String>> getServicesRepository() {
+        SortedMap<String, SortedSet<String>> repository = new TreeMap<String, SortedSet<String>>();
+        for (int service = 0; service < serviceCount; service++) {
+            String entity = getName(getServiceEntity(service));
+            SortedSet<String> verbs = repository.get(entity);
+            if (verbs == null) {
+                verbs = new TreeSet<String>();
+                repository.put(entity, verbs);
+            }
+            verbs.add(getName(getServiceVerb(service)));
+        }
+        return repository;
+    }
+
+    /**
+     * Load the dependencies back, with their number of occurrences and the module tags of the packages, so that the
+     * reports of the snapshot can be written again
+     *
+     * @return a new dependency manager holding the dependencies of the snapshot
+     */
+    public DependencyManager toManager() {
+        DependencyManager manager = new DependencyManager();
+        for (int edge = 0; edge < edgeCount; edge++) {
+            manager.addDependency(getName(getSource(edge)), getName(getTarget(edge)), getCount(edge));
+        }
+        for (int tag = 0; tag < moduleCount; tag++) {
+            long key = buffer.getLong(modules + tag * 8);
+            manager.addModule(getName((int) (key >>> 32)), getName((int) key));
+        }
+        return manager;
+    }
+
+    long getEdge(int edge) {
+        return buffer.getLong(edges + edge * 8);
+    }
+
+    long getService(int service) {
+        return buffer.getLong(services + service * 8);
+    }
+
+    /**
+     * Compare a name of this snapshot with a name of another one, in the order of the name tables
+     */
+    int compareName(int index, SnapshotFile other, int otherIndex) {
+        int start = getNameStart(index);
+        int otherStart = other.getNameStart(otherIndex);
+        return compare(buffer, names + start, getNameStart(index + 1) - start,
+                other.buffer, other.names + otherStart, other.getNameStart(otherIndex + 1) - otherStart);
+    }
+
+    private int getNameStart(int index) {
+        return buffer.getInt(nameOffsets + index * 4);
+    }
+
+    /**
+     * Unsigned lexicographic comparison of two byte ranges, the order of the UTF-8 encoded names
+     */
+    static int compare(ByteBuffer a, int aStart, int aLength, ByteBuffer b, int bStart, int bLength) {
+        int length = Math.min(aLength, bLength);
+        for (int i = 0; i < length; i++) {
+            int comparison = (a.get(aStart + i) & 0xFF) - (b.get(bStart + i) & 0xFF);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return aLength - bLength;
+    }
+}
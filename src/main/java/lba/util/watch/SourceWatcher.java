@@ -0,0 +1,296 @@
+package lba.util.watch;
+
+import lba.util.AbstractAnalyzer;
+import lba.util.AnalysisSettings;
+import lba.util.CompositeAnalyzer;
+import lba.util.JavaSourceFileVisitor;
+import lba.util.cache.AnalysisCache;
+import lba.util.cache.CacheableAnalyzer;
+import lba.util.cache.FileRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keep the results of an analyzer up to date with a source tree : the tree is watched with a {@link WatchService} and
+ * only the created, modified and deleted files are analyzed again.
+ * <p>
+ * The analyzer must have been fed by a walk of the whole tree using the given cache, whose records tell what each
+ * file contributed to the results : before a changed file is analyzed again, or once it is deleted, its previous
+ * contribution is retracted with {@link CacheableAnalyzer#retract(FileRecord)}.
+ * <p>
+ * Events are debounced : a batch is processed once no event has been received for the debounce delay, so that a
+ * build or a checkout touching many files leads to a single update of the reports.
+ */
+public class SourceWatcher {
+
+    /**
+     * Logger
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(SourceWatcher.class);
+
+    /**
+     * Listener notified after each processed batch of changes
+     */
+    public interface ChangeListener {
+
+        /**
+         * @param changedFiles number of source files analyzed again or removed
+         */
+        void changed(int changedFiles) throws IOException;
+    }
+
+    private final Path rootPath;
+
+    private final CompositeAnalyzer analyzer;
+
+    private final AnalysisCache cache;
+
+    private final AnalysisSettings settings;
+
+    private final long debounceMillis;
+
+    private WatchService watchService;
+
+    /**
+     * Constructor
+     *
+     * @param rootPath       root source directory
+     * @param analyzer       analyzer already fed with the whole tree
+     * @param cache          cache used by the analyzer, holding the record of every analyzed file
+     * @param settings       settings used to read the source files
+     * @param debounceMillis quiet period closing a batch of changes, in milliseconds
+     */
+    public SourceWatcher(Path rootPath, CompositeAnalyzer analyzer, AnalysisCache cache, AnalysisSettings settings,
+                         long debounceMillis) {
+        this.rootPath = rootPath;
+        this.analyzer = analyzer;
+        this.cache = cache;
+        this.settings = settings;
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * Watch the tree until the thread is interrupted
+     *
+     * @param listener listener notified after each batch of changes
+     */
+    public void watch(ChangeListener listener) throws IOException {
+        try (WatchService service = rootPath.getFileSystem().newWatchService()) {
+            watchService = service;
+            registerAll(rootPath);
+            LOG.info("Watching {}", rootPath);
+
+            while (!Thread.currentThread().isInterrupted()) {
+                Set<Path> changed = new LinkedHashSet<>();
+                boolean overflow;
+                try {
+                    // Wait for a first event, then until the tree is quiet
+                    overflow = poll(service.take(), changed);
+                    WatchKey key;
+                    while ((key = service.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                        overflow |= poll(key, changed);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+
+                int count = overflow ? rescan() : update(changed);
+                if (count > 0) {
+                    listener.changed(count);
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            LOG.info("Watch service closed");
+        } finally {
+            watchService = null;
+        }
+    }
+
+    /**
+     * Collect the paths of the events of a key
+     *
+     * @return true if events were lost
+     */
+    private boolean poll(WatchKey key, Set<Path> changed) {
+        boolean overflow = false;
+        Path dir = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflow = true;
+            } else {
+                changed.add(dir.resolve((Path) event.context()));
+            }
+        }
+        key.reset();
+        return overflow;
+    }
+
+    /**
+     * Analyze again the changed paths
+     *
+     * @return number of source files analyzed again or removed
+     */
+    private int update(Set<Path> changed) throws IOException {
+        int count = 0;
+        for (Path path : changed) {
+            BasicFileAttributes attr;
+            try {
+                attr = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            } catch (NoSuchFileException e) {
+                // Deleted file or directory
+                count += removeUnder(path);
+                continue;
+            }
+
+            if (attr.isDirectory()) {
+                // New (or moved) directory : its content has not been seen yet
+                registerAll(path);
+                count += analyzeTree(path);
+            } else if (isSourceFile(path)) {
+                analyzeFile(path, attr);
+                count++;
+            }
+        }
+        LOG.info("{} source files changed", count);
+        return count;
+    }
+
+    /**
+     * Analyze again the whole tree, after events were lost
+     *
+     * @return number of source files analyzed again or removed
+     */
+    private int rescan() throws IOException {
+        LOG.warn("Watch events lost, rescanning {}", rootPath);
+        int count = 0;
+        for (String key : new ArrayList<>(cache.getKeys())) {
+            Path file = Paths.get(key);
+            // The keys of the archive entries are URIs, not absolute paths
+            if (file.isAbsolute() && !Files.exists(file)) {
+                retract(cache.remove(file));
+                count++;
+            }
+        }
+        registerAll(rootPath);
+        return count + analyzeTree(rootPath);
+    }
+
+    /**
+     * Analyze again all the source files of a tree
+     *
+     * @return number of source files analyzed
+     */
+    private int analyzeTree(Path dir) throws IOException {
+        final List<Path> files = new ArrayList<>();
+        final List<BasicFileAttributes> attributes = new ArrayList<>();
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path subDir, BasicFileAttributes attrs) {
+                return settings.isSkipped(subDir, rootPath, true) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attr) {
+                if (isSourceFile(file)) {
+                    files.add(file);
+                    attributes.add(attr);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                LOG.error(exc.getMessage(), exc);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        for (int i = 0; i < files.size(); i++) {
+            analyzeFile(files.get(i), attributes.get(i));
+        }
+        return files.size();
+    }
+
+    /**
+     * Retract the previous contribution of a file, then analyze it again
+     */
+    private void analyzeFile(Path file, BasicFileAttributes attr) {
+        retract(cache.getRecord(file));
+        // The record of a file whose size and modification time are unchanged is applied again as is
+        JavaSourceFileVisitor<CompositeAnalyzer> visitor = new JavaSourceFileVisitor<>(analyzer, settings);
+        visitor.setRoot(rootPath);
+        visitor.visitFile(file, attr);
+    }
+
+    /**
+     * Retract the contribution of the deleted files
+     *
+     * @param path deleted file, or deleted directory
+     * @return number of source files removed
+     */
+    private int removeUnder(Path path) {
+        int count = 0;
+        String prefix = path.toAbsolutePath().normalize().toString() + File.separator;
+        for (String key : new ArrayList<>(cache.getKeys())) {
+            if (key.startsWith(prefix)) {
+                retract(cache.remove(Paths.get(key)));
+                count++;
+            }
+        }
+        FileRecord record = cache.remove(path);
+        if (record != null) {
+            retract(record);
+            count++;
+        }
+        return count;
+    }
+
+    private void retract(FileRecord record) {
+        if (record == null) {
+            return;
+        }
+        for (AbstractAnalyzer<?> each : analyzer.getAnalyzers()) {
+            if (each instanceof CacheableAnalyzer && ((CacheableAnalyzer) each).isExtracted(record)) {
+                ((CacheableAnalyzer) each).retract(record);
+            }
+        }
+    }
+
+    /**
+     * Watch a directory and all its sub directories
+     */
+    private void registerAll(Path dir) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path subDir, BasicFileAttributes attrs) throws IOException {
+                if (settings.isSkipped(subDir, rootPath, true)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                subDir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                LOG.error(exc.getMessage(), exc);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static boolean isSourceFile(Path file) {
+        String filename = file.getFileName().toString();
+        return filename.endsWith(".java") && !"package-info.java".equals(filename);
+    }
+}
@@ -0,0 +1,169 @@
+package lba.util.batch;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JobFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Map<String, Object> map(Object... entries) {
+        Map<String, Object> map = new LinkedHashMap<String, Object>();
+        for (int i = 0; i < entries.length; i += 2) {
+            map.put((String) entries[i], entries[i + 1]);
+        }
+        return map;
+    }
+
+    private List<BatchJob> read(String text) throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+        return JobFile.read(file);
+    }
+
+    /**
+     * Check that a document is rejected, with a message holding the given text
+     */
+    private static void assertRejected(String text, String message) {
+        try {
+            Object root = JobFile.parse(text);
+            fail("Parsed " + root);
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(message));
+        }
+    }
+
+    @Test
+    public void blockDocument() {
+        Object root = JobFile.parse("\uFEFF# Nightly jobs\n"
+                + "---\n"
+                + "jobs:\n"
+                + "- name: deps   # trailing comment\n"
+                + "  mode: dependencies\n"
+                + "  src:\n"
+                + "    - /data/a\n"
+                + "    - '/data/it''s b'\n"
+                + "  pkg: \"fr.cnes\\tsitools\"\n"
+                + "  progress:\n"
+                + "  url: http://host/a#b\n"
+                + "  empty: ~\n"
+                + "-\n"
+                + "  name: lines\n"
+                + "  mode: [linesCounter, restletServices]\n"
+                + "  ignore: {pattern: '*.gen', other: \"x, y\"}\n"
+                + "...\n");
+        Map<String, Object> deps = map("name", "deps", "mode", "dependencies",
+                "src", Arrays.asList("/data/a", "/data/it's b"), "pkg", "fr.cnes\tsitools", "progress", null,
+                "url", "http://host/a#b", "empty", null);
+        Map<String, Object> lines = map("name", "lines", "mode", Arrays.asList("linesCounter", "restletServices"),
+                "ignore", map("pattern", "*.gen", "other", "x, y"));
+        assertEquals(map("jobs", Arrays.asList(deps, lines)), root);
+    }
+
+    @Test
+    public void jsonDocument() {
+        Object root = JobFile.parse("[\n  {\"name\": \"a\", \"src\": [\"/x\", \"/y\"], \"threads\": null},\n"
+                + "  {\"name\": \"b\\u00e9\", \"metrics\": true, \"list\": []}\n]\n");
+        assertEquals(Arrays.asList(map("name", "a", "src", Arrays.asList("/x", "/y"), "threads", null),
+                map("name", "b\u00e9", "metrics", "true", "list", Collections.emptyList())), root);
+    }
+
+    @Test
+    public void emptyDocument() {
+        assertNull(JobFile.parse("# nothing\n\n"));
+    }
+
+    @Test
+    public void jobArguments() throws IOException {
+        List<BatchJob> jobs = read("jobs:\n"
+                + "  - name: both\n"
+                + "    mode: [dependencies, linesCounter]\n"
+                + "    src: [/a, /b]\n"
+                + "    graphReport: g.txt\n"
+                + "    fullGraph: true\n"
+                + "    importIndex: false\n"
+                + "    ignore: '**/generated/**'\n"
+                + "  - mode: restletServices\n"
+                + "    src: /c\n");
+        assertEquals(2, jobs.size());
+        assertEquals("both", jobs.get(0).getName());
+        assertEquals(Arrays.asList("--dependencies", "--linesCounter", "--src", "/a,/b", "--graphReport", "g.txt",
+                "--fullGraph", "--ignore", "**/generated/**"), Arrays.asList(jobs.get(0).getArgs()));
+        assertEquals("job2", jobs.get(1).getName());
+        assertEquals(Arrays.asList("--restletServices", "--src", "/c"), Arrays.asList(jobs.get(1).getArgs()));
+    }
+
+    @Test
+    public void invalidJobs() {
+        for (String text : Arrays.asList("other: 1\n", "jobs: text\n", "jobs:\n  - just a string\n",
+                "jobs:\n  - name: [a, b]\n", "jobs:\n  - mode: ''\n")) {
+            try {
+                read(text);
+                fail("Read " + text);
+            } catch (IOException e) {
+                assertTrue(e.getMessage().startsWith("Invalid job file "));
+            }
+        }
+    }
+
+    @Test
+    public void anchorsAliasesAndTags() {
+        assertRejected("base: &base /data\nsrc: *base\n", "anchors are not supported at line 1");
+        assertRejected("src: *.java\n", "aliases are not supported");
+        assertRejected("src: !!str /data\n", "tags are not supported");
+        assertRejected("- &job\n  name: a\n", "anchors are not supported");
+        assertRejected("<<: *base\n", "aliases are not supported");
+        assertRejected("&key name: a\n", "anchors are not supported");
+        assertRejected("[a, *b]", "aliases are not supported");
+        assertRejected("{&a key: b}", "anchors are not supported");
+        assertRejected("src: @home\n", "reserved indicator @");
+    }
+
+    @Test
+    public void multiLineScalars() {
+        assertRejected("src: |\n  /a\n  /b\n", "multi-line scalars are not supported at line 1");
+        assertRejected("src: >-\n  /a\n", "multi-line scalars are not supported");
+        assertRejected("src: /a\n  /b\n", "multi-line scalars are not supported at line 2");
+        assertRejected("- /a\n  /b\n", "multi-line scalars are not supported at line 2");
+        assertRejected("src:\n  /a\n  /b\n", "multi-line scalars are not supported at line 3");
+        assertRejected("src: \"/a\n  /b\"\n", "at line 1");
+    }
+
+    @Test
+    public void flowNodes() {
+        // A flow node of a block document is written on a single line
+        assertRejected("mode: [dependencies,\n  linesCounter]\n", "unexpected end of value");
+        assertRejected("ignore: {a: b,\n  c: d}\n", "at line 1");
+        assertRejected("mode: [a, b] c\n", "unexpected c");
+        assertRejected("ignore: {a b}\n", "expected a key followed by :");
+        assertRejected("ignore: {a: b, a: c}\n", "duplicate key a");
+        assertRejected("{\"a\": 1} trailing", "unexpected t");
+    }
+
+    @Test
+    public void invalidBlocks() {
+        assertRejected("a: 1\n---\nb: 2\n", "multiple documents are not supported at line 2");
+        assertRejected("a: 1\n...\nb: 2\n", "multiple documents are not supported at line 3");
+        assertRejected("a: 1\na: 2\n", "duplicate key a");
+        assertRejected("a:\n\t- b\n", "tabulations are not allowed");
+        assertRejected("a: 1\n- b\n", "unexpected indentation");
+        assertRejected("a:\n  b: 1\n c: 2\n", "unexpected indentation");
+    }
+}
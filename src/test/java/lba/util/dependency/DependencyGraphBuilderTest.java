@@ -0,0 +1,211 @@
+package lba.util.dependency;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DependencyGraphBuilderTest {
+
+    private static final int NODES = 50;
+
+    private static SymbolTable symbols() {
+        SymbolTable symbols = new SymbolTable();
+        for (int i = 0; i < NODES; i++) {
+            symbols.intern("p" + i);
+        }
+        return symbols;
+    }
+
+    /**
+     * @return the graph as a map of the names of the targets of each node, the count of each edge as value
+     */
+    private static Map<String, Map<String, Integer>> toMap(DependencyGraph graph) {
+        Map<String, Map<String, Integer>> result = new TreeMap<String, Map<String, Integer>>();
+        for (int node = 0; node < graph.getNodeCount(); node++) {
+            int previous = -1;
+            for (int edge = graph.getFirstEdge(node); edge < graph.getLastEdge(node); edge++) {
+                // The edges of a node are sorted by target, and only carry occurrences
+                assertTrue(graph.getTarget(edge) > previous);
+                assertTrue(graph.getCount(edge) > 0);
+                previous = graph.getTarget(edge);
+                Map<String, Integer> targets = result.get(graph.getName(node));
+                if (targets == null) {
+                    targets = new TreeMap<String, Integer>();
+                    result.put(graph.getName(node), targets);
+                }
+                targets.put(graph.getName(graph.getTarget(edge)), graph.getCount(edge));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Naive graph : the count of each edge, the edges without occurrences being removed
+     */
+    private static void add(Map<String, Map<String, Integer>> graph, int from, int to, int count) {
+        Map<String, Integer> targets = graph.get("p" + from);
+        if (targets == null) {
+            targets = new TreeMap<String, Integer>();
+            graph.put("p" + from, targets);
+        }
+        Integer current = targets.get("p" + to);
+        int sum = (current == null ? 0 : current) + count;
+        if (sum == 0) {
+            targets.remove("p" + to);
+            if (targets.isEmpty()) {
+                graph.remove("p" + from);
+            }
+        } else {
+            targets.put("p" + to, sum);
+        }
+    }
+
+    @Test
+    public void compressedRowsMatchTheNaiveGraph() {
+        DependencyGraphBuilder builder = new DependencyGraphBuilder(symbols());
+        Map<String, Map<String, Integer>> expected = new TreeMap<String, Map<String, Integer>>();
+        Map<String, Set<String>> edges = new TreeMap<String, Set<String>>();
+        Random random = new Random(1);
+        for (int i = 0; i < 5000; i++) {
+            int from = random.nextInt(NODES);
+            int to = random.nextInt(NODES);
+            builder.addEdge(from, to);
+            add(expected, from, to, 1);
+            Set<String> targets = edges.get("p" + from);
+            if (targets == null) {
+                targets = new TreeSet<String>();
+                edges.put("p" + from, targets);
+            }
+            targets.add("p" + to);
+        }
+        DependencyGraph graph = builder.build();
+        assertEquals(expected, toMap(graph));
+
+        int edgeCount = 0;
+        for (Set<String> targets : edges.values()) {
+            edgeCount += targets.size();
+        }
+        assertEquals(edgeCount, graph.getEdgeCount());
+        assertEquals(NODES, graph.getNodeCount());
+        for (int node = 0; node < NODES; node++) {
+            Set<String> targets = edges.get("p" + node);
+            assertEquals(targets == null ? 0 : targets.size(), graph.getOutDegree(node));
+        }
+    }
+
+    @Test
+    public void retractedEdgesAreNotBuilt() {
+        DependencyGraphBuilder builder = new DependencyGraphBuilder(symbols());
+        builder.addEdge(0, 1);
+        builder.addEdge(0, 1);
+        builder.addEdge(0, 2);
+        builder.addEdge(1, 2, 3);
+        builder.addEdge(0, 2, -1);
+        builder.addEdge(1, 2, -1);
+        // More retractions than additions : not an edge
+        builder.addEdge(2, 3, -1);
+
+        DependencyGraph graph = builder.build();
+        Map<String, Map<String, Integer>> expected = new TreeMap<String, Map<String, Integer>>();
+        add(expected, 0, 1, 2);
+        add(expected, 1, 2, 2);
+        assertEquals(expected, toMap(graph));
+        assertEquals(2, graph.getEdgeCount());
+    }
+
+    @Test
+    public void concurrentStripesMatchTheNaiveGraph() throws Exception {
+        final DependencyGraphBuilder builder = new DependencyGraphBuilder(symbols());
+        Map<String, Map<String, Integer>> expected = new TreeMap<String, Map<String, Integer>>();
+        final int threads = 8;
+        final int[][] froms = new int[threads][20000];
+        final int[][] tos = new int[threads][20000];
+        final int[][] deltas = new int[threads][20000];
+        Random random = new Random(7);
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < froms[t].length; i++) {
+                froms[t][i] = random.nextInt(NODES);
+                tos[t][i] = random.nextInt(NODES);
+                // Retractions done by another thread than the additions they cancel
+                deltas[t][i] = random.nextInt(4) == 0 ? -1 : 1;
+                add(expected, froms[t][i], tos[t][i], deltas[t][i]);
+            }
+        }
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        List<Thread> workers = new ArrayList<Thread>();
+        for (int t = 0; t < threads; t++) {
+            final int index = t;
+            Thread worker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < froms[index].length; i++) {
+                            builder.addEdge(froms[index][i], tos[index][i], deltas[index][i]);
+                        }
+                    } catch (Throwable e) {
+                        failure.set(e);
+                    }
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(null, failure.get());
+
+        // Only the edges with a positive total count are built
+        Map<String, Map<String, Integer>> positive = new TreeMap<String, Map<String, Integer>>();
+        for (Map.Entry<String, Map<String, Integer>> node : expected.entrySet()) {
+            for (Map.Entry<String, Integer> edge : node.getValue().entrySet()) {
+                if (edge.getValue() > 0) {
+                    add(positive, Integer.parseInt(node.getKey().substring(1)),
+                            Integer.parseInt(edge.getKey().substring(1)), edge.getValue());
+                }
+            }
+        }
+        assertEquals(positive, toMap(builder.build()));
+    }
+
+    @Test
+    public void spilledEdgesMatchTheNaiveGraph() {
+        // A few buffered edges only, so that the stripes are spilled and compacted many times
+        DependencyGraphBuilder builder = new DependencyGraphBuilder(symbols(), 64);
+        Map<String, Map<String, Integer>> expected = new TreeMap<String, Map<String, Integer>>();
+        Random random = new Random(3);
+        for (int i = 0; i < 30000; i++) {
+            int from = random.nextInt(NODES);
+            int to = random.nextInt(NODES);
+            builder.addEdge(from, to);
+            add(expected, from, to, 1);
+        }
+        for (int i = 0; i < 500; i++) {
+            int from = random.nextInt(NODES);
+            Map<String, Integer> targets = expected.get("p" + from);
+            if (targets != null) {
+                String to = targets.keySet().iterator().next();
+                int count = targets.get(to);
+                builder.addEdge(from, Integer.parseInt(to.substring(1)), -count);
+                add(expected, from, Integer.parseInt(to.substring(1)), -count);
+            }
+        }
+        assertTrue(builder.getSpilledEdges() > 0);
+        assertEquals(expected, toMap(builder.build()));
+    }
+}
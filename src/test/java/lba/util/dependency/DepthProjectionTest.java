@@ -0,0 +1,58 @@
+package lba.util.dependency;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class DepthProjectionTest {
+
+    @Test
+    public void depths() {
+        DepthProjection depth1 = new DepthProjection("fr.cnes.sitools", 1);
+        DepthProjection depth2 = new DepthProjection("fr.cnes.sitools", 2);
+        assertEquals("common", depth1.project("fr.cnes.sitools.common.model.Resource"));
+        assertEquals("common.model", depth2.project("fr.cnes.sitools.common.model.Resource"));
+        assertEquals("common", depth1.project("fr.cnes.sitools.common.Resource"));
+        assertEquals("common", depth2.project("fr.cnes.sitools.common.Resource"));
+        assertEquals("common", depth2.project("fr.cnes.sitools.common"));
+        assertEquals("common.model", depth2.project("fr.cnes.sitools.common.model.sub"));
+    }
+
+    @Test
+    public void outsideRootPackage() {
+        DepthProjection projection = new DepthProjection("fr.cnes.sitools", 1);
+        // Sharing the first characters of the root package is not being inside it
+        assertNull(projection.project("fr.cnes.sitoolsX.common.Resource"));
+        assertNull(projection.project("fr.cnes.sitoolsX"));
+        assertNull(projection.project("fr.cnes.sitools"));
+        assertNull(projection.project("fr.cnes.other.Resource"));
+        assertNull(projection.project(null));
+        assertFalse(projection.accepts("fr.cnes.sitools"));
+        assertNull(new DepthProjection(null, 1).project("fr.cnes.sitools.common"));
+    }
+
+    @Test
+    public void view() {
+        DependencyManager manager = new DependencyManager();
+        manager.addDependency("fr.cnes.sitools.common", "fr.cnes.sitools.model.Resource");
+        manager.addDependency("fr.cnes.sitools.common", "fr.cnes.sitoolsX.model.Resource");
+        manager.addDependency("fr.cnes.sitools.common.util", "fr.cnes.sitools.common.Base");
+        manager.addDependency("fr.cnes.sitoolsX.model", "fr.cnes.sitools.common.Base");
+        Map<String, SortedSet<String>> view = manager.getView(new DepthProjection("fr.cnes.sitools", 1));
+
+        SortedSet<String> common = new TreeSet<String>();
+        common.add("model");
+        assertEquals(common, view.get("common"));
+        // The packages outside of the root package are gathered under the null key
+        SortedSet<String> outside = new TreeSet<String>();
+        outside.add("common");
+        assertEquals(outside, view.get(null));
+        assertEquals(2, view.size());
+    }
+}
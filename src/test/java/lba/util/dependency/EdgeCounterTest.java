@@ -0,0 +1,85 @@
+package lba.util.dependency;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class EdgeCounterTest {
+
+    @Test
+    public void zeroCountRemovesTheEdge() {
+        EdgeCounter counter = new EdgeCounter();
+        long key = EdgeCounter.key(1, 2);
+        counter.add(key, 2);
+        counter.add(key, -1);
+        assertEquals(1, counter.size());
+        assertEquals(1, counter.get(key));
+        counter.add(key, -1);
+        assertEquals(0, counter.size());
+        assertEquals(0, counter.get(key));
+        assertEquals(0, counter.keys().length);
+        assertEquals(0, counter.sortedChangedKeys().length);
+    }
+
+    @Test
+    public void negativeCountsAreKept() {
+        EdgeCounter counter = new EdgeCounter();
+        long key = EdgeCounter.key(3, 4);
+        counter.add(key, -2);
+        assertEquals(1, counter.size());
+        assertEquals(-2, counter.get(key));
+        // Only the positive counts are edges
+        assertEquals(0, counter.keys().length);
+        assertEquals(1, counter.sortedChangedKeys().length);
+    }
+
+    @Test
+    public void addAndRetractKeepTheTableConsistent() {
+        // Random additions and retractions, removing entries from the middle of the probe sequences
+        EdgeCounter counter = new EdgeCounter();
+        Map<Long, Integer> expected = new HashMap<Long, Integer>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200000; i++) {
+            long key = EdgeCounter.key(random.nextInt(60), random.nextInt(60));
+            int delta = random.nextInt(5) - 2;
+            counter.add(key, delta);
+            Integer count = expected.get(key);
+            int sum = (count == null ? 0 : count) + delta;
+            if (sum == 0) {
+                expected.remove(key);
+            } else {
+                expected.put(key, sum);
+            }
+        }
+        assertEquals(expected.size(), counter.size());
+        for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+            assertEquals((int) entry.getValue(), counter.get(entry.getKey()));
+        }
+        assertEquals(expected.size(), counter.sortedChangedKeys().length);
+    }
+
+    @Test
+    public void retractionsDoNotGrowTheTable() {
+        EdgeCounter counter = new EdgeCounter();
+        for (int round = 0; round < 1000; round++) {
+            for (int to = 0; to < 20; to++) {
+                counter.add(EdgeCounter.key(round, to), 1);
+            }
+            for (int to = 0; to < 20; to++) {
+                counter.add(EdgeCounter.key(round, to), -1);
+            }
+        }
+        assertEquals(0, counter.size());
+    }
+
+    @Test
+    public void keyRoundTrip() {
+        long key = EdgeCounter.key(123456, Integer.MAX_VALUE);
+        assertEquals(123456, EdgeCounter.from(key));
+        assertEquals(Integer.MAX_VALUE, EdgeCounter.to(key));
+    }
+}
@@ -0,0 +1,103 @@
+package lba.util.dependency;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GraphAnalysisTest {
+
+    /**
+     * @param edges "from->to" edges
+     */
+    private static GraphAnalysis analyze(String... edges) {
+        Map<String, Set<String>> dependencies = new TreeMap<String, Set<String>>();
+        for (String edge : edges) {
+            String[] ends = edge.split("->");
+            Set<String> targets = dependencies.get(ends[0]);
+            if (targets == null) {
+                targets = new TreeSet<String>();
+                dependencies.put(ends[0], targets);
+            }
+            targets.add(ends[1]);
+        }
+        return new GraphAnalysis(PackageGraph.fromDependencies(dependencies));
+    }
+
+    private static int node(GraphAnalysis analysis, String name) {
+        return analysis.getGraph().getNode(name);
+    }
+
+    @Test
+    public void selfLoopIsNotACycle() {
+        GraphAnalysis analysis = analyze("a->a", "a->b");
+        assertTrue(analysis.getCycles().isEmpty());
+        assertEquals(2, analysis.getComponentCount());
+        assertFalse(analysis.isInCycle(node(analysis, "a")));
+        assertEquals(1, analysis.getLayer(node(analysis, "a")));
+        assertEquals(1, analysis.getFanOut(node(analysis, "a")));
+        assertEquals(0, analysis.getFanIn(node(analysis, "a")));
+        assertEquals(1, analysis.getReachable(node(analysis, "a")));
+    }
+
+    @Test
+    public void twoDisjointCycles() {
+        // a <-> b, and c -> d -> e -> c, with b depending on c
+        GraphAnalysis analysis = analyze("a->b", "b->a", "b->c", "c->d", "d->e", "e->c");
+        assertEquals(Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("c", "d", "e")), analysis.getCycles());
+        assertEquals(2, analysis.getComponentCount());
+        assertEquals(analysis.getComponent(node(analysis, "a")), analysis.getComponent(node(analysis, "b")));
+        assertNotEquals(analysis.getComponent(node(analysis, "a")), analysis.getComponent(node(analysis, "c")));
+        for (String name : Arrays.asList("a", "b", "c", "d", "e")) {
+            assertTrue(analysis.isInCycle(node(analysis, name)));
+        }
+
+        assertEquals(Arrays.asList(Arrays.asList("c", "d", "e"), Arrays.asList("a", "b")), analysis.getLayers());
+        // The members of a cycle reach each other
+        assertEquals(4, analysis.getReachable(node(analysis, "a")));
+        assertEquals(2, analysis.getReachable(node(analysis, "c")));
+
+        assertEquals(2, analysis.getFanOut(node(analysis, "b")));
+        assertEquals(2, analysis.getFanIn(node(analysis, "c")));
+    }
+
+    @Test
+    public void chain() {
+        GraphAnalysis analysis = analyze("a->b", "b->c", "c->d", "a->d");
+        assertTrue(analysis.getCycles().isEmpty());
+        assertEquals(4, analysis.getComponentCount());
+        List<List<String>> layers = analysis.getLayers();
+        assertEquals(Arrays.asList(Collections.singletonList("d"), Collections.singletonList("c"),
+                Collections.singletonList("b"), Collections.singletonList("a")), layers);
+        assertEquals(3, analysis.getReachable(node(analysis, "a")));
+        assertEquals(1, analysis.getReachable(node(analysis, "c")));
+        assertEquals(0, analysis.getReachable(node(analysis, "d")));
+        assertEquals(2, analysis.getFanIn(node(analysis, "d")));
+        assertEquals(2, analysis.getFanOut(node(analysis, "a")));
+        assertEquals(0, analysis.getFanOut(node(analysis, "d")));
+    }
+
+    @Test
+    public void deepChainDoesNotOverflowTheStack() {
+        // The iterative Tarjan algorithm must not recurse once per package
+        int length = 100000;
+        Map<String, Set<String>> dependencies = new TreeMap<String, Set<String>>();
+        for (int i = 0; i < length; i++) {
+            dependencies.put(String.format("p%06d", i), Collections.singleton(String.format("p%06d", (i + 1) % length)));
+        }
+        GraphAnalysis analysis = new GraphAnalysis(PackageGraph.fromDependencies(dependencies));
+        assertEquals(1, analysis.getComponentCount());
+        assertEquals(1, analysis.getCycles().size());
+        assertEquals(length - 1, analysis.getReachable(0));
+    }
+}
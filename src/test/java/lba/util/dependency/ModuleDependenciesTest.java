@@ -0,0 +1,87 @@
+package lba.util.dependency;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class ModuleDependenciesTest {
+
+    private static SortedSet<String> set(String... values) {
+        return new TreeSet<String>(Arrays.asList(values));
+    }
+
+    /**
+     * Modules core and web both hold the package a.shared, a.core is only in core and a.web only in web
+     */
+    private static DependencyManager sharedPackage() {
+        DependencyManager manager = new DependencyManager();
+        manager.addModule("a.core", "core");
+        manager.addModule("a.shared", "core");
+        manager.addModule("a.shared", "web");
+        manager.addModule("a.web", "web");
+        manager.addModule("a.api", "api");
+        return manager;
+    }
+
+    @Test
+    public void sharedPackageFoundInImportingModule() {
+        DependencyManager manager = sharedPackage();
+        manager.addDependency("a.core", "a.shared.Util");
+        manager.addDependency("a.web", "a.shared.Util");
+        ModuleDependencies modules = new ModuleDependencies(manager);
+
+        // The shared package is found in the module of each importing package
+        assertEquals(0, modules.getCrossModuleCount());
+        assertEquals(Collections.emptyMap(), modules.getCrossModuleDependencies());
+        assertEquals(set(), modules.getModuleDependencies().get("core"));
+        assertEquals(set(), modules.getModuleDependencies().get("web"));
+    }
+
+    @Test
+    public void sharedPackageImportedFromOtherModule() {
+        DependencyManager manager = sharedPackage();
+        manager.addDependency("a.api", "a.shared.Util");
+        ModuleDependencies modules = new ModuleDependencies(manager);
+
+        // The package is found in none of the modules of a.api : api depends on both modules holding it
+        assertEquals(1, modules.getCrossModuleCount());
+        assertEquals(set("a.shared"), modules.getCrossModuleDependencies().get("a.api"));
+        assertEquals(set("core", "web"), modules.getModuleDependencies().get("api"));
+    }
+
+    @Test
+    public void sharedPackageImporting() {
+        DependencyManager manager = sharedPackage();
+        manager.addDependency("a.shared", "a.core.Service");
+        manager.addDependency("a.shared", "a.api.Endpoint");
+        ModuleDependencies modules = new ModuleDependencies(manager);
+
+        // a.core is found in core, one of the modules of a.shared, a.api is in none of them
+        assertEquals(1, modules.getCrossModuleCount());
+        assertEquals(set("a.api"), modules.getCrossModuleDependencies().get("a.shared"));
+        Map<String, SortedSet<String>> moduleDependencies = modules.getModuleDependencies();
+        assertEquals(set("api"), moduleDependencies.get("core"));
+        assertEquals(set("api"), moduleDependencies.get("web"));
+        assertEquals(set(), moduleDependencies.get("api"));
+    }
+
+    @Test
+    public void nestedTypeAndUnresolvedImport() {
+        DependencyManager manager = sharedPackage();
+        manager.addDependency("a.web", "a.core.Outer.Inner");
+        manager.addDependency("a.web", "java.util.List");
+        ModuleDependencies modules = new ModuleDependencies(manager);
+
+        // The nested type belongs to a.core, the types of no module are ignored
+        assertEquals(set("a.core"), modules.getCrossModuleDependencies().get("a.web"));
+        assertEquals(set("core"), modules.getModuleDependencies().get("web"));
+        assertFalse(modules.getModuleDependencies().containsKey(""));
+    }
+}
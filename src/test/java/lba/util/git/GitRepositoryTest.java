@@ -0,0 +1,166 @@
+package lba.util.git;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests against the bare repository of src/test/resources/git/fixture.git, holding four commits of
+ * src/a/b/Service.java, the version n declaring 20 * n methods :
+ * <ul>
+ * <li>the first three commits are packed, the first two versions of Service.java being stored as a delta chain
+ * (version 1 on version 2 on version 3), main and the v2 tag being packed references</li>
+ * <li>the last commit adding src/a/c/Client.java is made of loose objects, main being a loose reference</li>
+ * </ul>
+ */
+public class GitRepositoryTest {
+
+    static final String HEAD = "da833a65c2d823b2a286188aefd0fc68b57c7297";
+
+    static final String THIRD = "e6ab33d6457ff273b3c3eb456dbc2f7fae185c34";
+
+    static final String SECOND = "49bffbbbefc192fc41d10adf94dee38d0b0a4a41";
+
+    static final String FIRST = "c9e1f10ee18104e5b069e7c483dd97ec89bb523a";
+
+    private GitRepository repository;
+
+    /**
+     * @return the git directory of the fixture repository
+     */
+    static Path fixture() throws URISyntaxException {
+        return Paths.get(GitRepositoryTest.class.getResource("/git/fixture.git").toURI());
+    }
+
+    /**
+     * @return the content of Service.java in a version
+     */
+    static String service(int version) {
+        StringBuilder content = new StringBuilder("package a.b;\n\nimport java.util.List;\n\npublic class Service {\n");
+        for (int i = 1; i <= 20 * version; i++) {
+            content.append("    public int ").append(version == 3 && i <= 20 ? "renamed" : "method").append(i)
+                    .append("(List<String> values) { return values.size() + ").append(i).append("; }\n");
+        }
+        return content.append("}\n").toString();
+    }
+
+    @Before
+    public void open() throws IOException, URISyntaxException {
+        repository = GitRepository.open(fixture());
+    }
+
+    @After
+    public void close() throws IOException {
+        repository.close();
+    }
+
+    @Test
+    public void fixtureLayout() throws URISyntaxException {
+        Path objects = fixture().resolve("objects");
+        assertTrue(Files.isRegularFile(objects.resolve(HEAD.substring(0, 2)).resolve(HEAD.substring(2))));
+        assertFalse(Files.exists(objects.resolve(THIRD.substring(0, 2)).resolve(THIRD.substring(2))));
+        assertEquals(fixture(), repository.getWorkTree());
+    }
+
+    @Test
+    public void resolve() throws IOException {
+        assertEquals(HEAD, repository.resolve("HEAD").toHex());
+        // Loose reference
+        assertEquals(HEAD, repository.resolve("main").toHex());
+        assertEquals(HEAD, repository.resolve("refs/heads/main").toHex());
+        // Packed tag
+        assertEquals(SECOND, repository.resolve("v2").toHex());
+        assertEquals(FIRST, repository.resolve("v2^").toHex());
+        assertEquals(THIRD, repository.resolve("HEAD^").toHex());
+        assertEquals(SECOND, repository.resolve("HEAD~2").toHex());
+        assertEquals(FIRST, repository.resolve("main~1^1~1").toHex());
+        assertEquals(HEAD, repository.resolve(HEAD).toHex());
+        // Abbreviated names of a loose and of a packed commit
+        assertEquals(HEAD, repository.resolve("da833a6").toHex());
+        assertEquals(THIRD, repository.resolve("e6ab33d").toHex());
+    }
+
+    @Test
+    public void unknownRevisions() {
+        for (String revision : Arrays.asList("missing", "HEAD~4", "0000000", "HEAD^2", "v2:src")) {
+            try {
+                repository.resolve(revision);
+                fail("Resolved " + revision);
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void looseObjects() throws IOException {
+        List<String> names = new ArrayList<String>();
+        ObjectId client = null;
+        for (GitRepository.TreeEntry entry : repository.readTree(repository.resolveTree("HEAD:src/a/c"))) {
+            names.add(entry.getName());
+            client = entry.getId();
+            assertTrue(entry.isFile());
+        }
+        assertEquals(Arrays.asList("Client.java"), names);
+        assertEquals("package a.c;\n\nimport a.b.Service;\n\npublic class Client {\n}\n",
+                new String(repository.readBlob(client), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void packedObjects() throws IOException {
+        List<String> names = new ArrayList<String>();
+        for (GitRepository.TreeEntry entry : repository.readTree(repository.resolveTree("HEAD"))) {
+            names.add(entry.getName() + (entry.isTree() ? "/" : ""));
+        }
+        assertEquals(Arrays.asList("README", "src/"), names);
+        assertEquals(Arrays.asList("b/", "c/"), treeNames("HEAD:src/a"));
+        assertEquals(Arrays.asList("b/"), treeNames("v2:/src//a/"));
+        assertEquals("Fixture repository of the git reader tests\n", read("HEAD~3", "README"));
+    }
+
+    @Test
+    public void deltaChain() throws IOException {
+        // Whole object, delta on it, then delta on the delta, read in both orders so that the cached bases are used
+        assertEquals(service(3), read("HEAD", "src/a/b/Service.java"));
+        assertEquals(service(1), read("HEAD~3", "src/a/b/Service.java"));
+        assertEquals(service(2), read("v2", "src/a/b/Service.java"));
+        assertEquals(service(1), read("v2~1", "src/a/b/Service.java"));
+    }
+
+    private List<String> treeNames(String treeish) throws IOException {
+        List<String> names = new ArrayList<String>();
+        for (GitRepository.TreeEntry entry : repository.readTree(repository.resolveTree(treeish))) {
+            names.add(entry.getName() + (entry.isTree() ? "/" : ""));
+        }
+        return names;
+    }
+
+    /**
+     * @return the content of a file in a revision
+     */
+    private String read(String revision, String path) throws IOException {
+        int slash = path.lastIndexOf('/');
+        ObjectId tree = repository.resolveTree(revision + ":" + (slash < 0 ? "" : path.substring(0, slash)));
+        for (GitRepository.TreeEntry entry : repository.readTree(tree)) {
+            if (entry.getName().equals(path.substring(slash + 1))) {
+                return new String(repository.readBlob(entry.getId()), StandardCharsets.UTF_8);
+            }
+        }
+        throw new IOException("No " + path + " in " + revision);
+    }
+}
@@ -0,0 +1,71 @@
+package lba.util.git;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the pack of the fixture repository described by {@link GitRepositoryTest}
+ */
+public class PackFileTest {
+
+    /**
+     * Blobs of Service.java : whole object, delta on it, and delta on the delta
+     */
+    private static final String[] SERVICE_BLOBS = {"7700c6a174b97dd8c0cecfae90025acb5f67c68f",
+            "031b6cd8299de7b12d57a5c52027d6cd0535b54e", "e4785cadbefc5445a99f465eafab0bc497f251a9"};
+
+    private static Path getIndex() throws IOException, URISyntaxException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(
+                GitRepositoryTest.fixture().resolve("objects").resolve("pack"), "*.idx")) {
+            return stream.iterator().next();
+        }
+    }
+
+    @Test
+    public void find() throws IOException, URISyntaxException {
+        try (PackFile pack = PackFile.open(getIndex())) {
+            assertTrue(pack.find(ObjectId.fromHex(GitRepositoryTest.THIRD)) >= 0);
+            assertTrue(pack.find(ObjectId.fromHex(GitRepositoryTest.FIRST)) >= 0);
+            // Loose commit
+            assertTrue(pack.find(ObjectId.fromHex(GitRepositoryTest.HEAD)) < 0);
+            assertTrue(pack.find(ObjectId.fromHex("0000000000000000000000000000000000000000")) < 0);
+            assertTrue(pack.find(ObjectId.fromHex("ffffffffffffffffffffffffffffffffffffffff")) < 0);
+
+            Set<ObjectId> matches = new TreeSet<ObjectId>();
+            pack.findByPrefix("e6ab", matches);
+            assertEquals(1, matches.size());
+            assertEquals(GitRepositoryTest.THIRD, matches.iterator().next().toHex());
+            matches.clear();
+            pack.findByPrefix("da83", matches);
+            assertTrue(matches.isEmpty());
+        }
+    }
+
+    @Test
+    public void readDeltas() throws IOException, URISyntaxException {
+        try (GitRepository repository = GitRepository.open(GitRepositoryTest.fixture());
+             PackFile pack = PackFile.open(getIndex())) {
+            for (int version = 1; version <= SERVICE_BLOBS.length; version++) {
+                int position = pack.find(ObjectId.fromHex(SERVICE_BLOBS[version - 1]));
+                assertTrue(position >= 0);
+                GitObject blob = pack.read(position, repository);
+                assertEquals(GitObject.BLOB, blob.getType());
+                assertEquals(GitRepositoryTest.service(version), new String(blob.getData(), StandardCharsets.UTF_8));
+            }
+            GitObject commit = pack.read(pack.find(ObjectId.fromHex(GitRepositoryTest.SECOND)), repository);
+            assertEquals(GitObject.COMMIT, commit.getType());
+            assertTrue(new String(commit.getData(), StandardCharsets.UTF_8).endsWith("\n\nSecond version\n"));
+        }
+    }
+}
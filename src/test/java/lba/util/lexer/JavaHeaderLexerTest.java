@@ -0,0 +1,176 @@
+package lba.util.lexer;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class JavaHeaderLexerTest {
+
+    /**
+     * @return the header of a source, read in chunks of a few characters so that the tokens span several chunks
+     */
+    private static JavaHeader parse(final String source) throws IOException {
+        JavaHeaderLexer.CharSource chunks = new JavaHeaderLexer.CharSource() {
+            private int position;
+
+            @Override
+            public CharBuffer read() {
+                if (position >= source.length()) {
+                    return null;
+                }
+                int end = Math.min(source.length(), position + 7);
+                CharBuffer chunk = CharBuffer.wrap(source, position, end);
+                position = end;
+                return chunk;
+            }
+        };
+        return JavaHeader.parse(new JavaHeaderLexer(chunks));
+    }
+
+    @Test
+    public void classKeywordInJavadoc() throws IOException {
+        JavaHeader header = parse("package a.b;\n"
+                + "/**\n * This class is not a class declaration, nor an interface Foo\n */\n"
+                + "// class Commented\n"
+                + "public final class Real {\n}\n");
+        assertEquals("a.b", header.getPackageName());
+        assertEquals("class", header.getTypeKind());
+        assertEquals("Real", header.getTypeName());
+        assertTrue(header.isPublicType());
+        assertEquals(JavaHeaderLexer.PUBLIC | JavaHeaderLexer.FINAL, header.getTypeModifiers());
+    }
+
+    @Test
+    public void classKeywordInLiterals() throws IOException {
+        JavaHeader header = parse("package a;\n"
+                + "@Note(value = \"class Fake\", quote = '\"', block = \"\"\"\n  class InBlock \"quoted\"\n  \"\"\")\n"
+                + "interface Real {\n}\n");
+        assertEquals("interface", header.getTypeKind());
+        assertEquals("Real", header.getTypeName());
+        assertFalse(header.isPublicType());
+        assertEquals(Collections.singletonList("Note"), header.getAnnotations());
+    }
+
+    @Test
+    public void staticImport() throws IOException {
+        JavaHeader header = parse("package a;\nimport static a.B.c;\nimport static a.B.*;\nimport a.B;\nclass C {}");
+        assertEquals(Arrays.asList("a.B.c", "a.B.*"), header.getStaticImports());
+        assertEquals(Collections.singletonList("a.B"), header.getImports());
+    }
+
+    @Test
+    public void wildcardImport() throws IOException {
+        JavaHeader header = parse("package a;\nimport a.b.*;\nimport a . /* c */ c . *;\nclass C {}");
+        assertEquals(Arrays.asList("a.b.*", "a.c.*"), header.getImports());
+        assertTrue(header.getStaticImports().isEmpty());
+    }
+
+    @Test
+    public void wildcardImportToken() throws IOException {
+        JavaHeaderLexer lexer = new JavaHeaderLexer(sourceOf("import a.b.*; import a.B; class C {}"));
+        assertEquals(JavaHeaderLexer.TokenType.IMPORT, lexer.next());
+        assertTrue(lexer.isWildcardImport());
+        assertEquals(JavaHeaderLexer.TokenType.IMPORT, lexer.next());
+        assertFalse(lexer.isWildcardImport());
+        assertEquals(JavaHeaderLexer.TokenType.TYPE_DECLARATION, lexer.next());
+        assertEquals(JavaHeaderLexer.TokenType.END, lexer.next());
+    }
+
+    @Test
+    public void annotationsWithParentheses() throws IOException {
+        JavaHeader header = parse("package a;\n"
+                + "import java.lang.annotation.Retention;\n"
+                + "@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n"
+                + "@a.b.Named(value = (\"x)\" + \")\"), nested = @Inner(')'))\n"
+                + "@Deprecated\n"
+                + "public abstract class Annotated {\n}\n");
+        assertEquals(Arrays.asList("SuppressWarnings", "a.b.Named", "Deprecated"), header.getAnnotations());
+        assertEquals("Annotated", header.getTypeName());
+        assertEquals(JavaHeaderLexer.PUBLIC | JavaHeaderLexer.ABSTRACT, header.getTypeModifiers());
+    }
+
+    @Test
+    public void annotationType() throws IOException {
+        JavaHeader header = parse("package a;\n@Retention(RUNTIME)\npublic @interface Marker {\n}\n");
+        assertEquals("@interface", header.getTypeKind());
+        assertEquals("Marker", header.getTypeName());
+        assertEquals(Collections.singletonList("Retention"), header.getAnnotations());
+    }
+
+    @Test
+    public void defaultPackage() throws IOException {
+        JavaHeader header = parse("import java.util.List;\n\nrecord Point(int x, int y) {\n}\n");
+        assertNull(header.getPackageName());
+        assertEquals(Collections.singletonList("java.util.List"), header.getImports());
+        assertEquals("record", header.getTypeKind());
+        assertEquals("Point", header.getTypeName());
+    }
+
+    @Test
+    public void annotatedPackage() throws IOException {
+        // The annotations of a package-info file are not those of a type
+        JavaHeader header = parse("@Deprecated\npackage a.b;\n");
+        assertEquals("a.b", header.getPackageName());
+        assertTrue(header.getAnnotations().isEmpty());
+        assertFalse(header.hasType());
+    }
+
+    @Test
+    public void nonSealed() throws IOException {
+        JavaHeader header = parse("package a;\npublic non-sealed class Open extends Base {}");
+        assertEquals("Open", header.getTypeName());
+        assertEquals(JavaHeaderLexer.PUBLIC | JavaHeaderLexer.NON_SEALED, header.getTypeModifiers());
+    }
+
+    @Test
+    public void nextTypes() throws IOException {
+        JavaHeaderLexer lexer = new JavaHeaderLexer(sourceOf("package a;\n"
+                + "class Hidden {\n"
+                + "    public void run() { Class<?> c = String.class; Object record = null; new Thread() {}; }\n"
+                + "    /** public class InComment */\n"
+                + "    String s = \"public class InString\";\n"
+                + "    @Deprecated public static final class Nested {}\n"
+                + "}\n"
+                + "@SuppressWarnings(\"x\")\n"
+                + "public abstract class Visible {}\n"
+                + "record Point(int x) {}\n"));
+        JavaHeader header = JavaHeader.parse(lexer);
+        assertEquals("Hidden", header.getTypeName());
+        assertFalse(header.isPublicType());
+
+        assertEquals(JavaHeaderLexer.TokenType.TYPE_DECLARATION, lexer.nextType());
+        assertEquals("Nested", lexer.getName());
+        assertEquals(JavaHeaderLexer.PUBLIC | JavaHeaderLexer.STATIC | JavaHeaderLexer.FINAL, lexer.getModifiers());
+        assertEquals(JavaHeaderLexer.TokenType.TYPE_DECLARATION, lexer.nextType());
+        assertEquals("Visible", lexer.getName());
+        assertEquals(JavaHeaderLexer.PUBLIC | JavaHeaderLexer.ABSTRACT, lexer.getModifiers());
+        assertEquals(JavaHeaderLexer.TokenType.TYPE_DECLARATION, lexer.nextType());
+        assertEquals("Point", lexer.getName());
+        assertEquals("record", lexer.getTypeKind());
+        assertEquals(0, lexer.getModifiers());
+        assertEquals(JavaHeaderLexer.TokenType.END, lexer.nextType());
+    }
+
+    private static JavaHeaderLexer.CharSource sourceOf(final String source) {
+        return new JavaHeaderLexer.CharSource() {
+            private boolean read;
+
+            @Override
+            public CharBuffer read() {
+                if (read) {
+                    return null;
+                }
+                read = true;
+                return CharBuffer.wrap(source);
+            }
+        };
+    }
+}
@@ -0,0 +1,54 @@
+package lba.util.report;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DotReportWriterTest {
+
+    @Test
+    public void dotIds() {
+        assertTrue(DotReportWriter.isDotId("common"));
+        assertTrue(DotReportWriter.isDotId("_model2"));
+        assertTrue(DotReportWriter.isDotId("null"));
+        assertTrue(DotReportWriter.isDotId("42"));
+        assertTrue(DotReportWriter.isDotId("-1.5"));
+        assertTrue(DotReportWriter.isDotId(".5"));
+        assertFalse(DotReportWriter.isDotId(""));
+        assertFalse(DotReportWriter.isDotId("common.model"));
+        assertFalse(DotReportWriter.isDotId("sitools-common"));
+        assertFalse(DotReportWriter.isDotId("2d"));
+        assertFalse(DotReportWriter.isDotId("1.2.3"));
+        assertFalse(DotReportWriter.isDotId("-"));
+        assertFalse(DotReportWriter.isDotId("Node"));
+        assertFalse(DotReportWriter.isDotId("subgraph"));
+    }
+
+    @Test
+    public void onlyInvalidIdsQuoted() throws IOException {
+        Map<String, SortedSet<String>> dependencies = new TreeMap<String, SortedSet<String>>();
+        dependencies.put("common", new TreeSet<String>(Arrays.asList("model", "common.util", "say\"hi\"")));
+        dependencies.put("graph", new TreeSet<String>(Arrays.asList("common")));
+
+        StringWriter out = new StringWriter();
+        new DotReportWriter().writeDependencies(dependencies, out);
+        assertEquals("digraph DepGraph { \n"
+                + "\tcommon->\"common.util\"\n"
+                + "\tcommon->model\n"
+                + "\tcommon->\"say\\\"hi\\\"\"\n"
+                + "\n"
+                + "\t\"graph\"->common\n"
+                + "\n"
+                + "}", out.toString());
+    }
+}
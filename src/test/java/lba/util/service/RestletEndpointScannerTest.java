@@ -0,0 +1,174 @@
+package lba.util.service;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class RestletEndpointScannerTest {
+
+    private final List<ResourceClass> classes = new ArrayList<ResourceClass>();
+
+    private final List<Route> routes = new ArrayList<Route>();
+
+    private void scan(String source) {
+        new RestletEndpointScanner().scan(ByteBuffer.wrap(source.getBytes(StandardCharsets.UTF_8)),
+                StandardCharsets.UTF_8, "a", classes, routes);
+    }
+
+    private ResourceClass getClass(String name) {
+        for (ResourceClass resource : classes) {
+            if (resource.getName().equals(name)) {
+                return resource;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the "VERB value -> method" lines of the endpoints of a class
+     */
+    private List<String> getEndpoints(String name) {
+        List<String> endpoints = new ArrayList<String>();
+        for (Endpoint endpoint : getClass(name).getEndpoints()) {
+            endpoints.add(endpoint.getVerb() + " " + endpoint.getValue() + " -> " + endpoint.getMethod());
+        }
+        return endpoints;
+    }
+
+    /**
+     * @return the "template -> target (class)" lines of the routes
+     */
+    private List<String> getRoutes() {
+        List<String> lines = new ArrayList<String>();
+        for (Route route : routes) {
+            lines.add(route.getTemplate() + " -> " + route.getTarget() + " (" + route.getDeclaringClass() + ")");
+        }
+        return lines;
+    }
+
+    @Test
+    public void methodAnnotations() {
+        scan("public class Item extends ServerResource {\n"
+                + "    @Get(\"json\")\n"
+                + "    public Representation toJson() { return null; }\n"
+                + "    @Post @Override\n"
+                + "    protected final List<Map<String, Integer>> store(Representation entity) { return null; }\n"
+                + "    @Delete(value = \"xml\")\n"
+                + "    public void remove() {}\n"
+                + "    @Getter\n"
+                + "    public String notAVerb() { return \"@Put\"; }\n"
+                + "}\n");
+        assertEquals(Arrays.asList("GET json -> toJson", "POST  -> store", "DELETE xml -> remove"),
+                getEndpoints("a.Item"));
+        assertEquals("ServerResource", getClass("a.Item").getSuperclass());
+    }
+
+    @Test
+    public void nestedResources() {
+        scan("public class App extends Application {\n"
+                + "    public static class Inner extends ServerResource {\n"
+                + "        @Get public String get() { return null; }\n"
+                + "        class Deeper extends ServerResource {\n"
+                + "            @Put(\"json\") void put(String s) {}\n"
+                + "        }\n"
+                + "        @Head void head() {}\n"
+                + "    }\n"
+                + "    @Options void options() {}\n"
+                + "}\n");
+        assertEquals(Arrays.asList("a.App", "a.App.Inner", "a.App.Inner.Deeper"), Arrays.asList(
+                classes.get(0).getName(), classes.get(1).getName(), classes.get(2).getName()));
+        assertEquals(Arrays.asList("GET  -> get", "HEAD  -> head"), getEndpoints("a.App.Inner"));
+        assertEquals(Arrays.asList("PUT json -> put"), getEndpoints("a.App.Inner.Deeper"));
+        assertEquals(Arrays.asList("OPTIONS  -> options"), getEndpoints("a.App"));
+    }
+
+    @Test
+    public void qualifiedAnnotations() {
+        scan("class Item extends org.restlet.resource.ServerResource {\n"
+                + "    @org.restlet.resource.Post(\"json\")\n"
+                + "    public void create(String s) {}\n"
+                + "    @ org.restlet . resource.Get\n"
+                + "    public String read() { return null; }\n"
+                + "    @com.other.Put\n"
+                + "    public void notRestlet() {}\n"
+                + "    void call() { helper.Get(); }\n"
+                + "}\n");
+        assertEquals(Arrays.asList("POST json -> create", "GET  -> read"), getEndpoints("a.Item"));
+    }
+
+    @Test
+    public void ignoredInCommentsAndLiterals() {
+        scan("/** class Fake { @Get(\"x\") void no(); } */\n"
+                + "class Item extends ServerResource {\n"
+                + "    String s = \"router.attach(\\\"/no\\\", No.class) @Post\";\n"
+                + "    char c = '{';\n"
+                + "    // @Put\n"
+                + "    @Get void get() {}\n"
+                + "}\n");
+        assertEquals(1, classes.size());
+        assertEquals(Arrays.asList("GET  -> get"), getEndpoints("a.Item"));
+    }
+
+    @Test
+    public void uriTemplates() {
+        scan("public class App extends Application {\n"
+                + "    private Router router;\n"
+                + "    public Restlet createInboundRoot() {\n"
+                + "        Router inbound = new Router(getContext());\n"
+                + "        inbound.attach(\"/items/{id}\", ItemResource.class);\n"
+                + "        inbound.attach(\"/items/{id}/parts/{part}?{query}\", PartResource.class)\n"
+                + "                .setMatchingMode(Template.MODE_STARTS_WITH);\n"
+                + "        inbound.attachDefault(HomeResource.class);\n"
+                + "        this.router.attach(BASE + \"/list\", new ListRestlet(getContext(), \"a,b\"));\n"
+                + "        getDefaultHost().attach(\"/app\", this);\n"
+                + "        new org.restlet.routing.Router(getContext()).attach(\"/new\", NewResource.class);\n"
+                + "        return inbound;\n"
+                + "    }\n"
+                + "}\n");
+        assertEquals(Arrays.asList(
+                "/app -> this (a.App)",
+                "/new -> NewResource (a.App)",
+                "/items/{id} -> ItemResource (a.App)",
+                "/items/{id}/parts/{part}?{query} -> PartResource (a.App)",
+                " -> HomeResource (a.App)",
+                "BASE + \"/list\" -> new ListRestlet(getContext(), \"a,b\") (a.App)"), getRoutes());
+    }
+
+    @Test
+    public void attachCallsOfOtherTypes() {
+        scan("class Mailer {\n"
+                + "    void send(Message message, Router router) {\n"
+                + "        message.attach(\"report.pdf\", file);\n"
+                + "        builder().attach(\"x\", y);\n"
+                + "        router.attach(\"/mail\", MailResource.class);\n"
+                + "    }\n"
+                + "}\n"
+                + "class Routes extends Router {\n"
+                + "    Routes() { this.attach(\"/own\", OwnResource.class); }\n"
+                + "}\n");
+        assertEquals(Arrays.asList("/own -> OwnResource (a.Routes)", "/mail -> MailResource (a.Mailer)"), getRoutes());
+    }
+
+    @Test
+    public void records() {
+        scan("class Holder extends ServerResource {\n"
+                + "    record Point(int x, int y) {\n"
+                + "        @Get String describe() { return null; }\n"
+                + "    }\n"
+                + "    Object record = null;\n"
+                + "    @Put void put() {}\n"
+                + "}\n");
+        assertEquals(Arrays.asList("a.Holder", "a.Holder.Point"), Arrays.asList(
+                classes.get(0).getName(), classes.get(1).getName()));
+        assertNull(getClass("a.Holder.Point").getSuperclass());
+        assertEquals(Arrays.asList("GET  -> describe"), getEndpoints("a.Holder.Point"));
+        assertEquals(Arrays.asList("PUT  -> put"), getEndpoints("a.Holder"));
+    }
+}
@@ -0,0 +1,61 @@
+package lba.util.service;
+
+import lba.util.SourceFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RestletServiceAnalyzerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final RestletServiceAnalyzer analyzer = new RestletServiceAnalyzer();
+
+    private SourceFile analyze(String name, String content) throws IOException {
+        Path file = folder.getRoot().toPath().resolve(name);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        SourceFile source = new SourceFile(file);
+        analyzer.analyseSource(source);
+        source.close();
+        return source;
+    }
+
+    @Test
+    public void publicType() throws IOException {
+        analyze("Item.java", "package a;\nimport org.restlet.resource.Get;\nimport org.restlet.resource.Put;\n"
+                + "import org.restlet.resource.Patch;\npublic class Item extends ServerResource {}\n");
+        assertEquals(Arrays.asList("a.Item"), Arrays.asList(analyzer.getServicesRepository().keySet().toArray()));
+        assertEquals(new TreeSet<String>(Arrays.asList("Get", "Put")), analyzer.getServicesRepository().get("a.Item"));
+    }
+
+    @Test
+    public void firstPublicType() throws IOException {
+        // The entity is the first public type, not the first type
+        analyze("Item.java", "package a;\nimport org.restlet.resource.Get;\n"
+                + "class Helper { String s = \"public class Fake\"; }\n"
+                + "public final class Item extends ServerResource {}\n");
+        SortedSet<String> verbs = analyzer.getServicesRepository().get("a.Item");
+        assertEquals(new TreeSet<String>(Arrays.asList("Get")), verbs);
+        assertFalse(analyzer.getServicesRepository().containsKey("a.Helper"));
+    }
+
+    @Test
+    public void noPublicType() throws IOException {
+        SourceFile source = analyze("Helper.java", "package a;\nimport org.restlet.resource.Get;\nclass Helper {}\n");
+        assertTrue(source.isFailed());
+        assertTrue(analyzer.getServicesRepository().isEmpty());
+    }
+}
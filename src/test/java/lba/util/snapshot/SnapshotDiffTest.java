@@ -0,0 +1,116 @@
+package lba.util.snapshot;
+
+import lba.util.dependency.DependencyManager;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SnapshotDiffTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static SortedSet<String> set(String... values) {
+        return new TreeSet<String>(Arrays.asList(values));
+    }
+
+    private static SortedMap<String, SortedSet<String>> map(String key, String... values) {
+        SortedMap<String, SortedSet<String>> map = new TreeMap<String, SortedSet<String>>();
+        map.put(key, set(values));
+        return map;
+    }
+
+    private SnapshotFile write(String name, DependencyManager manager, SortedMap<String, SortedSet<String>> services)
+            throws IOException {
+        Path file = folder.getRoot().toPath().resolve(name);
+        AnalysisSnapshot.write(file, manager, services);
+        return SnapshotFile.open(file);
+    }
+
+    @Test
+    public void sameSnapshot() throws IOException {
+        DependencyManager manager = new DependencyManager();
+        manager.addDependency("a.b", "a.c.Type");
+        SnapshotFile before = write("before", manager, map("a.b.Item", "GET"));
+        SnapshotFile after = write("after", manager, map("a.b.Item", "GET"));
+        assertTrue(SnapshotDiff.compare(before, after).isEmpty());
+    }
+
+    @Test
+    public void addedAndRemoved() throws IOException {
+        DependencyManager previous = new DependencyManager();
+        previous.addDependency("a.b", "a.c.Type");
+        previous.addDependency("a.b", "a.d.Gone");
+        previous.addDependency("a.old", "a.b.Item");
+        previous.addDependency("a.z", "a.b.Item");
+        SortedMap<String, SortedSet<String>> previousServices = new TreeMap<String, SortedSet<String>>();
+        previousServices.put("a.b.Item", set("GET", "PUT"));
+        previousServices.put("a.old.Legacy", set("POST"));
+
+        DependencyManager current = new DependencyManager();
+        current.addDependency("a.b", "a.c.Type");
+        current.addDependency("a.b", "a.e.New");
+        current.addDependency("a.a", "a.b.Item");
+        current.addDependency("a.new", "a.b.Item");
+        current.addDependency("a.z", "a.b.Item");
+        SortedMap<String, SortedSet<String>> currentServices = new TreeMap<String, SortedSet<String>>();
+        currentServices.put("a.b.Item", set("DELETE", "GET"));
+        currentServices.put("a.new.Fresh", set("GET"));
+
+        SnapshotDiff diff = SnapshotDiff.compare(write("before", previous, previousServices),
+                write("after", current, currentServices));
+
+        assertFalse(diff.isEmpty());
+        assertEquals(set("a.a", "a.new"), diff.getAddedPackages());
+        assertEquals(set("a.old"), diff.getRemovedPackages());
+
+        SortedMap<String, SortedSet<String>> added = map("a.b", "a.e.New");
+        added.put("a.a", set("a.b.Item"));
+        added.put("a.new", set("a.b.Item"));
+        assertEquals(added, diff.getAddedDependencies());
+        SortedMap<String, SortedSet<String>> removed = map("a.b", "a.d.Gone");
+        removed.put("a.old", set("a.b.Item"));
+        assertEquals(removed, diff.getRemovedDependencies());
+
+        SortedMap<String, SortedSet<String>> addedServices = map("a.b.Item", "DELETE");
+        addedServices.put("a.new.Fresh", set("GET"));
+        assertEquals(addedServices, diff.getAddedServices());
+        SortedMap<String, SortedSet<String>> removedServices = map("a.b.Item", "PUT");
+        removedServices.put("a.old.Legacy", set("POST"));
+        assertEquals(removedServices, diff.getRemovedServices());
+    }
+
+    @Test
+    public void fromEmptySnapshot() throws IOException {
+        DependencyManager current = new DependencyManager();
+        current.addDependency("a.b", "a.c.Type");
+        current.addDependency("a.c", "a.b.Item");
+        SnapshotDiff diff = SnapshotDiff.compare(write("before", null, null),
+                write("after", current, map("a.b.Item", "GET")));
+
+        assertEquals(set("a.b", "a.c"), diff.getAddedPackages());
+        assertTrue(diff.getRemovedPackages().isEmpty());
+        assertEquals(current.getDependencies(), diff.getAddedDependencies());
+        assertEquals(map("a.b.Item", "GET"), diff.getAddedServices());
+        assertEquals(Collections.emptyMap(), diff.getRemovedDependencies());
+
+        SnapshotDiff reverse = SnapshotDiff.compare(write("after2", current, map("a.b.Item", "GET")),
+                write("before2", null, null));
+        assertEquals(set("a.b", "a.c"), reverse.getRemovedPackages());
+        assertTrue(reverse.getAddedPackages().isEmpty());
+        assertEquals(map("a.b.Item", "GET"), reverse.getRemovedServices());
+    }
+}
@@ -0,0 +1,93 @@
+package lba.util.snapshot;
+
+import lba.util.dependency.DependencyGraph;
+import lba.util.dependency.DependencyManager;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SnapshotFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static SortedSet<String> set(String... values) {
+        return new TreeSet<String>(Arrays.asList(values));
+    }
+
+    /**
+     * @return the count of each edge of a graph, keyed by source and target names
+     */
+    private static Map<String, Integer> counts(DependencyGraph graph) {
+        Map<String, Integer> counts = new HashMap<String, Integer>();
+        for (int node = 0; node < graph.getNodeCount(); node++) {
+            for (int edge = graph.getFirstEdge(node); edge < graph.getLastEdge(node); edge++) {
+                counts.put(graph.getName(node) + "->" + graph.getName(graph.getTarget(edge)), graph.getCount(edge));
+            }
+        }
+        return counts;
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        DependencyManager manager = new DependencyManager();
+        manager.addDependency("a.b", "a.c.Type", 3);
+        manager.addDependency("a.b", "java.util.List");
+        manager.addDependency("a.c", "a.b.Other", 2);
+        // Names sorted by their UTF-8 bytes, not by their chars
+        manager.addDependency("a.été", "a.b.Other");
+        manager.addDependency("a.ａ", "a.été.Summer");
+        manager.addModule("a.b", "core");
+        manager.addModule("a.c", "core");
+        manager.addModule("a.c", "web");
+        SortedMap<String, SortedSet<String>> services = new TreeMap<String, SortedSet<String>>();
+        services.put("a.b.Item", set("GET", "PUT"));
+        services.put("a.c.Store", set("POST"));
+
+        Path file = folder.getRoot().toPath().resolve("run.snapshot");
+        int names = AnalysisSnapshot.write(file, manager, services);
+        SnapshotFile snapshot = SnapshotFile.open(file);
+
+        assertEquals(names, snapshot.getNameCount());
+        assertEquals(manager.getDependencies(), snapshot.getDependencies());
+        assertEquals(services, snapshot.getServicesRepository());
+        assertEquals(5, snapshot.getEdgeCount());
+        assertEquals(3, snapshot.getServiceCount());
+        assertEquals(3, snapshot.getModuleCount());
+
+        DependencyManager loaded = snapshot.toManager();
+        assertEquals(manager.getDependencies(), loaded.getDependencies());
+        assertEquals(counts(manager.getGraph()), counts(loaded.getGraph()));
+        assertEquals(manager.getPackageModules(), loaded.getPackageModules());
+
+        for (int index = 0; index < snapshot.getNameCount(); index++) {
+            assertEquals(index, snapshot.find(snapshot.getName(index)));
+        }
+        assertTrue(snapshot.find("a.d") < 0);
+        assertTrue(snapshot.find("") < 0);
+    }
+
+    @Test
+    public void emptySnapshot() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("empty.snapshot");
+        assertEquals(0, AnalysisSnapshot.write(file, null, null));
+        SnapshotFile snapshot = SnapshotFile.open(file);
+        assertEquals(0, snapshot.getNameCount());
+        assertTrue(snapshot.getDependencies().isEmpty());
+        assertTrue(snapshot.getServicesRepository().isEmpty());
+        assertTrue(snapshot.find("a") < 0);
+    }
+}